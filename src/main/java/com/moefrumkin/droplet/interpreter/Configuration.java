@@ -0,0 +1,267 @@
+package com.moefrumkin.droplet.interpreter;
+
+import com.moefrumkin.droplet.parser.expression.BinaryOperationExpression;
+import com.moefrumkin.droplet.parser.expression.UnaryOperationExpression;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.invoke.MethodHandle;
+import java.lang.reflect.Method;
+import java.util.*;
+import java.util.function.*;
+
+/**
+ * The settings and library an interpreter runs programs with. Every interpreter is built by a builder that extends {@link Builder}, so they all have the same settings,
+ * the same defaults and the same default library, and they all accept both library functions that take a list and {@link NativeFunction}s.
+ * <p>
+ * The default library has {@code print} and {@code println}, which print their arguments to the output and return the return value. A function added under either name replaces it
+ * @param <E> the type of the interpreter, which is given to the library functions that take a list
+ */
+public final class Configuration<E> {
+
+    /**
+     * The value a function returns if it does not return anything else
+     */
+    public static final int DEFAULT_RETURN = 0;
+    /**
+     * The default truthiness, where every value except zero is truthy
+     */
+    public static final IntPredicate DEFAULT_TRUTHINESS = i -> i != 0;
+    private static final Comparator<Integer> DEFAULT_ORDERING = Comparator.comparingInt(a -> a);
+    private static final int DEFAULT_FALSE = 0;
+    private static final int DEFAULT_TRUE = 1;
+    /**
+     * The default binary operations. Assignment has no operation by default
+     */
+    public static final Map<BinaryOperationExpression.Type, IntBinaryOperator> DEFAULT_BINARY_OPERATIONS = Map.ofEntries(
+            Map.entry(BinaryOperationExpression.Type.ADDITION, Integer::sum),
+            Map.entry(BinaryOperationExpression.Type.SUBTRACTION, (a, b) -> a - b),
+            Map.entry(BinaryOperationExpression.Type.MULTIPLICATION, (a, b) -> a * b),
+            Map.entry(BinaryOperationExpression.Type.OR, (a, b) -> DEFAULT_TRUTHINESS.test(a) || DEFAULT_TRUTHINESS.test(b) ? DEFAULT_TRUE : DEFAULT_FALSE),
+            Map.entry(BinaryOperationExpression.Type.AND, (a, b) -> DEFAULT_TRUTHINESS.test(a) && DEFAULT_TRUTHINESS.test(b) ? DEFAULT_TRUE : DEFAULT_FALSE),
+            Map.entry(BinaryOperationExpression.Type.EQUALS, (a, b) -> a == b ? DEFAULT_TRUE : DEFAULT_FALSE),
+            Map.entry(BinaryOperationExpression.Type.NOTEQUALS, (a, b) -> a != b ? DEFAULT_TRUE : DEFAULT_FALSE),
+            Map.entry(BinaryOperationExpression.Type.GREATER, (a, b) -> DEFAULT_ORDERING.compare(a, b) > 0 ? DEFAULT_TRUE : DEFAULT_FALSE),
+            Map.entry(BinaryOperationExpression.Type.LESS, (a, b) -> DEFAULT_ORDERING.compare(a, b) < 0 ? DEFAULT_TRUE : DEFAULT_FALSE)
+    );
+    /**
+     * The default unary operations
+     */
+    public static final Map<UnaryOperationExpression.Type, IntUnaryOperator> DEFAULT_UNARY_OPERATIONS = Map.ofEntries(
+            Map.entry(UnaryOperationExpression.Type.NEGATION, i -> -i),
+            Map.entry(UnaryOperationExpression.Type.BOOLEAN_NEGATION, i -> DEFAULT_TRUTHINESS.test(i) ? DEFAULT_TRUE : DEFAULT_FALSE)
+    );
+    private static final OutputStream DEFAULT_OUTPUT = System.out;
+    private static final String PRINT = "print";
+    private static final String PRINTLN = "println";
+    /**
+     * The names of the functions of the default library
+     */
+    public static final Set<String> DEFAULT_LIBRARY_FUNCTIONS = Set.of(PRINT, PRINTLN);
+
+    private final int returnValue;
+    private final IntPredicate truthiness;
+    private final Map<BinaryOperationExpression.Type, IntBinaryOperator> binaryOperations;
+    private final Map<UnaryOperationExpression.Type, IntUnaryOperator> unaryOperations;
+    private final OutputStream output;
+    private final Map<String, ToIntBiFunction<E, List<Integer>>> functions;
+    private final Map<String, NativeFunction> nativeFunctions;
+    private final BiFunction<E, IOException, RuntimeException> outputError;
+
+    private Configuration(Builder<E, ?> builder, BiFunction<E, IOException, RuntimeException> outputError) {
+        this.returnValue = builder.returnValue;
+        this.truthiness = builder.truthiness;
+        this.binaryOperations = builder.binaryOperations;
+        this.unaryOperations = builder.unaryOperations;
+        this.output = builder.output;
+        this.nativeFunctions = Map.copyOf(builder.nativeFunctions);
+        this.outputError = outputError;
+
+        Map<String, ToIntBiFunction<E, List<Integer>>> functions = new HashMap<>();
+        for (String name : builder.defaults) {
+            Character delimiter = name.equals(PRINTLN) ? '\n' : null;
+            functions.put(name, (interpreter, args) -> { args.forEach(arg -> print(interpreter, arg, delimiter)); return returnValue; });
+        }
+        functions.putAll(builder.functions);
+        this.functions = Map.copyOf(functions);
+    }
+
+    /**
+     * A builder for an interpreter. Each interpreter has a builder of its own that extends this one, with the settings that only apply to it
+     * @param <E> the type of the interpreter
+     * @param <B> the type of the builder, which the setters return
+     */
+    public abstract static class Builder<E, B extends Builder<E, B>> {
+        private int returnValue = DEFAULT_RETURN;
+        private IntPredicate truthiness = DEFAULT_TRUTHINESS;
+        private Map<BinaryOperationExpression.Type, IntBinaryOperator> binaryOperations = DEFAULT_BINARY_OPERATIONS;
+        private Map<UnaryOperationExpression.Type, IntUnaryOperator> unaryOperations = DEFAULT_UNARY_OPERATIONS;
+        private OutputStream output = DEFAULT_OUTPUT;
+        private final Map<String, ToIntBiFunction<E, List<Integer>>> functions = new HashMap<>();
+        private final Map<String, NativeFunction> nativeFunctions = new HashMap<>();
+        /**
+         * The functions of the default library that have not been replaced
+         */
+        private final Set<String> defaults = new HashSet<>(DEFAULT_LIBRARY_FUNCTIONS);
+
+        /**
+         * Creates a new builder object with the default settings
+         */
+        protected Builder() {}
+
+        /**
+         * Sets the value library functions return
+         * @param newReturn the return value
+         * @return the builder object
+         */
+        public B returnValue(int newReturn) { returnValue = newReturn; return self(); }
+
+        /**
+         * Sets the predicate that determines whether a number is truthy
+         * @param newTruthiness the predicate
+         * @return the builder object
+         */
+        public B truthiness(IntPredicate newTruthiness) { truthiness = newTruthiness; return self(); }
+
+        /**
+         * Determines how binary operations are evaluated
+         * @param newOperations the binary operations
+         * @return the builder object
+         */
+        public B binaryOperations(Map<BinaryOperationExpression.Type, IntBinaryOperator> newOperations) { binaryOperations = newOperations; return self(); }
+
+        /**
+         * Determines how unary operations are evaluated
+         * @param newOperations the unary operations
+         * @return the builder object
+         */
+        public B unaryOperations(Map<UnaryOperationExpression.Type, IntUnaryOperator> newOperations) { unaryOperations = newOperations; return self(); }
+
+        /**
+         * Sets the output stream for library functions
+         * @param newOutput the output stream
+         * @return the builder object
+         */
+        public B output(OutputStream newOutput) { output = newOutput; return self(); }
+
+        /**
+         * Adds a function to the library
+         * @param name the name of the function
+         * @param function the function
+         * @return the builder object
+         */
+        public B addFunction(String name, ToIntBiFunction<E, List<Integer>> function) { functions.put(name, function); nativeFunctions.remove(name); defaults.remove(name); return self(); }
+
+        /**
+         * Adds a function with a fixed number of parameters to the library, which is called through the method handle without boxing its arguments
+         * @param name the name of the function
+         * @param function the method handle, whose parameters and return type must all be {@code int}, such as {@code (II)I}
+         * @return the builder object
+         * @throws IllegalArgumentException if the handle does not take and return ints
+         */
+        public B addFunction(String name, MethodHandle function) { return addFunction(NativeFunction.of(name, function)); }
+
+        /**
+         * Adds a public static method to the library as a function with a fixed number of parameters, which is called without boxing its arguments
+         * @param name the name of the function
+         * @param function the method, whose parameters and return type must all be {@code int}
+         * @return the builder object
+         * @throws IllegalArgumentException if the method is not public and static, or does not take and return ints
+         */
+        public B addFunction(String name, Method function) { return addFunction(NativeFunction.of(name, function)); }
+
+        private B addFunction(NativeFunction function) { nativeFunctions.put(function.name(), function); functions.remove(function.name()); defaults.remove(function.name()); return self(); }
+
+        /**
+         * Creates the configuration of an interpreter from the builder object
+         * @param outputError creates the exception that is thrown when the default library cannot print, from the interpreter and the error
+         * @return the configuration
+         */
+        protected Configuration<E> configuration(BiFunction<E, IOException, RuntimeException> outputError) { return new Configuration<>(this, outputError); }
+
+        /**
+         * Creates an interpreter from the builder object
+         * @return an interpreter
+         */
+        public abstract E build();
+
+        @SuppressWarnings("unchecked")
+        private B self() { return (B) this; }
+    }
+
+    /**
+     * @return the value library functions return
+     */
+    public int returnValue() {
+        return returnValue;
+    }
+
+    /**
+     * @return the predicate that determines whether a number is truthy
+     */
+    public IntPredicate truthiness() {
+        return truthiness;
+    }
+
+    /**
+     * Gets the operation of a type of binary operation
+     * @param type the type
+     * @return the operation, or {@code null} if the type has none
+     */
+    public IntBinaryOperator binaryOperation(BinaryOperationExpression.Type type) {
+        return binaryOperations.get(type);
+    }
+
+    /**
+     * Gets the operation of a type of unary operation
+     * @param type the type
+     * @return the operation, or {@code null} if the type has none
+     */
+    public IntUnaryOperator unaryOperation(UnaryOperationExpression.Type type) {
+        return unaryOperations.get(type);
+    }
+
+    /**
+     * @return the output stream for library functions
+     */
+    public OutputStream output() {
+        return output;
+    }
+
+    /**
+     * Gets a library function that takes a list. A name is either a library function that takes a list, a native function, or neither
+     * @param name the name of the function
+     * @return the function, or {@code null} if there is no such function
+     */
+    public ToIntBiFunction<E, List<Integer>> libraryFunction(String name) {
+        return functions.get(name);
+    }
+
+    /**
+     * Gets a native function
+     * @param name the name of the function
+     * @return the function, or {@code null} if there is no such function
+     */
+    public NativeFunction nativeFunction(String name) {
+        return nativeFunctions.get(name);
+    }
+
+    /**
+     * Checks whether a name is a function of the library, of either kind
+     * @param name the name
+     * @return whether the name is a library function
+     */
+    public boolean isLibraryFunction(String name) {
+        return functions.containsKey(name) || nativeFunctions.containsKey(name);
+    }
+
+    private void print(E interpreter, int i, Character delimiter) {
+        try {
+            output.write(String.valueOf(i).getBytes());
+            if (delimiter != null)
+                output.write(delimiter);
+        } catch (IOException e) {
+            throw outputError.apply(interpreter, e);
+        }
+    }
+}
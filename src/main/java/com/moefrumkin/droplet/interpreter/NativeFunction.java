@@ -0,0 +1,175 @@
+package com.moefrumkin.droplet.interpreter;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.UndeclaredThrowableException;
+import java.util.List;
+import java.util.function.ToIntFunction;
+
+/**
+ * A library function implemented by a Java method that takes and returns ints, such as {@code static int max(int a, int b)}, whose type is {@code (II)I}.
+ * Unlike the functions of the library that take a list, it has a fixed number of parameters, and is called through {@link MethodHandle#invokeExact} without boxing its arguments
+ * or collecting them into a list. Functions with up to three parameters are called with their arguments directly, and functions with more with an array of their arguments
+ */
+public final class NativeFunction {
+
+    private static final int MAX_DIRECT_ARITY = 3;
+
+    private final String name;
+    private final MethodHandle handle;
+    private final int arity;
+
+    private NativeFunction(String name, MethodHandle handle, int arity) {
+        this.name = name;
+        this.handle = handle;
+        this.arity = arity;
+    }
+
+    /**
+     * Creates a function from a method handle
+     * @param name the name of the function
+     * @param handle the method handle, whose parameters and return type must all be {@code int}
+     * @return the function
+     * @throws IllegalArgumentException if the handle does not take and return ints
+     */
+    public static NativeFunction of(String name, MethodHandle handle) {
+        MethodType type = handle.type();
+        if (type.returnType() != int.class || type.parameterList().stream().anyMatch(parameter -> parameter != int.class))
+            throw new IllegalArgumentException("The native function " + name + " must take and return ints, but has the type " + type);
+        int arity = type.parameterCount();
+        return new NativeFunction(name, arity > MAX_DIRECT_ARITY ? handle.asSpreader(int[].class, arity) : handle, arity);
+    }
+
+    /**
+     * Creates a function from a public static method
+     * @param name the name of the function
+     * @param method the method, whose parameters and return type must all be {@code int}
+     * @return the function
+     * @throws IllegalArgumentException if the method is not static, is not accessible, or does not take and return ints
+     */
+    public static NativeFunction of(String name, Method method) {
+        if (!Modifier.isStatic(method.getModifiers()))
+            throw new IllegalArgumentException("The native function " + name + " must be a static method, but " + method + " is not static");
+        try {
+            return of(name, MethodHandles.publicLookup().unreflect(method));
+        } catch (IllegalAccessException e) {
+            throw new IllegalArgumentException("The native function " + name + " must be a public method, but " + method + " is not accessible", e);
+        }
+    }
+
+    /**
+     * @return the name of the function
+     */
+    public String name() {
+        return name;
+    }
+
+    /**
+     * @return the number of parameters of the function
+     */
+    public int arity() {
+        return arity;
+    }
+
+    /**
+     * Calls a function without parameters
+     * @return the value the function returns
+     */
+    public int invoke() {
+        try {
+            return (int) handle.invokeExact();
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    /**
+     * Calls a function with one parameter
+     * @param first the argument
+     * @return the value the function returns
+     */
+    public int invoke(int first) {
+        try {
+            return (int) handle.invokeExact(first);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    /**
+     * Calls a function with two parameters
+     * @param first the first argument
+     * @param second the second argument
+     * @return the value the function returns
+     */
+    public int invoke(int first, int second) {
+        try {
+            return (int) handle.invokeExact(first, second);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    /**
+     * Calls a function with three parameters
+     * @param first the first argument
+     * @param second the second argument
+     * @param third the third argument
+     * @return the value the function returns
+     */
+    public int invoke(int first, int second, int third) {
+        try {
+            return (int) handle.invokeExact(first, second, third);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    /**
+     * Calls a function with any number of parameters
+     * @param arguments the arguments, of which there must be as many as the function has parameters
+     * @return the value the function returns
+     * @throws IllegalArgumentException if the number of arguments is wrong
+     */
+    public int invoke(int[] arguments) {
+        if (arguments.length != arity)
+            throw new IllegalArgumentException("The native function " + name + " expected " + arity + " parameters, Given " + arguments.length);
+        return switch (arity) {
+            case 0 -> invoke();
+            case 1 -> invoke(arguments[0]);
+            case 2 -> invoke(arguments[0], arguments[1]);
+            case 3 -> invoke(arguments[0], arguments[1], arguments[2]);
+            default -> {
+                try {
+                    yield (int) handle.invokeExact(arguments);
+                } catch (Throwable e) {
+                    throw rethrow(e);
+                }
+            }
+        };
+    }
+
+    /**
+     * Adapts the function to a function that takes a list, for callers of {@link com.moefrumkin.droplet.interpreter.basicInterpreter.AbstractInterpreter#getLibraryFunction(String)}. This boxes the arguments, so it is only a slow path
+     * @return the adapted function
+     */
+    public ToIntFunction<List<Integer>> asListFunction() {
+        return arguments -> invoke(arguments.stream().mapToInt(Integer::intValue).toArray());
+    }
+
+    private static RuntimeException rethrow(Throwable e) {
+        if (e instanceof RuntimeException runtime)
+            return runtime;
+        if (e instanceof Error error)
+            throw error;
+        return new UndeclaredThrowableException(e);
+    }
+
+    @Override
+    public String toString() {
+        return "Native function " + name + " of type " + handle.type();
+    }
+}
@@ -1,24 +1,27 @@
 package com.moefrumkin.droplet.interpreter.basicInterpreter;
 import com.moefrumkin.droplet.interpreter.Interpreter;
-import com.moefrumkin.droplet.interpreter.basicInterpreter.exceptions.InterpreterRuntimeException;
+import com.moefrumkin.droplet.interpreter.NativeFunction;
 import com.moefrumkin.droplet.parser.expression.*;
 import com.moefrumkin.droplet.parser.function.Function;
 import com.moefrumkin.droplet.parser.function.FunctionList;
 import com.moefrumkin.droplet.parser.statement.*;
-import com.moefrumkin.droplet.token.Token;
-import com.moefrumkin.droplet.token.Type;
 
 import java.util.*;
 import java.util.function.IntBinaryOperator;
+import java.util.function.IntSupplier;
 import java.util.function.IntUnaryOperator;
 import java.util.function.ToIntFunction;
-import java.util.stream.Collectors;
 
 /**
  * An abstract interpreter
  */
 public abstract class AbstractInterpreter implements Interpreter {
 
+    /**
+     * The linker of the program that is running, or null if no program is running
+     */
+    private Linker linker;
+
     /**
      * The predicate that determines whether a value is truthy
      * @param value the value to determine the truthiness of
@@ -114,23 +117,54 @@ public abstract class AbstractInterpreter implements Interpreter {
      */
     public abstract Optional<ToIntFunction<List<Integer>>> getLibraryFunction(String name);
 
+    /**
+     * Get a library function with a fixed number of parameters, which is called without boxing its arguments. A native function is also returned by {@link #getLibraryFunction(String)}
+     * @param name the function's name
+     * @return the function, or empty if it does not exist
+     */
+    public abstract Optional<NativeFunction> getNativeFunction(String name);
+
 
     @Override
     public void interpret(Function function) {
         addFunction(function);
 
-        //call the function
-        interpret(new FunctionCallExpression(function.name(), new ArrayList<>()));
+        link(() -> {
+            linker.define(function);
+
+            //call the function
+            return interpret(linker.entry(function.name().getData()));
+        });
     }
 
     @Override
     public void interpret(FunctionList function) {
         //add each of the functions to the frame;
-        function.functions().forEach(this::addFunction);
+        for (Function defined : function.functions())
+            addFunction(defined);
 
-        //get main function
-        new FunctionCallExpression(new Token(Type.IDENTIFIER, "main"), new ArrayList<>()).evaluate(this);
+        link(() -> {
+            for (Function defined : function.functions())
+                linker.define(defined);
 
+            //get main function
+            return linker.entry("main").evaluate(this);
+        });
+    }
+
+    /**
+     * Runs a program with a linker of its own, so the call sites it links are dropped when it returns rather than kept for as long as the interpreter
+     * @param program the program
+     * @return the value of the program
+     */
+    private int link(IntSupplier program) {
+        Linker enclosing = linker;
+        linker = new Linker(this);
+        try {
+            return program.getAsInt();
+        } finally {
+            linker = enclosing;
+        }
     }
 
     @Override
@@ -210,35 +244,50 @@ public abstract class AbstractInterpreter implements Interpreter {
 
     @Override
     public int interpret(FunctionCallExpression expression) {
-        Token identifier = expression.identifier();
-        String name = identifier.getData();
-        List<Expression> arguments = expression.arguments();
+        //a call evaluated outside a program is linked as a program of its own
+        if (linker == null)
+            return link(() -> interpret(expression));
 
-        //check if the function is a library function
-        Optional<ToIntFunction<List<Integer>>> libraryFunction = getLibraryFunction(name);
+        List<Expression> arguments = expression.arguments();
 
-        if(libraryFunction.isPresent()) {
-            return libraryFunction.get().applyAsInt(arguments.stream().map(arg -> arg.evaluate(this)).collect(Collectors.toList()));
+        //the call is looked up and its arguments counted when it is linked
+        Linker.CallSite site = linker.site(expression);
+
+        if(site.nativeFunction != null) {
+            NativeFunction function = site.nativeFunction;
+            return switch (arguments.size()) {
+                case 0 -> function.invoke();
+                case 1 -> function.invoke(arguments.get(0).evaluate(this));
+                case 2 -> function.invoke(arguments.get(0).evaluate(this), arguments.get(1).evaluate(this));
+                case 3 -> function.invoke(arguments.get(0).evaluate(this), arguments.get(1).evaluate(this), arguments.get(2).evaluate(this));
+                default -> {
+                    int[] values = new int[arguments.size()];
+                    for (int i = 0; i < values.length; i++)
+                        values[i] = arguments.get(i).evaluate(this);
+                    yield function.invoke(values);
+                }
+            };
         }
 
-        //get the function being called
-        Function function = getFunction(name);
-
-        //get the functions parameters and verify argument number
-        List<Token> parameters = function.parameters();
-        if(arguments.size() != parameters.size()) {
-            throw new InterpreterRuntimeException("Expected " + parameters.size() + " parameters, Given " + arguments.size(), expression);
+        if(site.library != null) {
+            List<Integer> values = new ArrayList<>(arguments.size());
+            for (Expression argument : arguments)
+                values.add(argument.evaluate(this));
+            return site.library.applyAsInt(values);
         }
 
+        linker.link(site);
+
         //enter function scope
         enterFunctionScope();
 
         //add each argument to the context
-        for(int i = 0; i < arguments.size(); i++) {
-            addVariable(parameters.get(i).getData(), arguments.get(i).evaluate(this));
+        String[] parameters = site.parameters;
+        for(int i = 0; i < parameters.length; i++) {
+            addVariable(parameters[i], arguments.get(i).evaluate(this));
         }
 
-        function.body().interpret(this);
+        site.function.body().interpret(this);
 
         int returnValue = getReturnValue();
 
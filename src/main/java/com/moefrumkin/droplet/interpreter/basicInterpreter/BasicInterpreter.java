@@ -1,6 +1,11 @@
 package com.moefrumkin.droplet.interpreter.basicInterpreter;
 
+import com.moefrumkin.droplet.interpreter.Configuration;
+import com.moefrumkin.droplet.interpreter.NativeFunction;
 import com.moefrumkin.droplet.interpreter.basicInterpreter.exceptions.InterpreterOutputException;
+import com.moefrumkin.droplet.interpreter.basicInterpreter.resolver.ClosureProgram;
+import com.moefrumkin.droplet.interpreter.basicInterpreter.resolver.Resolver;
+import com.moefrumkin.droplet.interpreter.basicInterpreter.resolver.SlotInterpreter;
 import com.moefrumkin.droplet.interpreter.basicInterpreter.stackframe.FunctionStackFrame;
 import com.moefrumkin.droplet.interpreter.basicInterpreter.stackframe.GlobalStackFrame;
 import com.moefrumkin.droplet.interpreter.basicInterpreter.stackframe.SimpleStackFrame;
@@ -8,9 +13,8 @@ import com.moefrumkin.droplet.interpreter.basicInterpreter.stackframe.StackFrame
 import com.moefrumkin.droplet.parser.expression.BinaryOperationExpression;
 import com.moefrumkin.droplet.parser.expression.UnaryOperationExpression;
 import com.moefrumkin.droplet.parser.function.Function;
+import com.moefrumkin.droplet.parser.function.FunctionList;
 
-import java.io.IOException;
-import java.io.OutputStream;
 import java.util.*;
 import java.util.function.*;
 
@@ -19,48 +23,20 @@ import java.util.function.*;
  */
 public class BasicInterpreter extends AbstractInterpreter {
 
-    private static final int DEFAULT_RETURN = 0;
-    private static final IntPredicate DEFAULT_TRUTHINESS = i -> i != 0;
-    private static final Comparator<Integer> DEFAULT_ORDERING = Comparator.comparingInt(a -> a);
-    private static final int DEFAULT_FALSE = 0;
-    private static final int DEFAULT_TRUE = 1;
-    private static final Map<BinaryOperationExpression.Type, IntBinaryOperator> DEFAULT_BINARY_OPERATIONS = Map.ofEntries(
-            Map.entry(BinaryOperationExpression.Type.ADDITION, Integer::sum),
-            Map.entry(BinaryOperationExpression.Type.SUBTRACTION, (a, b) -> a - b),
-            Map.entry(BinaryOperationExpression.Type.MULTIPLICATION, (a, b) -> a * b),
-            Map.entry(BinaryOperationExpression.Type.OR, (a, b) -> DEFAULT_TRUTHINESS.test(a) || DEFAULT_TRUTHINESS.test(b) ? DEFAULT_TRUE : DEFAULT_FALSE),
-            Map.entry(BinaryOperationExpression.Type.AND, (a, b) -> DEFAULT_TRUTHINESS.test(a) && DEFAULT_TRUTHINESS.test(b) ? DEFAULT_TRUE : DEFAULT_FALSE),
-            Map.entry(BinaryOperationExpression.Type.EQUALS, (a, b) -> a == b ? DEFAULT_TRUE : DEFAULT_FALSE),
-            Map.entry(BinaryOperationExpression.Type.NOTEQUALS, (a, b) -> a != b ? DEFAULT_TRUE : DEFAULT_FALSE),
-            Map.entry(BinaryOperationExpression.Type.GREATER, (a, b) -> DEFAULT_ORDERING.compare(a, b) > 0 ? DEFAULT_TRUE : DEFAULT_FALSE),
-            Map.entry(BinaryOperationExpression.Type.LESS, (a, b) -> DEFAULT_ORDERING.compare(a, b) < 0 ? DEFAULT_TRUE : DEFAULT_FALSE)
-    );
-    private static final Map<UnaryOperationExpression.Type, IntUnaryOperator> DEFAULT_UNARY_OPERATIONS = Map.ofEntries(
-            Map.entry(UnaryOperationExpression.Type.NEGATION, i -> -i),
-            Map.entry(UnaryOperationExpression.Type.BOOLEAN_NEGATION, i -> DEFAULT_TRUTHINESS.test(i) ? DEFAULT_TRUE : DEFAULT_FALSE)
-    );
-    private static final OutputStream DEFAULT_OUTPUT = System.out;
-    private static final Map<String, ToIntBiFunction<BasicInterpreter, List<Integer>>> DEFAULT_LIBRARY = Map.ofEntries(
-            Map.entry("print", (interpreter, args) -> { args.forEach(interpreter::print); return interpreter.returnValue; }),
-            Map.entry("println", (interpreter, args) -> { args.forEach(arg -> interpreter.print(arg,  '\n')); return interpreter.returnValue; })
-    );
-
-    private final int returnValue;
+    private static final String MAIN = "main";
+
+    private final Configuration<BasicInterpreter> configuration;
     private final IntPredicate truthiness;
-    private final Map<BinaryOperationExpression.Type, IntBinaryOperator> binaryOperations;
-    private final Map<UnaryOperationExpression.Type, IntUnaryOperator> unaryOperations;
-    private final OutputStream output;
-    private final Map<String, ToIntBiFunction<BasicInterpreter, List<Integer>>> functions;
+    private final boolean resolveVariables;
+    private final boolean compileClosures;
 
     private StackFrame frame;
 
-    private BasicInterpreter(Builder builder) {
-        this.returnValue = builder.returnValue;
-        this.truthiness = builder.truthiness;
-        this.binaryOperations = builder.binaryOperations;
-        this.unaryOperations = builder.unaryOperations;
-        this.output = builder.output;
-        this.functions = builder.functions;
+    private BasicInterpreter(Builder builder, Configuration<BasicInterpreter> configuration) {
+        this.configuration = configuration;
+        this.truthiness = configuration.truthiness();
+        this.resolveVariables = builder.resolveVariables;
+        this.compileClosures = builder.compileClosures;
 
         frame = new GlobalStackFrame();
     }
@@ -69,13 +45,9 @@ public class BasicInterpreter extends AbstractInterpreter {
     /**
      * A builder class for {@link BasicInterpreter}
      */
-    public static final class Builder {
-        private int returnValue = DEFAULT_RETURN;
-        private IntPredicate truthiness = DEFAULT_TRUTHINESS;
-        private Map<BinaryOperationExpression.Type, IntBinaryOperator> binaryOperations = DEFAULT_BINARY_OPERATIONS;
-        private Map<UnaryOperationExpression.Type, IntUnaryOperator> unaryOperations = DEFAULT_UNARY_OPERATIONS;
-        private OutputStream output = DEFAULT_OUTPUT;
-        private final Map<String, ToIntBiFunction<BasicInterpreter, List<Integer>>> functions = new HashMap<>(DEFAULT_LIBRARY);
+    public static final class Builder extends Configuration.Builder<BasicInterpreter, Builder> {
+        private boolean resolveVariables = false;
+        private boolean compileClosures = false;
 
         /**
          * Creates a new builder object with the default settings
@@ -83,53 +55,46 @@ public class BasicInterpreter extends AbstractInterpreter {
         public Builder() {}
 
         /**
-         * Sets the default return value of a function
-         * @param newReturn the default return value
-         * @return the builder object
-         */
-        public Builder returnValue(int newReturn) { returnValue = newReturn; return this; }
-
-        /**
-         * Sets the predicate that determines whether a number is truthy
-         * @param newTruthiness the predicate
+         * Sets whether programs are resolved by the {@link Resolver} before they run, and then run by a {@link SlotInterpreter} that reads and writes variables by their lexical address.
+         * Resolved programs are lexically scoped, so a function cannot use the variables of its caller, and a variable that is not declared is an error before the program runs.
+         * A declaration in the body of a loop sets its variable again on every iteration rather than failing because the variable is already initialized
+         * @param newResolveVariables whether to resolve variables
          * @return the builder object
          */
-        public Builder truthiness(IntPredicate newTruthiness) { truthiness = newTruthiness; return this; }
+        public Builder resolveVariables(boolean newResolveVariables) { resolveVariables = newResolveVariables; return this; }
 
         /**
-         * Determines how binary operations are evaluated
-         * @param newOperations the binary operations
+         * Sets whether programs are resolved by the {@link Resolver} and then compiled into a {@link ClosureProgram} before they run. Compiled programs are lexically scoped,
+         * and run as they do when variables are resolved, without looking anything up as they run, including declarations in the body of a loop
+         * @param newCompileClosures whether to compile programs into closures
          * @return the builder object
          */
-        public Builder binaryOperations(Map<BinaryOperationExpression.Type, IntBinaryOperator> newOperations) { binaryOperations = newOperations; return this; }
+        public Builder compileClosures(boolean newCompileClosures) { compileClosures = newCompileClosures; return this; }
 
-        /**
-         * Determines how unary operations are evaluated
-         * @param newOperations the unary operations
-         * @return the builder object
-         */
-        public Builder unaryOperations(Map<UnaryOperationExpression.Type, IntUnaryOperator> newOperations) { this.unaryOperations = newOperations; return this; }
-
-        /**
-         * Sets the output stream for library functions
-         * @param newOutput the output stream
-         * @return the builder object
-         */
-        public Builder output(OutputStream newOutput) { this.output = newOutput; return this; }
+        @Override
+        public BasicInterpreter build() {
+            return new BasicInterpreter(this, configuration((interpreter, e) -> new InterpreterOutputException("An error occurred when trying to print", e, interpreter.frame)));
+        }
+    }
 
-        /**
-         * Adds a function to the library
-         * @param name the name of the function
-         * @param function the function
-         * @return the builder object
-         */
-        public Builder addFunction(String name, ToIntBiFunction<BasicInterpreter, List<Integer>> function) { functions.put(name, function); return this; }
+    @Override
+    public void interpret(Function function) {
+        if (compileClosures)
+            ClosureProgram.compile(this, Resolver.resolve(function)).run(function.name().getData());
+        else if (resolveVariables)
+            new SlotInterpreter(this, Resolver.resolve(function)).run(function.name().getData());
+        else
+            super.interpret(function);
+    }
 
-        /**
-         * Creates an interpreter from the builder object
-         * @return an interpreter
-         */
-        public BasicInterpreter build() { return new BasicInterpreter(this); }
+    @Override
+    public void interpret(FunctionList function) {
+        if (compileClosures)
+            ClosureProgram.compile(this, Resolver.resolve(function)).run(MAIN);
+        else if (resolveVariables)
+            new SlotInterpreter(this, Resolver.resolve(function)).run(MAIN);
+        else
+            super.interpret(function);
     }
 
     private void pushFrame() {
@@ -137,27 +102,13 @@ public class BasicInterpreter extends AbstractInterpreter {
     }
 
     private void pushFunctionFrame() {
-        this.frame = new FunctionStackFrame(this.frame, DEFAULT_RETURN);
+        this.frame = new FunctionStackFrame(this.frame, Configuration.DEFAULT_RETURN);
     }
 
     private void popFrame() {
         frame = frame.getSuper();
     }
 
-    private void print(int i) {
-        print(i, null);
-    }
-
-    private void print(int i, Character delimiter) {
-        try {
-            output.write(String.valueOf(i).getBytes());
-            if(delimiter != null)
-                output.write(delimiter);
-        } catch (IOException e) {
-            throw new InterpreterOutputException("An error occurred when trying to print", e, frame);
-        }
-    }
-
     @Override
     public boolean truthy(int value) {
         return truthiness.test(value);
@@ -185,12 +136,12 @@ public class BasicInterpreter extends AbstractInterpreter {
 
     @Override
     public IntBinaryOperator getBinaryOperator(BinaryOperationExpression.Type type) {
-        return binaryOperations.get(type);
+        return configuration.binaryOperation(type);
     }
 
     @Override
     public IntUnaryOperator getUnaryOperator(UnaryOperationExpression.Type type) {
-        return unaryOperations.get(type);
+        return configuration.unaryOperation(type);
     }
 
     @Override
@@ -230,6 +181,16 @@ public class BasicInterpreter extends AbstractInterpreter {
 
     @Override
     public Optional<ToIntFunction<List<Integer>>> getLibraryFunction(String name) {
-        return Optional.ofNullable(functions.get(name)).map(function -> (args -> function.applyAsInt(this, args)));
+        //user functions are looked up on every call, so nothing is allocated when the name is not a library function
+        ToIntBiFunction<BasicInterpreter, List<Integer>> function = configuration.libraryFunction(name);
+        if (function != null)
+            return Optional.of(args -> function.applyAsInt(this, args));
+        NativeFunction nativeFunction = configuration.nativeFunction(name);
+        return nativeFunction == null ? Optional.empty() : Optional.of(nativeFunction.asListFunction());
+    }
+
+    @Override
+    public Optional<NativeFunction> getNativeFunction(String name) {
+        return Optional.ofNullable(configuration.nativeFunction(name));
     }
 }
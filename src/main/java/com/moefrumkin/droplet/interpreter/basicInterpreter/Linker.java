@@ -0,0 +1,165 @@
+package com.moefrumkin.droplet.interpreter.basicInterpreter;
+
+import com.moefrumkin.droplet.interpreter.NativeFunction;
+import com.moefrumkin.droplet.interpreter.basicInterpreter.exceptions.InterpreterRuntimeException;
+import com.moefrumkin.droplet.parser.expression.FunctionCallExpression;
+import com.moefrumkin.droplet.parser.function.CallCollector;
+import com.moefrumkin.droplet.parser.function.Function;
+import com.moefrumkin.droplet.token.Token;
+import com.moefrumkin.droplet.token.Type;
+
+import java.util.*;
+import java.util.function.ToIntFunction;
+
+/**
+ * Links the call sites of an {@link AbstractInterpreter} to the functions they call, so a call is only looked up by its name once.
+ * There is a linker for every run of a program, so its tables are dropped with the program and do not keep the syntax trees of earlier programs alive.
+ * The call sites of a function are linked, and the number of their arguments checked, before the function first runs, and every call site is then kept with its target,
+ * so later calls go straight to the target without looking up the library or the stack frames.
+ * <p>
+ * Syntax trees may share their nodes, so the targets are kept in a table keyed by the identity of the call rather than in the call itself.
+ * A call to a function that is not defined when its caller is linked is linked when it is first reached, and fails as it did before if the function is still not defined.
+ * Functions cannot be redefined, so a linked call never has to be linked again
+ */
+final class Linker {
+
+    /**
+     * The target of a call site: either a native function, a library function, or a function of the program and the names of its parameters
+     */
+    static final class CallSite {
+        /**
+         * The native function, or null if the target is not a native function
+         */
+        final NativeFunction nativeFunction;
+        /**
+         * The library function, or null if the target is not a library function that takes a list
+         */
+        final ToIntFunction<List<Integer>> library;
+        /**
+         * The function of the program, or null if the target is a library function
+         */
+        final Function function;
+        /**
+         * The names of the parameters of the function of the program
+         */
+        final String[] parameters;
+        /**
+         * Whether the calls of the function of the program have been linked, which is cached here so a linked call does not look the function up again
+         */
+        boolean linked;
+
+        private CallSite(NativeFunction nativeFunction, ToIntFunction<List<Integer>> library, Function function, String[] parameters) {
+            this.nativeFunction = nativeFunction;
+            this.library = library;
+            this.function = function;
+            this.parameters = parameters;
+        }
+
+        private static CallSite of(ToIntFunction<List<Integer>> library) {
+            return new CallSite(null, library, null, null);
+        }
+
+        private static CallSite of(Function function) {
+            return new CallSite(null, null, function, function.parameters().stream().map(Token::getData).toArray(String[]::new));
+        }
+    }
+
+    private final AbstractInterpreter interpreter;
+    private final Map<String, Function> functions = new HashMap<>();
+    private final Map<FunctionCallExpression, CallSite> sites = new IdentityHashMap<>();
+    private final Set<Function> linked = Collections.newSetFromMap(new IdentityHashMap<>());
+    private final Map<String, FunctionCallExpression> entries = new HashMap<>();
+
+    /**
+     * Creates a linker for a run of a program
+     * @param interpreter the interpreter whose library and functions calls are linked to
+     */
+    Linker(AbstractInterpreter interpreter) {
+        this.interpreter = interpreter;
+    }
+
+    /**
+     * Makes a function of the program known to the linker, so calls to it can be linked without resolving it through the stack frames
+     * @param function the function, which must also have been added to the interpreter
+     */
+    void define(Function function) {
+        functions.putIfAbsent(function.name().getData(), function);
+    }
+
+    /**
+     * Gets the call that runs a function without arguments, such as {@code main}. There is one such call for every name
+     * @param name the name of the function
+     * @return the call
+     */
+    FunctionCallExpression entry(String name) {
+        return entries.computeIfAbsent(name, key -> new FunctionCallExpression(Token.of(Type.IDENTIFIER, key), List.of()));
+    }
+
+    /**
+     * Gets the target of a call, linking the call if it has not been linked yet
+     * @param call the call
+     * @return the target of the call
+     * @throws InterpreterRuntimeException if the call has the wrong number of arguments
+     */
+    CallSite site(FunctionCallExpression call) {
+        CallSite site = sites.get(call);
+        if (site != null)
+            return site;
+
+        //library functions are found before the functions of the program
+        String name = call.identifier().getData();
+        Optional<NativeFunction> nativeFunction = interpreter.getNativeFunction(name);
+        if (nativeFunction.isPresent()) {
+            site = link(call, nativeFunction.get());
+        } else {
+            Optional<ToIntFunction<List<Integer>>> library = interpreter.getLibraryFunction(name);
+            site = library.isPresent() ? CallSite.of(library.get()) : link(call, interpreter.getFunction(name));
+        }
+        sites.put(call, site);
+        return site;
+    }
+
+    /**
+     * Links the calls of the function a call site calls, if they have not been linked yet. A lazily parsed body is parsed here, before the arguments of the call are evaluated
+     * @param site the call site, whose target is a function of the program
+     * @throws InterpreterRuntimeException if a call of the function has the wrong number of arguments
+     */
+    void link(CallSite site) {
+        if (site.linked)
+            return;
+        link(site.function);
+        site.linked = true;
+    }
+
+    private void link(Function function) {
+        if (!linked.add(function))
+            return;
+
+        for (FunctionCallExpression call : CallCollector.calls(function.body())) {
+            if (sites.containsKey(call))
+                continue;
+            String name = call.identifier().getData();
+            Optional<NativeFunction> nativeFunction = interpreter.getNativeFunction(name);
+            Optional<ToIntFunction<List<Integer>>> library = interpreter.getLibraryFunction(name);
+            if (nativeFunction.isPresent())
+                sites.put(call, link(call, nativeFunction.get()));
+            else if (library.isPresent())
+                sites.put(call, CallSite.of(library.get()));
+            else if (functions.containsKey(name))
+                sites.put(call, link(call, functions.get(name)));
+        }
+    }
+
+    private static CallSite link(FunctionCallExpression call, Function function) {
+        int parameters = function.parameters().size();
+        if (call.arguments().size() != parameters)
+            throw new InterpreterRuntimeException("Expected " + parameters + " parameters, Given " + call.arguments().size(), call);
+        return CallSite.of(function);
+    }
+
+    private static CallSite link(FunctionCallExpression call, NativeFunction function) {
+        if (call.arguments().size() != function.arity())
+            throw new InterpreterRuntimeException("Expected " + function.arity() + " parameters, Given " + call.arguments().size(), call);
+        return new CallSite(function, null, null, null);
+    }
+}
@@ -0,0 +1,347 @@
+package com.moefrumkin.droplet.interpreter.basicInterpreter.resolver;
+
+import com.moefrumkin.droplet.interpreter.Configuration;
+import com.moefrumkin.droplet.interpreter.basicInterpreter.BasicInterpreter;
+import com.moefrumkin.droplet.interpreter.NativeFunction;
+import com.moefrumkin.droplet.interpreter.basicInterpreter.exceptions.InterpreterRuntimeException;
+import com.moefrumkin.droplet.parser.expression.BinaryOperationExpression;
+import com.moefrumkin.droplet.parser.expression.FunctionCallExpression;
+import com.moefrumkin.droplet.parser.expression.UnaryOperationExpression;
+import com.moefrumkin.droplet.token.Token;
+import com.moefrumkin.droplet.token.Type;
+
+import java.util.*;
+import java.util.function.IntBinaryOperator;
+import java.util.function.IntUnaryOperator;
+import java.util.function.ToIntFunction;
+
+/**
+ * A {@link ResolvedProgram} compiled into a tree of Java closures, one for every node, that read and write the slots of a frame array. Everything a {@link SlotInterpreter} looks up
+ * as a node runs is looked up once as the node is compiled instead: literals are parsed, operators are taken from the interpreter, the default operators are replaced by closures that apply them inline,
+ * and every call is bound to its native function, library function or the compiled function of the program, with its number of arguments checked.
+ * <p>
+ * Programs run as they do in a {@link SlotInterpreter} with the same interpreter, and fail where it fails: a call to a function that is not defined fails when it is reached rather than when it is compiled,
+ * and a call with the wrong number of arguments fails when the function it is in is first called. Every call allocates the frame of its function, which holds the function's slots followed by its return value and whether it is returning
+ */
+public final class ClosureProgram {
+
+    /**
+     * A compiled expression, which evaluates itself against the frame of its function
+     */
+    @FunctionalInterface
+    private interface IntClosure {
+        int evaluate(int[] frame);
+    }
+
+    /**
+     * A compiled statement, which runs itself against the frame of its function
+     */
+    @FunctionalInterface
+    private interface Closure {
+        void execute(int[] frame);
+    }
+
+    /**
+     * A compiled function. The body is compiled after every function of the program has been created, so calls can be bound to functions that are compiled later
+     */
+    private static final class CompiledFunction {
+        private final int parameters;
+        private final int frameSize;
+        private final int returnSlot;
+        private final int returningSlot;
+        private final List<Node.Call> calls;
+        private Closure body;
+        /**
+         * Whether the calls of the function have been checked, which happens the first time it is called
+         */
+        private boolean linked;
+
+        private CompiledFunction(ResolvedFunction function) {
+            parameters = function.parameters();
+            calls = function.calls;
+            returnSlot = function.variables();
+            returningSlot = returnSlot + 1;
+            frameSize = returnSlot + 2;
+        }
+
+        private int invoke(int[] frame) {
+            frame[returnSlot] = Configuration.DEFAULT_RETURN;
+            body.execute(frame);
+            return frame[returnSlot];
+        }
+    }
+
+    private final BasicInterpreter interpreter;
+    private final Map<String, CompiledFunction> functions = new HashMap<>();
+
+    private ClosureProgram(BasicInterpreter interpreter, ResolvedProgram program) {
+        this.interpreter = interpreter;
+        for (ResolvedFunction function : program.functions().values())
+            functions.put(function.name(), new CompiledFunction(function));
+        for (ResolvedFunction function : program.functions().values()) {
+            CompiledFunction compiled = functions.get(function.name());
+            compiled.body = statement(function.body, compiled);
+        }
+    }
+
+    /**
+     * Compiles a program
+     * @param interpreter the interpreter whose settings and library the program runs with
+     * @param program the program
+     * @return the compiled program
+     */
+    public static ClosureProgram compile(BasicInterpreter interpreter, ResolvedProgram program) {
+        return new ClosureProgram(interpreter, program);
+    }
+
+    /**
+     * Calls a function of the program, or of the library, without arguments
+     * @param name the name of the function
+     * @return the value the function returns
+     */
+    public int run(String name) {
+        Node.Call call = new Node.Call(name, new Node.Expression[0], new FunctionCallExpression(Token.of(Type.IDENTIFIER, name), List.of()), -1);
+        return call(call, null).evaluate(new int[0]);
+    }
+
+    private Closure statement(Node.Statement statement, CompiledFunction function) {
+        if (statement instanceof Node.Block block) {
+            Closure[] statements = new Closure[block.statements().length];
+            for (int i = 0; i < statements.length; i++)
+                statements[i] = statement(block.statements()[i], function);
+            int returning = function.returningSlot;
+            return frame -> {
+                for (Closure child : statements) {
+                    child.execute(frame);
+                    if (frame[returning] != 0)
+                        return;
+                }
+            };
+        } else if (statement instanceof Node.Conditional conditional) {
+            IntClosure condition = expression(conditional.condition(), function);
+            Closure consequence = statement(conditional.consequence(), function);
+            return frame -> {
+                if (interpreter.truthy(condition.evaluate(frame)))
+                    consequence.execute(frame);
+            };
+        } else if (statement instanceof Node.Loop loop) {
+            IntClosure condition = expression(loop.condition(), function);
+            Closure body = statement(loop.body(), function);
+            return frame -> {
+                while (interpreter.truthy(condition.evaluate(frame)))
+                    body.execute(frame);
+            };
+        } else if (statement instanceof Node.Declare declare) {
+            int slot = declare.slot();
+            IntClosure value = expression(declare.value(), function);
+            return frame -> frame[slot] = value.evaluate(frame);
+        } else if (statement instanceof Node.Evaluate evaluate) {
+            IntClosure expression = expression(evaluate.expression(), function);
+            return expression::evaluate;
+        } else if (statement instanceof Node.Return returnStatement) {
+            IntClosure expression = expression(returnStatement.expression(), function);
+            int returnSlot = function.returnSlot;
+            int returning = function.returningSlot;
+            return frame -> {
+                frame[returnSlot] = expression.evaluate(frame);
+                frame[returning] = 1;
+            };
+        }
+        return frame -> {};
+    }
+
+    private IntClosure expression(Node.Expression expression, CompiledFunction function) {
+        if (expression instanceof Node.Literal literal) {
+            int value = literal.value();
+            return frame -> value;
+        } else if (expression instanceof Node.MalformedLiteral literal) {
+            String value = literal.literal();
+            return frame -> Integer.parseInt(value);
+        } else if (expression instanceof Node.Read read) {
+            int slot = read.slot();
+            return frame -> frame[slot];
+        } else if (expression instanceof Node.Assign assign) {
+            int slot = assign.slot();
+            IntClosure value = expression(assign.value(), function);
+            IntBinaryOperator assignment = interpreter.getBinaryOperator(BinaryOperationExpression.Type.ASSIGNMENT);
+            return frame -> {
+                int left = frame[slot];
+                int right = value.evaluate(frame);
+                frame[slot] = right;
+                return assignment.applyAsInt(left, right);
+            };
+        } else if (expression instanceof Node.InvalidAssign assign) {
+            IntClosure left = expression(assign.left(), function);
+            IntClosure right = expression(assign.right(), function);
+            return frame -> {
+                left.evaluate(frame);
+                right.evaluate(frame);
+                throw new RuntimeException("Left hand of an assignment must be an identifier");
+            };
+        } else if (expression instanceof Node.Binary binary) {
+            return binary(BinaryOperationExpression.Type.values()[binary.type()], binary.left(), binary.right(), function);
+        } else if (expression instanceof Node.Unary unary) {
+            UnaryOperationExpression.Type type = UnaryOperationExpression.Type.values()[unary.type()];
+            IntClosure operand = expression(unary.operand(), function);
+            IntUnaryOperator operator = interpreter.getUnaryOperator(type);
+            if (operator == Configuration.DEFAULT_UNARY_OPERATIONS.get(UnaryOperationExpression.Type.NEGATION))
+                return frame -> -operand.evaluate(frame);
+            return frame -> operator.applyAsInt(operand.evaluate(frame));
+        }
+        return call((Node.Call) expression, function);
+    }
+
+    /**
+     * Compiles a binary operation. A default operator is applied inline, and when its left operand is a variable and its right operand a literal, as in {@code i < 10},
+     * neither operand is a closure of its own
+     */
+    private IntClosure binary(BinaryOperationExpression.Type type, Node.Expression leftNode, Node.Expression rightNode, CompiledFunction function) {
+        IntBinaryOperator operator = interpreter.getBinaryOperator(type);
+        IntClosure left = expression(leftNode, function);
+        IntClosure right = expression(rightNode, function);
+
+        if (operator != Configuration.DEFAULT_BINARY_OPERATIONS.get(type))
+            return frame -> {
+                int leftValue = left.evaluate(frame);
+                return operator.applyAsInt(leftValue, right.evaluate(frame));
+            };
+
+        if (leftNode instanceof Node.Read read && rightNode instanceof Node.Literal literal) {
+            int slot = read.slot();
+            int value = literal.value();
+            switch (type) {
+                case ADDITION: return frame -> frame[slot] + value;
+                case SUBTRACTION: return frame -> frame[slot] - value;
+                case MULTIPLICATION: return frame -> frame[slot] * value;
+                case EQUALS: return frame -> frame[slot] == value ? 1 : 0;
+                case NOTEQUALS: return frame -> frame[slot] != value ? 1 : 0;
+                case GREATER: return frame -> frame[slot] > value ? 1 : 0;
+                case LESS: return frame -> frame[slot] < value ? 1 : 0;
+                default: break;
+            }
+        }
+
+        //both operands are evaluated before either is tested, as every binary operation evaluates both of its operands
+        return switch (type) {
+            case ADDITION -> frame -> left.evaluate(frame) + right.evaluate(frame);
+            case SUBTRACTION -> frame -> left.evaluate(frame) - right.evaluate(frame);
+            case MULTIPLICATION -> frame -> left.evaluate(frame) * right.evaluate(frame);
+            case EQUALS -> frame -> left.evaluate(frame) == right.evaluate(frame) ? 1 : 0;
+            case NOTEQUALS -> frame -> left.evaluate(frame) != right.evaluate(frame) ? 1 : 0;
+            case GREATER -> frame -> left.evaluate(frame) > right.evaluate(frame) ? 1 : 0;
+            case LESS -> frame -> left.evaluate(frame) < right.evaluate(frame) ? 1 : 0;
+            default -> frame -> {
+                int leftValue = left.evaluate(frame);
+                return operator.applyAsInt(leftValue, right.evaluate(frame));
+            };
+        };
+    }
+
+    private IntClosure call(Node.Call call, CompiledFunction caller) {
+        IntClosure[] arguments = new IntClosure[call.arguments().length];
+        for (int i = 0; i < arguments.length; i++)
+            arguments[i] = expression(call.arguments()[i], caller);
+
+        //library functions are found before the functions of the program
+        Optional<NativeFunction> nativeFunction = interpreter.getNativeFunction(call.name());
+        if (nativeFunction.isPresent())
+            return nativeCall(nativeFunction.get(), arguments, call);
+
+        Optional<ToIntFunction<List<Integer>>> libraryFunction = interpreter.getLibraryFunction(call.name());
+        if (libraryFunction.isPresent()) {
+            ToIntFunction<List<Integer>> library = libraryFunction.get();
+            return frame -> {
+                List<Integer> values = new ArrayList<>(arguments.length);
+                for (IntClosure argument : arguments)
+                    values.add(argument.evaluate(frame));
+                return library.applyAsInt(values);
+            };
+        }
+
+        CompiledFunction function = functions.get(call.name());
+        if (function == null)
+            return fail("The function " + call.name() + " is not defined", call);
+        if (arguments.length != function.parameters)
+            return fail("Expected " + function.parameters + " parameters, Given " + arguments.length, call);
+
+        //the arguments are evaluated in the caller's frame and become the first slots of the new one
+        return switch (arguments.length) {
+            case 0 -> frame -> {
+                if (!function.linked)
+                    link(function);
+                return function.invoke(new int[function.frameSize]);
+            };
+            case 1 -> {
+                IntClosure first = arguments[0];
+                yield frame -> {
+                    if (!function.linked)
+                        link(function);
+                    int[] callee = new int[function.frameSize];
+                    callee[0] = first.evaluate(frame);
+                    return function.invoke(callee);
+                };
+            }
+            default -> frame -> {
+                if (!function.linked)
+                    link(function);
+                int[] callee = new int[function.frameSize];
+                for (int i = 0; i < arguments.length; i++)
+                    callee[i] = arguments[i].evaluate(frame);
+                return function.invoke(callee);
+            };
+        };
+    }
+
+    /**
+     * Checks the number of arguments of every call of a function the first time the function is called, before its arguments are evaluated, as a {@link BasicInterpreter} links them.
+     * A call to a library function that takes a list, or to a function that is not defined, is not checked
+     */
+    private void link(CompiledFunction function) {
+        function.linked = true;
+        for (Node.Call call : function.calls) {
+            int arguments = call.arguments().length;
+            Optional<NativeFunction> nativeFunction = interpreter.getNativeFunction(call.name());
+            if (nativeFunction.isPresent()) {
+                if (arguments != nativeFunction.get().arity())
+                    throw new InterpreterRuntimeException("Expected " + nativeFunction.get().arity() + " parameters, Given " + arguments, call.source());
+            } else if (interpreter.getLibraryFunction(call.name()).isEmpty()) {
+                CompiledFunction callee = functions.get(call.name());
+                if (callee != null && arguments != callee.parameters)
+                    throw new InterpreterRuntimeException("Expected " + callee.parameters + " parameters, Given " + arguments, call.source());
+            }
+        }
+    }
+
+    private static IntClosure nativeCall(NativeFunction function, IntClosure[] arguments, Node.Call call) {
+        if (arguments.length != function.arity())
+            return fail("Expected " + function.arity() + " parameters, Given " + arguments.length, call);
+        return switch (arguments.length) {
+            case 0 -> frame -> function.invoke();
+            case 1 -> frame -> function.invoke(arguments[0].evaluate(frame));
+            case 2 -> frame -> {
+                int first = arguments[0].evaluate(frame);
+                return function.invoke(first, arguments[1].evaluate(frame));
+            };
+            case 3 -> frame -> {
+                int first = arguments[0].evaluate(frame);
+                int second = arguments[1].evaluate(frame);
+                return function.invoke(first, second, arguments[2].evaluate(frame));
+            };
+            default -> frame -> {
+                int[] values = new int[arguments.length];
+                for (int i = 0; i < values.length; i++)
+                    values[i] = arguments[i].evaluate(frame);
+                return function.invoke(values);
+            };
+        };
+    }
+
+    /**
+     * Compiles an expression that fails when it is reached
+     */
+    private static IntClosure fail(String message, Node.Call call) {
+        return frame -> {
+            throw new InterpreterRuntimeException(message, call.source());
+        };
+    }
+}
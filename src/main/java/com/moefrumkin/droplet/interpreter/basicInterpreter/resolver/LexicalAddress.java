@@ -0,0 +1,8 @@
+package com.moefrumkin.droplet.interpreter.basicInterpreter.resolver;
+
+/**
+ * A record class that represents where a variable is stored while its function runs
+ * @param depth the number of scopes between the scope of the use and the scope of the declaration, which is 0 for a variable declared in the scope it is used in
+ * @param slot the index of the variable among the variables of the scope it is declared in
+ */
+public record LexicalAddress(int depth, int slot) {}
@@ -0,0 +1,155 @@
+package com.moefrumkin.droplet.interpreter.basicInterpreter.resolver;
+
+import com.moefrumkin.droplet.parser.expression.FunctionCallExpression;
+
+/**
+ * A node of a resolved function body. Each node evaluates itself against a {@link SlotInterpreter}, with its variables already turned into slots of the frame of their function
+ * and its literals already parsed, so nothing is looked up by name except the functions that are called, which are resolved the first time each call runs
+ */
+interface Node {
+
+    /**
+     * A node that evaluates to a value
+     */
+    interface Expression extends Node {
+        int evaluate(SlotInterpreter interpreter);
+    }
+
+    /**
+     * A node that is run for its effects
+     */
+    interface Statement extends Node {
+        void execute(SlotInterpreter interpreter);
+    }
+
+    record Literal(int value) implements Expression {
+        @Override
+        public int evaluate(SlotInterpreter interpreter) {
+            return value;
+        }
+    }
+
+    /**
+     * A literal that is not an int, which fails like the {@link com.moefrumkin.droplet.interpreter.basicInterpreter.BasicInterpreter} when it is evaluated rather than when it is resolved
+     */
+    record MalformedLiteral(String literal) implements Expression {
+        @Override
+        public int evaluate(SlotInterpreter interpreter) {
+            return Integer.parseInt(literal);
+        }
+    }
+
+    record Read(int slot) implements Expression {
+        @Override
+        public int evaluate(SlotInterpreter interpreter) {
+            return interpreter.read(slot);
+        }
+    }
+
+    /**
+     * An assignment, which stores the right hand side and then applies the assignment operator to the old and the new value
+     */
+    record Assign(int slot, Expression value) implements Expression {
+        @Override
+        public int evaluate(SlotInterpreter interpreter) {
+            int left = interpreter.read(slot);
+            int right = value.evaluate(interpreter);
+            interpreter.write(slot, right);
+            return interpreter.assignment(left, right);
+        }
+    }
+
+    /**
+     * An assignment to something other than a variable, which fails once both sides have been evaluated
+     */
+    record InvalidAssign(Expression left, Expression right) implements Expression {
+        @Override
+        public int evaluate(SlotInterpreter interpreter) {
+            left.evaluate(interpreter);
+            right.evaluate(interpreter);
+            throw new RuntimeException("Left hand of an assignment must be an identifier");
+        }
+    }
+
+    record Binary(int type, Expression left, Expression right) implements Expression {
+        @Override
+        public int evaluate(SlotInterpreter interpreter) {
+            int leftValue = left.evaluate(interpreter);
+            int rightValue = right.evaluate(interpreter);
+            return interpreter.binary(type, leftValue, rightValue);
+        }
+    }
+
+    record Unary(int type, Expression operand) implements Expression {
+        @Override
+        public int evaluate(SlotInterpreter interpreter) {
+            return interpreter.unary(type, operand.evaluate(interpreter));
+        }
+    }
+
+    /**
+     * A call, which keeps the call it was resolved from for errors. The index numbers the calls of a program, so an interpreter can keep what each call resolves to in an array
+     */
+    record Call(String name, Expression[] arguments, FunctionCallExpression source, int index) implements Expression {
+        @Override
+        public int evaluate(SlotInterpreter interpreter) {
+            return interpreter.call(this);
+        }
+    }
+
+    record Block(Statement[] statements) implements Statement {
+        @Override
+        public void execute(SlotInterpreter interpreter) {
+            for (Statement statement : statements) {
+                statement.execute(interpreter);
+                if (interpreter.toReturn())
+                    return;
+            }
+        }
+    }
+
+    /**
+     * A conditional. The variables of the scope of its consequence have slots of their own in the frame, so entering the scope costs nothing
+     */
+    record Conditional(Expression condition, Statement consequence) implements Statement {
+        @Override
+        public void execute(SlotInterpreter interpreter) {
+            if (interpreter.truthy(condition.evaluate(interpreter)))
+                consequence.execute(interpreter);
+        }
+    }
+
+    record Loop(Expression condition, Statement body) implements Statement {
+        @Override
+        public void execute(SlotInterpreter interpreter) {
+            while (interpreter.truthy(condition.evaluate(interpreter)))
+                body.execute(interpreter);
+        }
+    }
+
+    record Declare(int slot, Expression value) implements Statement {
+        @Override
+        public void execute(SlotInterpreter interpreter) {
+            interpreter.write(slot, value.evaluate(interpreter));
+        }
+    }
+
+    record Evaluate(Expression expression) implements Statement {
+        @Override
+        public void execute(SlotInterpreter interpreter) {
+            expression.evaluate(interpreter);
+        }
+    }
+
+    record Return(Expression expression) implements Statement {
+        @Override
+        public void execute(SlotInterpreter interpreter) {
+            interpreter.returnValue(expression.evaluate(interpreter));
+        }
+    }
+
+    record Empty() implements Statement {
+        @Override
+        public void execute(SlotInterpreter interpreter) {}
+    }
+}
@@ -0,0 +1,64 @@
+package com.moefrumkin.droplet.interpreter.basicInterpreter.resolver;
+
+import com.moefrumkin.droplet.parser.function.Function;
+
+import java.util.List;
+
+/**
+ * A function whose variables have been resolved to lexical addresses
+ */
+public final class ResolvedFunction {
+
+    private final Function function;
+    private final int variables;
+    private final List<VariableReference> references;
+    /**
+     * The calls of the function, in source order
+     */
+    final List<Node.Call> calls;
+    final Node.Statement body;
+
+    ResolvedFunction(Function function, int variables, List<VariableReference> references, List<Node.Call> calls, Node.Statement body) {
+        this.function = function;
+        this.variables = variables;
+        this.references = List.copyOf(references);
+        this.calls = List.copyOf(calls);
+        this.body = body;
+    }
+
+    /**
+     * @return the function that was resolved
+     */
+    public Function function() {
+        return function;
+    }
+
+    /**
+     * @return the name of the function
+     */
+    public String name() {
+        return function.name().getData();
+    }
+
+    /**
+     * @return the number of parameters of the function
+     */
+    public int parameters() {
+        return function.parameters().size();
+    }
+
+    /**
+     * @return the number of slots of the function's frame, which holds its parameters in the first slots and then the variables of all of its scopes.
+     * Scopes that are never open at the same time share slots
+     */
+    public int variables() {
+        return variables;
+    }
+
+    /**
+     * @return every declaration and use of a variable in the function, in source order
+     */
+    public List<VariableReference> references() {
+        return references;
+    }
+}
@@ -0,0 +1,37 @@
+package com.moefrumkin.droplet.interpreter.basicInterpreter.resolver;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * A program whose functions have been resolved by the {@link Resolver}
+ */
+public final class ResolvedProgram {
+
+    private final Map<String, ResolvedFunction> functions;
+    /**
+     * The number of calls in the program, which are numbered from zero
+     */
+    final int calls;
+
+    ResolvedProgram(Map<String, ResolvedFunction> functions, int calls) {
+        this.functions = Collections.unmodifiableMap(functions);
+        this.calls = calls;
+    }
+
+    /**
+     * @return the functions of the program by name
+     */
+    public Map<String, ResolvedFunction> functions() {
+        return functions;
+    }
+
+    /**
+     * Gets a function of the program
+     * @param name the name of the function
+     * @return the function, or {@code null} if the program does not define it
+     */
+    public ResolvedFunction function(String name) {
+        return functions.get(name);
+    }
+}
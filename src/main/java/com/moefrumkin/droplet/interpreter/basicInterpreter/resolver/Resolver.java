@@ -0,0 +1,260 @@
+package com.moefrumkin.droplet.interpreter.basicInterpreter.resolver;
+
+import com.moefrumkin.droplet.interpreter.Interpreter;
+import com.moefrumkin.droplet.parser.expression.*;
+import com.moefrumkin.droplet.parser.function.Function;
+import com.moefrumkin.droplet.parser.function.FunctionList;
+import com.moefrumkin.droplet.parser.statement.*;
+import com.moefrumkin.droplet.token.Token;
+
+import java.util.*;
+
+/**
+ * Resolves every declaration and use of a variable in a program to a {@link LexicalAddress} before the program runs, so a {@link SlotInterpreter} can read and write variables by index
+ * rather than by looking their names up in every enclosing frame. The scopes of a function are then laid out in a single frame: every variable gets a slot of the frame,
+ * and scopes that are never open at the same time share their slots.
+ * <p>
+ * Scopes are lexical. The parameters and the declarations of a function share the function's scope, and the consequence of a conditional has a scope of its own, just as they have
+ * frames of their own in a {@link com.moefrumkin.droplet.interpreter.basicInterpreter.BasicInterpreter}. Unlike the dynamic frames of that interpreter, a function cannot see the variables of its caller,
+ * and the arguments of a call are evaluated in the scope of the caller. Every variable that is used where it is not declared, and every variable that is declared twice in a scope, is an error
+ * found here, along with functions that are defined twice. All of the errors of a program are thrown together in a {@link ResolverException}.
+ * <p>
+ * The body of a loop shares the scope of the loop, and a declaration is resolved once however many times it runs. A declaration in the body of a loop sets its slot again on every iteration,
+ * where a {@link com.moefrumkin.droplet.interpreter.basicInterpreter.BasicInterpreter} fails on the second iteration because the variable is already initialized in its frame
+ */
+public final class Resolver {
+
+    private Resolver() {}
+
+    /**
+     * Resolves a program
+     * @param program the program
+     * @return the resolved program
+     * @throws ResolverException if the program has any errors
+     */
+    public static ResolvedProgram resolve(FunctionList program) {
+        List<String> errors = new ArrayList<>();
+        Map<String, ResolvedFunction> functions = new HashMap<>();
+        int calls = 0;
+        for (Function function : program.functions()) {
+            Resolution resolution = new Resolution(function, errors, calls);
+            ResolvedFunction resolved = resolution.resolve();
+            calls = resolution.calls;
+            if (functions.putIfAbsent(resolved.name(), resolved) != null)
+                errors.add("The function " + resolved.name() + " is already defined");
+        }
+        if (!errors.isEmpty())
+            throw new ResolverException(errors);
+        return new ResolvedProgram(functions, calls);
+    }
+
+    /**
+     * Resolves a program that is a single function
+     * @param function the function
+     * @return the resolved program
+     * @throws ResolverException if the function has any errors
+     */
+    public static ResolvedProgram resolve(Function function) {
+        return resolve(new FunctionList(List.of(function)));
+    }
+
+    /**
+     * Resolves the body of one function. Each visit leaves the node it resolved in {@link #expression} or {@link #statement}
+     */
+    private static final class Resolution implements Interpreter {
+
+        private final Function function;
+        private final List<String> errors;
+        private final List<VariableReference> references = new ArrayList<>();
+        private final List<Node.Call> callNodes = new ArrayList<>();
+        /**
+         * The variables of every enclosing scope, from the function scope to the innermost scope
+         */
+        private final List<Map<String, Slot>> scopes = new ArrayList<>();
+        /**
+         * The first free slot of the frame, and the most slots that have been in use at once
+         */
+        private int next;
+        private int frameSize;
+        /**
+         * The index of the next call, which continues from the calls of the functions resolved before this one
+         */
+        private int calls;
+
+        private Node.Expression expression;
+        private Node.Statement statement;
+
+        private Resolution(Function function, List<String> errors, int calls) {
+            this.function = function;
+            this.errors = errors;
+            this.calls = calls;
+        }
+
+        private ResolvedFunction resolve() {
+            scopes.add(new HashMap<>());
+            for (Token parameter : function.parameters())
+                declare(parameter.getData());
+            Node.Statement body = statement(function.body());
+            return new ResolvedFunction(function, frameSize, references, callNodes, body);
+        }
+
+        /**
+         * The index of a variable in its scope, and its slot in the frame of the function
+         */
+        private record Slot(int index, int frameSlot) {}
+
+        private Node.Expression expression(Expression expression) {
+            expression.evaluate(this);
+            return this.expression;
+        }
+
+        private Node.Statement statement(Statement statement) {
+            statement.interpret(this);
+            return this.statement;
+        }
+
+        private int declare(String name) {
+            Map<String, Slot> scope = scopes.get(scopes.size() - 1);
+            if (scope.containsKey(name))
+                errors.add("In " + function.name().getData() + ", the variable " + name + " is already declared in its scope");
+            Slot slot = new Slot(scope.size(), next++);
+            frameSize = Math.max(frameSize, next);
+            scope.putIfAbsent(name, slot);
+            references.add(new VariableReference(name, true, new LexicalAddress(0, slot.index())));
+            return slot.frameSlot();
+        }
+
+        private int use(String name) {
+            for (int depth = 0; depth < scopes.size(); depth++) {
+                Slot slot = scopes.get(scopes.size() - 1 - depth).get(name);
+                if (slot != null) {
+                    references.add(new VariableReference(name, false, new LexicalAddress(depth, slot.index())));
+                    return slot.frameSlot();
+                }
+            }
+            errors.add("In " + function.name().getData() + ", the variable " + name + " is not declared");
+            return 0;
+        }
+
+        @Override
+        public void interpret(Function function) {
+            throw new IllegalStateException("Functions can only be defined at the top level");
+        }
+
+        @Override
+        public void interpret(FunctionList function) {
+            throw new IllegalStateException("Functions can only be defined at the top level");
+        }
+
+        @Override
+        public void interpret(CompoundStatement statement) {
+            List<Statement> children = statement.statements();
+            Node.Statement[] statements = new Node.Statement[children.size()];
+            for (int i = 0; i < statements.length; i++)
+                statements[i] = statement(children.get(i));
+            this.statement = new Node.Block(statements);
+        }
+
+        @Override
+        public void interpret(ConditionalStatement statement) {
+            Node.Expression condition = expression(statement.condition());
+            //the slots of the scope are free again once it is closed
+            int start = next;
+            scopes.add(new HashMap<>());
+            Node.Statement consequence = statement(statement.consequence());
+            scopes.remove(scopes.size() - 1);
+            next = start;
+            this.statement = new Node.Conditional(condition, consequence);
+        }
+
+        @Override
+        public void interpret(DeclarationStatement statement) {
+            //the value is resolved first, so it sees any variable of an enclosing scope that the declaration shadows
+            Node.Expression value = expression(statement.value());
+            this.statement = new Node.Declare(declare(statement.identifier().getData()), value);
+        }
+
+        @Override
+        public void interpret(EmptyStatement statement) {
+            this.statement = new Node.Empty();
+        }
+
+        @Override
+        public void interpret(ExpressionStatement statement) {
+            this.statement = new Node.Evaluate(expression(statement.expression()));
+        }
+
+        @Override
+        public void interpret(LoopStatement statement) {
+            Node.Expression condition = expression(statement.condition());
+            this.statement = new Node.Loop(condition, statement(statement.body()));
+        }
+
+        @Override
+        public void interpret(ReturnStatement statement) {
+            this.statement = new Node.Return(expression(statement.expression()));
+        }
+
+        @Override
+        public int interpret(BinaryOperationExpression expression) {
+            if (expression.type() == BinaryOperationExpression.Type.ASSIGNMENT) {
+                if (expression.left() instanceof IdentifierExpression identifier) {
+                    int slot = use(identifier.identifier().getData());
+                    this.expression = new Node.Assign(slot, expression(expression.right()));
+                } else {
+                    Node.Expression left = expression(expression.left());
+                    this.expression = new Node.InvalidAssign(left, expression(expression.right()));
+                }
+                return 0;
+            }
+            Node.Expression left = expression(expression.left());
+            this.expression = new Node.Binary(expression.type().ordinal(), left, expression(expression.right()));
+            return 0;
+        }
+
+        @Override
+        public int interpret(EnclosedExpression expression) {
+            expression.expression().evaluate(this);
+            return 0;
+        }
+
+        @Override
+        public int interpret(FunctionCallExpression expression) {
+            //the call is numbered before its arguments, so the calls of a function are kept in source order
+            int index = calls++;
+            int position = callNodes.size();
+            callNodes.add(null);
+            List<Expression> children = expression.arguments();
+            Node.Expression[] arguments = new Node.Expression[children.size()];
+            for (int i = 0; i < arguments.length; i++)
+                arguments[i] = expression(children.get(i));
+            Node.Call call = new Node.Call(expression.identifier().getData(), arguments, expression, index);
+            callNodes.set(position, call);
+            this.expression = call;
+            return 0;
+        }
+
+        @Override
+        public int interpret(IdentifierExpression expression) {
+            this.expression = new Node.Read(use(expression.identifier().getData()));
+            return 0;
+        }
+
+        @Override
+        public int interpret(LiteralExpression expression) {
+            String literal = expression.literal().getData();
+            try {
+                this.expression = new Node.Literal(Integer.parseInt(literal));
+            } catch (NumberFormatException e) {
+                this.expression = new Node.MalformedLiteral(literal);
+            }
+            return 0;
+        }
+
+        @Override
+        public int interpret(UnaryOperationExpression expression) {
+            this.expression = new Node.Unary(expression.type().ordinal(), expression(expression.operand()));
+            return 0;
+        }
+    }
+}
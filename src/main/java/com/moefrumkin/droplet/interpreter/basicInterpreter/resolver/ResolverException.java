@@ -0,0 +1,36 @@
+package com.moefrumkin.droplet.interpreter.basicInterpreter.resolver;
+
+import java.util.List;
+
+/**
+ * An exception thrown if the variables or functions of a program cannot be resolved. It holds every error the resolver found, not just the first
+ */
+public class ResolverException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The errors, in source order
+     */
+    private final List<String> errors;
+
+    /**
+     * Creates a new exception
+     * @param errors the errors, of which there must be at least one
+     */
+    public ResolverException(List<String> errors) {
+        this.errors = List.copyOf(errors);
+    }
+
+    /**
+     * @return the errors, in source order
+     */
+    public List<String> errors() {
+        return errors;
+    }
+
+    @Override
+    public String getMessage() {
+        return String.join("\n", errors);
+    }
+}
@@ -0,0 +1,209 @@
+package com.moefrumkin.droplet.interpreter.basicInterpreter.resolver;
+
+import com.moefrumkin.droplet.interpreter.Configuration;
+import com.moefrumkin.droplet.interpreter.basicInterpreter.BasicInterpreter;
+import com.moefrumkin.droplet.interpreter.NativeFunction;
+import com.moefrumkin.droplet.interpreter.basicInterpreter.exceptions.InterpreterRuntimeException;
+import com.moefrumkin.droplet.interpreter.basicInterpreter.stackframe.SlotStack;
+import com.moefrumkin.droplet.parser.expression.BinaryOperationExpression;
+import com.moefrumkin.droplet.parser.expression.FunctionCallExpression;
+import com.moefrumkin.droplet.parser.expression.UnaryOperationExpression;
+import com.moefrumkin.droplet.token.Token;
+import com.moefrumkin.droplet.token.Type;
+
+import java.util.*;
+import java.util.function.IntBinaryOperator;
+import java.util.function.IntUnaryOperator;
+import java.util.function.ToIntFunction;
+
+/**
+ * Runs a {@link ResolvedProgram} with the settings and library of a {@link BasicInterpreter}. The frames of the calls are kept on one {@link SlotStack},
+ * so a variable is read or written by indexing its slot in the current frame, without hashing its name, and a call to a function of the program allocates nothing.
+ * A call to a native function with at most three arguments allocates nothing either, while a call to a library function that takes a list boxes its arguments into the list.
+ * <p>
+ * Apart from the lexical scoping of the {@link Resolver}, programs run as they do in the {@link BasicInterpreter}: the library is searched before the program,
+ * a compound statement stops after any statement that returns while a loop does not, and a function returns {@link Configuration#DEFAULT_RETURN} if it does not return anything else
+ */
+public final class SlotInterpreter {
+
+    private static final int ASSIGNMENT = BinaryOperationExpression.Type.ASSIGNMENT.ordinal();
+
+    private final BasicInterpreter interpreter;
+    private final ResolvedProgram program;
+    private final IntBinaryOperator[] binaryOperations;
+    private final IntUnaryOperator[] unaryOperations;
+
+    private final SlotStack stack = new SlotStack();
+
+    /**
+     * What each call of the program resolves to, by the index of the call. The library and the program are fixed, so a call is resolved the first time it runs
+     */
+    private final Target[] targets;
+
+    /**
+     * The functions of the program whose calls have been linked
+     */
+    private final Set<ResolvedFunction> linked = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    /**
+     * The function a call resolves to, which is a native function, a library function, a function of the program, or nothing if the function is not defined
+     */
+    private static final class Target {
+        private final NativeFunction nativeFunction;
+        private final ToIntFunction<List<Integer>> library;
+        private final ResolvedFunction function;
+        /**
+         * Whether the calls of the function of the program have been linked, which is cached here so a linked call does not look the function up again
+         */
+        private boolean linked;
+
+        private Target(NativeFunction nativeFunction, ToIntFunction<List<Integer>> library, ResolvedFunction function) {
+            this.nativeFunction = nativeFunction;
+            this.library = library;
+            this.function = function;
+        }
+    }
+
+    /**
+     * Creates an interpreter for a program
+     * @param interpreter the interpreter whose settings and library the program runs with
+     * @param program the program
+     */
+    public SlotInterpreter(BasicInterpreter interpreter, ResolvedProgram program) {
+        this.interpreter = interpreter;
+        this.program = program;
+        this.targets = new Target[program.calls];
+
+        BinaryOperationExpression.Type[] binaryTypes = BinaryOperationExpression.Type.values();
+        binaryOperations = new IntBinaryOperator[binaryTypes.length];
+        for (BinaryOperationExpression.Type type : binaryTypes)
+            binaryOperations[type.ordinal()] = interpreter.getBinaryOperator(type);
+        UnaryOperationExpression.Type[] unaryTypes = UnaryOperationExpression.Type.values();
+        unaryOperations = new IntUnaryOperator[unaryTypes.length];
+        for (UnaryOperationExpression.Type type : unaryTypes)
+            unaryOperations[type.ordinal()] = interpreter.getUnaryOperator(type);
+    }
+
+    /**
+     * Calls a function of the program, or of the library, without arguments
+     * @param name the name of the function
+     * @return the value the function returns
+     */
+    public int run(String name) {
+        return call(new Node.Call(name, new Node.Expression[0], new FunctionCallExpression(Token.of(Type.IDENTIFIER, name), List.of()), -1), resolve(name));
+    }
+
+    int call(Node.Call call) {
+        Target target = targets[call.index()];
+        if (target == null)
+            targets[call.index()] = target = resolve(call.name());
+        return call(call, target);
+    }
+
+    private Target resolve(String name) {
+        //library functions are found before the functions of the program
+        Optional<NativeFunction> nativeFunction = interpreter.getNativeFunction(name);
+        if (nativeFunction.isPresent())
+            return new Target(nativeFunction.get(), null, null);
+        Optional<ToIntFunction<List<Integer>>> libraryFunction = interpreter.getLibraryFunction(name);
+        return libraryFunction.map(library -> new Target(null, library, null)).orElseGet(() -> new Target(null, null, program.function(name)));
+    }
+
+    /**
+     * Checks the number of arguments of every call of a function the first time the function is called, before its arguments are evaluated, as a {@link BasicInterpreter} links them.
+     * A call to a library function that takes a list, or to a function that is not defined, is not checked
+     */
+    private void link(Target target) {
+        target.linked = true;
+        if (!linked.add(target.function))
+            return;
+        for (Node.Call call : target.function.calls) {
+            Target callee = targets[call.index()];
+            if (callee == null)
+                targets[call.index()] = callee = resolve(call.name());
+            if (callee.nativeFunction != null && call.arguments().length != callee.nativeFunction.arity())
+                throw new InterpreterRuntimeException("Expected " + callee.nativeFunction.arity() + " parameters, Given " + call.arguments().length, call.source());
+            if (callee.function != null && call.arguments().length != callee.function.parameters())
+                throw new InterpreterRuntimeException("Expected " + callee.function.parameters() + " parameters, Given " + call.arguments().length, call.source());
+        }
+    }
+
+    private int call(Node.Call call, Target target) {
+        Node.Expression[] arguments = call.arguments();
+
+        if (target.nativeFunction != null) {
+            NativeFunction function = target.nativeFunction;
+            if (arguments.length != function.arity())
+                throw new InterpreterRuntimeException("Expected " + function.arity() + " parameters, Given " + arguments.length, call.source());
+            //arguments are evaluated in order, and only calls with more than three arguments need an array
+            return switch (arguments.length) {
+                case 0 -> function.invoke();
+                case 1 -> function.invoke(arguments[0].evaluate(this));
+                case 2 -> function.invoke(arguments[0].evaluate(this), arguments[1].evaluate(this));
+                case 3 -> function.invoke(arguments[0].evaluate(this), arguments[1].evaluate(this), arguments[2].evaluate(this));
+                default -> {
+                    int[] values = new int[arguments.length];
+                    for (int i = 0; i < values.length; i++)
+                        values[i] = arguments[i].evaluate(this);
+                    yield function.invoke(values);
+                }
+            };
+        }
+
+        if (target.library != null) {
+            List<Integer> values = new ArrayList<>(arguments.length);
+            for (Node.Expression argument : arguments)
+                values.add(argument.evaluate(this));
+            return target.library.applyAsInt(values);
+        }
+
+        ResolvedFunction function = target.function;
+        if (function == null)
+            throw new InterpreterRuntimeException("The function " + call.name() + " is not defined", call.source());
+        if (arguments.length != function.parameters())
+            throw new InterpreterRuntimeException("Expected " + function.parameters() + " parameters, Given " + arguments.length, call.source());
+        if (!target.linked)
+            link(target);
+
+        //the arguments are evaluated in the caller's frame and become the first slots of the new one
+        int frame = stack.beginCall(Configuration.DEFAULT_RETURN);
+        for (Node.Expression argument : arguments)
+            stack.push(argument.evaluate(this));
+        stack.enterFunction(frame, function.variables());
+
+        function.body.execute(this);
+        return stack.exitFunction();
+    }
+
+    int read(int slot) {
+        return stack.get(slot);
+    }
+
+    void write(int slot, int value) {
+        stack.set(slot, value);
+    }
+
+    boolean truthy(int value) {
+        return interpreter.truthy(value);
+    }
+
+    int binary(int type, int left, int right) {
+        return binaryOperations[type].applyAsInt(left, right);
+    }
+
+    int assignment(int left, int right) {
+        return binaryOperations[ASSIGNMENT].applyAsInt(left, right);
+    }
+
+    int unary(int type, int operand) {
+        return unaryOperations[type].applyAsInt(operand);
+    }
+
+    void returnValue(int value) {
+        stack.returnFunction(value);
+    }
+
+    boolean toReturn() {
+        return stack.getToReturn();
+    }
+}
@@ -0,0 +1,9 @@
+package com.moefrumkin.droplet.interpreter.basicInterpreter.resolver;
+
+/**
+ * A record class that represents a declaration or use of a variable, and the address the resolver gave it
+ * @param name the name of the variable
+ * @param declaration whether the reference declares the variable, as a parameter or with {@code let}
+ * @param address the address of the variable from the reference
+ */
+public record VariableReference(String name, boolean declaration, LexicalAddress address) {}
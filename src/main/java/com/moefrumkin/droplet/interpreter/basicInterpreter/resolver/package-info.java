@@ -0,0 +1,4 @@
+/**
+ * A package with the resolver, which gives every variable of a program a lexical address before it runs, and the two engines that run resolved programs: an interpreter that reads and writes variables by their address, and a compiler into closures over frame arrays
+ */
+package com.moefrumkin.droplet.interpreter.basicInterpreter.resolver;
@@ -1,6 +1,7 @@
 package com.moefrumkin.droplet.interpreter.basicInterpreter.stackframe;
 
 import com.moefrumkin.droplet.parser.function.Function;
+import com.moefrumkin.droplet.parser.function.LazyBody;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -49,7 +50,11 @@ public class GlobalStackFrame implements StackFrame {
 
     @Override
     public Function getFunction(String name) {
-        return Optional.ofNullable(functionMap.get(name)).orElseThrow(() -> new StackFrameException(this, "The function " + name + " is not defined"));
+        Function function = Optional.ofNullable(functionMap.get(name)).orElseThrow(() -> new StackFrameException(this, "The function " + name + " is not defined"));
+        //a lazily parsed body is parsed when its function is first resolved, so syntax errors are thrown before the arguments are evaluated
+        if (function.body() instanceof LazyBody body)
+            body.statement();
+        return function;
     }
 
     @Override
@@ -0,0 +1,139 @@
+package com.moefrumkin.droplet.interpreter.basicInterpreter.stackframe;
+
+import java.util.Arrays;
+
+/**
+ * A call stack of function frames kept in one contiguous int array, for programs whose variables have been resolved to slots.
+ * A frame is a header followed by the slots of its function, and the header holds the start of the caller's frame, the return value and whether the function is returning.
+ * The return value and the return flag are read from the header of the current frame, so nothing is looked up through enclosing frames, and calls allocate nothing unless the array has to grow.
+ * <p>
+ * A call pushes its frame in three steps: {@link #beginCall(int)} pushes the header, {@link #push(int)} pushes each argument, which may call other functions above it,
+ * and {@link #enterFunction(int, int)} makes the frame current with room for all of the function's slots. {@link #exitFunction()} pops it again
+ */
+public final class SlotStack {
+
+    private static final int DEFAULT_CAPACITY = 256;
+    private static final int CALLER = 0;
+    private static final int RETURN_VALUE = 1;
+    private static final int RETURNING = 2;
+    private static final int HEADER = 3;
+
+    private int[] slots;
+    private int base;
+    private int top;
+
+    /**
+     * Creates an empty stack. The outermost frame has no slots, and is where the program returns to
+     */
+    public SlotStack() {
+        slots = new int[DEFAULT_CAPACITY];
+        base = HEADER;
+        top = HEADER;
+    }
+
+    /**
+     * Pushes the header of a new frame
+     * @param defaultReturn the value the function returns if it does not return anything else
+     * @return the start of the new frame, which is passed to {@link #enterFunction(int, int)}
+     */
+    public int beginCall(int defaultReturn) {
+        int frame = top;
+        ensureCapacity(frame + HEADER);
+        slots[frame + CALLER] = base;
+        slots[frame + RETURN_VALUE] = defaultReturn;
+        slots[frame + RETURNING] = 0;
+        top = frame + HEADER;
+        return frame;
+    }
+
+    /**
+     * Pushes an argument of the frame that is being called
+     * @param value the argument
+     */
+    public void push(int value) {
+        ensureCapacity(top + 1);
+        slots[top++] = value;
+    }
+
+    /**
+     * Makes a frame whose header and arguments have been pushed the current frame
+     * @param frame the start of the frame
+     * @param variables the number of slots of the function, including its parameters
+     */
+    public void enterFunction(int frame, int variables) {
+        int arguments = top;
+        base = frame + HEADER;
+        top = base + variables;
+        ensureCapacity(top);
+        Arrays.fill(slots, arguments, top, 0);
+    }
+
+    /**
+     * Pops the current frame, making its caller's frame current
+     * @return the return value of the popped frame
+     */
+    public int exitFunction() {
+        int value = slots[base - HEADER + RETURN_VALUE];
+        top = base - HEADER;
+        base = slots[top + CALLER];
+        return value;
+    }
+
+    /**
+     * Gets a slot of the current frame
+     * @param slot the slot
+     * @return the value
+     */
+    public int get(int slot) {
+        return slots[base + slot];
+    }
+
+    /**
+     * Sets a slot of the current frame
+     * @param slot the slot
+     * @param value the value
+     */
+    public void set(int slot, int value) {
+        slots[base + slot] = value;
+    }
+
+    /**
+     * Marks the current frame to return with the given value
+     * @param value the return value
+     */
+    public void returnFunction(int value) {
+        slots[base - HEADER + RETURN_VALUE] = value;
+        slots[base - HEADER + RETURNING] = 1;
+    }
+
+    /**
+     * @return the return value of the current frame
+     */
+    public int getReturnValue() {
+        return slots[base - HEADER + RETURN_VALUE];
+    }
+
+    /**
+     * @return whether the current frame has been marked to return
+     */
+    public boolean getToReturn() {
+        return slots[base - HEADER + RETURNING] != 0;
+    }
+
+    /**
+     * @return the number of slots in use, including the headers of the frames
+     */
+    public int size() {
+        return top;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > slots.length)
+            slots = Arrays.copyOf(slots, Math.max(capacity, slots.length * 2));
+    }
+
+    @Override
+    public String toString() {
+        return "Slot stack of " + top + " slots";
+    }
+}
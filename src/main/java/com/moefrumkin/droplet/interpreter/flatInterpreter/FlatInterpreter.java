@@ -0,0 +1,497 @@
+package com.moefrumkin.droplet.interpreter.flatInterpreter;
+
+import com.moefrumkin.droplet.interpreter.Configuration;
+import com.moefrumkin.droplet.interpreter.Interpreter;
+import com.moefrumkin.droplet.interpreter.NativeFunction;
+import com.moefrumkin.droplet.interpreter.basicInterpreter.BasicInterpreter;
+import com.moefrumkin.droplet.parser.expression.*;
+import com.moefrumkin.droplet.parser.function.Function;
+import com.moefrumkin.droplet.parser.function.FunctionList;
+import com.moefrumkin.droplet.parser.statement.*;
+
+import java.io.UncheckedIOException;
+import java.util.*;
+import java.util.function.*;
+
+import static com.moefrumkin.droplet.interpreter.flatInterpreter.FlatProgram.*;
+
+/**
+ * An interpreter that evaluates a {@link FlatProgram} instead of the syntax tree it was lowered from. It has the same semantics as a {@link BasicInterpreter} built with the same settings,
+ * including dynamic scoping, but keeps its variables in parallel arrays that grow and shrink like a stack rather than in a map for every frame.
+ * <p>
+ * Each of the visitor methods lowers the node it is given and evaluates the lowered node, so a tree can be passed to this interpreter just like any other interpreter.
+ * Lowering a program once with {@link FlatProgram#lower} and running it with {@link #execute(FlatProgram)} skips the tree altogether
+ */
+public class FlatInterpreter implements Interpreter {
+
+    private static final int DEFAULT_CAPACITY = 64;
+    private static final int ASSIGNMENT = BinaryOperationExpression.Type.ASSIGNMENT.ordinal();
+    private static final String MAIN = "main";
+
+    private final Configuration<FlatInterpreter> configuration;
+    private final IntPredicate truthiness;
+    private final IntBinaryOperator[] binaryOperations;
+    private final IntUnaryOperator[] unaryOperations;
+
+    private final Map<String, Definition> functions = new HashMap<>();
+
+    /**
+     * The program being evaluated, and its arrays
+     */
+    private Context context;
+    private int[] nodes;
+    private int[] constants;
+    private String[] names;
+
+    /**
+     * The variables in scope, from the outermost to the innermost
+     */
+    private String[] variableNames = new String[DEFAULT_CAPACITY];
+    private int[] variableValues = new int[DEFAULT_CAPACITY];
+    private int variables;
+
+    /**
+     * The index of the first variable of every frame. The first frame is the global frame
+     */
+    private int[] frames = new int[DEFAULT_CAPACITY];
+    private int frameCount = 1;
+
+    /**
+     * The name, return value and return flag of every function frame. The first function frame is the global frame, whose return value is the exit code
+     */
+    private String[] functionNames = new String[DEFAULT_CAPACITY];
+    private int[] returnValues = new int[DEFAULT_CAPACITY];
+    private boolean[] returning = new boolean[DEFAULT_CAPACITY];
+    private int function;
+
+    private FlatInterpreter(Configuration<FlatInterpreter> configuration) {
+        this.configuration = configuration;
+        this.truthiness = configuration.truthiness();
+
+        binaryOperations = new IntBinaryOperator[BinaryOperationExpression.Type.values().length];
+        for (BinaryOperationExpression.Type type : BinaryOperationExpression.Type.values())
+            binaryOperations[type.ordinal()] = configuration.binaryOperation(type);
+        unaryOperations = new IntUnaryOperator[UnaryOperationExpression.Type.values().length];
+        for (UnaryOperationExpression.Type type : UnaryOperationExpression.Type.values())
+            unaryOperations[type.ordinal()] = configuration.unaryOperation(type);
+
+        functionNames[0] = "global";
+    }
+
+    /**
+     * A builder class for {@link FlatInterpreter}, which has the settings every interpreter shares and no others
+     */
+    public static final class Builder extends Configuration.Builder<FlatInterpreter, Builder> {
+
+        /**
+         * Creates a new builder object with the default settings
+         */
+        public Builder() {}
+
+        @Override
+        public FlatInterpreter build() {
+            return new FlatInterpreter(configuration((interpreter, e) -> new UncheckedIOException("An error occurred when trying to print in " + interpreter.functionNames[interpreter.function], e)));
+        }
+    }
+
+    /**
+     * A function that has been defined, and the program it was defined in
+     */
+    private static final class Definition {
+        private final Context context;
+        private final int node;
+        /**
+         * Whether the calls of the function have been checked, which happens the first time it is called
+         */
+        private boolean linked;
+
+        private Definition(Context context, int node) {
+            this.context = context;
+            this.node = node;
+        }
+    }
+
+    /**
+     * A program with the functions its names resolve to. The library is fixed when the interpreter is built and user functions can never be redefined, so a name resolves to the same function once it resolves at all
+     */
+    private static final class Context {
+        private final FlatProgram program;
+        private final Definition[] definitions;
+        private final List<ToIntBiFunction<FlatInterpreter, List<Integer>>> library;
+        private final NativeFunction[] nativeFunctions;
+
+        private Context(FlatProgram program, Configuration<FlatInterpreter> configuration) {
+            this.program = program;
+            this.definitions = new Definition[program.names.length];
+            this.library = new ArrayList<>(program.names.length);
+            this.nativeFunctions = new NativeFunction[program.names.length];
+            for (int i = 0; i < program.names.length; i++) {
+                library.add(configuration.libraryFunction(program.names[i]));
+                nativeFunctions[i] = configuration.nativeFunction(program.names[i]);
+            }
+        }
+    }
+
+    /**
+     * Runs a lowered program, function or statement
+     * @param program the program
+     */
+    public void execute(FlatProgram program) {
+        Context previous = enter(program);
+        try {
+            execute(program.root);
+        } finally {
+            enter(previous);
+        }
+    }
+
+    /**
+     * Evaluates a lowered expression
+     * @param program the expression
+     * @return the value of the expression
+     */
+    public int evaluate(FlatProgram program) {
+        Context previous = enter(program);
+        try {
+            return evaluate(program.root);
+        } finally {
+            enter(previous);
+        }
+    }
+
+    /**
+     * @return the exit code of the program, which is set by a return outside of any function
+     */
+    public int getExitCode() {
+        return returnValues[0];
+    }
+
+    private Context enter(FlatProgram program) {
+        Context previous = context;
+        enter(new Context(program, configuration));
+        return previous;
+    }
+
+    private void enter(Context next) {
+        context = next;
+        if (next != null) {
+            nodes = next.program.nodes;
+            constants = next.program.constants;
+            names = next.program.names;
+        }
+    }
+
+    private void execute(int node) {
+        int[] nodes = this.nodes;
+        switch (nodes[node]) {
+            case COMPOUND -> {
+                int count = nodes[node + 1];
+                for (int i = 0; i < count; i++) {
+                    execute(nodes[node + 2 + i]);
+                    //check if the previous statement returned something
+                    if (returning[function])
+                        return;
+                }
+            }
+            case CONDITIONAL -> {
+                int condition = evaluate(nodes[node + 1]);
+                pushFrame();
+                if (truthiness.test(condition))
+                    execute(nodes[node + 2]);
+                popFrame();
+            }
+            case DECLARATION -> {
+                int value = evaluate(nodes[node + 2]);
+                addVariable(names[nodes[node + 1]], value);
+            }
+            case EMPTY -> {}
+            case EXPRESSION -> evaluate(nodes[node + 1]);
+            case LOOP -> {
+                int condition = evaluate(nodes[node + 1]);
+                while (truthiness.test(condition)) {
+                    execute(nodes[node + 2]);
+                    condition = evaluate(nodes[node + 1]);
+                }
+            }
+            case RETURN -> {
+                returnValues[function] = evaluate(nodes[node + 1]);
+                returning[function] = true;
+            }
+            case FUNCTION -> {
+                define(node);
+                call(names[nodes[node + 1]], nodes[node + 1], node, 0);
+            }
+            case PROGRAM -> {
+                int count = nodes[node + 1];
+                for (int i = 0; i < count; i++)
+                    define(nodes[node + 2 + i]);
+                call(MAIN, -1, node, 0);
+            }
+            default -> evaluate(node);
+        }
+    }
+
+    private int evaluate(int node) {
+        int[] nodes = this.nodes;
+        switch (nodes[node]) {
+            case LITERAL:
+                return constants[nodes[node + 1]];
+            case IDENTIFIER:
+                return getVariable(names[nodes[node + 1]]);
+            case BINARY: {
+                int left = evaluate(nodes[node + 2]);
+                int right = evaluate(nodes[node + 3]);
+                if (nodes[node + 1] == ASSIGNMENT)
+                    throw new RuntimeException("Left hand of an assignment must be an identifier");
+                return binaryOperations[nodes[node + 1]].applyAsInt(left, right);
+            }
+            case ASSIGN: {
+                int left = evaluate(nodes[node + 2]);
+                int right = evaluate(nodes[node + 3]);
+                setVariable(names[nodes[node + 1]], right);
+                return binaryOperations[ASSIGNMENT].applyAsInt(left, right);
+            }
+            case UNARY:
+                return unaryOperations[nodes[node + 1]].applyAsInt(evaluate(nodes[node + 2]));
+            case CALL:
+                return call(names[nodes[node + 1]], nodes[node + 1], node + 3, nodes[node + 2]);
+            case MALFORMED_LITERAL:
+                return Integer.parseInt(names[nodes[node + 1]]);
+            default:
+                throw new IllegalArgumentException("The node at " + node + " is not an expression");
+        }
+    }
+
+    /**
+     * Calls a function
+     * @param name the name of the function
+     * @param nameIndex the index of the name in the current program, or -1 if it is not in the program
+     * @param arguments the index in the current program of the first argument's index
+     * @param count the number of arguments
+     * @return the return value of the function
+     */
+    private int call(String name, int nameIndex, int arguments, int count) {
+        int[] nodes = this.nodes;
+        Context caller = context;
+
+        //library functions are checked first
+        NativeFunction nativeFunction = nameIndex < 0 ? configuration.nativeFunction(name) : caller.nativeFunctions[nameIndex];
+        if (nativeFunction != null) {
+            if (count != nativeFunction.arity())
+                throw new FlatInterpreterException("Expected " + nativeFunction.arity() + " parameters, Given " + count + " when calling " + name, functionNames[function]);
+            return switch (count) {
+                case 0 -> nativeFunction.invoke();
+                case 1 -> nativeFunction.invoke(evaluate(nodes[arguments]));
+                case 2 -> nativeFunction.invoke(evaluate(nodes[arguments]), evaluate(nodes[arguments + 1]));
+                case 3 -> nativeFunction.invoke(evaluate(nodes[arguments]), evaluate(nodes[arguments + 1]), evaluate(nodes[arguments + 2]));
+                default -> {
+                    int[] values = new int[count];
+                    for (int i = 0; i < count; i++)
+                        values[i] = evaluate(nodes[arguments + i]);
+                    yield nativeFunction.invoke(values);
+                }
+            };
+        }
+
+        ToIntBiFunction<FlatInterpreter, List<Integer>> libraryFunction = nameIndex < 0 ? configuration.libraryFunction(name) : caller.library.get(nameIndex);
+        if (libraryFunction != null) {
+            List<Integer> values = new ArrayList<>(count);
+            for (int i = 0; i < count; i++)
+                values.add(evaluate(nodes[arguments + i]));
+            return libraryFunction.applyAsInt(this, values);
+        }
+
+        Definition definition = resolve(name, nameIndex);
+        int[] calleeNodes = definition.context.program.nodes;
+        String[] calleeNames = definition.context.program.names;
+        int parameters = calleeNodes[definition.node + 3];
+        if (count != parameters)
+            throw new FlatInterpreterException("Expected " + parameters + " parameters, Given " + count + " when calling " + name, functionNames[function]);
+        if (!definition.linked)
+            link(definition, name);
+
+        pushFunctionFrame(name);
+        //arguments are evaluated in the new frame, like they are by the tree interpreters
+        for (int i = 0; i < count; i++)
+            addVariable(calleeNames[calleeNodes[definition.node + 4 + i]], evaluate(nodes[arguments + i]));
+
+        enter(definition.context);
+        execute(calleeNodes[definition.node + 2]);
+        enter(caller);
+
+        int value = returnValues[function];
+        popFunctionFrame();
+        return value;
+    }
+
+    /**
+     * Checks the number of arguments of every call of a function the first time the function is called, before its arguments are evaluated, as a {@link BasicInterpreter} links them.
+     * A call to a library function that takes a list, or to a function that is not defined, is not checked
+     * @param definition the function
+     * @param name the name of the function
+     */
+    private void link(Definition definition, String name) {
+        definition.linked = true;
+        FlatProgram program = definition.context.program;
+        program.calls(program.nodes[definition.node + 2], call -> {
+            int nameIndex = program.nodes[call + 1];
+            int count = program.nodes[call + 2];
+            NativeFunction nativeFunction = definition.context.nativeFunctions[nameIndex];
+            if (nativeFunction != null && count != nativeFunction.arity())
+                throw new FlatInterpreterException("Expected " + nativeFunction.arity() + " parameters, Given " + count + " when calling " + program.names[nameIndex], name);
+            if (nativeFunction != null || definition.context.library.get(nameIndex) != null)
+                return;
+            Definition callee = functions.get(program.names[nameIndex]);
+            if (callee != null && count != callee.context.program.nodes[callee.node + 3])
+                throw new FlatInterpreterException("Expected " + callee.context.program.nodes[callee.node + 3] + " parameters, Given " + count + " when calling " + program.names[nameIndex], name);
+        });
+    }
+
+    private Definition resolve(String name, int nameIndex) {
+        if (nameIndex >= 0 && context.definitions[nameIndex] != null)
+            return context.definitions[nameIndex];
+        Definition definition = functions.get(name);
+        if (definition == null)
+            throw new FlatInterpreterException("The function " + name + " is not defined", functionNames[function]);
+        if (nameIndex >= 0)
+            context.definitions[nameIndex] = definition;
+        return definition;
+    }
+
+    private void define(int node) {
+        String name = names[nodes[node + 1]];
+        if (functions.containsKey(name))
+            throw new FlatInterpreterException("The function " + name + " is already defined", functionNames[function]);
+        functions.put(name, new Definition(context, node));
+    }
+
+    private void addVariable(String name, int value) {
+        for (int i = frames[frameCount - 1]; i < variables; i++)
+            if (variableNames[i] == name)
+                throw new FlatInterpreterException("The variable " + name + " has already been initialized", functionNames[function]);
+        if (variables == variableNames.length) {
+            variableNames = Arrays.copyOf(variableNames, variables * 2);
+            variableValues = Arrays.copyOf(variableValues, variables * 2);
+        }
+        variableNames[variables] = name;
+        variableValues[variables++] = value;
+    }
+
+    private int getVariable(String name) {
+        //the innermost variable with the name is the one in the nearest frame
+        for (int i = variables - 1; i >= 0; i--)
+            if (variableNames[i] == name)
+                return variableValues[i];
+        throw new FlatInterpreterException("The variable " + name + " has not been initialized", functionNames[function]);
+    }
+
+    private void setVariable(String name, int value) {
+        for (int i = variables - 1; i >= 0; i--) {
+            if (variableNames[i] == name) {
+                variableValues[i] = value;
+                return;
+            }
+        }
+        throw new FlatInterpreterException("The variable " + name + " has not been initialized", functionNames[function]);
+    }
+
+    private void pushFrame() {
+        if (frameCount == frames.length)
+            frames = Arrays.copyOf(frames, frameCount * 2);
+        frames[frameCount++] = variables;
+    }
+
+    private void popFrame() {
+        variables = frames[--frameCount];
+    }
+
+    private void pushFunctionFrame(String name) {
+        pushFrame();
+        if (++function == returnValues.length) {
+            functionNames = Arrays.copyOf(functionNames, function * 2);
+            returnValues = Arrays.copyOf(returnValues, function * 2);
+            returning = Arrays.copyOf(returning, function * 2);
+        }
+        functionNames[function] = name;
+        returnValues[function] = Configuration.DEFAULT_RETURN;
+        returning[function] = false;
+    }
+
+    private void popFunctionFrame() {
+        function--;
+        popFrame();
+    }
+
+    @Override
+    public void interpret(Function function) {
+        execute(FlatProgram.lower(function));
+    }
+
+    @Override
+    public void interpret(FunctionList function) {
+        execute(FlatProgram.lower(function));
+    }
+
+    @Override
+    public void interpret(CompoundStatement statement) {
+        execute(FlatProgram.lower(statement));
+    }
+
+    @Override
+    public void interpret(ConditionalStatement statement) {
+        execute(FlatProgram.lower(statement));
+    }
+
+    @Override
+    public void interpret(DeclarationStatement statement) {
+        execute(FlatProgram.lower(statement));
+    }
+
+    @Override
+    public void interpret(EmptyStatement statement) {}
+
+    @Override
+    public void interpret(ExpressionStatement statement) {
+        execute(FlatProgram.lower(statement));
+    }
+
+    @Override
+    public void interpret(LoopStatement statement) {
+        execute(FlatProgram.lower(statement));
+    }
+
+    @Override
+    public void interpret(ReturnStatement statement) {
+        execute(FlatProgram.lower(statement));
+    }
+
+    @Override
+    public int interpret(BinaryOperationExpression expression) {
+        return evaluate(FlatProgram.lower(expression));
+    }
+
+    @Override
+    public int interpret(EnclosedExpression expression) {
+        return evaluate(FlatProgram.lower(expression));
+    }
+
+    @Override
+    public int interpret(FunctionCallExpression expression) {
+        return evaluate(FlatProgram.lower(expression));
+    }
+
+    @Override
+    public int interpret(IdentifierExpression expression) {
+        return evaluate(FlatProgram.lower(expression));
+    }
+
+    @Override
+    public int interpret(LiteralExpression expression) {
+        return evaluate(FlatProgram.lower(expression));
+    }
+
+    @Override
+    public int interpret(UnaryOperationExpression expression) {
+        return evaluate(FlatProgram.lower(expression));
+    }
+}
@@ -0,0 +1,331 @@
+package com.moefrumkin.droplet.interpreter.flatInterpreter;
+
+import com.moefrumkin.droplet.interpreter.Interpreter;
+import com.moefrumkin.droplet.parser.SyntaxTree;
+import com.moefrumkin.droplet.parser.expression.*;
+import com.moefrumkin.droplet.parser.function.Function;
+import com.moefrumkin.droplet.parser.function.FunctionList;
+import com.moefrumkin.droplet.parser.statement.*;
+import com.moefrumkin.droplet.token.Token;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntConsumer;
+
+/**
+ * A syntax tree lowered into a single int array. Every node is an opcode followed by its operands, and a node refers to its children by their index in the array.
+ * Literal values are kept in a pool of constants, and identifiers in a pool of names, so the nodes themselves only hold ints.
+ * <p>
+ * Children are written before their parents, so the root of the tree is the last node. The layout of each node is
+ * <ul>
+ *     <li>{@code PROGRAM count function...}</li>
+ *     <li>{@code FUNCTION name body count parameter...}</li>
+ *     <li>{@code COMPOUND count statement...}</li>
+ *     <li>{@code CONDITIONAL condition consequence}</li>
+ *     <li>{@code DECLARATION name value}</li>
+ *     <li>{@code EMPTY}</li>
+ *     <li>{@code EXPRESSION expression}</li>
+ *     <li>{@code LOOP condition body}</li>
+ *     <li>{@code RETURN expression}</li>
+ *     <li>{@code BINARY type left right}, where type is the ordinal of the {@link BinaryOperationExpression.Type}</li>
+ *     <li>{@code ASSIGN name left right}, an assignment to an identifier</li>
+ *     <li>{@code UNARY type operand}, where type is the ordinal of the {@link UnaryOperationExpression.Type}</li>
+ *     <li>{@code CALL name count argument...}</li>
+ *     <li>{@code IDENTIFIER name}</li>
+ *     <li>{@code LITERAL constant}</li>
+ *     <li>{@code MALFORMED_LITERAL name}, a literal that does not fit in an int, which fails when it is evaluated just like it does in the tree</li>
+ * </ul>
+ * Enclosed expressions are not kept, since they evaluate to the expression they enclose
+ */
+public final class FlatProgram {
+
+    static final int PROGRAM = 0;
+    static final int FUNCTION = 1;
+    static final int COMPOUND = 2;
+    static final int CONDITIONAL = 3;
+    static final int DECLARATION = 4;
+    static final int EMPTY = 5;
+    static final int EXPRESSION = 6;
+    static final int LOOP = 7;
+    static final int RETURN = 8;
+    static final int BINARY = 9;
+    static final int ASSIGN = 10;
+    static final int UNARY = 11;
+    static final int CALL = 12;
+    static final int IDENTIFIER = 13;
+    static final int LITERAL = 14;
+    static final int MALFORMED_LITERAL = 15;
+
+    private static final int HEADER = 12;
+    private static final int REFERENCE = 4;
+    private static final int ARRAY_HEADER = 16;
+
+    final int[] nodes;
+    final int[] constants;
+    final String[] names;
+    final int root;
+
+    private FlatProgram(int[] nodes, int[] constants, String[] names, int root) {
+        this.nodes = nodes;
+        this.constants = constants;
+        this.names = names;
+        this.root = root;
+    }
+
+    /**
+     * Lowers a syntax tree
+     * @param tree the tree, which can be a whole program, a function, a statement or an expression
+     * @return the lowered tree
+     */
+    public static FlatProgram lower(SyntaxTree tree) {
+        Lowering lowering = new Lowering();
+        int root = lowering.lower(tree);
+        return new FlatProgram(Arrays.copyOf(lowering.nodes, lowering.size), Arrays.copyOf(lowering.constants, lowering.constantCount), lowering.names.toArray(String[]::new), root);
+    }
+
+    /**
+     * @return the index of the root node
+     */
+    public int root() {
+        return root;
+    }
+
+    /**
+     * @return the number of ints in the node array
+     */
+    public int size() {
+        return nodes.length;
+    }
+
+    /**
+     * Estimates the number of bytes of heap the program takes, with the same assumptions as {@link com.moefrumkin.droplet.parser.cache.AstSize}
+     * @return the estimated number of bytes
+     */
+    public long bytes() {
+        long bytes = align(HEADER + 4L * REFERENCE)
+                + align(ARRAY_HEADER + 4L * nodes.length)
+                + align(ARRAY_HEADER + 4L * constants.length)
+                + align(ARRAY_HEADER + (long) REFERENCE * names.length);
+        for (String name : names)
+            bytes += align(HEADER + 3L * REFERENCE) + align(ARRAY_HEADER + name.length());
+        return bytes;
+    }
+
+    /**
+     * Finds the calls of a lowered tree in source order, including the calls in the arguments of other calls
+     * @param node the index of the root of the tree
+     * @param call the consumer of the index of each call
+     */
+    void calls(int node, IntConsumer call) {
+        switch (nodes[node]) {
+            case PROGRAM, COMPOUND -> {
+                for (int i = 0; i < nodes[node + 1]; i++)
+                    calls(nodes[node + 2 + i], call);
+            }
+            case FUNCTION -> calls(nodes[node + 2], call);
+            case CONDITIONAL, LOOP -> {
+                calls(nodes[node + 1], call);
+                calls(nodes[node + 2], call);
+            }
+            case DECLARATION, UNARY -> calls(nodes[node + 2], call);
+            case EXPRESSION, RETURN -> calls(nodes[node + 1], call);
+            case BINARY, ASSIGN -> {
+                calls(nodes[node + 2], call);
+                calls(nodes[node + 3], call);
+            }
+            case CALL -> {
+                call.accept(node);
+                for (int i = 0; i < nodes[node + 2]; i++)
+                    calls(nodes[node + 3 + i], call);
+            }
+            default -> {}
+        }
+    }
+
+    private static long align(long size) {
+        return (size + 7) & ~7L;
+    }
+
+    /**
+     * A visitor that writes each node it visits and returns its index. Statements return their index through {@link #last}, since their visits are void
+     */
+    private static final class Lowering implements Interpreter {
+
+        private int[] nodes = new int[64];
+        private int size;
+        private int[] constants = new int[16];
+        private int constantCount;
+        private final Map<Integer, Integer> constantIndices = new HashMap<>();
+        private final List<String> names = new ArrayList<>();
+        private final Map<String, Integer> nameIndices = new HashMap<>();
+        private int last;
+
+        private int lower(SyntaxTree tree) {
+            if (tree instanceof Expression expression)
+                return expression.evaluate(this);
+            tree.interpret(this);
+            return last;
+        }
+
+        private int emit(int... node) {
+            if (size + node.length > nodes.length)
+                nodes = Arrays.copyOf(nodes, Math.max(nodes.length * 2, size + node.length));
+            System.arraycopy(node, 0, nodes, size, node.length);
+            int index = size;
+            size += node.length;
+            return index;
+        }
+
+        private int emit(int opcode, int operand, int[] children) {
+            int[] node = new int[children.length + 3];
+            node[0] = opcode;
+            node[1] = operand;
+            node[2] = children.length;
+            System.arraycopy(children, 0, node, 3, children.length);
+            return emit(node);
+        }
+
+        private int constant(int value) {
+            return constantIndices.computeIfAbsent(value, v -> {
+                if (constantCount == constants.length)
+                    constants = Arrays.copyOf(constants, constants.length * 2);
+                constants[constantCount] = v;
+                return constantCount++;
+            });
+        }
+
+        private int name(Token token) {
+            //names are interned so that an interpreter can compare names from different programs by reference
+            return nameIndices.computeIfAbsent(token.getData(), data -> {
+                names.add(data.intern());
+                return names.size() - 1;
+            });
+        }
+
+        private int statement(Statement statement) {
+            statement.interpret(this);
+            return last;
+        }
+
+        @Override
+        public void interpret(Function function) {
+            int body = statement(function.body());
+            int[] node = new int[function.parameters().size() + 4];
+            node[0] = FUNCTION;
+            node[1] = name(function.name());
+            node[2] = body;
+            node[3] = function.parameters().size();
+            for (int i = 0; i < function.parameters().size(); i++)
+                node[i + 4] = name(function.parameters().get(i));
+            last = emit(node);
+        }
+
+        @Override
+        public void interpret(FunctionList function) {
+            int[] functions = new int[function.functions().size()];
+            for (int i = 0; i < functions.length; i++) {
+                interpret(function.functions().get(i));
+                functions[i] = last;
+            }
+            int[] node = new int[functions.length + 2];
+            node[0] = PROGRAM;
+            node[1] = functions.length;
+            System.arraycopy(functions, 0, node, 2, functions.length);
+            last = emit(node);
+        }
+
+        @Override
+        public void interpret(CompoundStatement statement) {
+            int[] statements = new int[statement.statements().size()];
+            for (int i = 0; i < statements.length; i++)
+                statements[i] = statement(statement.statements().get(i));
+            int[] node = new int[statements.length + 2];
+            node[0] = COMPOUND;
+            node[1] = statements.length;
+            System.arraycopy(statements, 0, node, 2, statements.length);
+            last = emit(node);
+        }
+
+        @Override
+        public void interpret(ConditionalStatement statement) {
+            int condition = statement.condition().evaluate(this);
+            int consequence = statement(statement.consequence());
+            last = emit(CONDITIONAL, condition, consequence);
+        }
+
+        @Override
+        public void interpret(DeclarationStatement statement) {
+            int value = statement.value().evaluate(this);
+            last = emit(DECLARATION, name(statement.identifier()), value);
+        }
+
+        @Override
+        public void interpret(EmptyStatement statement) {
+            last = emit(EMPTY);
+        }
+
+        @Override
+        public void interpret(ExpressionStatement statement) {
+            last = emit(EXPRESSION, statement.expression().evaluate(this));
+        }
+
+        @Override
+        public void interpret(LoopStatement statement) {
+            int condition = statement.condition().evaluate(this);
+            int body = statement(statement.body());
+            last = emit(LOOP, condition, body);
+        }
+
+        @Override
+        public void interpret(ReturnStatement statement) {
+            last = emit(RETURN, statement.expression().evaluate(this));
+        }
+
+        @Override
+        public int interpret(BinaryOperationExpression expression) {
+            int left = expression.left().evaluate(this);
+            int right = expression.right().evaluate(this);
+            if (expression.type() == BinaryOperationExpression.Type.ASSIGNMENT && expression.left() instanceof IdentifierExpression identifier)
+                return emit(ASSIGN, name(identifier.identifier()), left, right);
+            return emit(BINARY, expression.type().ordinal(), left, right);
+        }
+
+        @Override
+        public int interpret(EnclosedExpression expression) {
+            return expression.expression().evaluate(this);
+        }
+
+        @Override
+        public int interpret(FunctionCallExpression expression) {
+            int[] arguments = new int[expression.arguments().size()];
+            for (int i = 0; i < arguments.length; i++)
+                arguments[i] = expression.arguments().get(i).evaluate(this);
+            return emit(CALL, name(expression.identifier()), arguments);
+        }
+
+        @Override
+        public int interpret(IdentifierExpression expression) {
+            return emit(IDENTIFIER, name(expression.identifier()));
+        }
+
+        @Override
+        public int interpret(LiteralExpression expression) {
+            int value;
+            try {
+                value = Integer.parseInt(expression.literal().getData());
+            } catch (NumberFormatException e) {
+                return emit(MALFORMED_LITERAL, name(expression.literal()));
+            }
+            return emit(LITERAL, constant(value));
+        }
+
+        @Override
+        public int interpret(UnaryOperationExpression expression) {
+            int operand = expression.operand().evaluate(this);
+            return emit(UNARY, expression.type().ordinal(), operand);
+        }
+    }
+}
@@ -0,0 +1,4 @@
+/**
+ * A package with an interpreter that evaluates programs lowered into flat arrays of ints
+ */
+package com.moefrumkin.droplet.interpreter.flatInterpreter;
@@ -0,0 +1,503 @@
+package com.moefrumkin.droplet.interpreter.vm;
+
+import com.moefrumkin.droplet.interpreter.Interpreter;
+import com.moefrumkin.droplet.parser.SyntaxTree;
+import com.moefrumkin.droplet.parser.expression.*;
+import com.moefrumkin.droplet.parser.function.Function;
+import com.moefrumkin.droplet.parser.function.FunctionList;
+import com.moefrumkin.droplet.parser.statement.*;
+import com.moefrumkin.droplet.token.Token;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Code for the {@link VirtualMachine}, compiled from a syntax tree. The code is a single int array of instructions for a stack machine, each an opcode followed by its operands.
+ * Literal values are kept in a pool of constants, and identifiers in a pool of names, so the instructions themselves only hold ints. Jumps hold the distance to their target from the end of the jump.
+ * <p>
+ * A program compiles to the code that defines its functions and calls main. The body of each function is compiled into code of its own the first time it is asked for,
+ * so lazily parsed bodies are still only parsed when their function is first called. The instructions are
+ * <ul>
+ *     <li>{@code PUSH constant}, which pushes a constant</li>
+ *     <li>{@code MALFORMED name}, a literal that does not fit in an int, which fails when it is reached just like it does in the tree</li>
+ *     <li>{@code LOAD name}, which pushes the value of a variable, and {@code LOAD_PAIR name name}, which pushes the values of two</li>
+ *     <li>{@code STORE name}, which pops a value and the old value of a variable, sets the variable, and pushes the result of the assignment operation</li>
+ *     <li>{@code ASSIGN name}, a {@code STORE} whose result is not used, for assignments that are statements</li>
+ *     <li>{@code INVALID_STORE}, an assignment to something other than an identifier</li>
+ *     <li>{@code BINARY type}, where type is the ordinal of the {@link BinaryOperationExpression.Type}, and {@code BINARY_CONSTANT type constant}, whose right operand is a constant</li>
+ *     <li>{@code UNARY type}, where type is the ordinal of the {@link UnaryOperationExpression.Type}</li>
+ *     <li>{@code POP}</li>
+ *     <li>{@code DECLARE name}, which pops a value into a new variable of the current scope</li>
+ *     <li>{@code ENTER_SCOPE} and {@code EXIT_SCOPE}, around the consequence of a conditional statement that declares variables</li>
+ *     <li>{@code JUMP offset}, {@code JUMP_IF_FALSE offset}, which pops a condition, and {@code JUMP_IF_RETURNING offset}, which jumps if the current function has returned</li>
+ *     <li>{@code RETURN}, which pops the return value of the current function</li>
+ *     <li>{@code CALL name count}, {@code ARGUMENT index} after each argument but the last, and {@code INVOKE count}, a call of a function</li>
+ *     <li>{@code END}, the end of the body of a function</li>
+ *     <li>{@code DEFINE function}, which defines a function of the program</li>
+ *     <li>{@code HALT}, the end of the code of a program</li>
+ * </ul>
+ * The remaining opcodes are never compiled. A virtual machine rewrites the generic instructions into them when the operation they perform is the default one,
+ * so the default operations run without calling a function object. A comparison of a variable or a value with a constant followed by a jump, and an assignment that adds a constant to a variable or subtracts one from it,
+ * are each fused into a single instruction.
+ * A call is rewritten the first time it is reached, once the kind of function it calls is known, and a return that is not in a loop ends the function it is in straight away.
+ * A rewritten instruction keeps the length of the instructions it replaces, so the jumps around it stay the same
+ */
+public final class Bytecode {
+
+    static final int PUSH = 0;
+    static final int MALFORMED = 1;
+    static final int LOAD = 2;
+    static final int LOAD_PAIR = 3;
+    static final int STORE = 4;
+    static final int ASSIGN = 5;
+    static final int INVALID_STORE = 6;
+    static final int BINARY = 7;
+    static final int BINARY_CONSTANT = 8;
+    static final int UNARY = 9;
+    static final int POP = 10;
+    static final int DECLARE = 11;
+    static final int ENTER_SCOPE = 12;
+    static final int EXIT_SCOPE = 13;
+    static final int JUMP = 14;
+    static final int JUMP_IF_FALSE = 15;
+    static final int JUMP_IF_RETURNING = 16;
+    static final int RETURN = 17;
+    static final int CALL = 18;
+    static final int ARGUMENT = 19;
+    static final int INVOKE = 20;
+    static final int END = 21;
+    static final int DEFINE = 22;
+    static final int HALT = 23;
+
+    static final int ADD = 24;
+    static final int SUBTRACT = 25;
+    static final int MULTIPLY = 26;
+    static final int OR = 27;
+    static final int AND = 28;
+    static final int EQUALS = 29;
+    static final int NOT_EQUALS = 30;
+    static final int GREATER = 31;
+    static final int LESS = 32;
+    static final int ADD_CONSTANT = 33;
+    static final int SUBTRACT_CONSTANT = 34;
+    static final int MULTIPLY_CONSTANT = 35;
+    static final int EQUALS_CONSTANT = 36;
+    static final int NOT_EQUALS_CONSTANT = 37;
+    static final int GREATER_CONSTANT = 38;
+    static final int LESS_CONSTANT = 39;
+    static final int NEGATE = 40;
+    static final int NOT = 41;
+    static final int JUMP_IF_ZERO = 42;
+    static final int JUMP_UNLESS_EQUALS_CONSTANT = 43;
+    static final int JUMP_UNLESS_NOT_EQUALS_CONSTANT = 44;
+    static final int JUMP_UNLESS_GREATER_CONSTANT = 45;
+    static final int JUMP_UNLESS_LESS_CONSTANT = 46;
+    static final int CALL_FUNCTION = 47;
+    static final int CALL_LIBRARY = 48;
+    static final int PARAMETER = 49;
+    static final int INVOKE_FUNCTION = 50;
+    static final int INVOKE_NATIVE = 51;
+    static final int INVOKE_LIBRARY = 52;
+    static final int RETURN_END = 53;
+    static final int JUMP_UNLESS_VARIABLE_EQUALS_CONSTANT = 54;
+    static final int JUMP_UNLESS_VARIABLE_NOT_EQUALS_CONSTANT = 55;
+    static final int JUMP_UNLESS_VARIABLE_GREATER_CONSTANT = 56;
+    static final int JUMP_UNLESS_VARIABLE_LESS_CONSTANT = 57;
+    static final int INCREMENT = 58;
+
+    private static final String[] MNEMONICS = {
+            "PUSH", "MALFORMED", "LOAD", "LOAD_PAIR", "STORE", "ASSIGN", "INVALID_STORE", "BINARY", "BINARY_CONSTANT", "UNARY", "POP", "DECLARE", "ENTER_SCOPE", "EXIT_SCOPE",
+            "JUMP", "JUMP_IF_FALSE", "JUMP_IF_RETURNING", "RETURN", "CALL", "ARGUMENT", "INVOKE", "END", "DEFINE", "HALT",
+            "ADD", "SUBTRACT", "MULTIPLY", "OR", "AND", "EQUALS", "NOT_EQUALS", "GREATER", "LESS",
+            "ADD_CONSTANT", "SUBTRACT_CONSTANT", "MULTIPLY_CONSTANT", "EQUALS_CONSTANT", "NOT_EQUALS_CONSTANT", "GREATER_CONSTANT", "LESS_CONSTANT",
+            "NEGATE", "NOT", "JUMP_IF_ZERO",
+            "JUMP_UNLESS_EQUALS_CONSTANT", "JUMP_UNLESS_NOT_EQUALS_CONSTANT", "JUMP_UNLESS_GREATER_CONSTANT", "JUMP_UNLESS_LESS_CONSTANT",
+            "CALL_FUNCTION", "CALL_LIBRARY", "PARAMETER", "INVOKE_FUNCTION", "INVOKE_NATIVE", "INVOKE_LIBRARY", "RETURN_END",
+            "JUMP_UNLESS_VARIABLE_EQUALS_CONSTANT", "JUMP_UNLESS_VARIABLE_NOT_EQUALS_CONSTANT", "JUMP_UNLESS_VARIABLE_GREATER_CONSTANT", "JUMP_UNLESS_VARIABLE_LESS_CONSTANT", "INCREMENT"
+    };
+    private static final int[] OPERANDS = {
+            1, 1, 1, 2, 1, 1, 0, 1, 2, 1, 0, 1, 0, 0,
+            1, 1, 1, 0, 2, 1, 1, 0, 1, 0,
+            1, 1, 1, 1, 1, 1, 1, 1, 1,
+            2, 2, 2, 2, 2, 2, 2,
+            1, 1, 1,
+            4, 4, 4, 4,
+            2, 2, 1, 1, 1, 1, 0,
+            6, 6, 6, 6, 7
+    };
+
+    final int[] code;
+    final int[] constants;
+    final String[] names;
+    /**
+     * The start of every call in the code
+     */
+    final int[] calls;
+    /**
+     * The most values the code can leave on the operand stack at once
+     */
+    final int maxStack;
+    /**
+     * The functions the code defines, the names of their parameters, and their bodies once they have been compiled
+     */
+    final Function[] functions;
+    final String[][] parameters;
+    private final Bytecode[] bodies;
+
+    private Bytecode(Compiler compiler, Function[] functions) {
+        this.code = Arrays.copyOf(compiler.code, compiler.size);
+        this.constants = Arrays.copyOf(compiler.constants, compiler.constantCount);
+        this.names = compiler.names.toArray(String[]::new);
+        this.calls = compiler.calls.stream().mapToInt(Integer::intValue).toArray();
+        this.maxStack = compiler.maxDepth;
+        this.functions = functions;
+        this.parameters = new String[functions.length][];
+        for (int i = 0; i < functions.length; i++)
+            parameters[i] = functions[i].parameters().stream().map(parameter -> parameter.getData().intern()).toArray(String[]::new);
+        this.bodies = new Bytecode[functions.length];
+    }
+
+    /**
+     * Compiles a syntax tree. A program or a function compiles to code that defines its functions and calls main or the function, and a statement or an expression to code that runs it
+     * @param tree the tree
+     * @return the compiled code
+     */
+    public static Bytecode compile(SyntaxTree tree) {
+        Compiler compiler = new Compiler();
+        Function[] functions;
+        String entry;
+        if (tree instanceof FunctionList list) {
+            functions = list.functions().toArray(Function[]::new);
+            entry = VirtualMachine.MAIN;
+        } else if (tree instanceof Function function) {
+            functions = new Function[]{function};
+            entry = function.name().getData();
+        } else {
+            if (tree instanceof Expression expression)
+                expression.evaluate(compiler);
+            else
+                tree.interpret(compiler);
+            compiler.emit(0, HALT);
+            return new Bytecode(compiler, new Function[0]);
+        }
+
+        for (int i = 0; i < functions.length; i++)
+            compiler.emit(0, DEFINE, i);
+        compiler.call(compiler.name(entry), List.of());
+        compiler.emit(-1, POP);
+        compiler.emit(0, HALT);
+        return new Bytecode(compiler, functions);
+    }
+
+    /**
+     * Gets the code of the body of a function this code defines, compiling it the first time. This is where a lazily parsed body is parsed
+     * @param function the index of the function
+     * @return the code of the body
+     */
+    Bytecode body(int function) {
+        if (bodies[function] == null) {
+            Compiler compiler = new Compiler();
+            functions[function].body().interpret(compiler);
+            compiler.emit(0, END);
+            bodies[function] = new Bytecode(compiler, new Function[0]);
+        }
+        return bodies[function];
+    }
+
+    /**
+     * Gets the number of operands of an instruction
+     * @param opcode the opcode of the instruction
+     * @return the number of ints after the opcode
+     */
+    static int operands(int opcode) {
+        return OPERANDS[opcode];
+    }
+
+    /**
+     * @return the number of ints in the code
+     */
+    public int size() {
+        return code.length;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        for (int pc = 0; pc < code.length; pc += operands(code[pc]) + 1) {
+            builder.append(pc).append(' ').append(MNEMONICS[code[pc]]);
+            for (int i = 1; i <= operands(code[pc]); i++)
+                builder.append(' ').append(code[pc + i]);
+            builder.append('\n');
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Whether a statement declares a variable in the scope it runs in. Compound statements and loops do not open a scope, but conditional statements do
+     */
+    private static boolean declares(Statement statement) {
+        if (statement instanceof DeclarationStatement)
+            return true;
+        if (statement instanceof CompoundStatement compound)
+            return compound.statements().stream().anyMatch(Bytecode::declares);
+        if (statement instanceof LoopStatement loop)
+            return declares(loop.body());
+        return false;
+    }
+
+    /**
+     * Whether a statement can make the function it runs in return
+     */
+    private static boolean returns(Statement statement) {
+        if (statement instanceof ReturnStatement)
+            return true;
+        if (statement instanceof CompoundStatement compound)
+            return compound.statements().stream().anyMatch(Bytecode::returns);
+        if (statement instanceof ConditionalStatement conditional)
+            return returns(conditional.consequence());
+        if (statement instanceof LoopStatement loop)
+            return returns(loop.body());
+        return false;
+    }
+
+    private static Expression unwrap(Expression expression) {
+        while (expression instanceof EnclosedExpression enclosed)
+            expression = enclosed.expression();
+        return expression;
+    }
+
+    /**
+     * Parses a literal
+     * @return the value, or null if the literal does not fit in an int
+     */
+    private static Integer parse(LiteralExpression literal) {
+        try {
+            return Integer.parseInt(literal.literal().getData());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * A visitor that writes the instructions of each node it visits, and keeps track of how deep the operand stack can get
+     */
+    private static final class Compiler implements Interpreter {
+
+        private int[] code = new int[64];
+        private int size;
+        private int[] constants = new int[16];
+        private int constantCount;
+        private final Map<Integer, Integer> constantIndices = new HashMap<>();
+        private final List<String> names = new ArrayList<>();
+        private final Map<String, Integer> nameIndices = new HashMap<>();
+        private final List<Integer> calls = new ArrayList<>();
+        private int depth;
+        private int maxDepth;
+        /**
+         * The start of the last instruction if it is a {@code LOAD}, and the last index a jump goes to. A load is only merged into the one before it if nothing jumps between them
+         */
+        private int lastLoad = -1;
+        private int target = -1;
+
+        private void emit(int stackEffect, int... instruction) {
+            if (size + instruction.length > code.length)
+                code = Arrays.copyOf(code, Math.max(code.length * 2, size + instruction.length));
+            System.arraycopy(instruction, 0, code, size, instruction.length);
+            size += instruction.length;
+            depth += stackEffect;
+            maxDepth = Math.max(maxDepth, depth);
+        }
+
+        /**
+         * Emits a jump whose target is not known yet
+         * @return the index of the offset, which is passed to {@link #patch(int)}
+         */
+        private int jump(int stackEffect, int opcode) {
+            emit(stackEffect, opcode, 0);
+            return size - 1;
+        }
+
+        /**
+         * Makes a jump go to the end of the code so far
+         */
+        private void patch(int offset) {
+            code[offset] = size - (offset + 1);
+            target = size;
+        }
+
+        private int constant(int value) {
+            return constantIndices.computeIfAbsent(value, v -> {
+                if (constantCount == constants.length)
+                    constants = Arrays.copyOf(constants, constants.length * 2);
+                constants[constantCount] = v;
+                return constantCount++;
+            });
+        }
+
+        private int name(Token token) {
+            return name(token.getData());
+        }
+
+        private int name(String data) {
+            //names are interned so that the virtual machine can compare names from different code by reference
+            return nameIndices.computeIfAbsent(data, key -> {
+                names.add(key.intern());
+                return names.size() - 1;
+            });
+        }
+
+        private void call(int name, List<Expression> arguments) {
+            calls.add(size);
+            emit(0, CALL, name, arguments.size());
+            for (int i = 0; i < arguments.size(); i++) {
+                arguments.get(i).evaluate(this);
+                //arguments of a library function stay on the stack, so they are counted as if they all do. The last one is passed by the invocation
+                if (i < arguments.size() - 1)
+                    emit(0, ARGUMENT, i);
+            }
+            emit(1 - arguments.size(), INVOKE, arguments.size());
+        }
+
+        @Override
+        public void interpret(Function function) {
+            throw new IllegalArgumentException("Functions are only compiled as programs");
+        }
+
+        @Override
+        public void interpret(FunctionList function) {
+            throw new IllegalArgumentException("Functions are only compiled as programs");
+        }
+
+        @Override
+        public void interpret(CompoundStatement statement) {
+            List<Statement> statements = statement.statements();
+            List<Integer> exits = new ArrayList<>();
+            for (int i = 0; i < statements.size(); i++) {
+                statements.get(i).interpret(this);
+                //check if the previous statement returned something, unless there is nothing left to skip
+                if (i < statements.size() - 1 && returns(statements.get(i)))
+                    exits.add(jump(0, JUMP_IF_RETURNING));
+            }
+            exits.forEach(this::patch);
+        }
+
+        @Override
+        public void interpret(ConditionalStatement statement) {
+            statement.condition().evaluate(this);
+            int skip = jump(-1, JUMP_IF_FALSE);
+            //a scope that nothing is declared in cannot be observed, so it is only opened if the consequence declares a variable
+            boolean scoped = declares(statement.consequence());
+            if (scoped)
+                emit(0, ENTER_SCOPE);
+            statement.consequence().interpret(this);
+            if (scoped)
+                emit(0, EXIT_SCOPE);
+            patch(skip);
+        }
+
+        @Override
+        public void interpret(DeclarationStatement statement) {
+            statement.value().evaluate(this);
+            emit(-1, DECLARE, name(statement.identifier()));
+        }
+
+        @Override
+        public void interpret(EmptyStatement statement) {}
+
+        @Override
+        public void interpret(ExpressionStatement statement) {
+            //an assignment whose result is discarded does not push it
+            if (unwrap(statement.expression()) instanceof BinaryOperationExpression assignment && assignment.type() == BinaryOperationExpression.Type.ASSIGNMENT
+                    && assignment.left() instanceof IdentifierExpression identifier) {
+                assignment.left().evaluate(this);
+                assignment.right().evaluate(this);
+                emit(-2, ASSIGN, name(identifier.identifier()));
+                return;
+            }
+            statement.expression().evaluate(this);
+            emit(-1, POP);
+        }
+
+        @Override
+        public void interpret(LoopStatement statement) {
+            int start = size;
+            target = size;
+            statement.condition().evaluate(this);
+            int exit = jump(-1, JUMP_IF_FALSE);
+            statement.body().interpret(this);
+            emit(0, JUMP, start - (size + 2));
+            patch(exit);
+        }
+
+        @Override
+        public void interpret(ReturnStatement statement) {
+            statement.expression().evaluate(this);
+            emit(-1, RETURN);
+        }
+
+        @Override
+        public int interpret(BinaryOperationExpression expression) {
+            expression.left().evaluate(this);
+            if (expression.type() != BinaryOperationExpression.Type.ASSIGNMENT && unwrap(expression.right()) instanceof LiteralExpression literal) {
+                Integer value = parse(literal);
+                if (value != null) {
+                    emit(0, BINARY_CONSTANT, expression.type().ordinal(), constant(value));
+                    return 0;
+                }
+            }
+            expression.right().evaluate(this);
+            if (expression.type() != BinaryOperationExpression.Type.ASSIGNMENT)
+                emit(-1, BINARY, expression.type().ordinal());
+            else if (expression.left() instanceof IdentifierExpression identifier)
+                emit(-1, STORE, name(identifier.identifier()));
+            else
+                emit(-1, INVALID_STORE);
+            return 0;
+        }
+
+        @Override
+        public int interpret(EnclosedExpression expression) {
+            return expression.expression().evaluate(this);
+        }
+
+        @Override
+        public int interpret(FunctionCallExpression expression) {
+            call(name(expression.identifier()), expression.arguments());
+            return 0;
+        }
+
+        @Override
+        public int interpret(IdentifierExpression expression) {
+            int name = name(expression.identifier());
+            if (lastLoad == size - 2 && target != size) {
+                code[lastLoad] = LOAD_PAIR;
+                emit(1, name);
+                lastLoad = -1;
+            } else {
+                lastLoad = size;
+                emit(1, LOAD, name);
+            }
+            return 0;
+        }
+
+        @Override
+        public int interpret(LiteralExpression expression) {
+            Integer value = parse(expression);
+            if (value == null)
+                emit(1, MALFORMED, name(expression.literal()));
+            else
+                emit(1, PUSH, constant(value));
+            return 0;
+        }
+
+        @Override
+        public int interpret(UnaryOperationExpression expression) {
+            expression.operand().evaluate(this);
+            emit(0, UNARY, expression.type().ordinal());
+            return 0;
+        }
+    }
+}
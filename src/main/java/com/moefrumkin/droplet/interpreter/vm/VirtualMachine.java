@@ -0,0 +1,789 @@
+package com.moefrumkin.droplet.interpreter.vm;
+
+import com.moefrumkin.droplet.interpreter.Configuration;
+import com.moefrumkin.droplet.interpreter.Interpreter;
+import com.moefrumkin.droplet.interpreter.NativeFunction;
+import com.moefrumkin.droplet.interpreter.basicInterpreter.BasicInterpreter;
+import com.moefrumkin.droplet.parser.expression.*;
+import com.moefrumkin.droplet.parser.function.Function;
+import com.moefrumkin.droplet.parser.function.FunctionList;
+import com.moefrumkin.droplet.parser.statement.*;
+
+import java.io.UncheckedIOException;
+import java.util.*;
+import java.util.function.*;
+
+import static com.moefrumkin.droplet.interpreter.vm.Bytecode.*;
+
+/**
+ * A stack machine that runs {@link Bytecode}. It has the same semantics as a {@link BasicInterpreter} built with the same settings, including dynamic scoping,
+ * but runs a whole program in a single loop over its instructions: values are kept on an int array operand stack, variables in a cell for every name that is saved and restored
+ * as scopes are entered and left, and calls push a frame onto an explicit call stack instead of recursing in Java. The depth of recursion is therefore only bounded by the heap, and all of the state of a running program
+ * is in the arrays of the machine.
+ * <p>
+ * When code is first run, names are replaced by the machine's symbols, and the instructions whose operation is the default one are rewritten into instructions that perform it directly,
+ * so a machine with the default settings never calls an operation or the truthiness through a function object. A call is rewritten the first time it is reached into instructions for the function it calls,
+ * so it is only resolved and checked once. Every call of a function and every jump back to the start of a loop is a step, and a limit can be set on the number of steps.
+ * <p>
+ * Each of the visitor methods compiles the node it is given and runs the code, so a tree can be passed to the machine just like any other interpreter.
+ * Compiling a program once with {@link Bytecode#compile} and running it with {@link #execute(Bytecode)} skips the tree altogether
+ */
+public class VirtualMachine implements Interpreter {
+
+    static final String MAIN = "main";
+    private static final int DEFAULT_CAPACITY = 64;
+    private static final int ASSIGNMENT = BinaryOperationExpression.Type.ASSIGNMENT.ordinal();
+    private static final long VALUE = 0xFFFFFFFFL;
+
+    private final Configuration<VirtualMachine> configuration;
+    private final IntPredicate truthiness;
+    private final IntBinaryOperator[] binaryOperations;
+    private final IntUnaryOperator[] unaryOperations;
+    private final long stepLimit;
+
+    /**
+     * The opcodes generic instructions are rewritten into
+     */
+    private final int[] binaryOpcodes;
+    private final int[] constantOpcodes;
+    private final int[] unaryOpcodes;
+    private final int conditionOpcode;
+
+    private final Map<String, Definition> functions = new HashMap<>();
+
+    /**
+     * The operand stack
+     */
+    private int[] stack = new int[DEFAULT_CAPACITY];
+    private int sp;
+
+    /**
+     * The variables, kept by shallow binding. Every name is a symbol with a single cell, which holds the value of the innermost variable with the name in its low half and the scope it was declared in
+     * in its high half, or zero if there is no such variable. Declaring a variable saves the cell it shadows, and leaving a scope restores the cells its variables shadowed,
+     * so the innermost variable with a name is found without searching the scopes
+     */
+    private final Map<String, Integer> symbols = new HashMap<>();
+    private String[] symbolNames = new String[DEFAULT_CAPACITY];
+    private long[] cells = new long[DEFAULT_CAPACITY];
+
+    /**
+     * The cells shadowed by the variables in scope, from the outermost to the innermost
+     */
+    private int[] shadowedSymbols = new int[DEFAULT_CAPACITY];
+    private long[] shadowedCells = new long[DEFAULT_CAPACITY];
+    private int shadowed;
+
+    /**
+     * The number of shadowed cells when each scope was entered. The first scope is the global scope, and the number of scopes is the scope of the current one
+     */
+    private int[] frames = new int[DEFAULT_CAPACITY];
+    private int frameCount = 1;
+
+    /**
+     * The call stack: the name, return value, return flag and first scope of every function frame, and the code and instruction its caller resumes at.
+     * The first function frame is the global frame, whose return value is the exit code
+     */
+    private String[] functionNames = new String[DEFAULT_CAPACITY];
+    private int[] returnValues = new int[DEFAULT_CAPACITY];
+    private boolean[] returning = new boolean[DEFAULT_CAPACITY];
+    private int[] functionFrames = new int[DEFAULT_CAPACITY];
+    private Context[] callers = new Context[DEFAULT_CAPACITY];
+    private int[] returnAddresses = new int[DEFAULT_CAPACITY];
+    private int function;
+
+    private long steps;
+
+    private VirtualMachine(Builder builder, Configuration<VirtualMachine> configuration) {
+        this.configuration = configuration;
+        this.truthiness = configuration.truthiness();
+        this.stepLimit = builder.stepLimit;
+
+        BinaryOperationExpression.Type[] binaryTypes = BinaryOperationExpression.Type.values();
+        binaryOperations = new IntBinaryOperator[binaryTypes.length];
+        binaryOpcodes = new int[binaryTypes.length];
+        constantOpcodes = new int[binaryTypes.length];
+        for (BinaryOperationExpression.Type type : binaryTypes) {
+            binaryOperations[type.ordinal()] = configuration.binaryOperation(type);
+            boolean defaultOperation = binaryOperations[type.ordinal()] == Configuration.DEFAULT_BINARY_OPERATIONS.get(type);
+            binaryOpcodes[type.ordinal()] = defaultOperation ? opcode(type) : BINARY;
+            constantOpcodes[type.ordinal()] = defaultOperation ? constantOpcode(type) : BINARY_CONSTANT;
+        }
+        UnaryOperationExpression.Type[] unaryTypes = UnaryOperationExpression.Type.values();
+        unaryOperations = new IntUnaryOperator[unaryTypes.length];
+        unaryOpcodes = new int[unaryTypes.length];
+        for (UnaryOperationExpression.Type type : unaryTypes) {
+            unaryOperations[type.ordinal()] = configuration.unaryOperation(type);
+            unaryOpcodes[type.ordinal()] = unaryOperations[type.ordinal()] == Configuration.DEFAULT_UNARY_OPERATIONS.get(type) ? opcode(type) : UNARY;
+        }
+        conditionOpcode = truthiness == Configuration.DEFAULT_TRUTHINESS ? JUMP_IF_ZERO : JUMP_IF_FALSE;
+
+        functionNames[0] = "global";
+    }
+
+    private static int opcode(BinaryOperationExpression.Type type) {
+        return switch (type) {
+            case ADDITION -> ADD;
+            case SUBTRACTION -> SUBTRACT;
+            case MULTIPLICATION -> MULTIPLY;
+            case OR -> OR;
+            case AND -> AND;
+            case EQUALS -> Bytecode.EQUALS;
+            case NOTEQUALS -> NOT_EQUALS;
+            case GREATER -> Bytecode.GREATER;
+            case LESS -> Bytecode.LESS;
+            default -> BINARY;
+        };
+    }
+
+    private static int constantOpcode(BinaryOperationExpression.Type type) {
+        return switch (type) {
+            case ADDITION -> ADD_CONSTANT;
+            case SUBTRACTION -> SUBTRACT_CONSTANT;
+            case MULTIPLICATION -> MULTIPLY_CONSTANT;
+            case EQUALS -> EQUALS_CONSTANT;
+            case NOTEQUALS -> NOT_EQUALS_CONSTANT;
+            case GREATER -> GREATER_CONSTANT;
+            case LESS -> LESS_CONSTANT;
+            default -> BINARY_CONSTANT;
+        };
+    }
+
+    private static int comparisonOpcode(int opcode) {
+        return switch (opcode) {
+            case EQUALS_CONSTANT -> JUMP_UNLESS_EQUALS_CONSTANT;
+            case NOT_EQUALS_CONSTANT -> JUMP_UNLESS_NOT_EQUALS_CONSTANT;
+            case GREATER_CONSTANT -> JUMP_UNLESS_GREATER_CONSTANT;
+            case LESS_CONSTANT -> JUMP_UNLESS_LESS_CONSTANT;
+            default -> opcode;
+        };
+    }
+
+    private static int variableOpcode(int opcode) {
+        return switch (opcode) {
+            case JUMP_UNLESS_EQUALS_CONSTANT -> JUMP_UNLESS_VARIABLE_EQUALS_CONSTANT;
+            case JUMP_UNLESS_NOT_EQUALS_CONSTANT -> JUMP_UNLESS_VARIABLE_NOT_EQUALS_CONSTANT;
+            case JUMP_UNLESS_GREATER_CONSTANT -> JUMP_UNLESS_VARIABLE_GREATER_CONSTANT;
+            case JUMP_UNLESS_LESS_CONSTANT -> JUMP_UNLESS_VARIABLE_LESS_CONSTANT;
+            default -> LOAD;
+        };
+    }
+
+    private static int opcode(UnaryOperationExpression.Type type) {
+        return switch (type) {
+            case NEGATION -> NEGATE;
+            case BOOLEAN_NEGATION -> NOT;
+        };
+    }
+
+    /**
+     * A builder class for {@link VirtualMachine}, which has the settings every interpreter shares and a limit on the steps it runs
+     */
+    public static final class Builder extends Configuration.Builder<VirtualMachine, Builder> {
+        private long stepLimit = Long.MAX_VALUE;
+
+        /**
+         * Creates a new builder object with the default settings
+         */
+        public Builder() {}
+
+        /**
+         * Sets how many steps the machine may run over its lifetime. A step is a call of a function or a jump back to the start of a loop,
+         * so a program that runs forever exceeds any limit, and stops as soon as it does
+         * @param newLimit the limit
+         * @return the builder object
+         */
+        public Builder stepLimit(long newLimit) { stepLimit = newLimit; return this; }
+
+        @Override
+        public VirtualMachine build() {
+            return new VirtualMachine(this, configuration((machine, e) -> new UncheckedIOException("An error occurred when trying to print in " + machine.functionNames[machine.function], e)));
+        }
+    }
+
+    /**
+     * A function that has been defined, the code it was defined in, and the code of its body once it has first been called
+     */
+    private static final class Definition {
+        private final String name;
+        private final Bytecode program;
+        private final int index;
+        private final int[] parameters;
+        private Context body;
+        private int maxStack;
+
+        private Definition(String name, Bytecode program, int index, int[] parameters) {
+            this.name = name;
+            this.program = program;
+            this.index = index;
+            this.parameters = parameters;
+        }
+    }
+
+    /**
+     * Code as this machine runs it, with its instructions rewritten, and the functions its names resolve to. The library is fixed when the machine is built
+     * and user functions can never be redefined, so a name resolves to the same function once it resolves at all
+     */
+    private final class Context {
+        private final Bytecode bytecode;
+        private final int[] code;
+        private final Definition[] definitions;
+        private final List<ToIntBiFunction<VirtualMachine, List<Integer>>> library;
+        private final NativeFunction[] nativeFunctions;
+
+        /**
+         * @param body whether the code is the body of a function, whose returns end it unless they are in a loop, which goes on after a return like it does in the tree
+         */
+        private Context(Bytecode bytecode, boolean body) {
+            this.bytecode = bytecode;
+            this.code = bytecode.code.clone();
+            int[] symbols = symbols(bytecode.names);
+            boolean[] looped = new boolean[code.length];
+            boolean[] targets = new boolean[code.length + 1];
+            for (int pc = 0, next; pc < code.length; pc = next) {
+                next = pc + operands(code[pc]) + 1;
+                if (code[pc] == JUMP || code[pc] == JUMP_IF_FALSE || code[pc] == JUMP_IF_RETURNING)
+                    targets[next + code[pc + 1]] = true;
+                if (code[pc] == JUMP && code[pc + 1] < 0)
+                    Arrays.fill(looped, next + code[pc + 1], next, true);
+            }
+            for (int pc = 0, next; pc < code.length; pc = next) {
+                next = pc + operands(code[pc]) + 1;
+                switch (code[pc]) {
+                    case LOAD, STORE, ASSIGN, DECLARE -> code[pc + 1] = symbols[code[pc + 1]];
+                    case LOAD_PAIR -> {
+                        code[pc + 1] = symbols[code[pc + 1]];
+                        code[pc + 2] = symbols[code[pc + 2]];
+                    }
+                    case BINARY -> code[pc] = binaryOpcodes[code[pc + 1]];
+                    case BINARY_CONSTANT -> {
+                        code[pc] = constantOpcodes[code[pc + 1]];
+                        //a comparison that is only used by the jump after it jumps itself
+                        int comparison = comparisonOpcode(code[pc]);
+                        if (comparison != code[pc] && next < code.length && code[next] == JUMP_IF_FALSE && conditionOpcode == JUMP_IF_ZERO) {
+                            code[pc] = comparison;
+                            next += operands(JUMP_IF_FALSE) + 1;
+                        }
+                    }
+                    case UNARY -> code[pc] = unaryOpcodes[code[pc + 1]];
+                    case JUMP_IF_FALSE -> code[pc] = conditionOpcode;
+                    case RETURN -> code[pc] = body && !looped[pc] ? RETURN_END : RETURN;
+                    default -> {}
+                }
+            }
+            //instructions are only fused if nothing jumps between them
+            for (int pc = 0, next; pc < code.length; pc = next) {
+                next = pc + operands(code[pc]) + 1;
+                int variable = code[pc] == LOAD ? variableOpcode(code[next]) : code[pc];
+                if (variable != code[pc] && !targets[next]) {
+                    code[pc] = variable;
+                    next += operands(code[next]) + 1;
+                } else if (code[pc] == LOAD_PAIR && code[pc + 1] == code[pc + 2] && (code[next] == ADD_CONSTANT || code[next] == SUBTRACT_CONSTANT)
+                        && code[next + 3] == ASSIGN && code[next + 4] == code[pc + 1] && !targets[next] && !targets[next + 3]) {
+                    code[pc] = INCREMENT;
+                    next += 5;
+                }
+            }
+            this.definitions = new Definition[bytecode.names.length];
+            this.library = new ArrayList<>(bytecode.names.length);
+            this.nativeFunctions = new NativeFunction[bytecode.names.length];
+            for (int i = 0; i < bytecode.names.length; i++) {
+                library.add(configuration.libraryFunction(bytecode.names[i]));
+                nativeFunctions[i] = configuration.nativeFunction(bytecode.names[i]);
+            }
+        }
+    }
+
+    /**
+     * Runs compiled code of a program, function or statement
+     * @param program the code
+     */
+    public void execute(Bytecode program) {
+        run(program);
+    }
+
+    /**
+     * Evaluates compiled code of an expression
+     * @param program the code
+     * @return the value of the expression
+     */
+    public int evaluate(Bytecode program) {
+        return run(program);
+    }
+
+    /**
+     * @return the exit code of the program, which is set by a return outside of any function
+     */
+    public int getExitCode() {
+        return returnValues[0];
+    }
+
+    /**
+     * @return the number of calls of functions and jumps back to the start of a loop the machine has run
+     */
+    public long getStepCount() {
+        return steps;
+    }
+
+    private int run(Bytecode program) {
+        int start = sp;
+        int startFrames = frameCount;
+        int startFunction = function;
+        try {
+            run(new Context(program, false));
+            return sp > start ? stack[--sp] : 0;
+        } catch (RuntimeException | Error e) {
+            //unwind the frames of the code that failed, so the machine can still be used
+            if (frameCount > startFrames)
+                popFrames(startFrames);
+            Arrays.fill(callers, startFunction + 1, Math.max(function + 1, startFunction + 1), null);
+            sp = start;
+            function = startFunction;
+            throw e;
+        }
+    }
+
+    private void run(Context context) {
+        int[] code = context.code;
+        int[] constants = context.bytecode.constants;
+        int[] stack = ensureStack(sp + context.bytecode.maxStack);
+        int sp = this.sp;
+        int pc = 0;
+        long steps = this.steps;
+
+        try {
+            while (true) {
+                switch (code[pc++]) {
+                    case PUSH -> stack[sp++] = constants[code[pc++]];
+                    case LOAD -> stack[sp++] = getVariable(code[pc++]);
+                    case LOAD_PAIR -> {
+                        stack[sp++] = getVariable(code[pc++]);
+                        stack[sp++] = getVariable(code[pc++]);
+                    }
+                    case STORE -> {
+                        int right = stack[--sp];
+                        setVariable(code[pc++], right);
+                        stack[sp - 1] = binaryOperations[ASSIGNMENT].applyAsInt(stack[sp - 1], right);
+                    }
+                    case ASSIGN -> {
+                        int right = stack[--sp];
+                        setVariable(code[pc++], right);
+                        binaryOperations[ASSIGNMENT].applyAsInt(stack[--sp], right);
+                    }
+                    case ADD -> { pc++; sp--; stack[sp - 1] = stack[sp - 1] + stack[sp]; }
+                    case SUBTRACT -> { pc++; sp--; stack[sp - 1] = stack[sp - 1] - stack[sp]; }
+                    case MULTIPLY -> { pc++; sp--; stack[sp - 1] = stack[sp - 1] * stack[sp]; }
+                    case OR -> { pc++; sp--; stack[sp - 1] = stack[sp - 1] != 0 || stack[sp] != 0 ? 1 : 0; }
+                    case AND -> { pc++; sp--; stack[sp - 1] = stack[sp - 1] != 0 && stack[sp] != 0 ? 1 : 0; }
+                    case EQUALS -> { pc++; sp--; stack[sp - 1] = stack[sp - 1] == stack[sp] ? 1 : 0; }
+                    case NOT_EQUALS -> { pc++; sp--; stack[sp - 1] = stack[sp - 1] != stack[sp] ? 1 : 0; }
+                    case GREATER -> { pc++; sp--; stack[sp - 1] = stack[sp - 1] > stack[sp] ? 1 : 0; }
+                    case LESS -> { pc++; sp--; stack[sp - 1] = stack[sp - 1] < stack[sp] ? 1 : 0; }
+                    case ADD_CONSTANT -> { stack[sp - 1] += constants[code[pc + 1]]; pc += 2; }
+                    case SUBTRACT_CONSTANT -> { stack[sp - 1] -= constants[code[pc + 1]]; pc += 2; }
+                    case MULTIPLY_CONSTANT -> { stack[sp - 1] *= constants[code[pc + 1]]; pc += 2; }
+                    case EQUALS_CONSTANT -> { stack[sp - 1] = stack[sp - 1] == constants[code[pc + 1]] ? 1 : 0; pc += 2; }
+                    case NOT_EQUALS_CONSTANT -> { stack[sp - 1] = stack[sp - 1] != constants[code[pc + 1]] ? 1 : 0; pc += 2; }
+                    case GREATER_CONSTANT -> { stack[sp - 1] = stack[sp - 1] > constants[code[pc + 1]] ? 1 : 0; pc += 2; }
+                    case LESS_CONSTANT -> { stack[sp - 1] = stack[sp - 1] < constants[code[pc + 1]] ? 1 : 0; pc += 2; }
+                    //a comparison and the jump after it, which jumps if the comparison is false
+                    case JUMP_UNLESS_EQUALS_CONSTANT -> pc += stack[--sp] == constants[code[pc + 1]] ? 4 : 4 + code[pc + 3];
+                    case JUMP_UNLESS_NOT_EQUALS_CONSTANT -> pc += stack[--sp] != constants[code[pc + 1]] ? 4 : 4 + code[pc + 3];
+                    case JUMP_UNLESS_GREATER_CONSTANT -> pc += stack[--sp] > constants[code[pc + 1]] ? 4 : 4 + code[pc + 3];
+                    case JUMP_UNLESS_LESS_CONSTANT -> pc += stack[--sp] < constants[code[pc + 1]] ? 4 : 4 + code[pc + 3];
+                    //a variable, the comparison after it and the jump after that
+                    case JUMP_UNLESS_VARIABLE_EQUALS_CONSTANT -> pc += getVariable(code[pc]) == constants[code[pc + 3]] ? 6 : 6 + code[pc + 5];
+                    case JUMP_UNLESS_VARIABLE_NOT_EQUALS_CONSTANT -> pc += getVariable(code[pc]) != constants[code[pc + 3]] ? 6 : 6 + code[pc + 5];
+                    case JUMP_UNLESS_VARIABLE_GREATER_CONSTANT -> pc += getVariable(code[pc]) > constants[code[pc + 3]] ? 6 : 6 + code[pc + 5];
+                    case JUMP_UNLESS_VARIABLE_LESS_CONSTANT -> pc += getVariable(code[pc]) < constants[code[pc + 3]] ? 6 : 6 + code[pc + 5];
+                    //an assignment of a variable plus or minus a constant to itself
+                    case INCREMENT -> {
+                        int symbol = code[pc];
+                        int old = getVariable(symbol);
+                        int constant = constants[code[pc + 4]];
+                        int value = code[pc + 2] == ADD_CONSTANT ? old + constant : old - constant;
+                        setVariable(symbol, value);
+                        binaryOperations[ASSIGNMENT].applyAsInt(old, value);
+                        pc += 7;
+                    }
+                    case NEGATE -> { pc++; stack[sp - 1] = -stack[sp - 1]; }
+                    //the default boolean negation gives the truthiness of its operand
+                    case NOT -> { pc++; stack[sp - 1] = stack[sp - 1] != 0 ? 1 : 0; }
+                    case BINARY -> {
+                        int right = stack[--sp];
+                        stack[sp - 1] = binaryOperations[code[pc++]].applyAsInt(stack[sp - 1], right);
+                    }
+                    case BINARY_CONSTANT -> {
+                        stack[sp - 1] = binaryOperations[code[pc]].applyAsInt(stack[sp - 1], constants[code[pc + 1]]);
+                        pc += 2;
+                    }
+                    case UNARY -> stack[sp - 1] = unaryOperations[code[pc++]].applyAsInt(stack[sp - 1]);
+                    case POP -> sp--;
+                    case DECLARE, PARAMETER -> addVariable(code[pc++], stack[--sp]);
+                    case ENTER_SCOPE -> pushFrame();
+                    case EXIT_SCOPE -> popFrames(frameCount - 1);
+                    case JUMP -> {
+                        int offset = code[pc++];
+                        pc += offset;
+                        if (offset < 0 && ++steps > stepLimit)
+                            throw limitExceeded();
+                    }
+                    case JUMP_IF_ZERO -> {
+                        int offset = code[pc++];
+                        if (stack[--sp] == 0)
+                            pc += offset;
+                    }
+                    case JUMP_IF_FALSE -> {
+                        int offset = code[pc++];
+                        if (!truthiness.test(stack[--sp]))
+                            pc += offset;
+                    }
+                    case JUMP_IF_RETURNING -> {
+                        int offset = code[pc++];
+                        if (returning[function])
+                            pc += offset;
+                    }
+                    case RETURN -> {
+                        returnValues[function] = stack[--sp];
+                        returning[function] = true;
+                    }
+                    //the call is run again once it has been rewritten
+                    case CALL -> link(context, --pc);
+                    case CALL_FUNCTION -> {
+                        //arguments are evaluated in the new frame, like they are by the tree interpreters
+                        pushFunctionFrame(context.bytecode.names[code[pc]]);
+                        pc += 2;
+                    }
+                    //the arguments of a library function stay on the stack until it is invoked
+                    case CALL_LIBRARY -> pc += 2;
+                    case ARGUMENT -> pc++;
+                    case INVOKE_FUNCTION -> {
+                        Definition definition = context.definitions[code[pc++]];
+                        int[] parameters = definition.parameters;
+                        if (parameters.length > 0)
+                            addVariable(parameters[parameters.length - 1], stack[--sp]);
+                        if (++steps > stepLimit)
+                            throw limitExceeded();
+                        callers[function] = context;
+                        returnAddresses[function] = pc;
+                        context = definition.body;
+                        code = context.code;
+                        constants = context.bytecode.constants;
+                        if (sp + definition.maxStack > stack.length) {
+                            this.sp = sp;
+                            stack = ensureStack(sp + definition.maxStack);
+                        }
+                        pc = 0;
+                    }
+                    case INVOKE_NATIVE -> {
+                        NativeFunction nativeFunction = context.nativeFunctions[code[pc++]];
+                        //a native function cannot run code on this machine, so its arguments are taken straight off the stack
+                        int arguments = nativeFunction.arity();
+                        int value = switch (arguments) {
+                            case 0 -> nativeFunction.invoke();
+                            case 1 -> nativeFunction.invoke(stack[sp - 1]);
+                            case 2 -> nativeFunction.invoke(stack[sp - 2], stack[sp - 1]);
+                            case 3 -> nativeFunction.invoke(stack[sp - 3], stack[sp - 2], stack[sp - 1]);
+                            default -> nativeFunction.invoke(Arrays.copyOfRange(stack, sp - arguments, sp));
+                        };
+                        sp -= arguments;
+                        stack[sp++] = value;
+                    }
+                    case INVOKE_LIBRARY -> {
+                        int call = code[pc++];
+                        int arguments = code[call + 2];
+                        List<Integer> values = new ArrayList<>(arguments);
+                        for (int i = sp - arguments; i < sp; i++)
+                            values.add(stack[i]);
+                        sp -= arguments;
+                        //the library function may run more code on this machine, above the values in use
+                        this.sp = sp;
+                        this.steps = steps;
+                        int value = context.library.get(code[call + 1]).applyAsInt(this, values);
+                        steps = this.steps;
+                        stack = this.stack;
+                        stack[sp++] = value;
+                    }
+                    case END, RETURN_END -> {
+                        int value = code[pc - 1] == END ? returnValues[function] : stack[--sp];
+                        context = callers[function];
+                        pc = returnAddresses[function];
+                        callers[function] = null;
+                        popFrames(functionFrames[function--]);
+                        code = context.code;
+                        constants = context.bytecode.constants;
+                        stack[sp++] = value;
+                    }
+                    case MALFORMED -> stack[sp++] = Integer.parseInt(context.bytecode.names[code[pc++]]);
+                    case INVALID_STORE -> throw new RuntimeException("Left hand of an assignment must be an identifier");
+                    case DEFINE -> define(context, code[pc++]);
+                    case HALT -> {
+                        return;
+                    }
+                    default -> throw new IllegalStateException("Unknown opcode " + code[pc - 1] + " at " + (pc - 1));
+                }
+            }
+        } finally {
+            this.sp = sp;
+            this.steps = steps;
+        }
+    }
+
+    private VirtualMachineException limitExceeded() {
+        return new VirtualMachineException("The limit of " + stepLimit + " steps was exceeded", functionNames[function]);
+    }
+
+    private int[] ensureStack(int capacity) {
+        if (capacity > stack.length)
+            stack = Arrays.copyOf(stack, Math.max(capacity, stack.length * 2));
+        return stack;
+    }
+
+    private Definition resolve(Context context, int name) {
+        Definition definition = context.definitions[name];
+        if (definition != null)
+            return definition;
+        definition = functions.get(context.bytecode.names[name]);
+        if (definition == null)
+            throw new VirtualMachineException("The function " + context.bytecode.names[name] + " is not defined", functionNames[function]);
+        context.definitions[name] = definition;
+        return definition;
+    }
+
+    /**
+     * Resolves a call the first time it is reached, checks its number of arguments, and rewrites it, the arguments after which it binds a parameter, and its invocation
+     * into the instructions for the kind of function it calls. The library is checked first
+     */
+    private void link(Context context, int call) {
+        int[] code = context.code;
+        int name = code[call + 1];
+        int arguments = code[call + 2];
+        NativeFunction nativeFunction = context.nativeFunctions[name];
+        Definition definition = null;
+        if (nativeFunction != null) {
+            if (arguments != nativeFunction.arity())
+                throw new VirtualMachineException("Expected " + nativeFunction.arity() + " parameters, Given " + arguments + " when calling " + nativeFunction.name(), functionNames[function]);
+        } else if (context.library.get(name) == null) {
+            definition = resolve(context, name);
+            if (arguments != definition.parameters.length)
+                throw new VirtualMachineException("Expected " + definition.parameters.length + " parameters, Given " + arguments + " when calling " + definition.name, functionNames[function]);
+            link(definition);
+        }
+
+        //the arguments of the call may make calls of their own, which are skipped
+        for (int pc = call + operands(CALL) + 1, depth = 0; ; pc += operands(code[pc]) + 1) {
+            switch (code[pc]) {
+                case CALL, CALL_FUNCTION, CALL_LIBRARY -> depth++;
+                case ARGUMENT -> {
+                    if (depth == 0 && definition != null) {
+                        code[pc] = PARAMETER;
+                        code[pc + 1] = definition.parameters[code[pc + 1]];
+                    }
+                }
+                case INVOKE, INVOKE_FUNCTION, INVOKE_NATIVE, INVOKE_LIBRARY -> {
+                    if (depth-- > 0)
+                        continue;
+                    if (definition != null) {
+                        code[pc] = INVOKE_FUNCTION;
+                        code[pc + 1] = name;
+                    } else if (nativeFunction != null) {
+                        code[pc] = INVOKE_NATIVE;
+                        code[pc + 1] = name;
+                    } else {
+                        code[pc] = INVOKE_LIBRARY;
+                        code[pc + 1] = call;
+                    }
+                    code[call] = definition != null ? CALL_FUNCTION : CALL_LIBRARY;
+                    return;
+                }
+                default -> {}
+            }
+        }
+    }
+
+    /**
+     * Compiles the body of a function the first time it is called, and checks the number of arguments of every call in it to a function that is already defined,
+     * so a call with the wrong number of arguments fails before the function runs, like it does in the tree interpreters
+     */
+    private void link(Definition definition) {
+        if (definition.body != null)
+            return;
+        Bytecode body = definition.program.body(definition.index);
+        for (int call : body.calls) {
+            String name = body.names[body.code[call + 1]];
+            int arguments = body.code[call + 2];
+            NativeFunction nativeFunction = configuration.nativeFunction(name);
+            Definition callee = functions.get(name);
+            if (nativeFunction != null && arguments != nativeFunction.arity())
+                throw new VirtualMachineException("Expected " + nativeFunction.arity() + " parameters, Given " + arguments + " when calling " + name, definition.name);
+            if (!configuration.isLibraryFunction(name) && callee != null && arguments != callee.parameters.length)
+                throw new VirtualMachineException("Expected " + callee.parameters.length + " parameters, Given " + arguments + " when calling " + name, definition.name);
+        }
+        definition.body = new Context(body, true);
+        definition.maxStack = body.maxStack;
+    }
+
+    private void define(Context context, int index) {
+        String name = context.bytecode.functions[index].name().getData();
+        if (functions.containsKey(name))
+            throw new VirtualMachineException("The function " + name + " is already defined", functionNames[function]);
+        functions.put(name, new Definition(name, context.bytecode, index, symbols(context.bytecode.parameters[index])));
+    }
+
+    /**
+     * Gets the symbols of names, adding the names the machine has not seen yet
+     */
+    private int[] symbols(String[] names) {
+        int[] ids = new int[names.length];
+        for (int i = 0; i < names.length; i++) {
+            ids[i] = symbols.computeIfAbsent(names[i], name -> {
+                int symbol = symbols.size();
+                if (symbol == cells.length) {
+                    symbolNames = Arrays.copyOf(symbolNames, symbol * 2);
+                    cells = Arrays.copyOf(cells, symbol * 2);
+                }
+                symbolNames[symbol] = name;
+                return symbol;
+            });
+        }
+        return ids;
+    }
+
+    private void addVariable(int symbol, int value) {
+        long cell = cells[symbol];
+        if (cell >>> 32 == frameCount)
+            throw new VirtualMachineException("The variable " + symbolNames[symbol] + " has already been initialized", functionNames[function]);
+        if (shadowed == shadowedSymbols.length) {
+            shadowedSymbols = Arrays.copyOf(shadowedSymbols, shadowed * 2);
+            shadowedCells = Arrays.copyOf(shadowedCells, shadowed * 2);
+        }
+        shadowedSymbols[shadowed] = symbol;
+        shadowedCells[shadowed++] = cell;
+        cells[symbol] = (long) frameCount << 32 | value & VALUE;
+    }
+
+    private int getVariable(int symbol) {
+        long cell = cells[symbol];
+        if (cell == 0)
+            throw uninitialized(symbol);
+        return (int) cell;
+    }
+
+    private void setVariable(int symbol, int value) {
+        long cell = cells[symbol];
+        if (cell == 0)
+            throw uninitialized(symbol);
+        cells[symbol] = cell & ~VALUE | value & VALUE;
+    }
+
+    private VirtualMachineException uninitialized(int symbol) {
+        return new VirtualMachineException("The variable " + symbolNames[symbol] + " has not been initialized", functionNames[function]);
+    }
+
+    private void pushFrame() {
+        if (frameCount == frames.length)
+            frames = Arrays.copyOf(frames, frameCount * 2);
+        frames[frameCount++] = shadowed;
+    }
+
+    /**
+     * Leaves scopes until there are the given number, restoring the cells their variables shadowed
+     */
+    private void popFrames(int count) {
+        int start = frames[count];
+        while (shadowed > start) {
+            shadowed--;
+            cells[shadowedSymbols[shadowed]] = shadowedCells[shadowed];
+        }
+        frameCount = count;
+    }
+
+    private void pushFunctionFrame(String name) {
+        if (++function == returnValues.length) {
+            functionNames = Arrays.copyOf(functionNames, function * 2);
+            returnValues = Arrays.copyOf(returnValues, function * 2);
+            returning = Arrays.copyOf(returning, function * 2);
+            functionFrames = Arrays.copyOf(functionFrames, function * 2);
+            callers = Arrays.copyOf(callers, function * 2);
+            returnAddresses = Arrays.copyOf(returnAddresses, function * 2);
+        }
+        functionNames[function] = name;
+        returnValues[function] = Configuration.DEFAULT_RETURN;
+        returning[function] = false;
+        //a function that returns from a conditional statement leaves its scope along with the function's
+        functionFrames[function] = frameCount;
+        pushFrame();
+    }
+
+    @Override
+    public void interpret(Function function) {
+        execute(Bytecode.compile(function));
+    }
+
+    @Override
+    public void interpret(FunctionList function) {
+        execute(Bytecode.compile(function));
+    }
+
+    @Override
+    public void interpret(CompoundStatement statement) {
+        execute(Bytecode.compile(statement));
+    }
+
+    @Override
+    public void interpret(ConditionalStatement statement) {
+        execute(Bytecode.compile(statement));
+    }
+
+    @Override
+    public void interpret(DeclarationStatement statement) {
+        execute(Bytecode.compile(statement));
+    }
+
+    @Override
+    public void interpret(EmptyStatement statement) {}
+
+    @Override
+    public void interpret(ExpressionStatement statement) {
+        execute(Bytecode.compile(statement));
+    }
+
+    @Override
+    public void interpret(LoopStatement statement) {
+        execute(Bytecode.compile(statement));
+    }
+
+    @Override
+    public void interpret(ReturnStatement statement) {
+        execute(Bytecode.compile(statement));
+    }
+
+    @Override
+    public int interpret(BinaryOperationExpression expression) {
+        return evaluate(Bytecode.compile(expression));
+    }
+
+    @Override
+    public int interpret(EnclosedExpression expression) {
+        return evaluate(Bytecode.compile(expression));
+    }
+
+    @Override
+    public int interpret(FunctionCallExpression expression) {
+        return evaluate(Bytecode.compile(expression));
+    }
+
+    @Override
+    public int interpret(IdentifierExpression expression) {
+        return evaluate(Bytecode.compile(expression));
+    }
+
+    @Override
+    public int interpret(LiteralExpression expression) {
+        return evaluate(Bytecode.compile(expression));
+    }
+
+    @Override
+    public int interpret(UnaryOperationExpression expression) {
+        return evaluate(Bytecode.compile(expression));
+    }
+}
@@ -0,0 +1,34 @@
+package com.moefrumkin.droplet.interpreter.vm;
+
+/**
+ * An exception thrown if an error occurs while a {@link VirtualMachine} runs {@link Bytecode}
+ */
+public class VirtualMachineException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The error message
+     */
+    private final String message;
+
+    /**
+     * The name of the function where the error occurred
+     */
+    private final String function;
+
+    /**
+     * Creates a new exception
+     * @param message the error message
+     * @param function the name of the function where the error occurred
+     */
+    public VirtualMachineException(String message, String function) {
+        this.message = message;
+        this.function = function;
+    }
+
+    @Override
+    public String getMessage() {
+        return message + " in " + function;
+    }
+}
@@ -0,0 +1,4 @@
+/**
+ * A package with a virtual machine that runs programs compiled to bytecode for a stack machine
+ */
+package com.moefrumkin.droplet.interpreter.vm;
@@ -0,0 +1,125 @@
+package com.moefrumkin.droplet.parser;
+
+import com.moefrumkin.droplet.parser.exception.UnexpectedTokenException;
+import com.moefrumkin.droplet.parser.exception.UnexpectedTokenTypeException;
+import com.moefrumkin.droplet.parser.expression.Expression;
+import com.moefrumkin.droplet.parser.expression.ExpressionParser;
+import com.moefrumkin.droplet.parser.function.Function;
+import com.moefrumkin.droplet.parser.function.FunctionList;
+import com.moefrumkin.droplet.parser.statement.*;
+import com.moefrumkin.droplet.token.Token;
+import com.moefrumkin.droplet.token.Type;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A parser that does not recurse. Blocks, conditionals and loops that are still open are kept on an explicit stack, and expressions are parsed by {@link ExpressionParser#parseIteratively(Parser)},
+ * so the depth of nesting is only limited by the heap. The trees and errors are the same as those of {@link Parser#parse()}.
+ * <p>
+ * A tree as deeply nested as its source is still walked recursively by the interpreters and by the {@code equals}, {@code hashCode} and {@code toString} of its records
+ */
+public final class IterativeParser {
+
+    private IterativeParser() {}
+
+    /**
+     * Parses a program
+     * @param parser the parser
+     * @return The {@link SyntaxTree} that represents the program
+     * @throws UnexpectedTokenTypeException if a token is not matched
+     * @throws UnexpectedTokenException if a token is not matched
+     */
+    public static SyntaxTree parse(Parser parser) throws UnexpectedTokenTypeException, UnexpectedTokenException {
+        List<Function> functions = new ArrayList<>();
+
+        while (!parser.currentToken().matches(Type.TERMINATOR)) {
+            Token name = Function.parseName(parser);
+            List<Token> parameters = Function.parseParameters(parser);
+            functions.add(new Function(name, parameters, statement(parser)));
+        }
+
+        parser.match(Type.TERMINATOR);
+
+        return new FunctionList(functions);
+    }
+
+    /**
+     * Parses a statement
+     * @param parser the parser
+     * @return the statement
+     * @throws UnexpectedTokenTypeException if a token is not matched
+     * @throws UnexpectedTokenException if a token is not matched
+     */
+    public static Statement statement(Parser parser) throws UnexpectedTokenTypeException, UnexpectedTokenException {
+        //the statements that are open, each a list of statements, a conditional or a loop
+        List<Object> open = new ArrayList<>();
+
+        while (true) {
+            Statement statement = null;
+            Token current = parser.currentToken();
+
+            if (current.matches(Type.SPECIAL, "{")) {
+                parser.match(Type.SPECIAL, "{");
+                open.add(new ArrayList<Statement>());
+            } else if (current.matches(Type.KEYWORD, "if") || current.matches(Type.KEYWORD, "while")) {
+                parser.match(Type.KEYWORD, current.getData());
+                parser.match(Type.SPECIAL, "(");
+                Expression condition = ExpressionParser.parseIteratively(parser);
+                parser.match(Type.SPECIAL, ")");
+                open.add(current.getData().equals("if") ? new ConditionalStatement(condition, null) : new LoopStatement(condition, null));
+            } else if (current.matches(Type.KEYWORD, "return")) {
+                parser.match(Type.KEYWORD, "return");
+                Expression expression = ExpressionParser.parseIteratively(parser);
+                parser.match(Type.SPECIAL, ";");
+                statement = new ReturnStatement(expression);
+            } else if (current.matches(Type.KEYWORD, "let")) {
+                parser.match(Type.KEYWORD, "let");
+                Token identifier = parser.match(Type.IDENTIFIER);
+                if (parser.currentToken().matches(Type.OPERATOR, "=")) {
+                    parser.match(Type.OPERATOR, "=");
+                    Expression value = ExpressionParser.parseIteratively(parser);
+                    parser.match(Type.SPECIAL, ";");
+                    statement = new DeclarationStatement(identifier, value);
+                } else {
+                    parser.match(Type.SPECIAL, ";");
+                    statement = new DeclarationStatement(identifier);
+                }
+            } else if (current.matches(Type.SPECIAL, ";")) {
+                statement = EmptyStatement.parse(parser);
+            } else {
+                Expression expression = ExpressionParser.parseIteratively(parser);
+                parser.match(Type.SPECIAL, ";");
+                statement = new ExpressionStatement(expression);
+            }
+
+            //complete every open statement that the new statement completes
+            while (true) {
+                Object enclosing = open.isEmpty() ? null : open.get(open.size() - 1);
+                if (statement == null) {
+                    //a block that was just opened or just given a statement is complete when it is closed
+                    if (!(enclosing instanceof List<?> && parser.currentToken().matches(Type.SPECIAL, "}")))
+                        break;
+                    parser.match(Type.SPECIAL, "}");
+                    open.remove(open.size() - 1);
+                    @SuppressWarnings("unchecked")
+                    List<Statement> statements = (List<Statement>) enclosing;
+                    statement = new CompoundStatement(statements);
+                } else if (enclosing == null) {
+                    return statement;
+                } else if (enclosing instanceof ConditionalStatement conditional) {
+                    open.remove(open.size() - 1);
+                    statement = new ConditionalStatement(conditional.condition(), statement);
+                } else if (enclosing instanceof LoopStatement loop) {
+                    open.remove(open.size() - 1);
+                    statement = new LoopStatement(loop.condition(), statement);
+                } else {
+                    @SuppressWarnings("unchecked")
+                    List<Statement> statements = (List<Statement>) enclosing;
+                    statements.add(statement);
+                    statement = null;
+                }
+            }
+        }
+    }
+}
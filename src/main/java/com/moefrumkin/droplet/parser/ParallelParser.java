@@ -0,0 +1,165 @@
+package com.moefrumkin.droplet.parser;
+
+import com.moefrumkin.droplet.parser.exception.UnexpectedTokenException;
+import com.moefrumkin.droplet.parser.exception.UnexpectedTokenTypeException;
+import com.moefrumkin.droplet.parser.function.Function;
+import com.moefrumkin.droplet.parser.function.FunctionList;
+import com.moefrumkin.droplet.parser.symbol.SymbolTable;
+import com.moefrumkin.droplet.token.Token;
+import com.moefrumkin.droplet.token.TokenStream;
+import com.moefrumkin.droplet.token.Type;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * A parser that parses the functions of a program concurrently on a {@link ForkJoinPool}.
+ * A pass over the tokens that counts braces finds every {@code def} outside of braces, the ranges between them are grouped into parts, and each part is parsed by its own {@link Parser}.
+ * The functions are joined in source order, so the program is the same as the program of {@link Parser#parse()}.
+ * <p>
+ * A function only ends where the next {@code def} starts if the program is valid. If any part fails to parse, the whole program is parsed again sequentially, so that errors are exactly the errors of {@link Parser#parse()}
+ */
+public final class ParallelParser {
+
+    /**
+     * The smallest number of tokens worth parsing on their own
+     */
+    private static final int DEFAULT_MINIMUM_PART = 1 << 12;
+    /**
+     * The number of parts per thread of the pool, so that threads that finish early can take more work
+     */
+    private static final int PARTS_PER_THREAD = 4;
+
+    private final ForkJoinPool pool;
+    private final int minimumPart;
+
+    /**
+     * Creates a parser that parses on the given pool
+     * @param pool the pool
+     */
+    public ParallelParser(ForkJoinPool pool) {
+        this(pool, DEFAULT_MINIMUM_PART);
+    }
+
+    /**
+     * Creates a parser that parses on the given pool, and does not split the tokens into parts smaller than the given size
+     * @param pool the pool
+     * @param minimumPart the smallest number of tokens in a part
+     */
+    public ParallelParser(ForkJoinPool pool, int minimumPart) {
+        this.pool = pool;
+        this.minimumPart = Math.max(minimumPart, 1);
+    }
+
+    /**
+     * Parses a program
+     * @param tokens the tokens of the program, ending with a {@link Type#TERMINATOR}
+     * @return The {@link SyntaxTree} that represents the program
+     * @throws UnexpectedTokenTypeException if a token is not matched
+     * @throws UnexpectedTokenException if a token is not matched
+     */
+    public SyntaxTree parse(List<Token> tokens) throws UnexpectedTokenTypeException, UnexpectedTokenException {
+        int[] splits = split(tokens);
+        //the parts share a table, so that an identifier has the same id in every function
+        SymbolTable symbols = new SymbolTable();
+        List<ForkJoinTask<List<Function>>> parts = new ArrayList<>(splits.length - 1);
+        for (int i = 0; i + 1 < splits.length; i++) {
+            int start = splits[i];
+            int end = splits[i + 1];
+            parts.add(pool.submit(() -> {
+                try {
+                    return ((FunctionList) new Parser(new RangeTokenStream(tokens, start, end), symbols).parse()).functions();
+                } catch (UnexpectedTokenTypeException | UnexpectedTokenException | RuntimeException e) {
+                    return null;
+                }
+            }));
+        }
+
+        List<Function> functions = new ArrayList<>();
+        boolean failed = false;
+        for (ForkJoinTask<List<Function>> part : parts) {
+            List<Function> partFunctions = part.join();
+            if (partFunctions == null)
+                failed = true;
+            else if (!failed)
+                functions.addAll(partFunctions);
+        }
+        if (failed)
+            return new Parser(tokens).parse();
+
+        return new FunctionList(functions);
+    }
+
+    /**
+     * Chooses where to split the tokens
+     * @param tokens the tokens
+     * @return the start of every part followed by the index of the terminator
+     */
+    private int[] split(List<Token> tokens) {
+        int length = tokens.size() - 1;
+        int parts = Math.max(1, Math.min(pool.getParallelism() * PARTS_PER_THREAD, length / minimumPart));
+        int partLength = Math.max(length / parts, 1);
+
+        int[] splits = new int[parts + 1];
+        int count = 1;
+        int depth = 0;
+        for (int i = 0; i < length && count < parts; i++) {
+            Token token = tokens.get(i);
+            if (token.matches(Type.SPECIAL, "{"))
+                depth++;
+            else if (token.matches(Type.SPECIAL, "}"))
+                depth--;
+            else if (depth == 0 && i - splits[count - 1] >= partLength && token.matches(Type.KEYWORD, "def"))
+                splits[count++] = i;
+        }
+        splits[count++] = length;
+
+        return Arrays.copyOf(splits, count);
+    }
+
+    /**
+     * A {@link TokenStream} over a range of a list of tokens, which ends with its own terminator. Replaced tokens are written to the list, which is safe because the ranges of the parts do not overlap
+     */
+    private static final class RangeTokenStream implements TokenStream {
+
+        private final List<Token> tokens;
+        private final int end;
+        private int index;
+        private Token terminator = Token.terminator();
+
+        private RangeTokenStream(List<Token> tokens, int start, int end) {
+            this.tokens = tokens;
+            this.end = end;
+            this.index = start;
+        }
+
+        @Override
+        public Token peek(int offset) {
+            int tokenIndex = index + offset;
+            return tokenIndex < end ? tokens.get(tokenIndex) : terminator;
+        }
+
+        @Override
+        public void advance() {
+            index += 1;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return index <= end;
+        }
+
+        @Override
+        public Token replace(int offset, Token token) {
+            int tokenIndex = index + offset;
+            if (tokenIndex < end)
+                return tokens.set(tokenIndex, token);
+            Token replaced = terminator;
+            terminator = token;
+            return replaced;
+        }
+    }
+}
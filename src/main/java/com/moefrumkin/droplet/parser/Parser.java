@@ -3,28 +3,67 @@ package com.moefrumkin.droplet.parser;
 import com.moefrumkin.droplet.parser.function.FunctionList;
 import com.moefrumkin.droplet.parser.exception.UnexpectedTokenException;
 import com.moefrumkin.droplet.parser.exception.UnexpectedTokenTypeException;
+import com.moefrumkin.droplet.parser.symbol.SymbolTable;
+import com.moefrumkin.droplet.token.Position;
 import com.moefrumkin.droplet.token.Token;
+import com.moefrumkin.droplet.token.TokenStream;
 import com.moefrumkin.droplet.token.Type;
 import com.moefrumkin.droplet.parser.function.Function;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
 
 /**
- * A parser that parses the droplet language. This is done by iterating over a list of tokens. A program is a list of functions. Parsing a function is done by the {@link Function} class.
+ * A parser that parses the droplet language. This is done by iterating over a {@link TokenStream}. A program is a list of functions. Parsing a function is done by the {@link Function} class.
+ * Every identifier the parser matches is replaced by its {@link com.moefrumkin.droplet.parser.symbol.Symbol} in the parser's {@link SymbolTable}
  */
 public class Parser {
 
-    private final List<Token> tokens;
-    private int tokenIndex;
+    private final TokenStream tokens;
+    private final SymbolTable symbols;
 
     /**
      * Creates a new parser with the given tokens
      * @param tokens the tokens
      */
     public Parser(List<Token> tokens) {
+        this(TokenStream.of(tokens));
+    }
+
+    /**
+     * Creates a new parser that pulls tokens from the given stream as they are needed
+     * @param tokens the stream of tokens
+     */
+    public Parser(TokenStream tokens) {
+        this(tokens, new SymbolTable());
+    }
+
+    /**
+     * Creates a new parser with the given tokens that adds the identifiers it matches to the given table
+     * @param tokens the tokens
+     * @param symbols the symbol table
+     */
+    public Parser(List<Token> tokens, SymbolTable symbols) {
+        this(TokenStream.of(tokens), symbols);
+    }
+
+    /**
+     * Creates a new parser that pulls tokens from the given stream as they are needed and adds the identifiers it matches to the given table
+     * @param tokens the stream of tokens
+     * @param symbols the symbol table
+     */
+    public Parser(TokenStream tokens, SymbolTable symbols) {
         this.tokens = tokens;
-        tokenIndex = 0;
+        this.symbols = symbols;
+    }
+
+    /**
+     * Gets the table of the identifiers this parser has matched
+     * @return the symbol table
+     */
+    public SymbolTable symbols() {
+        return symbols;
     }
 
     /**
@@ -32,7 +71,7 @@ public class Parser {
      * @return the {@link Token}
      */
     public Token currentToken() {
-        return tokens.get(tokenIndex);
+        return tokens.peek(0);
     }
 
     /**
@@ -40,28 +79,36 @@ public class Parser {
      * @param offset the offset
      * @return the {@link Token}
      */
-    public Token tokenAtOffset(int offset) { return tokens.get(tokenIndex + offset); }
+    public Token tokenAtOffset(int offset) { return tokens.peek(offset); }
+
+    /**
+     * Gets the position in the source of the current token, for diagnostics
+     * @return the position, or empty if the tokens do not track positions
+     */
+    public Optional<Position> currentPosition() {
+        return tokens.position(0);
+    }
 
     /**
      * Increments the index of the current token that is being looked at
      */
     public void incrementIndex() {
-        tokenIndex += 1;
+        tokens.advance();
     }
 
     /**
      * This function returns the current token if it has the given type and then increments the index of the token. If the type is not matches then it throw an exception
      * @param type The {@link Type} that the current token must be
-     * @return The current {@link Token} if it matches the given type
+     * @return The current {@link Token} if it matches the given type, or its symbol if it is an identifier
      * @throws UnexpectedTokenTypeException if the current token does not have the given type
      */
     public Token match(Type type) throws UnexpectedTokenTypeException {
         Token current = currentToken();
         if(current.matches(type)) {
             incrementIndex();
-            return current;
+            return type == Type.IDENTIFIER ? symbols.intern(current) : current;
         } else {
-            throw new UnexpectedTokenTypeException(current, type);
+            throw new UnexpectedTokenTypeException(current, type, currentPosition().orElse(null));
         }
     }
 
@@ -78,7 +125,7 @@ public class Parser {
             incrementIndex();
             return current;
         } else {
-            throw new UnexpectedTokenException(current, type, data);
+            throw new UnexpectedTokenException(current, type, data, currentPosition().orElse(null));
         }
     }
 
@@ -87,7 +134,7 @@ public class Parser {
      * @return True if and only if there are tokens left to parse including the current token
      */
     public boolean tokensLeft() {
-        return tokenIndex < tokens.size();
+        return tokens.hasNext();
     }
 
     /**
@@ -97,7 +144,7 @@ public class Parser {
      * @return the token being replaced
      */
     public Token replaceTokenAtOffset(int offset, Token newToken) {
-        return tokens.set(tokenIndex + offset, newToken);
+        return tokens.replace(offset, newToken);
     }
 
     /**
@@ -119,4 +166,33 @@ public class Parser {
         return new FunctionList(functions);
     }
 
+    /**
+     * Parses a program without parsing the bodies of its functions, which are parsed the first time they are used. See {@link Function#parseLazily(Parser)}.
+     * Only errors in the function headers and unbalanced braces are found here, other errors are thrown as a {@link com.moefrumkin.droplet.parser.exception.LazyParseException} when the body is used
+     * @return The {@link SyntaxTree} that represents the program
+     * @throws UnexpectedTokenTypeException if a token is not matched
+     * @throws  UnexpectedTokenException if a token is not matched
+     */
+    public SyntaxTree parseLazily() throws UnexpectedTokenTypeException, UnexpectedTokenException {
+        List<Function> functions = new ArrayList<>();
+
+        while(!currentToken().matches(Type.TERMINATOR)) {
+            functions.add(Function.parseLazily(this));
+        }
+
+        match(Type.TERMINATOR);
+
+        return new FunctionList(functions);
+    }
+
+    /**
+     * Parses a program without recursion, so that deeply nested blocks and expressions only cost heap. See {@link IterativeParser}
+     * @return The {@link SyntaxTree} that represents the program
+     * @throws UnexpectedTokenTypeException if a token is not matched
+     * @throws  UnexpectedTokenException if a token is not matched
+     */
+    public SyntaxTree parseIteratively() throws UnexpectedTokenTypeException, UnexpectedTokenException {
+        return IterativeParser.parse(this);
+    }
+
 }
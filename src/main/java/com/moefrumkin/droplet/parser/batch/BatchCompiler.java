@@ -0,0 +1,359 @@
+package com.moefrumkin.droplet.parser.batch;
+
+import com.moefrumkin.droplet.parser.Parser;
+import com.moefrumkin.droplet.parser.function.FunctionList;
+import com.moefrumkin.droplet.parser.module.ModuleLoader;
+import com.moefrumkin.droplet.token.Lexer;
+import com.moefrumkin.droplet.token.Token;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * Compiles many scripts at once. Each script passes through four stages, read, lex, parse and verify, and every stage has its own threads that take scripts from a bounded queue
+ * and put them on the queue of the next stage. A stage that falls behind fills its queue, which blocks the stages before it until it catches up, so at most the capacity of the queues
+ * and one script per worker is in memory at once, however many scripts there are.
+ * <p>
+ * A script that fails a stage is not passed on, and its error is reported with its result rather than stopping the batch. The {@link Verifier} reports every error of a program it finds.
+ * The time each stage spends working is measured, so the report shows which stage limits the batch
+ */
+public class BatchCompiler {
+
+    private static final int DEFAULT_READERS = 2;
+    private static final int DEFAULT_WORKERS = Runtime.getRuntime().availableProcessors();
+    private static final int DEFAULT_QUEUE_CAPACITY = 64;
+
+    private final int readers;
+    private final int lexers;
+    private final int parsers;
+    private final int verifiers;
+    private final int queueCapacity;
+    private final Lexer lexer;
+    private final Verifier verifier;
+
+    private BatchCompiler(Builder builder) {
+        this.readers = builder.readers;
+        this.lexers = builder.lexers;
+        this.parsers = builder.parsers;
+        this.verifiers = builder.verifiers;
+        this.queueCapacity = builder.queueCapacity;
+        this.lexer = builder.lexer;
+        this.verifier = builder.verifier;
+    }
+
+    /**
+     * A builder class for {@link BatchCompiler}
+     */
+    public static final class Builder {
+        private int readers = DEFAULT_READERS;
+        private int lexers = DEFAULT_WORKERS;
+        private int parsers = DEFAULT_WORKERS;
+        private int verifiers = DEFAULT_WORKERS;
+        private int queueCapacity = DEFAULT_QUEUE_CAPACITY;
+        private Lexer lexer = Lexer.SCANNER;
+        private Verifier verifier = new Verifier();
+
+        /**
+         * Creates a new builder object with the default settings
+         */
+        public Builder() {}
+
+        /**
+         * Sets the number of threads that read scripts
+         * @param newReaders the number of threads
+         * @return the builder object
+         */
+        public Builder readers(int newReaders) { readers = positive(newReaders); return this; }
+
+        /**
+         * Sets the number of threads that lex scripts
+         * @param newLexers the number of threads
+         * @return the builder object
+         */
+        public Builder lexers(int newLexers) { lexers = positive(newLexers); return this; }
+
+        /**
+         * Sets the number of threads that parse scripts
+         * @param newParsers the number of threads
+         * @return the builder object
+         */
+        public Builder parsers(int newParsers) { parsers = positive(newParsers); return this; }
+
+        /**
+         * Sets the number of threads that verify scripts
+         * @param newVerifiers the number of threads
+         * @return the builder object
+         */
+        public Builder verifiers(int newVerifiers) { verifiers = positive(newVerifiers); return this; }
+
+        /**
+         * Sets the number of threads of the lex, parse and verify stages
+         * @param newParallelism the number of threads of each stage
+         * @return the builder object
+         */
+        public Builder parallelism(int newParallelism) { return lexers(newParallelism).parsers(newParallelism).verifiers(newParallelism); }
+
+        /**
+         * Sets the number of scripts that can wait for each stage before the stage before it blocks
+         * @param newCapacity the capacity of each queue
+         * @return the builder object
+         */
+        public Builder queueCapacity(int newCapacity) { queueCapacity = positive(newCapacity); return this; }
+
+        /**
+         * Sets the lexer
+         * @param newLexer the lexer
+         * @return the builder object
+         */
+        public Builder lexer(Lexer newLexer) { lexer = newLexer; return this; }
+
+        /**
+         * Sets the verifier
+         * @param newVerifier the verifier
+         * @return the builder object
+         */
+        public Builder verifier(Verifier newVerifier) { verifier = newVerifier; return this; }
+
+        /**
+         * Creates a compiler from the builder object
+         * @return a compiler
+         */
+        public BatchCompiler build() { return new BatchCompiler(this); }
+
+        private static int positive(int count) {
+            if (count < 1)
+                throw new IllegalArgumentException("Expected a positive count, Given " + count);
+            return count;
+        }
+    }
+
+    /**
+     * A script on its way through the stages, holding the output of the last stage it passed
+     */
+    private static final class Job {
+        private final int index;
+        private final Path script;
+        private Object value;
+
+        private Job(int index, Path script) {
+            this.index = index;
+            this.script = script;
+        }
+    }
+
+    /**
+     * Marks the end of the scripts on a queue
+     */
+    private static final Job END = new Job(-1, null);
+
+    /**
+     * The work of a stage
+     */
+    private interface Work {
+        Object apply(Object input) throws Exception;
+    }
+
+    /**
+     * A stage of the pipeline, with its workers and statistics
+     */
+    private static final class Stage {
+        private final String name;
+        private final int workers;
+        private final Work work;
+        private final BlockingQueue<Job> input;
+        private final AtomicInteger running;
+        private final LongAdder scripts = new LongAdder();
+        private final LongAdder failures = new LongAdder();
+        private final LongAdder busyNanos = new LongAdder();
+
+        private Stage(String name, int workers, int capacity, Work work) {
+            this.name = name;
+            this.workers = workers;
+            this.work = work;
+            this.input = new ArrayBlockingQueue<>(capacity);
+            this.running = new AtomicInteger(workers);
+        }
+
+        private StageStatistics statistics() {
+            return new StageStatistics(name, workers, scripts.sum(), failures.sum(), busyNanos.sum());
+        }
+    }
+
+    /**
+     * Compiles a batch of scripts
+     * @param scripts the paths of the scripts
+     * @return the result of every script and the statistics of every stage
+     * @throws InterruptedException if the thread is interrupted while it waits for the batch, in which case the workers are stopped
+     */
+    public BatchReport compile(List<Path> scripts) throws InterruptedException {
+        long start = System.nanoTime();
+        ScriptResult[] results = new ScriptResult[scripts.size()];
+
+        List<Stage> stages = List.of(
+                new Stage("read", readers, queueCapacity, input -> Files.readString((Path) input, StandardCharsets.UTF_8)),
+                new Stage("lex", lexers, queueCapacity, input -> lexer.tokenize((String) input)),
+                new Stage("parse", parsers, queueCapacity, input -> {
+                    @SuppressWarnings("unchecked")
+                    List<Token> tokens = (List<Token>) input;
+                    return new Parser(tokens).parse();
+                }),
+                new Stage("verify", verifiers, queueCapacity, input -> new ScriptResult(null, (FunctionList) input, verifier.verify((FunctionList) input)))
+        );
+
+        int threads = stages.stream().mapToInt(stage -> stage.workers).sum();
+        ExecutorService pool = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "batch-compiler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        CountDownLatch done = new CountDownLatch(stages.get(stages.size() - 1).workers);
+        for (int i = 0; i < stages.size(); i++) {
+            Stage stage = stages.get(i);
+            Stage next = i + 1 < stages.size() ? stages.get(i + 1) : null;
+            for (int j = 0; j < stage.workers; j++)
+                pool.execute(() -> work(stage, next, results, done));
+        }
+
+        try {
+            BlockingQueue<Job> first = stages.get(0).input;
+            for (int i = 0; i < scripts.size(); i++) {
+                Job job = new Job(i, scripts.get(i));
+                job.value = job.script;
+                first.put(job);
+            }
+            first.put(END);
+            done.await();
+        } finally {
+            pool.shutdownNow();
+        }
+
+        //a script is only left without a result if a worker died outside of its stage, which is reported rather than lost
+        for (int i = 0; i < results.length; i++)
+            if (results[i] == null)
+                results[i] = new ScriptResult(scripts.get(i), null, List.of("The script was not compiled"));
+
+        return new BatchReport(List.of(results), stages.stream().map(Stage::statistics).toList(), System.nanoTime() - start);
+    }
+
+    /**
+     * Runs a worker of a stage until the end of the scripts
+     */
+    private static void work(Stage stage, Stage next, ScriptResult[] results, CountDownLatch done) {
+        try {
+            while (true) {
+                Job job = stage.input.take();
+                if (job == END) {
+                    //leave the end for the other workers of the stage
+                    stage.input.put(END);
+                    return;
+                }
+
+                long start = System.nanoTime();
+                Object output;
+                try {
+                    output = stage.work.apply(job.value);
+                } catch (Throwable e) {
+                    //any error of the stage, even an OutOfMemoryError, only fails the script
+                    output = e;
+                }
+                stage.busyNanos.add(System.nanoTime() - start);
+                stage.scripts.increment();
+
+                if (output instanceof Throwable error) {
+                    stage.failures.increment();
+                    results[job.index] = new ScriptResult(job.script, null, List.of(stage.name + ": " + message(error)));
+                } else if (next == null) {
+                    ScriptResult verified = (ScriptResult) output;
+                    results[job.index] = new ScriptResult(job.script, verified.program(), verified.errors().stream().map(error -> stage.name + ": " + error).toList());
+                    if (!verified.succeeded())
+                        stage.failures.increment();
+                } else {
+                    job.value = output;
+                    next.input.put(job);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            //pass the end on once every worker of the stage has stopped, however it stopped, so a dead worker cannot stall the stages after it
+            if (stage.running.decrementAndGet() == 0 && next != null) {
+                try {
+                    next.input.put(END);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            if (next == null)
+                done.countDown();
+        }
+    }
+
+    private static String message(Throwable error) {
+        if (error instanceof StackOverflowError)
+            return "The script is nested too deeply";
+        return error.getMessage() == null ? error.getClass().getSimpleName() : error.getMessage();
+    }
+
+    /**
+     * Compiles the scripts at the given paths and prints the errors of every script that does not compile, followed by the statistics of every stage.
+     * Directories are searched for scripts with the {@link ModuleLoader#EXTENSION} extension. The exit status is 1 if a script does not compile and 2 if the arguments are not valid
+     * <p>
+     * Usage: {@code [--readers n] [--lexers n] [--parsers n] [--verifiers n] [--parallelism n] [--queue n] path...}
+     * @param args the options and paths
+     * @throws IOException if a directory cannot be searched
+     * @throws InterruptedException if the thread is interrupted
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        Builder builder = new Builder();
+        List<Path> scripts = new ArrayList<>();
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--readers" -> builder.readers(Integer.parseInt(args[++i]));
+                    case "--lexers" -> builder.lexers(Integer.parseInt(args[++i]));
+                    case "--parsers" -> builder.parsers(Integer.parseInt(args[++i]));
+                    case "--verifiers" -> builder.verifiers(Integer.parseInt(args[++i]));
+                    case "--parallelism" -> builder.parallelism(Integer.parseInt(args[++i]));
+                    case "--queue" -> builder.queueCapacity(Integer.parseInt(args[++i]));
+                    default -> scripts.addAll(scripts(Path.of(args[i])));
+                }
+            }
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            System.err.println("Usage: [--readers n] [--lexers n] [--parsers n] [--verifiers n] [--parallelism n] [--queue n] path...");
+            System.exit(2);
+        }
+
+        BatchReport report = builder.build().compile(scripts);
+        for (ScriptResult failure : report.failures())
+            for (String error : failure.errors())
+                System.out.println(failure.script() + ": " + error);
+        report.stages().forEach(System.out::println);
+        System.out.printf("%d scripts, %d failed, in %.1f ms, %.1f scripts/s%n",
+                report.results().size(), report.failures().size(), report.elapsedNanos() / 1e6, report.throughput());
+
+        if (!report.failures().isEmpty())
+            System.exit(1);
+    }
+
+    /**
+     * Finds the scripts at a path
+     * @param path a script, or a directory that is searched for scripts
+     * @return the scripts, in a stable order
+     * @throws IOException if the directory cannot be searched
+     */
+    private static List<Path> scripts(Path path) throws IOException {
+        if (!Files.isDirectory(path))
+            return List.of(path);
+        try (Stream<Path> files = Files.walk(path)) {
+            return files.filter(file -> Files.isRegularFile(file) && file.getFileName().toString().endsWith(ModuleLoader.EXTENSION)).sorted().toList();
+        }
+    }
+}
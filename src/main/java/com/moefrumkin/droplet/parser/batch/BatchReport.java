@@ -0,0 +1,26 @@
+package com.moefrumkin.droplet.parser.batch;
+
+import java.util.List;
+
+/**
+ * A record class that represents the result of compiling a batch of scripts
+ * @param results the result of each script, in the order the scripts were given
+ * @param stages the statistics of each stage, in pipeline order
+ * @param elapsedNanos the time the whole batch took
+ */
+public record BatchReport(List<ScriptResult> results, List<StageStatistics> stages, long elapsedNanos) {
+
+    /**
+     * @return the results of the scripts that did not compile
+     */
+    public List<ScriptResult> failures() {
+        return results.stream().filter(result -> !result.succeeded()).toList();
+    }
+
+    /**
+     * @return the number of scripts compiled per second over the whole batch, or 0 if the batch was empty
+     */
+    public double throughput() {
+        return elapsedNanos == 0 ? 0 : results.size() * 1e9 / elapsedNanos;
+    }
+}
@@ -0,0 +1,22 @@
+package com.moefrumkin.droplet.parser.batch;
+
+import com.moefrumkin.droplet.parser.function.FunctionList;
+
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * A record class that represents the result of compiling one script of a batch
+ * @param script the path of the script
+ * @param program the parsed program, or {@code null} if the script could not be read, lexed or parsed
+ * @param errors the errors of the script, each prefixed with the stage that found it. A script without errors is valid
+ */
+public record ScriptResult(Path script, FunctionList program, List<String> errors) {
+
+    /**
+     * @return whether the script compiled without errors
+     */
+    public boolean succeeded() {
+        return errors.isEmpty();
+    }
+}
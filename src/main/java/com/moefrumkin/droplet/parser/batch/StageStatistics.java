@@ -0,0 +1,24 @@
+package com.moefrumkin.droplet.parser.batch;
+
+/**
+ * A record class that represents the statistics of one stage of a {@link BatchCompiler}
+ * @param stage the name of the stage
+ * @param workers the number of threads of the stage
+ * @param scripts the number of scripts the stage processed, including the scripts it failed
+ * @param failures the number of scripts the stage failed
+ * @param busyNanos the time the workers of the stage spent processing scripts, summed over the workers, not including the time they waited on their queues
+ */
+public record StageStatistics(String stage, int workers, long scripts, long failures, long busyNanos) {
+
+    /**
+     * @return the number of scripts per second the stage can process with all of its workers busy, or 0 if it processed none
+     */
+    public double throughput() {
+        return busyNanos == 0 ? 0 : scripts * workers * 1e9 / busyNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%-8s %3d workers %8d scripts %6d failed %12.1f scripts/s", stage, workers, scripts, failures, throughput());
+    }
+}
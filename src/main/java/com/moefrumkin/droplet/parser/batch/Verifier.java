@@ -0,0 +1,73 @@
+package com.moefrumkin.droplet.parser.batch;
+
+import com.moefrumkin.droplet.interpreter.Configuration;
+import com.moefrumkin.droplet.interpreter.basicInterpreter.BasicInterpreter;
+import com.moefrumkin.droplet.parser.expression.FunctionCallExpression;
+import com.moefrumkin.droplet.parser.function.CallCollector;
+import com.moefrumkin.droplet.parser.function.Function;
+import com.moefrumkin.droplet.parser.function.FunctionList;
+
+import java.util.*;
+
+/**
+ * Checks a parsed program for the errors an interpreter would otherwise only find when it runs into them: a missing or parameterized {@code main} function,
+ * functions defined twice, and calls to functions that are not defined or that are given the wrong number of arguments. Instances are thread safe,
+ * and subclasses that add checks must be too
+ */
+public class Verifier {
+
+    private static final String MAIN = "main";
+
+    private final Set<String> library;
+
+    /**
+     * Creates a verifier for programs that are run with the default library of {@link BasicInterpreter}
+     */
+    public Verifier() {
+        this(Configuration.DEFAULT_LIBRARY_FUNCTIONS);
+    }
+
+    /**
+     * Creates a verifier for programs that are run with the given library. Calls to library functions are not checked, since they take any number of arguments
+     * @param library the names of the library functions
+     */
+    public Verifier(Set<String> library) {
+        this.library = Set.copyOf(library);
+    }
+
+    /**
+     * Verifies a program
+     * @param program the program
+     * @return the errors of the program, in source order, or an empty list if it has none
+     */
+    public List<String> verify(FunctionList program) {
+        List<String> errors = new ArrayList<>();
+        Map<String, Function> functions = new HashMap<>();
+        for (Function function : program.functions()) {
+            String name = function.name().getData();
+            if (functions.putIfAbsent(name, function) != null)
+                errors.add("The function " + name + " is already defined");
+        }
+
+        Function main = functions.get(MAIN);
+        if (main == null && !library.contains(MAIN))
+            errors.add("The program has no " + MAIN + " function");
+        else if (main != null && !main.parameters().isEmpty())
+            errors.add("The " + MAIN + " function must not have parameters");
+
+        for (Function function : program.functions()) {
+            for (FunctionCallExpression call : CallCollector.calls(function.body())) {
+                String name = call.identifier().getData();
+                //library functions are found before the functions of the program
+                if (library.contains(name))
+                    continue;
+                Function callee = functions.get(name);
+                if (callee == null)
+                    errors.add("In " + function.name().getData() + ", the function " + name + " is not defined");
+                else if (callee.parameters().size() != call.arguments().size())
+                    errors.add("In " + function.name().getData() + ", " + name + " expected " + callee.parameters().size() + " parameters, Given " + call.arguments().size());
+            }
+        }
+        return errors;
+    }
+}
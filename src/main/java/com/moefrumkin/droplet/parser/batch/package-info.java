@@ -0,0 +1,4 @@
+/**
+ * This package contains a compiler that reads, lexes, parses and verifies many scripts at once in a pipeline of bounded stages, and the results and statistics it reports
+ */
+package com.moefrumkin.droplet.parser.batch;
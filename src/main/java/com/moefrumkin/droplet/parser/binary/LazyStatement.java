@@ -0,0 +1,67 @@
+package com.moefrumkin.droplet.parser.binary;
+
+import com.moefrumkin.droplet.interpreter.Interpreter;
+import com.moefrumkin.droplet.parser.statement.Statement;
+import com.moefrumkin.droplet.token.Token;
+
+import java.nio.ByteBuffer;
+
+/**
+ * The body of a decoded function, which is only decoded from its program the first time it is used. Decoding is safe to race, since every thread decodes an equal statement
+ */
+final class LazyStatement implements Statement {
+
+    private final ByteBuffer buffer;
+    private final int index;
+    private final Token[] tokens;
+    private volatile Statement statement;
+
+    LazyStatement(ByteBuffer buffer, int index, Token[] tokens) {
+        this.buffer = buffer;
+        this.index = index;
+        this.tokens = tokens;
+    }
+
+    /**
+     * @return the decoded statement
+     */
+    Statement statement() {
+        Statement decoded = statement;
+        if (decoded == null) {
+            decoded = ProgramFormat.decodeStatement(buffer, index, tokens);
+            statement = decoded;
+        }
+        return decoded;
+    }
+
+    /**
+     * @return whether the statement has been decoded
+     */
+    boolean isDecoded() {
+        return statement != null;
+    }
+
+    @Override
+    public void interpret(Interpreter interpreter) {
+        statement().interpret(interpreter);
+    }
+
+    @Override
+    public int hashCode() {
+        return statement().hashCode();
+    }
+
+    /**
+     * Two lazy statements are equal if their decoded statements are equal. A lazy statement is never equal to a statement that is not lazy,
+     * so a decoded body is compared with a parsed one through {@link #statement()}
+     */
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof LazyStatement other && statement().equals(other.statement());
+    }
+
+    @Override
+    public String toString() {
+        return statement().toString();
+    }
+}
@@ -0,0 +1,121 @@
+package com.moefrumkin.droplet.parser.binary;
+
+import com.moefrumkin.droplet.parser.Parser;
+import com.moefrumkin.droplet.parser.exception.UnexpectedTokenException;
+import com.moefrumkin.droplet.parser.exception.UnexpectedTokenTypeException;
+import com.moefrumkin.droplet.parser.function.FunctionList;
+import com.moefrumkin.droplet.token.Lexer;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * A cache of compiled programs in a directory. Each program is stored in a file named after the SHA-256 hash of its source and the version of the {@link ProgramFormat},
+ * so a source that has been compiled before is mapped from its file without being tokenized or parsed, and a changed source or format never finds a stale program.
+ * <p>
+ * The cache only speeds up compilation. A file that cannot be read is compiled again, and a file that cannot be written is skipped, so a broken cache directory never changes the result.
+ * Files are written to a temporary file and moved into place, so processes can share a directory
+ */
+public class ProgramCache {
+
+    private static final String EXTENSION = ".dpc";
+
+    private final Path directory;
+    private int hits;
+    private int misses;
+
+    /**
+     * Creates a cache in the given directory, which is created if it does not exist
+     * @param directory the directory
+     */
+    public ProgramCache(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Gets the compiled program of a source, compiling it and storing it in the cache if it is not in the cache
+     * @param source the source of the program
+     * @return the program. The function bodies of a program from the cache are decoded when they are first used
+     * @throws UnexpectedTokenTypeException if a token is not matched
+     * @throws UnexpectedTokenException if a token is not matched
+     */
+    public FunctionList compile(String source) throws UnexpectedTokenTypeException, UnexpectedTokenException {
+        Path path = path(source);
+
+        if (Files.isRegularFile(path)) {
+            try {
+                FunctionList program = ProgramFormat.load(path);
+                hits++;
+                return program;
+            } catch (IOException e) {
+                //compile the source again and replace the file
+            }
+        }
+
+        misses++;
+        FunctionList program = (FunctionList) new Parser(Lexer.SCANNER.tokenize(source)).parse();
+        store(path, ProgramFormat.encode(program));
+        return program;
+    }
+
+    /**
+     * Gets the file a source is stored in
+     * @param source the source
+     * @return the path of the file, which might not exist
+     */
+    public Path path(String source) {
+        return directory.resolve(hash(source) + "-v" + ProgramFormat.VERSION + EXTENSION);
+    }
+
+    /**
+     * @return the number of programs that were loaded from the cache
+     */
+    public int hits() {
+        return hits;
+    }
+
+    /**
+     * @return the number of programs that had to be compiled
+     */
+    public int misses() {
+        return misses;
+    }
+
+    private void store(Path path, byte[] program) {
+        try {
+            Files.createDirectories(directory);
+            Path temporary = Files.createTempFile(directory, "program", ".tmp");
+            try {
+                Files.write(temporary, program);
+                Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temporary);
+            }
+        } catch (IOException e) {
+            //the program is still returned, it just has to be compiled again next time
+        }
+    }
+
+    /**
+     * Hashes a source
+     * @param source the source
+     * @return the SHA-256 hash of the UTF-8 encoding of the source, in hexadecimal
+     */
+    public static String hash(String source) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            StringBuilder hash = new StringBuilder();
+            for (byte b : digest.digest(source.getBytes(StandardCharsets.UTF_8)))
+                hash.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            return hash.toString();
+        } catch (NoSuchAlgorithmException e) {
+            //every Java platform is required to support SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+}
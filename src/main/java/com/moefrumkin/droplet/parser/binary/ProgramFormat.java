@@ -0,0 +1,394 @@
+package com.moefrumkin.droplet.parser.binary;
+
+import com.moefrumkin.droplet.parser.expression.*;
+import com.moefrumkin.droplet.parser.function.Function;
+import com.moefrumkin.droplet.parser.function.FunctionList;
+import com.moefrumkin.droplet.parser.function.LazyBody;
+import com.moefrumkin.droplet.parser.statement.*;
+import com.moefrumkin.droplet.parser.symbol.SymbolTable;
+import com.moefrumkin.droplet.token.Token;
+import com.moefrumkin.droplet.token.Type;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32C;
+
+/**
+ * A versioned binary format for a parsed {@link FunctionList}.
+ * <p>
+ * The format starts with a header of a magic number, the version, the length of the whole program and a CRC-32C checksum of everything after the header. It is followed by a table of every distinct identifier and literal,
+ * a table of functions with the index of their name and parameters in the token table and the offset of their body, and finally the bodies.
+ * Every node of a body is one tag byte followed by its children, operation types are one byte, and counts, token indices and offsets are unsigned variable length integers,
+ * so most programs take a few bytes per node.
+ * <p>
+ * A decoded program only decodes the name and parameters of its functions. Each body is decoded from the buffer the first time it is used, so a program that is mapped from a file only builds the functions that are run.
+ * The checksum is verified before anything is decoded, so a corrupt program is rejected by {@link #decode(ByteBuffer)} rather than when one of its bodies is first used
+ */
+public final class ProgramFormat {
+
+    /**
+     * The first four bytes of every program, which are {@code DROP}
+     */
+    static final int MAGIC = 0x44524F50;
+    /**
+     * The version of the format, which changes whenever the encoding of a node changes
+     */
+    public static final int VERSION = 2;
+    /**
+     * The length of the header, which holds the magic number, the version, the length and the checksum
+     */
+    private static final int HEADER = 4 * Integer.BYTES;
+
+    static final byte COMPOUND = 0;
+    static final byte CONDITIONAL = 1;
+    static final byte DECLARATION = 2;
+    static final byte EMPTY = 3;
+    static final byte EXPRESSION = 4;
+    static final byte LOOP = 5;
+    static final byte RETURN = 6;
+    static final byte BINARY = 16;
+    static final byte ENCLOSED = 17;
+    static final byte CALL = 18;
+    static final byte IDENTIFIER = 19;
+    static final byte LITERAL = 20;
+    static final byte UNARY = 21;
+
+    private static final Type[] TOKEN_TYPES = Type.values();
+    private static final BinaryOperationExpression.Type[] BINARY_TYPES = BinaryOperationExpression.Type.values();
+    private static final UnaryOperationExpression.Type[] UNARY_TYPES = UnaryOperationExpression.Type.values();
+
+    private ProgramFormat() {}
+
+    /**
+     * Encodes a program
+     * @param program the program
+     * @return the bytes of the program
+     */
+    public static byte[] encode(FunctionList program) {
+        Map<Token, Integer> tokenIndices = new HashMap<>();
+        List<Token> tokens = new ArrayList<>();
+        Output bodies = new Output();
+        int[] bodyOffsets = new int[program.functions().size()];
+
+        for (int i = 0; i < bodyOffsets.length; i++) {
+            Function function = program.functions().get(i);
+            intern(function.name(), tokenIndices, tokens);
+            function.parameters().forEach(parameter -> intern(parameter, tokenIndices, tokens));
+            bodyOffsets[i] = bodies.size();
+            encodeStatement(function.body(), bodies, tokenIndices, tokens);
+        }
+
+        Output tables = new Output();
+        tables.writeUnsigned(tokens.size());
+        for (Token token : tokens) {
+            byte[] data = token.getData().getBytes(StandardCharsets.ISO_8859_1);
+            tables.write(token.getType().ordinal());
+            tables.writeUnsigned(data.length);
+            tables.write(data, data.length);
+        }
+        tables.writeUnsigned(bodyOffsets.length);
+        for (int i = 0; i < bodyOffsets.length; i++) {
+            Function function = program.functions().get(i);
+            tables.writeUnsigned(tokenIndices.get(function.name()));
+            tables.writeUnsigned(function.parameters().size());
+            for (Token parameter : function.parameters())
+                tables.writeUnsigned(tokenIndices.get(parameter));
+            tables.writeUnsigned(bodyOffsets[i]);
+        }
+
+        int length = HEADER + tables.size() + bodies.size();
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(length).putInt(0);
+        buffer.put(tables.bytes, 0, tables.size());
+        buffer.put(bodies.bytes, 0, bodies.size());
+        buffer.putInt(3 * Integer.BYTES, checksum(buffer));
+        return buffer.array();
+    }
+
+    /**
+     * Decodes a program from the remaining bytes of a buffer. The buffer must not be changed while the bodies of the program are in use
+     * @param buffer the bytes of the program
+     * @return the program, whose function bodies are decoded when they are first used
+     * @throws IOException if the bytes are not a program of this version of the format, or are corrupt
+     */
+    public static FunctionList decode(ByteBuffer buffer) throws IOException {
+        ByteBuffer input = buffer.slice();
+        try {
+            if (input.getInt() != MAGIC)
+                throw new IOException("The bytes are not a compiled program");
+            int version = input.getInt();
+            if (version != VERSION)
+                throw new IOException("The compiled program has version " + version + " but version " + VERSION + " is supported");
+            int length = input.getInt();
+            if (length != input.limit())
+                throw new IOException("The compiled program has length " + input.limit() + " but should have length " + length);
+            if (input.getInt() != checksum(input))
+                throw new IOException("The compiled program does not match its checksum");
+
+            Token[] tokens = new Token[readUnsigned(input)];
+            SymbolTable symbols = new SymbolTable();
+            for (int i = 0; i < tokens.length; i++) {
+                Type type = TOKEN_TYPES[input.get()];
+                byte[] data = new byte[readUnsigned(input)];
+                input.get(data);
+                String spelling = new String(data, StandardCharsets.ISO_8859_1);
+                //identifiers are given ids as they are when a program is parsed
+                tokens[i] = type == Type.IDENTIFIER ? symbols.intern(spelling) : Token.of(type, spelling);
+            }
+
+            int functionCount = readUnsigned(input);
+            Token[] names = new Token[functionCount];
+            Token[][] parameters = new Token[functionCount][];
+            int[] bodyOffsets = new int[functionCount];
+            for (int i = 0; i < functionCount; i++) {
+                names[i] = tokens[readUnsigned(input)];
+                parameters[i] = new Token[readUnsigned(input)];
+                for (int j = 0; j < parameters[i].length; j++)
+                    parameters[i][j] = tokens[readUnsigned(input)];
+                bodyOffsets[i] = readUnsigned(input);
+            }
+
+            int bodies = input.position();
+            List<Function> functions = new ArrayList<>(functionCount);
+            for (int i = 0; i < functionCount; i++)
+                functions.add(new Function(names[i], List.of(parameters[i]), new LazyStatement(input, bodies + bodyOffsets[i], tokens)));
+            return new FunctionList(functions);
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException | NegativeArraySizeException e) {
+            throw new IOException("The compiled program is truncated or corrupt", e);
+        }
+    }
+
+    /**
+     * Maps a compiled program from a file into memory and decodes it. The file must not be changed while the bodies of the program are in use
+     * @param path the file
+     * @return the program, whose function bodies are decoded when they are first used
+     * @throws IOException if the file cannot be mapped or is not a program of this version of the format
+     */
+    public static FunctionList load(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE)
+                throw new IOException("The file " + path + " is too large to be mapped, with size " + size);
+            return decode(channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+        }
+    }
+
+    /**
+     * Decodes the statement at the given index of a program. The index is read with absolute reads, so the buffer can be shared between threads
+     * @param buffer the program
+     * @param index the index of the statement
+     * @param tokens the token table of the program
+     * @return the statement
+     */
+    static Statement decodeStatement(ByteBuffer buffer, int index, Token[] tokens) {
+        return new Input(buffer, index, tokens).statement();
+    }
+
+    /**
+     * Computes the checksum of a program, which covers every byte after the header
+     * @param program the program, whose limit is its end
+     * @return the CRC-32C of the bytes after the header
+     */
+    private static int checksum(ByteBuffer program) {
+        CRC32C crc = new CRC32C();
+        crc.update(program.duplicate().position(HEADER));
+        return (int) crc.getValue();
+    }
+
+    private static void intern(Token token, Map<Token, Integer> tokenIndices, List<Token> tokens) {
+        if (!tokenIndices.containsKey(token)) {
+            tokenIndices.put(token, tokens.size());
+            tokens.add(token);
+        }
+    }
+
+    private static void encodeStatement(Statement statement, Output output, Map<Token, Integer> tokenIndices, List<Token> tokens) {
+        if (statement instanceof LazyStatement lazy) {
+            encodeStatement(lazy.statement(), output, tokenIndices, tokens);
+        } else if (statement instanceof LazyBody lazy) {
+            encodeStatement(lazy.statement(), output, tokenIndices, tokens);
+        } else if (statement instanceof CompoundStatement compound) {
+            output.write(COMPOUND);
+            output.writeUnsigned(compound.statements().size());
+            for (Statement child : compound.statements())
+                encodeStatement(child, output, tokenIndices, tokens);
+        } else if (statement instanceof ConditionalStatement conditional) {
+            output.write(CONDITIONAL);
+            encodeExpression(conditional.condition(), output, tokenIndices, tokens);
+            encodeStatement(conditional.consequence(), output, tokenIndices, tokens);
+        } else if (statement instanceof DeclarationStatement declaration) {
+            output.write(DECLARATION);
+            intern(declaration.identifier(), tokenIndices, tokens);
+            output.writeUnsigned(tokenIndices.get(declaration.identifier()));
+            encodeExpression(declaration.value(), output, tokenIndices, tokens);
+        } else if (statement instanceof EmptyStatement) {
+            output.write(EMPTY);
+        } else if (statement instanceof ExpressionStatement expression) {
+            output.write(EXPRESSION);
+            encodeExpression(expression.expression(), output, tokenIndices, tokens);
+        } else if (statement instanceof LoopStatement loop) {
+            output.write(LOOP);
+            encodeExpression(loop.condition(), output, tokenIndices, tokens);
+            encodeStatement(loop.body(), output, tokenIndices, tokens);
+        } else if (statement instanceof ReturnStatement returnStatement) {
+            output.write(RETURN);
+            encodeExpression(returnStatement.expression(), output, tokenIndices, tokens);
+        } else {
+            throw new IllegalArgumentException("The statement " + statement + " cannot be encoded");
+        }
+    }
+
+    private static void encodeExpression(Expression expression, Output output, Map<Token, Integer> tokenIndices, List<Token> tokens) {
+        if (expression instanceof BinaryOperationExpression binary) {
+            output.write(BINARY);
+            output.write(binary.type().ordinal());
+            encodeExpression(binary.left(), output, tokenIndices, tokens);
+            encodeExpression(binary.right(), output, tokenIndices, tokens);
+        } else if (expression instanceof EnclosedExpression enclosed) {
+            output.write(ENCLOSED);
+            encodeExpression(enclosed.expression(), output, tokenIndices, tokens);
+        } else if (expression instanceof FunctionCallExpression call) {
+            output.write(CALL);
+            intern(call.identifier(), tokenIndices, tokens);
+            output.writeUnsigned(tokenIndices.get(call.identifier()));
+            output.writeUnsigned(call.arguments().size());
+            for (Expression argument : call.arguments())
+                encodeExpression(argument, output, tokenIndices, tokens);
+        } else if (expression instanceof IdentifierExpression identifier) {
+            output.write(IDENTIFIER);
+            intern(identifier.identifier(), tokenIndices, tokens);
+            output.writeUnsigned(tokenIndices.get(identifier.identifier()));
+        } else if (expression instanceof LiteralExpression literal) {
+            output.write(LITERAL);
+            intern(literal.literal(), tokenIndices, tokens);
+            output.writeUnsigned(tokenIndices.get(literal.literal()));
+        } else if (expression instanceof UnaryOperationExpression unary) {
+            output.write(UNARY);
+            output.write(unary.type().ordinal());
+            encodeExpression(unary.operand(), output, tokenIndices, tokens);
+        } else {
+            throw new IllegalArgumentException("The expression " + expression + " cannot be encoded");
+        }
+    }
+
+    /**
+     * Reads an unsigned variable length integer, which holds seven bits in every byte and sets the high bit of every byte but the last
+     */
+    private static int readUnsigned(ByteBuffer input) {
+        int value = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = input.get();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0)
+                return value;
+        }
+    }
+
+    /**
+     * A growable array of bytes that encoded nodes are written to
+     */
+    private static final class Output {
+        private byte[] bytes = new byte[256];
+        private int size;
+
+        private int size() {
+            return size;
+        }
+
+        private void write(int b) {
+            if (size == bytes.length)
+                bytes = Arrays.copyOf(bytes, size * 2);
+            bytes[size++] = (byte) b;
+        }
+
+        private void write(byte[] data, int length) {
+            for (int i = 0; i < length; i++)
+                write(data[i]);
+        }
+
+        private void writeUnsigned(int value) {
+            while ((value & ~0x7F) != 0) {
+                write((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            write(value);
+        }
+    }
+
+    /**
+     * A cursor that decodes nodes with absolute reads from a shared buffer
+     */
+    private static final class Input {
+        private final ByteBuffer buffer;
+        private final Token[] tokens;
+        private int index;
+
+        private Input(ByteBuffer buffer, int index, Token[] tokens) {
+            this.buffer = buffer;
+            this.index = index;
+            this.tokens = tokens;
+        }
+
+        private byte read() {
+            return buffer.get(index++);
+        }
+
+        private int readUnsigned() {
+            int value = 0;
+            for (int shift = 0; ; shift += 7) {
+                byte b = read();
+                value |= (b & 0x7F) << shift;
+                if (b >= 0)
+                    return value;
+            }
+        }
+
+        private Statement statement() {
+            byte tag = read();
+            return switch (tag) {
+                case COMPOUND -> {
+                    Statement[] statements = new Statement[readUnsigned()];
+                    for (int i = 0; i < statements.length; i++)
+                        statements[i] = statement();
+                    yield new CompoundStatement(List.of(statements));
+                }
+                case CONDITIONAL -> new ConditionalStatement(expression(), statement());
+                case DECLARATION -> new DeclarationStatement(tokens[readUnsigned()], expression());
+                case EMPTY -> EmptyStatement.emptyStatement;
+                case EXPRESSION -> new ExpressionStatement(expression());
+                case LOOP -> new LoopStatement(expression(), statement());
+                case RETURN -> new ReturnStatement(expression());
+                default -> throw new IllegalStateException("Unknown statement tag " + tag + " at " + (index - 1));
+            };
+        }
+
+        private Expression expression() {
+            byte tag = read();
+            return switch (tag) {
+                case BINARY -> new BinaryOperationExpression(BINARY_TYPES[read()], expression(), expression());
+                case ENCLOSED -> new EnclosedExpression(expression());
+                case CALL -> {
+                    Token identifier = tokens[readUnsigned()];
+                    Expression[] arguments = new Expression[readUnsigned()];
+                    for (int i = 0; i < arguments.length; i++)
+                        arguments[i] = expression();
+                    yield new FunctionCallExpression(identifier, List.of(arguments));
+                }
+                case IDENTIFIER -> new IdentifierExpression(tokens[readUnsigned()]);
+                case LITERAL -> new LiteralExpression(tokens[readUnsigned()]);
+                case UNARY -> new UnaryOperationExpression(UNARY_TYPES[read()], expression());
+                default -> throw new IllegalStateException("Unknown expression tag " + tag + " at " + (index - 1));
+            };
+        }
+    }
+}
@@ -0,0 +1,4 @@
+/**
+ * This package contains a compact binary format for parsed programs, and a cache of compiled programs on disk that is keyed by the hash of their source
+ */
+package com.moefrumkin.droplet.parser.binary;
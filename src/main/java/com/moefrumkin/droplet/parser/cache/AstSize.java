@@ -0,0 +1,129 @@
+package com.moefrumkin.droplet.parser.cache;
+
+import com.moefrumkin.droplet.parser.SyntaxTree;
+import com.moefrumkin.droplet.parser.expression.*;
+import com.moefrumkin.droplet.parser.function.Function;
+import com.moefrumkin.droplet.parser.function.FunctionList;
+import com.moefrumkin.droplet.parser.statement.*;
+import com.moefrumkin.droplet.token.Token;
+import com.moefrumkin.droplet.token.Type;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Estimates the number of bytes of heap a syntax tree takes, assuming a 64 bit JVM with compressed references: a 12 byte object header, 4 byte references and objects aligned to 8 bytes.
+ * Every node and list is counted once however often it is shared, and tokens that are shared by the lexer, such as keywords and operators, are not counted at all
+ */
+public final class AstSize {
+
+    private static final int HEADER = 12;
+    private static final int REFERENCE = 4;
+    private static final int ARRAY_HEADER = 16;
+
+    private final Set<Object> counted = Collections.newSetFromMap(new IdentityHashMap<>());
+    private long bytes;
+
+    private AstSize() {}
+
+    /**
+     * Estimates the size of a syntax tree
+     * @param tree the tree
+     * @return the estimated number of bytes
+     */
+    public static long estimate(SyntaxTree tree) {
+        AstSize size = new AstSize();
+        size.tree(tree);
+        return size.bytes;
+    }
+
+    /**
+     * Estimates the size of an object with the given number of reference and int fields
+     */
+    private static long object(int fields) {
+        return align(HEADER + (long) fields * REFERENCE);
+    }
+
+    private static long align(long size) {
+        return (size + 7) & ~7L;
+    }
+
+    private boolean first(Object node) {
+        return counted.add(node);
+    }
+
+    private void list(List<?> list) {
+        if (first(list))
+            bytes += object(3) + align(ARRAY_HEADER + (long) list.size() * REFERENCE);
+    }
+
+    private void token(Token token) {
+        //tokens of identifiers and literals own a string, other tokens are shared
+        if ((token.matches(Type.IDENTIFIER) || token.matches(Type.LITERAL)) && first(token))
+            bytes += object(2) + object(3) + align(ARRAY_HEADER + token.getData().length());
+    }
+
+    private void tree(SyntaxTree tree) {
+        if (!first(tree))
+            return;
+        if (tree instanceof FunctionList functions) {
+            bytes += object(1);
+            list(functions.functions());
+            functions.functions().forEach(this::tree);
+        } else if (tree instanceof Function function) {
+            bytes += object(3);
+            token(function.name());
+            list(function.parameters());
+            function.parameters().forEach(this::token);
+            tree(function.body());
+        } else if (tree instanceof CompoundStatement compound) {
+            bytes += object(1);
+            list(compound.statements());
+            compound.statements().forEach(this::tree);
+        } else if (tree instanceof ConditionalStatement conditional) {
+            bytes += object(2);
+            tree(conditional.condition());
+            tree(conditional.consequence());
+        } else if (tree instanceof DeclarationStatement declaration) {
+            bytes += object(2);
+            token(declaration.identifier());
+            tree(declaration.value());
+        } else if (tree instanceof ExpressionStatement expression) {
+            bytes += object(1);
+            tree(expression.expression());
+        } else if (tree instanceof LoopStatement loop) {
+            bytes += object(2);
+            tree(loop.condition());
+            tree(loop.body());
+        } else if (tree instanceof ReturnStatement returnStatement) {
+            bytes += object(1);
+            tree(returnStatement.expression());
+        } else if (tree instanceof BinaryOperationExpression binary) {
+            bytes += object(3);
+            tree(binary.left());
+            tree(binary.right());
+        } else if (tree instanceof UnaryOperationExpression unary) {
+            bytes += object(2);
+            tree(unary.operand());
+        } else if (tree instanceof EnclosedExpression enclosed) {
+            bytes += object(1);
+            tree(enclosed.expression());
+        } else if (tree instanceof FunctionCallExpression call) {
+            bytes += object(2);
+            token(call.identifier());
+            list(call.arguments());
+            call.arguments().forEach(this::tree);
+        } else if (tree instanceof IdentifierExpression identifier) {
+            bytes += object(1);
+            token(identifier.identifier());
+        } else if (tree instanceof LiteralExpression literal) {
+            bytes += object(1);
+            token(literal.literal());
+        } else if (!(tree instanceof EmptyStatement)) {
+            //a node this estimate does not know, such as a body that has not been decoded yet
+            bytes += object(1);
+        }
+    }
+}
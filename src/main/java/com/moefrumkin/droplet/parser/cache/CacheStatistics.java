@@ -0,0 +1,20 @@
+package com.moefrumkin.droplet.parser.cache;
+
+/**
+ * A record class that represents a snapshot of the statistics of a {@link ProgramMemoryCache}
+ * @param hits the number of programs that were found in the cache
+ * @param misses the number of programs that had to be parsed
+ * @param evictions the number of programs that were removed to keep the cache within its bounds
+ * @param entries the number of programs in the cache
+ * @param bytes the estimated number of bytes the syntax trees of the programs in the cache take
+ */
+public record CacheStatistics(long hits, long misses, long evictions, int entries, long bytes) {
+
+    /**
+     * @return the fraction of requests that were found in the cache, or 0 if there have been no requests
+     */
+    public double hitRate() {
+        long requests = hits + misses;
+        return requests == 0 ? 0 : hits / (double) requests;
+    }
+}
@@ -0,0 +1,206 @@
+package com.moefrumkin.droplet.parser.cache;
+
+import com.moefrumkin.droplet.parser.SyntaxTree;
+import com.moefrumkin.droplet.parser.expression.*;
+import com.moefrumkin.droplet.parser.function.Function;
+import com.moefrumkin.droplet.parser.function.FunctionList;
+import com.moefrumkin.droplet.parser.statement.*;
+import com.moefrumkin.droplet.parser.symbol.SymbolTable;
+import com.moefrumkin.droplet.token.Token;
+import com.moefrumkin.droplet.token.Type;
+
+import java.util.*;
+import java.util.function.Supplier;
+
+/**
+ * Replaces structurally equal expressions, statements and tokens with a single shared instance. Syntax trees are immutable, so a shared node means the same thing everywhere it is used,
+ * and since equal nodes are then the same object, a shared node can be the key of an identity based cache of anything computed from it.
+ * <p>
+ * A tree is shared from the leaves up, so the children of a node are already shared when the node is looked up. Nodes are then looked up by their kind and the identity of their parts,
+ * which takes constant time however deep the node is, rather than with the structural {@code equals} and {@code hashCode} of the records, which walk the whole subtree.
+ * <p>
+ * One instance can share nodes across many programs. Identifiers are shared through the instance's own {@link SymbolTable}, so an identifier has the same id in every tree it shares.
+ * Bodies that are parsed or decoded when they are first used are left as they are rather than being parsed early, and keep the ids of the table they are parsed with.
+ * Instances are not thread safe
+ */
+public final class HashConsing {
+
+    private final Map<Key, SyntaxTree> nodes = new HashMap<>();
+    private final Map<Token, Token> tokens = new HashMap<>();
+    private final SymbolTable symbols = new SymbolTable();
+    private long shared;
+
+    /**
+     * Creates an empty table of shared nodes
+     */
+    public HashConsing() {}
+
+    /**
+     * Shares the nodes of a tree with each other and with the trees this instance has seen before
+     * @param tree the tree
+     * @param <T> the type of the tree
+     * @return an equal tree made of shared nodes
+     */
+    @SuppressWarnings("unchecked")
+    public <T extends SyntaxTree> T share(T tree) {
+        return (T) tree(tree);
+    }
+
+    /**
+     * Estimates the bytes saved by sharing a tree
+     * @param original the tree before it was shared
+     * @param shared the tree after it was shared
+     * @return the estimated number of bytes of the original tree that the shared tree does not need, as estimated by {@link AstSize}
+     */
+    public static long bytesSaved(SyntaxTree original, SyntaxTree shared) {
+        return AstSize.estimate(original) - AstSize.estimate(shared);
+    }
+
+    /**
+     * @return the table of the identifiers of the shared trees
+     */
+    public SymbolTable symbols() {
+        return symbols;
+    }
+
+    /**
+     * @return the number of distinct nodes in the table
+     */
+    public int size() {
+        return nodes.size();
+    }
+
+    /**
+     * @return the number of nodes that were replaced by a node that was already in the table
+     */
+    public long shared() {
+        return shared;
+    }
+
+    /**
+     * The kind of a node and its parts. Parts are already shared, so they are compared by identity
+     */
+    private static final class Key {
+        private final Class<?> kind;
+        private final Object[] parts;
+        private final int hash;
+
+        private Key(Class<?> kind, Object[] parts) {
+            this.kind = kind;
+            this.parts = parts;
+            int hash = kind.hashCode();
+            for (Object part : parts)
+                hash = 31 * hash + System.identityHashCode(part);
+            this.hash = hash;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key other) || other.kind != kind || other.parts.length != parts.length)
+                return false;
+            for (int i = 0; i < parts.length; i++)
+                if (other.parts[i] != parts[i])
+                    return false;
+            return true;
+        }
+    }
+
+    /**
+     * Looks up a node, adding it to the table if there is no equal node
+     * @param kind the class of the node
+     * @param node creates the node from its parts, and is only called if there is no equal node
+     * @param parts the shared parts of the node
+     * @return the shared node
+     */
+    private SyntaxTree intern(Class<?> kind, Supplier<SyntaxTree> node, Object... parts) {
+        Key key = new Key(kind, parts);
+        SyntaxTree existing = nodes.get(key);
+        if (existing != null) {
+            shared++;
+            return existing;
+        }
+        SyntaxTree created = node.get();
+        nodes.put(key, created);
+        return created;
+    }
+
+    private Token token(Token token) {
+        if (token.matches(Type.IDENTIFIER))
+            return symbols.intern(token);
+        Token existing = tokens.putIfAbsent(token, token);
+        return existing == null ? token : existing;
+    }
+
+    private <T> Object[] parts(List<T> list, java.util.function.Function<T, Object> share) {
+        Object[] parts = new Object[list.size()];
+        for (int i = 0; i < parts.length; i++)
+            parts[i] = share.apply(list.get(i));
+        return parts;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> List<T> list(Object[] parts) {
+        return (List<T>) List.of(parts);
+    }
+
+    private SyntaxTree tree(SyntaxTree tree) {
+        if (tree instanceof FunctionList functions) {
+            Object[] parts = parts(functions.functions(), this::tree);
+            return new FunctionList(list(parts));
+        } else if (tree instanceof Function function) {
+            Token name = token(function.name());
+            Object[] parameters = parts(function.parameters(), this::token);
+            return new Function(name, list(parameters), (Statement) tree(function.body()));
+        } else if (tree instanceof CompoundStatement compound) {
+            Object[] parts = parts(compound.statements(), this::tree);
+            return intern(CompoundStatement.class, () -> new CompoundStatement(list(parts)), parts);
+        } else if (tree instanceof ConditionalStatement conditional) {
+            Expression condition = (Expression) tree(conditional.condition());
+            Statement consequence = (Statement) tree(conditional.consequence());
+            return intern(ConditionalStatement.class, () -> new ConditionalStatement(condition, consequence), condition, consequence);
+        } else if (tree instanceof DeclarationStatement declaration) {
+            Token identifier = token(declaration.identifier());
+            Expression value = (Expression) tree(declaration.value());
+            return intern(DeclarationStatement.class, () -> new DeclarationStatement(identifier, value), identifier, value);
+        } else if (tree instanceof ExpressionStatement expression) {
+            Expression child = (Expression) tree(expression.expression());
+            return intern(ExpressionStatement.class, () -> new ExpressionStatement(child), child);
+        } else if (tree instanceof LoopStatement loop) {
+            Expression condition = (Expression) tree(loop.condition());
+            Statement body = (Statement) tree(loop.body());
+            return intern(LoopStatement.class, () -> new LoopStatement(condition, body), condition, body);
+        } else if (tree instanceof ReturnStatement returnStatement) {
+            Expression expression = (Expression) tree(returnStatement.expression());
+            return intern(ReturnStatement.class, () -> new ReturnStatement(expression), expression);
+        } else if (tree instanceof BinaryOperationExpression binary) {
+            Expression left = (Expression) tree(binary.left());
+            Expression right = (Expression) tree(binary.right());
+            return intern(BinaryOperationExpression.class, () -> new BinaryOperationExpression(binary.type(), left, right), binary.type(), left, right);
+        } else if (tree instanceof UnaryOperationExpression unary) {
+            Expression operand = (Expression) tree(unary.operand());
+            return intern(UnaryOperationExpression.class, () -> new UnaryOperationExpression(unary.type(), operand), unary.type(), operand);
+        } else if (tree instanceof EnclosedExpression enclosed) {
+            Expression expression = (Expression) tree(enclosed.expression());
+            return intern(EnclosedExpression.class, () -> new EnclosedExpression(expression), expression);
+        } else if (tree instanceof FunctionCallExpression call) {
+            Token identifier = token(call.identifier());
+            Object[] arguments = parts(call.arguments(), this::tree);
+            Object[] parts = Arrays.copyOf(arguments, arguments.length + 1);
+            parts[arguments.length] = identifier;
+            return intern(FunctionCallExpression.class, () -> new FunctionCallExpression(identifier, list(arguments)), parts);
+        } else if (tree instanceof IdentifierExpression identifier) {
+            Token token = token(identifier.identifier());
+            return intern(IdentifierExpression.class, () -> new IdentifierExpression(token), token);
+        } else if (tree instanceof LiteralExpression literal) {
+            Token token = token(literal.literal());
+            return intern(LiteralExpression.class, () -> new LiteralExpression(token), token);
+        }
+        //empty statements are already shared, and lazy bodies are left for when they are used
+        return tree;
+    }
+}
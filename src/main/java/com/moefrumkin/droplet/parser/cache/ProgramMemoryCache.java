@@ -0,0 +1,112 @@
+package com.moefrumkin.droplet.parser.cache;
+
+import com.moefrumkin.droplet.parser.Parser;
+import com.moefrumkin.droplet.parser.binary.ProgramCache;
+import com.moefrumkin.droplet.parser.exception.UnexpectedTokenException;
+import com.moefrumkin.droplet.parser.exception.UnexpectedTokenTypeException;
+import com.moefrumkin.droplet.parser.function.FunctionList;
+import com.moefrumkin.droplet.token.Lexer;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A thread safe in-memory cache of parsed programs, keyed by the SHA-256 hash of their source, which evicts the least recently used program.
+ * The cache is bounded both by the number of programs and by the estimated size of their syntax trees from {@link AstSize}. A program that is larger than the whole cache is parsed but not kept.
+ * <p>
+ * Syntax trees are never changed once they are parsed, and interpreters keep all of their state in their own stack frames, so a cached program can be run by any number of interpreters at the same time.
+ * Parsing happens outside of the lock, so two threads that miss on the same source at the same time both parse it and the first one to finish is kept
+ */
+public class ProgramMemoryCache {
+
+    /**
+     * A cached program with its estimated size
+     */
+    private record Entry(FunctionList program, long bytes) {}
+
+    private final int maximumEntries;
+    private final long maximumBytes;
+    private final LinkedHashMap<String, Entry> entries;
+    private long bytes;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    /**
+     * Creates an empty cache
+     * @param maximumEntries the largest number of programs to keep
+     * @param maximumBytes the largest estimated number of bytes of syntax trees to keep
+     */
+    public ProgramMemoryCache(int maximumEntries, long maximumBytes) {
+        if (maximumEntries < 0 || maximumBytes < 0)
+            throw new IllegalArgumentException("The bounds of a cache cannot be negative");
+        this.maximumEntries = maximumEntries;
+        this.maximumBytes = maximumBytes;
+        //access order makes the first entry the least recently used one
+        this.entries = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    /**
+     * Gets the parsed program of a source, parsing it and adding it to the cache if it is not in the cache
+     * @param source the source of the program
+     * @return the program, which must not be changed
+     * @throws UnexpectedTokenTypeException if a token is not matched
+     * @throws UnexpectedTokenException if a token is not matched
+     */
+    public FunctionList compile(String source) throws UnexpectedTokenTypeException, UnexpectedTokenException {
+        String key = ProgramCache.hash(source);
+
+        synchronized (this) {
+            Entry entry = entries.get(key);
+            if (entry != null) {
+                hits++;
+                return entry.program();
+            }
+            misses++;
+        }
+
+        FunctionList program = (FunctionList) new Parser(Lexer.SCANNER.tokenize(source)).parse();
+        long size = AstSize.estimate(program);
+
+        synchronized (this) {
+            Entry existing = entries.get(key);
+            if (existing != null)
+                return existing.program();
+            if (size <= maximumBytes && maximumEntries > 0) {
+                entries.put(key, new Entry(program, size));
+                bytes += size;
+                evict();
+            }
+        }
+        return program;
+    }
+
+    /**
+     * Removes least recently used programs until the cache is within its bounds
+     */
+    private void evict() {
+        Iterator<Entry> eldest = entries.values().iterator();
+        while (entries.size() > maximumEntries || bytes > maximumBytes) {
+            Entry entry = eldest.next();
+            eldest.remove();
+            bytes -= entry.bytes();
+            evictions++;
+        }
+    }
+
+    /**
+     * Removes every program from the cache. The statistics are kept
+     */
+    public synchronized void clear() {
+        entries.clear();
+        bytes = 0;
+    }
+
+    /**
+     * @return a snapshot of the statistics of the cache
+     */
+    public synchronized CacheStatistics statistics() {
+        return new CacheStatistics(hits, misses, evictions, entries.size(), bytes);
+    }
+}
@@ -0,0 +1,5 @@
+/**
+ * This package contains an in-memory cache of parsed programs that can be shared between threads and interpreters, the estimate of the memory a syntax tree takes that bounds it,
+ * and the sharing of equal nodes between trees
+ */
+package com.moefrumkin.droplet.parser.cache;
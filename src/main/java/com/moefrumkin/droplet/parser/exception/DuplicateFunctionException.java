@@ -0,0 +1,45 @@
+package com.moefrumkin.droplet.parser.exception;
+
+/**
+ * An exception thrown when a program is linked with modules and two of them define a function with the same name
+ */
+public class DuplicateFunctionException extends Exception {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The name of the function
+     */
+    private final String function;
+    /**
+     * The module that defined the function first
+     */
+    private final String first;
+    /**
+     * The module that defined the function again
+     */
+    private final String second;
+
+    /**
+     * Creates a new exception
+     * @param function the name of the function
+     * @param first the name of the module that defined the function first
+     * @param second the name of the module that defined the function again, which is the same as the first if a module defines a function twice
+     */
+    public DuplicateFunctionException(String function, String first, String second) {
+        this.function = function;
+        this.first = first;
+        this.second = second;
+    }
+
+    /**
+     * Gets the name of the function that is defined twice
+     * @return the name
+     */
+    public String getFunction() { return function; }
+
+    @Override
+    public String getMessage() {
+        return "The function " + function + " is defined by " + first + " and " + (first.equals(second) ? "again by " + second : second);
+    }
+}
@@ -0,0 +1,29 @@
+package com.moefrumkin.droplet.parser.exception;
+
+/**
+ * An exception thrown when the body of a lazily parsed function fails to parse the first time it is used. The cause is the {@link UnexpectedTokenException} or {@link UnexpectedTokenTypeException} of the parse
+ */
+public class LazyParseException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The name of the function whose body failed to parse
+     */
+    private final String function;
+
+    /**
+     * Creates a new exception
+     * @param function the name of the function
+     * @param cause the exception thrown by the parser
+     */
+    public LazyParseException(String function, Exception cause) {
+        super(cause);
+        this.function = function;
+    }
+
+    @Override
+    public String getMessage() {
+        return "The body of " + function + " could not be parsed: " + getCause().getMessage();
+    }
+}
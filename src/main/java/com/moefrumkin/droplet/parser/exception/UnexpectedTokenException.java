@@ -1,8 +1,11 @@
 package com.moefrumkin.droplet.parser.exception;
 
+import com.moefrumkin.droplet.token.Position;
 import com.moefrumkin.droplet.token.Token;
 import com.moefrumkin.droplet.token.Type;
 
+import java.util.Optional;
+
 /**
  * An exception thrown when the parser has seen a token that does not match the type or data expected
  */
@@ -20,6 +23,10 @@ public class UnexpectedTokenException extends Exception {
      * The expected data
      */
     private final String expectedData;
+    /**
+     * The position of the given token, if it is known
+     */
+    private final Position position;
 
     /**
      * Creates a new exception with the given token, type and data
@@ -28,9 +35,21 @@ public class UnexpectedTokenException extends Exception {
      * @param expectedData the expected data of the token
      */
     public UnexpectedTokenException(Token given, Type expectedType, String expectedData) {
+        this(given, expectedType, expectedData, null);
+    }
+
+    /**
+     * Creates a new exception with the given token, type, data and position
+     * @param given the token that caused the exception
+     * @param expectedType the expected type of the token
+     * @param expectedData the expected data of the token
+     * @param position the position of the token in the source, or null if it is not known
+     */
+    public UnexpectedTokenException(Token given, Type expectedType, String expectedData, Position position) {
         this.given = given ;
         this.expectedType = expectedType;
         this.expectedData = expectedData;
+        this.position = position;
     }
 
     /**
@@ -51,8 +70,14 @@ public class UnexpectedTokenException extends Exception {
      */
     public String getExpectedData() { return expectedData; }
 
+    /**
+     * Gets the position of the token that caused the error
+     * @return the position, or empty if it is not known
+     */
+    public Optional<Position> getPosition() { return Optional.ofNullable(position); }
+
     @Override
     public String getMessage() {
-        return "Expected token of type " + expectedType + " with data " + expectedData + ", given " + given;
+        return "Expected token of type " + expectedType + " with data " + expectedData + ", given " + given + (position == null ? "" : " at " + position);
     }
 }
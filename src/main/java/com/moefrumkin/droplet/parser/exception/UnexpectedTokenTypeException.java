@@ -1,8 +1,11 @@
 package com.moefrumkin.droplet.parser.exception;
 
+import com.moefrumkin.droplet.token.Position;
 import com.moefrumkin.droplet.token.Token;
 import com.moefrumkin.droplet.token.Type;
 
+import java.util.Optional;
+
 /**
  * This exception is thrown when the parser expected one type of token be received a different one
  */
@@ -16,6 +19,10 @@ public class UnexpectedTokenTypeException extends Exception {
      * The expected type
      */
     private final Type expectedType;
+    /**
+     * The position of the given token, if it is known
+     */
+    private final Position position;
 
     /**
      * Creates an exception with the given token and type
@@ -23,8 +30,19 @@ public class UnexpectedTokenTypeException extends Exception {
      * @param expectedType the expected type of the token
      */
     public UnexpectedTokenTypeException(Token given, Type expectedType) {
+        this(given, expectedType, null);
+    }
+
+    /**
+     * Creates an exception with the given token, type and position
+     * @param given the token that caused the exception
+     * @param expectedType the expected type of the token
+     * @param position the position of the token in the source, or null if it is not known
+     */
+    public UnexpectedTokenTypeException(Token given, Type expectedType, Position position) {
         this.given = given;
         this.expectedType = expectedType;
+        this.position = position;
     }
 
     /**
@@ -39,8 +57,14 @@ public class UnexpectedTokenTypeException extends Exception {
      */
     public Type getExpectedType() { return expectedType; }
 
+    /**
+     * Gets the position of the token that caused the exception
+     * @return the position, or empty if it is not known
+     */
+    public Optional<Position> getPosition() { return Optional.ofNullable(position); }
+
     @Override
     public String getMessage() {
-        return "Expected token of type " + expectedType + ", given " + given;
+        return "Expected token of type " + expectedType + ", given " + given + (position == null ? "" : " at " + position);
     }
 }
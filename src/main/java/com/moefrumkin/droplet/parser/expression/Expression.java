@@ -63,13 +63,25 @@ public interface Expression extends SyntaxTree {
 
     /**
      * This function parses an expression.
-     * The grammar of droplet expressions is ambiguous, so the <a href="https://en.wikipedia.org/wiki/Shunting-yard_algorithm"> Shunting-yard algorithm </a> is used to determine the order of operations.
+     * The grammar of droplet expressions is ambiguous, so the order of operations is determined by precedence climbing with an {@link ExpressionParser}.
      *
      * @param parser The parser to parse
      * @return The expression produced
      * @throws UnexpectedTokenTypeException If a token has an unexpected type
      * @throws UnexpectedTokenException     If a token is unexpected*/
     static Expression parse(Parser parser) throws UnexpectedTokenTypeException, UnexpectedTokenException {
+        return ExpressionParser.parse(parser);
+    }
+
+    /**
+     * This function parses an expression with the <a href="https://en.wikipedia.org/wiki/Shunting-yard_algorithm"> Shunting-yard algorithm </a>, which was used before the {@link ExpressionParser}.
+     * It is kept to compare the two. It rewrites a minus sign that follows an operator to {@code ~} in the parser's tokens, and operators of equal precedence associate to the right
+     *
+     * @param parser The parser to parse
+     * @return The expression produced
+     * @throws UnexpectedTokenTypeException If a token has an unexpected type
+     * @throws UnexpectedTokenException     If a token is unexpected*/
+    static Expression parseShuntingYard(Parser parser) throws UnexpectedTokenTypeException, UnexpectedTokenException {
         //initialize stacks for shunting yard algorithm
         Deque<Expression> dataStack = new ArrayDeque<>();
         Deque<Token> operatorStack = new ArrayDeque<>();
@@ -78,7 +90,7 @@ public interface Expression extends SyntaxTree {
 
         //if the first token is a negation
         if (parser.currentToken().getData().equals("-"))
-            parser.replaceTokenAtOffset(0, new Token(Type.OPERATOR, "~"));
+            parser.replaceTokenAtOffset(0, Token.of(Type.OPERATOR, "~"));
 
         while (parsing) {
             //switch depending on current token
@@ -90,7 +102,7 @@ public interface Expression extends SyntaxTree {
                 case OPERATOR:
                     //check for negation
                     if (parser.tokenAtOffset(1).matches(Type.OPERATOR))
-                        parser.replaceTokenAtOffset(1, new Token(Type.OPERATOR, "~"));
+                        parser.replaceTokenAtOffset(1, Token.of(Type.OPERATOR, "~"));
                     //switch depending on precedence
                     //check if operator stack is empty
                     if (operatorStack.isEmpty()) {
@@ -121,7 +133,7 @@ public interface Expression extends SyntaxTree {
                         parser.match(Type.SPECIAL, "(");
                         List<Expression> arguments = new ArrayList<>();
                         while (!parser.currentToken().matches(Type.SPECIAL, ")")) {
-                            arguments.add(Expression.parse(parser));
+                            arguments.add(Expression.parseShuntingYard(parser));
                             // require a comma unless the current parameter is the final one in the list
                             if (!parser.currentToken().matches(Type.SPECIAL, ")")) {
                                 parser.match(Type.SPECIAL, ",");
@@ -139,7 +151,7 @@ public interface Expression extends SyntaxTree {
                 case SPECIAL:
                     if (current.getData().equals("(")) {
                         parser.incrementIndex();
-                        dataStack.push(new EnclosedExpression(Expression.parse(parser)));
+                        dataStack.push(new EnclosedExpression(Expression.parseShuntingYard(parser)));
                         parser.match(Type.SPECIAL, ")");
                         break;
                     }
@@ -0,0 +1,319 @@
+package com.moefrumkin.droplet.parser.expression;
+
+import com.moefrumkin.droplet.parser.Parser;
+import com.moefrumkin.droplet.parser.exception.UnexpectedTokenException;
+import com.moefrumkin.droplet.parser.exception.UnexpectedTokenTypeException;
+import com.moefrumkin.droplet.token.Token;
+import com.moefrumkin.droplet.token.Type;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A <a href="https://en.wikipedia.org/wiki/Operator-precedence_parser#Precedence_climbing_method">precedence climbing</a> (Pratt) parser for expressions.
+ * The precedence of every operation is kept in a table indexed by the ordinal of its {@link BinaryOperationExpression.Type}, and operators are recognized from their characters, so no map is consulted while parsing.
+ * {@link #parse(Parser)} pushes nothing onto an explicit stack and no token is rewritten: a minus sign is a negation when it starts an operand and a subtraction when it follows one.
+ * For the same reason, a literal such as {@code -1} that directly follows an operand is read as a subtraction of {@code 1}.
+ * <p>
+ * Precedences are the levels of C, where a lower number binds more tightly. Every binary operation is left associative except assignment, and unary operations bind more tightly than any binary operation, so their operand contains no binary operation
+ */
+public final class ExpressionParser {
+
+    private static final BinaryOperationExpression.Type[] BINARY_TYPES = BinaryOperationExpression.Type.values();
+
+    /**
+     * The precedence of every binary operation, indexed by ordinal
+     */
+    private static final int[] PRECEDENCE = new int[BINARY_TYPES.length];
+
+    /**
+     * Whether every binary operation is right associative, indexed by ordinal
+     */
+    private static final boolean[] RIGHT_ASSOCIATIVE = new boolean[BINARY_TYPES.length];
+
+    /**
+     * A precedence looser than every operation, so that a whole expression is parsed
+     */
+    private static final int LOOSEST = Integer.MAX_VALUE;
+
+    static {
+        for (BinaryOperationExpression.Type type : BINARY_TYPES) {
+            PRECEDENCE[type.ordinal()] = switch (type) {
+                case MULTIPLICATION -> 3;
+                case ADDITION, SUBTRACTION -> 4;
+                case LESS, GREATER -> 6;
+                case EQUALS, NOTEQUALS -> 7;
+                case AND -> 11;
+                case OR -> 12;
+                case ASSIGNMENT -> 14;
+            };
+            RIGHT_ASSOCIATIVE[type.ordinal()] = type == BinaryOperationExpression.Type.ASSIGNMENT;
+        }
+    }
+
+    private ExpressionParser() {}
+
+    /**
+     * Parses an expression, leaving the parser at the first token after it
+     * @param parser the parser
+     * @return the expression
+     * @throws UnexpectedTokenTypeException if a token has an unexpected type
+     * @throws UnexpectedTokenException if a token is unexpected
+     */
+    public static Expression parse(Parser parser) throws UnexpectedTokenTypeException, UnexpectedTokenException {
+        return parse(parser, LOOSEST);
+    }
+
+    /**
+     * Parses an expression whose binary operations all have a precedence of at most the limit
+     */
+    private static Expression parse(Parser parser, int limit) throws UnexpectedTokenTypeException, UnexpectedTokenException {
+        return climb(parser, operand(parser), limit);
+    }
+
+    /**
+     * Extends the left operand with binary operations while their precedence is at most the limit
+     */
+    private static Expression climb(Parser parser, Expression left, int limit) throws UnexpectedTokenTypeException, UnexpectedTokenException {
+        while (true) {
+            Token current = parser.currentToken();
+            BinaryOperationExpression.Type type;
+            boolean negativeLiteral = false;
+
+            if (current.matches(Type.OPERATOR)) {
+                type = binaryType(current.getData());
+                if (type == null)
+                    return left;
+            } else if (current.matches(Type.LITERAL) && current.getData().charAt(0) == '-') {
+                //the lexer reads "n -1" as an identifier and a literal
+                type = BinaryOperationExpression.Type.SUBTRACTION;
+                negativeLiteral = true;
+            } else {
+                return left;
+            }
+
+            int precedence = PRECEDENCE[type.ordinal()];
+            if (precedence > limit)
+                return left;
+            parser.incrementIndex();
+
+            int rightLimit = RIGHT_ASSOCIATIVE[type.ordinal()] ? precedence : precedence - 1;
+            Expression right = negativeLiteral
+                    ? climb(parser, new LiteralExpression(Token.of(Type.LITERAL, current.getData().substring(1))), rightLimit)
+                    : parse(parser, rightLimit);
+            left = new BinaryOperationExpression(type, left, right);
+        }
+    }
+
+    /**
+     * Parses an operand of a binary operation, which is a unary operation or a primary expression
+     */
+    private static Expression operand(Parser parser) throws UnexpectedTokenTypeException, UnexpectedTokenException {
+        Token current = parser.currentToken();
+        switch (current.getType()) {
+            case OPERATOR -> {
+                UnaryOperationExpression.Type type = unaryType(current.getData());
+                if (type == null)
+                    break;
+                parser.incrementIndex();
+                return new UnaryOperationExpression(type, operand(parser));
+            }
+            case LITERAL -> {
+                return new LiteralExpression(parser.match(Type.LITERAL));
+            }
+            case IDENTIFIER -> {
+                Token identifier = parser.match(Type.IDENTIFIER);
+                if (!parser.currentToken().matches(Type.SPECIAL, "("))
+                    return new IdentifierExpression(identifier);
+
+                parser.match(Type.SPECIAL, "(");
+                List<Expression> arguments = new ArrayList<>();
+                while (!parser.currentToken().matches(Type.SPECIAL, ")")) {
+                    arguments.add(parse(parser));
+                    // require a comma unless the current parameter is the final one in the list
+                    if (!parser.currentToken().matches(Type.SPECIAL, ")"))
+                        parser.match(Type.SPECIAL, ",");
+                }
+                parser.match(Type.SPECIAL, ")");
+                return new FunctionCallExpression(identifier, arguments);
+            }
+            case SPECIAL -> {
+                if (current.getData().equals("(")) {
+                    parser.incrementIndex();
+                    Expression enclosed = parse(parser);
+                    parser.match(Type.SPECIAL, ")");
+                    return new EnclosedExpression(enclosed);
+                }
+            }
+        }
+        //nothing else can start an operand, so report that an identifier was expected
+        throw new UnexpectedTokenTypeException(current, Type.IDENTIFIER, parser.currentPosition().orElse(null));
+    }
+
+    /**
+     * Parses an expression like {@link #parse(Parser)}, but keeps the operations, parentheses and calls that are still open on explicit stacks rather than on the call stack,
+     * so any depth of nesting only costs heap. The expression and the errors are the same as those of {@link #parse(Parser)}.
+     * <p>
+     * This is the <a href="https://en.wikipedia.org/wiki/Shunting_yard_algorithm">shunting-yard algorithm</a> with the precedences of the precedence climbing parser: an operation
+     * waits on the stack until an operation that binds less tightly, or the end of the expression, shows that its right operand is complete
+     * @param parser the parser
+     * @return the expression
+     * @throws UnexpectedTokenTypeException if a token has an unexpected type
+     * @throws UnexpectedTokenException if a token is unexpected
+     */
+    public static Expression parseIteratively(Parser parser) throws UnexpectedTokenTypeException, UnexpectedTokenException {
+        List<Expression> operands = new ArrayList<>();
+        List<Open> open = new ArrayList<>();
+        Expression operand;
+
+        while (true) {
+            //read an operand, or open a unary operation, a parenthesis or a call and read its operand next
+            Token current = parser.currentToken();
+            switch (current.getType()) {
+                case OPERATOR -> {
+                    UnaryOperationExpression.Type type = unaryType(current.getData());
+                    if (type == null)
+                        throw new UnexpectedTokenTypeException(current, Type.IDENTIFIER, parser.currentPosition().orElse(null));
+                    parser.incrementIndex();
+                    open.add(Open.UNARY[type.ordinal()]);
+                    continue;
+                }
+                case LITERAL -> operand = new LiteralExpression(parser.match(Type.LITERAL));
+                case IDENTIFIER -> {
+                    Token identifier = parser.match(Type.IDENTIFIER);
+                    if (!parser.currentToken().matches(Type.SPECIAL, "(")) {
+                        operand = new IdentifierExpression(identifier);
+                    } else {
+                        parser.match(Type.SPECIAL, "(");
+                        if (!parser.currentToken().matches(Type.SPECIAL, ")")) {
+                            open.add(new Open(null, null, identifier, new ArrayList<>()));
+                            continue;
+                        }
+                        parser.match(Type.SPECIAL, ")");
+                        operand = new FunctionCallExpression(identifier, new ArrayList<>());
+                    }
+                }
+                case SPECIAL -> {
+                    if (!current.getData().equals("("))
+                        throw new UnexpectedTokenTypeException(current, Type.IDENTIFIER, parser.currentPosition().orElse(null));
+                    parser.incrementIndex();
+                    open.add(Open.PARENTHESIS);
+                    continue;
+                }
+                default -> throw new UnexpectedTokenTypeException(current, Type.IDENTIFIER, parser.currentPosition().orElse(null));
+            }
+
+            //the operand is complete, so extend it until an operand has to be read again
+            while (true) {
+                //unary operations only apply to the operand they precede
+                while (!open.isEmpty() && last(open).unary != null)
+                    operand = new UnaryOperationExpression(open.remove(open.size() - 1).unary, operand);
+
+                current = parser.currentToken();
+                BinaryOperationExpression.Type type = null;
+                boolean negativeLiteral = false;
+                if (current.matches(Type.OPERATOR)) {
+                    type = binaryType(current.getData());
+                } else if (current.matches(Type.LITERAL) && current.getData().charAt(0) == '-') {
+                    //the lexer reads "n -1" as an identifier and a literal
+                    type = BinaryOperationExpression.Type.SUBTRACTION;
+                    negativeLiteral = true;
+                }
+
+                if (type != null) {
+                    int precedence = PRECEDENCE[type.ordinal()];
+                    boolean rightAssociative = RIGHT_ASSOCIATIVE[type.ordinal()];
+                    //operations that bind at least as tightly have their right operand now
+                    while (!open.isEmpty() && last(open).binary != null) {
+                        int previous = PRECEDENCE[last(open).binary.ordinal()];
+                        if (previous > precedence || (previous == precedence && rightAssociative))
+                            break;
+                        operand = new BinaryOperationExpression(open.remove(open.size() - 1).binary, operands.remove(operands.size() - 1), operand);
+                    }
+                    parser.incrementIndex();
+                    operands.add(operand);
+                    open.add(Open.BINARY[type.ordinal()]);
+                    if (!negativeLiteral)
+                        break;
+                    operand = new LiteralExpression(Token.of(Type.LITERAL, current.getData().substring(1)));
+                    continue;
+                }
+
+                //the expression ends here, so every operation since the last parenthesis or call is complete
+                while (!open.isEmpty() && last(open).binary != null)
+                    operand = new BinaryOperationExpression(open.remove(open.size() - 1).binary, operands.remove(operands.size() - 1), operand);
+
+                if (open.isEmpty())
+                    return operand;
+
+                Open enclosing = last(open);
+                if (enclosing == Open.PARENTHESIS) {
+                    parser.match(Type.SPECIAL, ")");
+                    open.remove(open.size() - 1);
+                    operand = new EnclosedExpression(operand);
+                    continue;
+                }
+
+                enclosing.arguments.add(operand);
+                // require a comma unless the current parameter is the final one in the list
+                if (!parser.currentToken().matches(Type.SPECIAL, ")"))
+                    parser.match(Type.SPECIAL, ",");
+                if (!parser.currentToken().matches(Type.SPECIAL, ")"))
+                    break;
+                parser.match(Type.SPECIAL, ")");
+                open.remove(open.size() - 1);
+                operand = new FunctionCallExpression(enclosing.identifier, enclosing.arguments);
+            }
+        }
+    }
+
+    /**
+     * Something {@link #parseIteratively(Parser)} has started but not finished: a binary operation waiting for its right operand, a unary operation waiting for its operand, a parenthesis, or a call
+     */
+    private record Open(BinaryOperationExpression.Type binary, UnaryOperationExpression.Type unary, Token identifier, List<Expression> arguments) {
+        private static final Open PARENTHESIS = new Open(null, null, null, null);
+        private static final Open[] BINARY = Arrays.stream(BinaryOperationExpression.Type.values()).map(type -> new Open(type, null, null, null)).toArray(Open[]::new);
+        private static final Open[] UNARY = Arrays.stream(UnaryOperationExpression.Type.values()).map(type -> new Open(null, type, null, null)).toArray(Open[]::new);
+    }
+
+    private static <T> T last(List<T> list) {
+        return list.get(list.size() - 1);
+    }
+
+    /**
+     * Recognizes a binary operator from its characters
+     * @param operator the text of an operator token
+     * @return the type of the operation, or null if the operator is only unary
+     */
+    static BinaryOperationExpression.Type binaryType(String operator) {
+        boolean single = operator.length() == 1;
+        return switch (operator.charAt(0)) {
+            case '+' -> BinaryOperationExpression.Type.ADDITION;
+            case '-' -> BinaryOperationExpression.Type.SUBTRACTION;
+            case '*' -> BinaryOperationExpression.Type.MULTIPLICATION;
+            case '<' -> BinaryOperationExpression.Type.LESS;
+            case '>' -> BinaryOperationExpression.Type.GREATER;
+            case '=' -> single ? BinaryOperationExpression.Type.ASSIGNMENT : BinaryOperationExpression.Type.EQUALS;
+            case '!' -> single ? null : BinaryOperationExpression.Type.NOTEQUALS;
+            case '|' -> BinaryOperationExpression.Type.OR;
+            case '&' -> BinaryOperationExpression.Type.AND;
+            default -> null;
+        };
+    }
+
+    /**
+     * Recognizes a unary operator from its characters
+     * @param operator the text of an operator token
+     * @return the type of the operation, or null if the operator is only binary
+     */
+    static UnaryOperationExpression.Type unaryType(String operator) {
+        if (operator.length() != 1)
+            return null;
+        return switch (operator.charAt(0)) {
+            case '-', '~' -> UnaryOperationExpression.Type.NEGATION;
+            case '!' -> UnaryOperationExpression.Type.BOOLEAN_NEGATION;
+            default -> null;
+        };
+    }
+}
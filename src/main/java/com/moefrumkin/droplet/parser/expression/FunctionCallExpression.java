@@ -1,6 +1,7 @@
 package com.moefrumkin.droplet.parser.expression;
 
 import com.moefrumkin.droplet.interpreter.Interpreter;
+import com.moefrumkin.droplet.parser.symbol.SymbolTable;
 import com.moefrumkin.droplet.token.Token;
 
 import java.util.List;
@@ -10,6 +11,12 @@ import java.util.List;
  */
 public record FunctionCallExpression(Token identifier, List<Expression> arguments) implements Expression {
 
+	/**
+	 * Gets the id of the name of the function
+	 * @return the id, or {@link SymbolTable#UNRESOLVED} if the name was not given one by a parser
+	 */
+	public int symbol() { return SymbolTable.id(identifier); }
+
 	@Override
 	public int evaluate(Interpreter interpreter){
 		return interpreter.interpret(this);
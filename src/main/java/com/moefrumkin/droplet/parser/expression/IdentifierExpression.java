@@ -2,6 +2,7 @@ package com.moefrumkin.droplet.parser.expression;
 
 
 import com.moefrumkin.droplet.interpreter.Interpreter;
+import com.moefrumkin.droplet.parser.symbol.SymbolTable;
 import com.moefrumkin.droplet.token.Token;
 
 /**
@@ -15,6 +16,12 @@ public record IdentifierExpression(Token identifier) implements Expression {
 	 */
 	public Token getIdentifier() { return identifier; }
 
+	/**
+	 * Gets the id of the identifier
+	 * @return the id, or {@link SymbolTable#UNRESOLVED} if the identifier was not given one by a parser
+	 */
+	public int symbol() { return SymbolTable.id(identifier); }
+
 	@Override
 	public int evaluate(Interpreter interpreter){
 		return interpreter.interpret(this);
@@ -14,7 +14,7 @@ public record LiteralExpression(Token literal) implements Expression {
 	 * @param i the integer to represent
 	 * @return the literal representing the integer
 	 */
-	public static LiteralExpression from(int i) { return new LiteralExpression(new Token(Type.LITERAL, String.valueOf(i))); }
+	public static LiteralExpression from(int i) { return new LiteralExpression(Token.of(Type.LITERAL, String.valueOf(i))); }
 
 	@Override
 	public int evaluate(Interpreter interpreter){
@@ -0,0 +1,109 @@
+package com.moefrumkin.droplet.parser.function;
+
+import com.moefrumkin.droplet.interpreter.Interpreter;
+import com.moefrumkin.droplet.parser.expression.*;
+import com.moefrumkin.droplet.parser.statement.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A visitor that collects the function calls of a syntax tree in source order, including the calls in the arguments of other calls.
+ * Being a visitor, it also sees through statements that are decoded or parsed when they are visited
+ */
+public final class CallCollector implements Interpreter {
+
+    private final List<FunctionCallExpression> calls = new ArrayList<>();
+
+    private CallCollector() {}
+
+    /**
+     * Collects the calls of a statement, such as the body of a function
+     * @param statement the statement
+     * @return the calls, in source order
+     */
+    public static List<FunctionCallExpression> calls(Statement statement) {
+        CallCollector collector = new CallCollector();
+        statement.interpret(collector);
+        return Collections.unmodifiableList(collector.calls);
+    }
+
+    @Override
+    public void interpret(Function function) {
+        function.body().interpret(this);
+    }
+
+    @Override
+    public void interpret(FunctionList function) {
+        function.functions().forEach(this::interpret);
+    }
+
+    @Override
+    public void interpret(CompoundStatement statement) {
+        statement.statements().forEach(child -> child.interpret(this));
+    }
+
+    @Override
+    public void interpret(ConditionalStatement statement) {
+        statement.condition().evaluate(this);
+        statement.consequence().interpret(this);
+    }
+
+    @Override
+    public void interpret(DeclarationStatement statement) {
+        statement.value().evaluate(this);
+    }
+
+    @Override
+    public void interpret(EmptyStatement statement) {}
+
+    @Override
+    public void interpret(ExpressionStatement statement) {
+        statement.expression().evaluate(this);
+    }
+
+    @Override
+    public void interpret(LoopStatement statement) {
+        statement.condition().evaluate(this);
+        statement.body().interpret(this);
+    }
+
+    @Override
+    public void interpret(ReturnStatement statement) {
+        statement.expression().evaluate(this);
+    }
+
+    @Override
+    public int interpret(BinaryOperationExpression expression) {
+        expression.left().evaluate(this);
+        return expression.right().evaluate(this);
+    }
+
+    @Override
+    public int interpret(EnclosedExpression expression) {
+        return expression.expression().evaluate(this);
+    }
+
+    @Override
+    public int interpret(FunctionCallExpression expression) {
+        calls.add(expression);
+        expression.arguments().forEach(argument -> argument.evaluate(this));
+        return 0;
+    }
+
+    @Override
+    public int interpret(IdentifierExpression expression) {
+        return 0;
+    }
+
+    @Override
+    public int interpret(LiteralExpression expression) {
+        return 0;
+    }
+
+    @Override
+    public int interpret(UnaryOperationExpression expression) {
+        return expression.operand().evaluate(this);
+    }
+}
@@ -6,6 +6,7 @@ import java.util.List;
 import com.moefrumkin.droplet.interpreter.Interpreter;
 import com.moefrumkin.droplet.parser.Parser;
 import com.moefrumkin.droplet.parser.statement.Statement;
+import com.moefrumkin.droplet.parser.symbol.SymbolTable;
 import com.moefrumkin.droplet.parser.SyntaxTree;
 import com.moefrumkin.droplet.parser.exception.UnexpectedTokenException;
 import com.moefrumkin.droplet.parser.exception.UnexpectedTokenTypeException;
@@ -26,9 +27,71 @@ public record Function(Token name, List<Token> parameters, Statement body) imple
      * @throws UnexpectedTokenTypeException If a token lacks the required {@link Type}
      */
     public static Function parse(Parser parser) throws UnexpectedTokenException, UnexpectedTokenTypeException {
+        Token name = parseName(parser);
+        List<Token> parameters = parseParameters(parser);
+        //parse a compound statement
+        Statement body = Statement.parse(parser);
+
+        return new Function(name, parameters, body);
+    }
+
+    /**
+     * Static method that parses a function definition without parsing its body. If the body is between braces, only its tokens are kept, and they are parsed into a {@link LazyBody} the first time the body is used
+     *
+     * @param parser The {@link Parser} containing the list of tokens
+     * @return The function definition object
+     * @throws UnexpectedTokenException     If a token is not matched
+     * @throws UnexpectedTokenTypeException If a token lacks the required {@link Type}
+     */
+    public static Function parseLazily(Parser parser) throws UnexpectedTokenException, UnexpectedTokenTypeException {
+        Token name = parseName(parser);
+        List<Token> parameters = parseParameters(parser);
+        //bodies that are a single statement are parsed right away
+        if (!parser.currentToken().matches(Type.SPECIAL, "{"))
+            return new Function(name, parameters, Statement.parse(parser));
+
+        //collect the tokens up to the matching brace
+        List<Token> body = new ArrayList<>();
+        int depth = 0;
+        do {
+            Token current = parser.currentToken();
+            if (current.matches(Type.SPECIAL, "{"))
+                depth++;
+            else if (current.matches(Type.SPECIAL, "}"))
+                depth--;
+            else if (current.matches(Type.TERMINATOR))
+                //the closing brace is missing
+                parser.match(Type.SPECIAL, "}");
+            body.add(current);
+            parser.incrementIndex();
+        } while (depth > 0);
+
+        return new Function(name, parameters, new LazyBody(name, body.toArray(Token[]::new), parser.symbols()));
+    }
+
+    /**
+     * Parses the start of a function definition, the def keyword and the name
+     *
+     * @param parser The {@link Parser} containing the list of tokens
+     * @return the name of the function
+     * @throws UnexpectedTokenException     If a token is not matched
+     * @throws UnexpectedTokenTypeException If a token lacks the required {@link Type}
+     */
+    public static Token parseName(Parser parser) throws UnexpectedTokenException, UnexpectedTokenTypeException {
         //expect let keyword
         parser.match(Type.KEYWORD, "def");
-        Token name = parser.match(Type.IDENTIFIER);
+        return parser.match(Type.IDENTIFIER);
+    }
+
+    /**
+     * Parses the parameters of a function definition, including the parentheses around them
+     *
+     * @param parser The {@link Parser} containing the list of tokens
+     * @return the parameters
+     * @throws UnexpectedTokenException     If a token is not matched
+     * @throws UnexpectedTokenTypeException If a token lacks the required {@link Type}
+     */
+    public static List<Token> parseParameters(Parser parser) throws UnexpectedTokenException, UnexpectedTokenTypeException {
         //expect opening paren
         parser.match(Type.SPECIAL, "(");
 
@@ -45,10 +108,15 @@ public record Function(Token name, List<Token> parameters, Statement body) imple
         }
         //expect a close paren
         parser.match(Type.SPECIAL, ")");
-        //parse a compound statement
-        Statement body = Statement.parse(parser);
+        return parameters;
+    }
 
-        return new Function(name, parameters, body);
+    /**
+     * Gets the id of the function's name
+     * @return the id, or {@link SymbolTable#UNRESOLVED} if the name was not given one by a parser
+     */
+    public int symbol() {
+        return SymbolTable.id(name);
     }
 
     public void interpret(Interpreter interpreter) {
@@ -0,0 +1,102 @@
+package com.moefrumkin.droplet.parser.function;
+
+import com.moefrumkin.droplet.interpreter.Interpreter;
+import com.moefrumkin.droplet.parser.Parser;
+import com.moefrumkin.droplet.parser.exception.LazyParseException;
+import com.moefrumkin.droplet.parser.exception.UnexpectedTokenException;
+import com.moefrumkin.droplet.parser.exception.UnexpectedTokenTypeException;
+import com.moefrumkin.droplet.parser.statement.Statement;
+import com.moefrumkin.droplet.parser.symbol.SymbolTable;
+import com.moefrumkin.droplet.token.Token;
+import com.moefrumkin.droplet.token.Type;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The body of a lazily parsed function. Only the tokens between its braces are kept, and they are parsed the first time the body is used.
+ * Parsing is safe to race, since every thread parses an equal statement
+ */
+public final class LazyBody implements Statement {
+
+    private final Token name;
+    private final Token[] tokens;
+    private final SymbolTable symbols;
+    private volatile Statement statement;
+
+    /**
+     * Creates a body from its tokens
+     * @param name the name of the function, for errors
+     * @param tokens the tokens of the body from the opening brace to the closing brace
+     * @param symbols the symbol table of the program, which the identifiers of the body are added to when it is parsed
+     */
+    LazyBody(Token name, Token[] tokens, SymbolTable symbols) {
+        this.name = name;
+        this.tokens = tokens;
+        this.symbols = symbols;
+    }
+
+    /**
+     * Gets the parsed body, parsing it if it has not been parsed yet
+     * @return the parsed statement
+     * @throws LazyParseException if the body does not parse
+     */
+    public Statement statement() {
+        Statement parsed = statement;
+        if (parsed == null) {
+            Token[] body = Arrays.copyOf(tokens, tokens.length + 1);
+            body[tokens.length] = Token.terminator();
+            Parser parser = new Parser(Arrays.asList(body), symbols);
+            try {
+                parsed = Statement.parse(parser);
+                parser.match(Type.TERMINATOR);
+            } catch (UnexpectedTokenTypeException | UnexpectedTokenException e) {
+                throw new LazyParseException(name.getData(), e);
+            }
+            statement = parsed;
+        }
+        return parsed;
+    }
+
+    /**
+     * @return whether the body has been parsed
+     */
+    public boolean isParsed() {
+        return statement != null;
+    }
+
+    /**
+     * @return the tokens of the body, from the opening brace to the closing brace
+     */
+    public List<Token> tokens() {
+        return Collections.unmodifiableList(Arrays.asList(tokens));
+    }
+
+    @Override
+    public void interpret(Interpreter interpreter) {
+        statement().interpret(interpreter);
+    }
+
+    /**
+     * The hash of the tokens of the body, so hashing a body never parses it
+     */
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(tokens);
+    }
+
+    /**
+     * Two lazy bodies are equal if their tokens are equal, which never parses either of them. A lazy body is never equal to a statement that is not lazy,
+     * so a body is compared with a parsed one through {@link #statement()}
+     */
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof LazyBody other && Arrays.equals(tokens, other.tokens);
+    }
+
+    @Override
+    public String toString() {
+        return statement().toString();
+    }
+}
@@ -0,0 +1,97 @@
+package com.moefrumkin.droplet.parser.function;
+
+import com.moefrumkin.droplet.parser.expression.FunctionCallExpression;
+import com.moefrumkin.droplet.parser.statement.Statement;
+import com.moefrumkin.droplet.token.Token;
+import com.moefrumkin.droplet.token.Type;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Finds the functions of a program that can be called from {@code main}, following calls from function to function.
+ * Calls in a {@link LazyBody} that has not been parsed yet are found from its tokens, where an identifier followed by an opening parenthesis is always a call, so finding reachable functions never parses a body
+ */
+public final class Reachability {
+
+    private static final String MAIN = "main";
+
+    private final Set<String> reachable;
+    private final List<Function> unreachable;
+    private final FunctionList reachableProgram;
+
+    private Reachability(FunctionList program) {
+        Map<String, List<Function>> functions = new HashMap<>();
+        for (Function function : program.functions())
+            functions.computeIfAbsent(function.name().getData(), name -> new ArrayList<>()).add(function);
+
+        reachable = new HashSet<>();
+        Deque<String> pending = new ArrayDeque<>();
+        if (functions.containsKey(MAIN)) {
+            reachable.add(MAIN);
+            pending.push(MAIN);
+        }
+        while (!pending.isEmpty()) {
+            for (Function function : functions.get(pending.pop())) {
+                for (String callee : calls(function.body())) {
+                    //library functions and undefined functions are not part of the program
+                    if (functions.containsKey(callee) && reachable.add(callee))
+                        pending.push(callee);
+                }
+            }
+        }
+
+        Map<Boolean, List<Function>> partition = program.functions().stream()
+                .collect(Collectors.partitioningBy(function -> reachable.contains(function.name().getData())));
+        unreachable = Collections.unmodifiableList(partition.get(false));
+        reachableProgram = new FunctionList(partition.get(true));
+    }
+
+    /**
+     * Finds the reachable functions of a program
+     * @param program the program
+     * @return the reachable functions. A program without a main function has none
+     */
+    public static Reachability of(FunctionList program) {
+        return new Reachability(program);
+    }
+
+    /**
+     * @return the names of the functions that can be called from main, including main
+     */
+    public Set<String> reachable() {
+        return Collections.unmodifiableSet(reachable);
+    }
+
+    /**
+     * @return the functions that can never be called, in source order
+     */
+    public List<Function> unreachable() {
+        return unreachable;
+    }
+
+    /**
+     * @return the program with only the functions that can be called, in source order. Since unreachable functions are dropped, so are any duplicate definitions of them, which would otherwise fail when the program starts
+     */
+    public FunctionList prune() {
+        return reachableProgram;
+    }
+
+    /**
+     * Finds the names of the functions called by a statement
+     */
+    private static Set<String> calls(Statement body) {
+        if (body instanceof LazyBody lazy && !lazy.isParsed()) {
+            Set<String> calls = new HashSet<>();
+            List<Token> tokens = lazy.tokens();
+            for (int i = 0; i + 1 < tokens.size(); i++)
+                if (tokens.get(i).matches(Type.IDENTIFIER) && tokens.get(i + 1).matches(Type.SPECIAL, "("))
+                    calls.add(tokens.get(i).getData());
+            return calls;
+        }
+        Set<String> calls = new HashSet<>();
+        for (FunctionCallExpression call : CallCollector.calls(body))
+            calls.add(call.identifier().getData());
+        return calls;
+    }
+}
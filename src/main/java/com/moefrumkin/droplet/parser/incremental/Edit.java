@@ -0,0 +1,28 @@
+package com.moefrumkin.droplet.parser.incremental;
+
+/**
+ * A record class that represents a change to a source: a range of characters is removed and text is inserted in its place
+ * @param offset the index of the first character to remove
+ * @param removed the number of characters to remove
+ * @param inserted the text to insert at the offset
+ */
+public record Edit(int offset, int removed, String inserted) {
+
+    /**
+     * Creates an edit, checking that its range is not negative
+     * @param offset the index of the first character to remove
+     * @param removed the number of characters to remove
+     * @param inserted the text to insert at the offset
+     */
+    public Edit {
+        if (offset < 0 || removed < 0)
+            throw new IllegalArgumentException("The offset and the number of removed characters must not be negative, given " + offset + " and " + removed);
+    }
+
+    /**
+     * @return the change in the length of the source
+     */
+    public int delta() {
+        return inserted.length() - removed;
+    }
+}
@@ -0,0 +1,175 @@
+package com.moefrumkin.droplet.parser.incremental;
+
+import com.moefrumkin.droplet.parser.Parser;
+import com.moefrumkin.droplet.parser.exception.UnexpectedTokenException;
+import com.moefrumkin.droplet.parser.exception.UnexpectedTokenTypeException;
+import com.moefrumkin.droplet.parser.function.Function;
+import com.moefrumkin.droplet.parser.function.FunctionList;
+import com.moefrumkin.droplet.token.DefinitionSplitter;
+import com.moefrumkin.droplet.token.Lexer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps a program parsed while its source is edited. The source is divided into parts at every {@code def} keyword outside of braces, so each part holds one function.
+ * An edit only re-lexes and re-parses the parts it touches, and the {@link Function} records of every other part are reused as they are.
+ * A part that does not parse keeps its error until an edit fixes it, and the error is thrown when the functions are asked for.
+ */
+public class IncrementalCompiler {
+
+    /**
+     * A range of the source with either its functions or the error that parsing it threw
+     */
+    private static final class Part {
+        private int start;
+        private final String text;
+        private final List<Function> functions;
+        private final Exception error;
+
+        private Part(int start, String text) {
+            this.start = start;
+            this.text = text;
+
+            List<Function> functions = List.of();
+            Exception error = null;
+            try {
+                functions = ((FunctionList) new Parser(Lexer.SCANNER.tokenize(text)).parse()).functions();
+            } catch (UnexpectedTokenException | UnexpectedTokenTypeException | RuntimeException e) {
+                error = e;
+            }
+            this.functions = functions;
+            this.error = error;
+        }
+
+        private int end() {
+            return start + text.length();
+        }
+    }
+
+    private final StringBuilder source;
+    private final List<Part> parts;
+    private FunctionList program;
+    private int reparsed;
+
+    /**
+     * Parses a source part by part
+     * @param source the source
+     */
+    public IncrementalCompiler(String source) {
+        this.source = new StringBuilder(source);
+        this.parts = new ArrayList<>(split(0, source.length(), List.of()));
+    }
+
+    /**
+     * Applies an edit to the source and re-parses the parts of the source that it touches
+     * @param edit the edit
+     */
+    public void edit(Edit edit) {
+        int end = edit.offset() + edit.removed();
+        if (end > source.length())
+            throw new IndexOutOfBoundsException("The edit removes up to " + end + " but the source has length " + source.length());
+
+        //every part that contains or borders the edited range, since an edit at the edge of a part can move the boundary
+        int first = 0;
+        while (first < parts.size() - 1 && parts.get(first).end() < edit.offset())
+            first++;
+        int last = first;
+        while (last < parts.size() - 1 && parts.get(last + 1).start <= end)
+            last++;
+
+        List<Part> replaced = new ArrayList<>(parts.subList(first, last + 1));
+        int start = replaced.get(0).start;
+        int replacedEnd = replaced.get(replaced.size() - 1).end();
+
+        source.replace(edit.offset(), end, edit.inserted());
+
+        List<Part> replacements = split(start, replacedEnd + edit.delta(), replaced);
+        parts.subList(first, last + 1).clear();
+        parts.addAll(first, replacements);
+        for (int i = first + replacements.size(); i < parts.size(); i++)
+            parts.get(i).start += edit.delta();
+
+        program = null;
+    }
+
+    /**
+     * Applies an edit to the source and re-parses the parts of the source that it touches
+     * @param offset the index of the first character to remove
+     * @param removed the number of characters to remove
+     * @param inserted the text to insert at the offset
+     */
+    public void edit(int offset, int removed, String inserted) {
+        edit(new Edit(offset, removed, inserted));
+    }
+
+    /**
+     * Gets the parsed program. Functions of parts that have not been re-parsed are the same instances as before
+     * @return the list of functions, in source order
+     * @throws UnexpectedTokenException if a token is not matched in some part of the source
+     * @throws UnexpectedTokenTypeException if a token is not matched in some part of the source
+     */
+    public FunctionList functions() throws UnexpectedTokenException, UnexpectedTokenTypeException {
+        if (program == null) {
+            List<Function> functions = new ArrayList<>();
+            for (Part part : parts) {
+                if (part.error instanceof UnexpectedTokenException e)
+                    throw e;
+                if (part.error instanceof UnexpectedTokenTypeException e)
+                    throw e;
+                if (part.error instanceof RuntimeException e)
+                    throw e;
+                functions.addAll(part.functions);
+            }
+            program = new FunctionList(functions);
+        }
+        return program;
+    }
+
+    /**
+     * @return the current source
+     */
+    public String source() {
+        return source.toString();
+    }
+
+    /**
+     * @return the number of parts of the source that have been lexed and parsed, including by the initial parse
+     */
+    public int reparsed() {
+        return reparsed;
+    }
+
+    /**
+     * Splits a range of the source into parts, reusing any previous part whose text is unchanged
+     * @param start the start of the range, which must be outside of braces
+     * @param end the end of the range
+     * @param previous the parts that used to cover the range
+     * @return the new parts
+     */
+    private List<Part> split(int start, int end, List<Part> previous) {
+        int[] definitions = DefinitionSplitter.topLevelDefinitions(source, start, end);
+        List<Part> split = new ArrayList<>(definitions.length + 1);
+
+        int partStart = start;
+        for (int i = 0; i <= definitions.length; i++) {
+            int partEnd = i < definitions.length ? definitions[i] : end;
+            if (partEnd == partStart && i < definitions.length)
+                continue;
+            split.add(part(partStart, source.substring(partStart, partEnd), previous));
+            partStart = partEnd;
+        }
+        return split;
+    }
+
+    private Part part(int start, String text, List<Part> previous) {
+        for (Part part : previous) {
+            if (part.text.equals(text)) {
+                part.start = start;
+                return part;
+            }
+        }
+        reparsed++;
+        return new Part(start, text);
+    }
+}
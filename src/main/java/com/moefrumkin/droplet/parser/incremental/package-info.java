@@ -0,0 +1,4 @@
+/**
+ * This package contains classes that keep a program parsed while its source is edited, re-parsing only the functions an edit touches
+ */
+package com.moefrumkin.droplet.parser.incremental;
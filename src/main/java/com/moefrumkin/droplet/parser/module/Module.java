@@ -0,0 +1,14 @@
+package com.moefrumkin.droplet.parser.module;
+
+import com.moefrumkin.droplet.parser.function.FunctionList;
+
+import java.util.List;
+
+/**
+ * A compiled module. A module is a source that starts with any number of {@code import name;} lines followed by its functions
+ * @param name the name of the module
+ * @param hash the hash of the source of the module, see {@link com.moefrumkin.droplet.parser.binary.ProgramCache#hash(String)}
+ * @param imports the names of the modules the module imports, in the order they are imported
+ * @param functions the functions the module defines
+ */
+public record Module(String name, String hash, List<String> imports, FunctionList functions) {}
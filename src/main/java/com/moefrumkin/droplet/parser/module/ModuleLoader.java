@@ -0,0 +1,253 @@
+package com.moefrumkin.droplet.parser.module;
+
+import com.moefrumkin.droplet.parser.Parser;
+import com.moefrumkin.droplet.parser.binary.ProgramCache;
+import com.moefrumkin.droplet.parser.exception.DuplicateFunctionException;
+import com.moefrumkin.droplet.parser.exception.UnexpectedTokenException;
+import com.moefrumkin.droplet.parser.exception.UnexpectedTokenTypeException;
+import com.moefrumkin.droplet.parser.function.Function;
+import com.moefrumkin.droplet.parser.function.FunctionList;
+import com.moefrumkin.droplet.parser.symbol.SymbolTable;
+import com.moefrumkin.droplet.token.Lexer;
+import com.moefrumkin.droplet.token.Token;
+import com.moefrumkin.droplet.token.Type;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.*;
+
+/**
+ * Loads the modules a program imports from a search path and links them with the program. A module named {@code name} is the file {@code name.dp} in the first directory of the search path that has one.
+ * <p>
+ * Modules are compiled on their own, since the functions of a module do not depend on the modules it imports until the program is linked. A compiled module is kept by its name and the hash of its source,
+ * so a module is only lexed and parsed again when its source changes, and editing a module compiles only that module. A module file is only read again when its modification time or size changes.
+ * The programs that import it, directly or through other modules, pick up the edit the next time they are linked, which only collects the functions of the compiled modules.
+ * <p>
+ * A linked program is a {@link FunctionList} of the functions of the program followed by the functions of every module it imports, each module once.
+ * A function defined twice in the linked program is reported when it is linked. Modules may import each other in a cycle. Every module is parsed with the loader's {@link SymbolTable},
+ * so an identifier has the same id in every module. Instances are not thread safe
+ */
+public class ModuleLoader {
+
+    /**
+     * The extension of the source of a module
+     */
+    public static final String EXTENSION = ".dp";
+
+    private static final String IMPORT = "import";
+
+    private final List<Path> searchPath;
+    private final SymbolTable symbols = new SymbolTable();
+    private final Map<Key, Module> compiled = new HashMap<>();
+    private final Map<Path, Loaded> loaded = new HashMap<>();
+    private int hits;
+    private int misses;
+
+    /**
+     * Creates a loader that finds modules in the given directories
+     * @param searchPath the directories, in the order they are searched
+     */
+    public ModuleLoader(List<Path> searchPath) {
+        this.searchPath = List.copyOf(searchPath);
+    }
+
+    /**
+     * Compiles a program and links it with the modules it imports
+     * @param source the source of the program, which can import modules like a module
+     * @return the linked program
+     * @throws IOException if an imported module cannot be found or read
+     * @throws UnexpectedTokenTypeException if a token of the program or a module is not matched
+     * @throws UnexpectedTokenException if a token of the program or a module is not matched
+     * @throws DuplicateFunctionException if two functions of the linked program have the same name
+     */
+    public FunctionList link(String source) throws IOException, UnexpectedTokenTypeException, UnexpectedTokenException, DuplicateFunctionException {
+        //a program is not kept, only the modules it imports
+        return link(parse("main", ProgramCache.hash(source), source));
+    }
+
+    /**
+     * Links a compiled program with the modules it imports
+     * @param program the program
+     * @return the linked program
+     * @throws IOException if an imported module cannot be found or read
+     * @throws UnexpectedTokenTypeException if a token of a module is not matched
+     * @throws UnexpectedTokenException if a token of a module is not matched
+     * @throws DuplicateFunctionException if two functions of the linked program have the same name
+     */
+    public FunctionList link(Module program) throws IOException, UnexpectedTokenTypeException, UnexpectedTokenException, DuplicateFunctionException {
+        List<Function> functions = new ArrayList<>();
+        Map<String, String> definedBy = new HashMap<>();
+        add(program, functions, definedBy);
+        Set<String> linked = new HashSet<>();
+        Deque<String> imports = new ArrayDeque<>(program.imports());
+
+        while (!imports.isEmpty()) {
+            String name = imports.poll();
+            if (!linked.add(name))
+                continue;
+            Module module = load(name);
+            add(module, functions, definedBy);
+            imports.addAll(module.imports());
+        }
+
+        return new FunctionList(functions);
+    }
+
+    /**
+     * Adds the functions of a module to a linked program
+     * @param module the module
+     * @param functions the functions of the linked program
+     * @param definedBy the name of the module that defines each function of the linked program
+     * @throws DuplicateFunctionException if the module defines a function the linked program already has
+     */
+    private static void add(Module module, List<Function> functions, Map<String, String> definedBy) throws DuplicateFunctionException {
+        for (Function function : module.functions().functions()) {
+            String name = function.name().getData();
+            String previous = definedBy.putIfAbsent(name, module.name());
+            if (previous != null)
+                throw new DuplicateFunctionException(name, previous, module.name());
+            functions.add(function);
+        }
+    }
+
+    /**
+     * Loads a module from the search path. The file is only read again if its modification time or size has changed since it was last loaded, and only compiled again if its source has changed
+     * @param name the name of the module
+     * @return the module
+     * @throws IOException if the module cannot be found or read
+     * @throws UnexpectedTokenTypeException if a token of the module is not matched
+     * @throws UnexpectedTokenException if a token of the module is not matched
+     */
+    public Module load(String name) throws IOException, UnexpectedTokenTypeException, UnexpectedTokenException {
+        Path path = find(name);
+        BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        Loaded previous = loaded.get(path);
+        if (previous != null && previous.module().name().equals(name) && previous.matches(attributes)) {
+            hits++;
+            return previous.module();
+        }
+
+        String source = Files.readString(path, StandardCharsets.UTF_8);
+        Module module = compile(name, source);
+
+        //forget the previous version of an edited module
+        if (previous != null && !previous.module().hash().equals(module.hash()))
+            compiled.remove(new Key(previous.module().name(), previous.module().hash()));
+        loaded.put(path, new Loaded(attributes.lastModifiedTime(), attributes.size(), module));
+
+        return module;
+    }
+
+    /**
+     * Compiles a module, or gets it from the loader if a module with the same name and source has been compiled
+     * @param name the name of the module
+     * @param source the source of the module
+     * @return the module
+     * @throws UnexpectedTokenTypeException if a token is not matched
+     * @throws UnexpectedTokenException if a token is not matched
+     */
+    public Module compile(String name, String source) throws UnexpectedTokenTypeException, UnexpectedTokenException {
+        Key key = new Key(name, ProgramCache.hash(source));
+        Module module = compiled.get(key);
+        if (module != null) {
+            hits++;
+            return module;
+        }
+
+        misses++;
+        module = parse(name, key.hash(), source);
+        compiled.put(key, module);
+        return module;
+    }
+
+    /**
+     * Parses the imports and the functions of a module
+     * @param name the name of the module
+     * @param hash the hash of the source
+     * @param source the source
+     * @return the module
+     * @throws UnexpectedTokenTypeException if a token is not matched
+     * @throws UnexpectedTokenException if a token is not matched
+     */
+    private Module parse(String name, String hash, String source) throws UnexpectedTokenTypeException, UnexpectedTokenException {
+        Parser parser = new Parser(Lexer.SCANNER.tokenize(source), symbols);
+        List<String> imports = new ArrayList<>();
+        while (parser.currentToken().matches(Type.IDENTIFIER, IMPORT)) {
+            parser.incrementIndex();
+            imports.add(moduleName(parser));
+            parser.match(Type.SPECIAL, ";");
+        }
+        return new Module(name, hash, List.copyOf(imports), (FunctionList) parser.parse());
+    }
+
+    /**
+     * @return the table of the identifiers of every module the loader has compiled
+     */
+    public SymbolTable symbols() {
+        return symbols;
+    }
+
+    /**
+     * @return the number of modules that were already compiled
+     */
+    public int hits() {
+        return hits;
+    }
+
+    /**
+     * @return the number of modules that had to be compiled
+     */
+    public int misses() {
+        return misses;
+    }
+
+    /**
+     * Finds the source of a module on the search path
+     * @param name the name of the module
+     * @return the path of the source
+     * @throws NoSuchFileException if no directory of the search path has the module
+     */
+    public Path find(String name) throws NoSuchFileException {
+        for (Path directory : searchPath) {
+            Path path = directory.resolve(name + EXTENSION);
+            if (Files.isRegularFile(path))
+                return path;
+        }
+        throw new NoSuchFileException(name + EXTENSION, null, "The module " + name + " is not on the search path " + searchPath);
+    }
+
+    /**
+     * Matches the name of an imported module. Module names are not identifiers of the program, so they are not added to the symbol table
+     * @param parser the parser
+     * @return the name
+     * @throws UnexpectedTokenTypeException if the current token is not an identifier
+     */
+    private static String moduleName(Parser parser) throws UnexpectedTokenTypeException {
+        Token name = parser.currentToken();
+        if (!name.matches(Type.IDENTIFIER))
+            parser.match(Type.IDENTIFIER);
+        parser.incrementIndex();
+        return name.getData();
+    }
+
+    /**
+     * The key of a compiled module
+     * @param name the name of the module
+     * @param hash the hash of its source
+     */
+    private record Key(String name, String hash) {}
+
+    /**
+     * A module that was loaded from a file, with the modification time and size the file had when it was read
+     */
+    private record Loaded(FileTime modified, long size, Module module) {
+        private boolean matches(BasicFileAttributes attributes) {
+            return modified.equals(attributes.lastModifiedTime()) && size == attributes.size();
+        }
+    }
+}
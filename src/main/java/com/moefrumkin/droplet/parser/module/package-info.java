@@ -0,0 +1,4 @@
+/**
+ * This package contains modules, sources on a search path that a program imports, and the loader that compiles each module once and links a program with the modules it imports
+ */
+package com.moefrumkin.droplet.parser.module;
@@ -6,6 +6,7 @@ import com.moefrumkin.droplet.parser.Parser;
 import com.moefrumkin.droplet.parser.exception.UnexpectedTokenException;
 import com.moefrumkin.droplet.parser.exception.UnexpectedTokenTypeException;
 import com.moefrumkin.droplet.parser.expression.LiteralExpression;
+import com.moefrumkin.droplet.parser.symbol.SymbolTable;
 import com.moefrumkin.droplet.token.Token;
 import com.moefrumkin.droplet.token.Type;
 
@@ -20,7 +21,7 @@ public record DeclarationStatement(Token identifier, Expression value) implement
     /**
      * The default value if none is specified
      */
-    public static Expression DEFAULT_VALUE = new LiteralExpression(new Token(Type.LITERAL, "0"));
+    public static Expression DEFAULT_VALUE = LiteralExpression.from(0);
 
     /**
      * Parses a declaration statement
@@ -64,6 +65,14 @@ public record DeclarationStatement(Token identifier, Expression value) implement
         this(identifier, DEFAULT_VALUE);
     }
 
+    /**
+     * Gets the id of the declared variable
+     * @return the id, or {@link SymbolTable#UNRESOLVED} if the identifier was not given one by a parser
+     */
+    public int symbol() {
+        return SymbolTable.id(identifier);
+    }
+
     @Override
     public void interpret(Interpreter interpreter){
         interpreter.interpret(this);
@@ -0,0 +1,30 @@
+package com.moefrumkin.droplet.parser.symbol;
+
+import com.moefrumkin.droplet.token.Token;
+import com.moefrumkin.droplet.token.Type;
+
+/**
+ * An identifier token that has been given an id by a {@link SymbolTable}. A table has a single symbol for every name, so a symbol is shared by every use of its name in a program.
+ * A symbol is equal to any identifier token with the same name, whatever its id, so trees with and without ids are equal
+ */
+public final class Symbol extends Token {
+
+    private final int id;
+
+    /**
+     * Creates a symbol
+     * @param name the name of the identifier
+     * @param id the id of the identifier in its table
+     */
+    Symbol(String name, int id) {
+        super(Type.IDENTIFIER, name);
+        this.id = id;
+    }
+
+    /**
+     * @return the id of the identifier in its table
+     */
+    public int id() {
+        return id;
+    }
+}
@@ -0,0 +1,114 @@
+package com.moefrumkin.droplet.parser.symbol;
+
+import com.moefrumkin.droplet.token.Token;
+import com.moefrumkin.droplet.token.Type;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A table that gives every identifier of a program, whether a variable, a parameter or a function, a dense id from zero in the order the identifiers are first seen.
+ * The {@link com.moefrumkin.droplet.parser.Parser} fills a table as it matches identifiers, so the nodes of the tree hold a {@link Symbol} that carries its id,
+ * and anything that runs the tree can keep what it knows about an identifier in an array indexed by the id rather than in a map keyed by the name.
+ * <p>
+ * Tables are thread safe, so the parts of a program that are parsed concurrently or lazily share the ids of the program
+ */
+public final class SymbolTable {
+
+    /**
+     * The id of an identifier that has not been given an id by a table, such as one in a tree that was built by hand
+     */
+    public static final int UNRESOLVED = -1;
+
+    private final Map<String, Symbol> byName = new ConcurrentHashMap<>();
+    private final List<Symbol> byId = new ArrayList<>();
+
+    /**
+     * Creates an empty table
+     */
+    public SymbolTable() {}
+
+    /**
+     * Gets the id of an identifier token
+     * @param token the token
+     * @return the id of the token if it is a {@link Symbol}, or {@link #UNRESOLVED}
+     */
+    public static int id(Token token) {
+        return token instanceof Symbol symbol ? symbol.id() : UNRESOLVED;
+    }
+
+    /**
+     * Gets the symbol of a name, giving the name the next id if it does not have one yet
+     * @param name the name of the identifier
+     * @return the symbol
+     */
+    public Symbol intern(String name) {
+        Symbol symbol = byName.get(name);
+        if (symbol != null)
+            return symbol;
+        synchronized (byId) {
+            symbol = byName.get(name);
+            if (symbol == null) {
+                symbol = new Symbol(name, byId.size());
+                byId.add(symbol);
+                byName.put(name, symbol);
+            }
+            return symbol;
+        }
+    }
+
+    /**
+     * Gets the symbol of an identifier token
+     * @param token the token, which must be an identifier
+     * @return the symbol, which is the token itself if it is already a symbol of this table
+     */
+    public Symbol intern(Token token) {
+        if (!token.matches(Type.IDENTIFIER))
+            throw new IllegalArgumentException("Only identifiers are symbols, not " + token);
+        if (token instanceof Symbol symbol && lookup(symbol.getData()) == symbol)
+            return symbol;
+        return intern(token.getData());
+    }
+
+    /**
+     * Looks up the symbol of a name without adding it
+     * @param name the name
+     * @return the symbol, or {@code null} if the name has no id
+     */
+    public Symbol lookup(String name) {
+        return byName.get(name);
+    }
+
+    /**
+     * Gets the symbol with an id
+     * @param id the id
+     * @return the symbol
+     * @throws IndexOutOfBoundsException if no identifier has the id
+     */
+    public Symbol symbol(int id) {
+        synchronized (byId) {
+            return byId.get(id);
+        }
+    }
+
+    /**
+     * Gets the name of the identifier with an id
+     * @param id the id
+     * @return the name
+     * @throws IndexOutOfBoundsException if no identifier has the id
+     */
+    public String name(int id) {
+        return symbol(id).getData();
+    }
+
+    /**
+     * @return the number of identifiers in the table, which is one more than the largest id
+     */
+    public int size() {
+        synchronized (byId) {
+            return byId.size();
+        }
+    }
+}
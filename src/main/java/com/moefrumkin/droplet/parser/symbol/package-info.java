@@ -0,0 +1,4 @@
+/**
+ * This package contains the symbol table that gives every identifier of a program a dense integer id, and the identifier tokens that carry their id through the syntax tree
+ */
+package com.moefrumkin.droplet.parser.symbol;
@@ -0,0 +1,54 @@
+package com.moefrumkin.droplet.token;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A {@link CharSequence} view of a range of bytes, where every byte is one character.
+ * Every droplet token is ASCII, so tokens can be scanned directly from the bytes of a source file without decoding it first.
+ * Text is only copied out of the bytes when {@link #toString()} is called
+ */
+final class AsciiSequence implements CharSequence {
+
+    private final ByteBuffer bytes;
+    private final int offset;
+    private final int length;
+
+    /**
+     * Creates a view of the remaining bytes of the buffer. The position of the buffer is not changed
+     * @param bytes the buffer
+     */
+    AsciiSequence(ByteBuffer bytes) {
+        this(bytes, bytes.position(), bytes.remaining());
+    }
+
+    private AsciiSequence(ByteBuffer bytes, int offset, int length) {
+        this.bytes = bytes;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public char charAt(int index) {
+        return (char) (bytes.get(offset + index) & 0xFF);
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        if (start < 0 || end > length || start > end)
+            throw new IndexOutOfBoundsException("Range [" + start + ", " + end + ") is out of bounds for length " + length);
+        return new AsciiSequence(bytes, offset + start, end - start);
+    }
+
+    @Override
+    public String toString() {
+        byte[] text = new byte[length];
+        bytes.get(offset, text);
+        return new String(text, StandardCharsets.ISO_8859_1);
+    }
+}
@@ -0,0 +1,68 @@
+package com.moefrumkin.droplet.token;
+
+import java.util.Arrays;
+import java.util.Optional;
+
+/**
+ * A {@link TokenStream} over a {@link TokenBuffer}. Tokens are only created for the lookahead window, and each is created once while it is in the window
+ */
+class BufferTokenStream implements TokenStream {
+
+    /**
+     * The size of the lookahead window, which must be a power of two. The parser looks at most one token ahead of the current token
+     */
+    private static final int WINDOW = 4;
+
+    private final TokenBuffer buffer;
+    private final Token[] window;
+    private final int[] windowIndices;
+    private int index;
+
+    /**
+     * Creates a stream that starts at the first token of the buffer
+     * @param buffer the buffer
+     */
+    BufferTokenStream(TokenBuffer buffer) {
+        this.buffer = buffer;
+        window = new Token[WINDOW];
+        windowIndices = new int[WINDOW];
+        Arrays.fill(windowIndices, -1);
+        index = 0;
+    }
+
+    @Override
+    public Token peek(int offset) {
+        int tokenIndex = index + offset;
+        int slot = tokenIndex & (WINDOW - 1);
+        if (windowIndices[slot] != tokenIndex) {
+            window[slot] = buffer.token(tokenIndex);
+            windowIndices[slot] = tokenIndex;
+        }
+        return window[slot];
+    }
+
+    @Override
+    public void advance() {
+        index += 1;
+    }
+
+    @Override
+    public boolean hasNext() {
+        return index < buffer.size();
+    }
+
+    @Override
+    public Token replace(int offset, Token token) {
+        Token replaced = peek(offset);
+        window[(index + offset) & (WINDOW - 1)] = token;
+        return replaced;
+    }
+
+    @Override
+    public Optional<Position> position(int offset) {
+        int tokenIndex = index + offset;
+        if (tokenIndex < 0 || tokenIndex >= buffer.size())
+            return Optional.empty();
+        return Optional.of(buffer.position(tokenIndex));
+    }
+}
@@ -0,0 +1,63 @@
+package com.moefrumkin.droplet.token;
+
+import java.util.Arrays;
+
+/**
+ * Finds the places where a source can be split into independent parts. A program is a flat list of functions, and every function starts with the keyword {@code def}.
+ * A {@code def} that is not preceded by a letter always starts a token, because only identifiers and keywords contain letters, so the source can be tokenized on either side of it separately.
+ * Braces are always tokens of their own, so the nesting depth can be counted from the characters alone.
+ */
+public final class DefinitionSplitter {
+
+    private static final String DEFINITION = "def";
+
+    private DefinitionSplitter() {}
+
+    /**
+     * Finds the first {@code def} keyword that starts at or after the given index
+     * @param source the source
+     * @param from the index to start searching at
+     * @param end the index after the last character to search
+     * @return the index of the keyword, or {@code end} if there is none
+     */
+    public static int nextDefinition(CharSequence source, int from, int end) {
+        for (int i = from; i + DEFINITION.length() <= end; i++) {
+            if (isDefinition(source, i))
+                return i;
+        }
+        return end;
+    }
+
+    /**
+     * Finds every {@code def} keyword outside of braces. The range must start outside of braces
+     * @param source the source
+     * @param start the index of the first character to search
+     * @param end the index after the last character to search
+     * @return the indices of the keywords, in order
+     */
+    public static int[] topLevelDefinitions(CharSequence source, int start, int end) {
+        int[] definitions = new int[16];
+        int count = 0;
+        int depth = 0;
+        for (int i = start; i < end; i++) {
+            char c = source.charAt(i);
+            if (c == '{') {
+                depth++;
+            } else if (c == '}') {
+                depth--;
+            } else if (depth == 0 && c == 'd' && i + DEFINITION.length() <= end && isDefinition(source, i)) {
+                if (count == definitions.length)
+                    definitions = Arrays.copyOf(definitions, count * 2);
+                definitions[count++] = i;
+            }
+        }
+        return Arrays.copyOf(definitions, count);
+    }
+
+    private static boolean isDefinition(CharSequence source, int index) {
+        return source.charAt(index) == 'd'
+                && source.charAt(index + 1) == 'e'
+                && source.charAt(index + 2) == 'f'
+                && (index == 0 || !Scanner.isLetter(source.charAt(index - 1)));
+    }
+}
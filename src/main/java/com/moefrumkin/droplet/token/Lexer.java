@@ -0,0 +1,267 @@
+package com.moefrumkin.droplet.token;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * An enum of the available lexers. Each lexer breaks up a string into the same series of tokens
+ */
+public enum Lexer {
+    /**
+     * The reference lexer, which matches the source against an alternation of the patterns of every {@link Type}
+     */
+    REGEX {
+        @Override
+        public List<Token> tokenize(CharSequence source) {
+            ArrayList<Token> tokens = new ArrayList<>();
+
+            Matcher matcher = TOKEN_PATTERNS.matcher(source);
+            while (matcher.find()) {
+                if (matcher.group(Type.KEYWORD.name()) != null) {
+                    tokens.add(Token.of(Type.KEYWORD, matcher.group(Type.KEYWORD.name())));
+                } else if (matcher.group(Type.IDENTIFIER.name()) != null) {
+                    tokens.add(Token.of(Type.IDENTIFIER, matcher.group(Type.IDENTIFIER.name())));
+                } else if (matcher.group(Type.LITERAL.name()) != null) {
+                    tokens.add(Token.of(Type.LITERAL, matcher.group(Type.LITERAL.name())));
+                } else if (matcher.group(Type.SPECIAL.name()) != null) {
+                    tokens.add(Token.of(Type.SPECIAL, matcher.group(Type.SPECIAL.name())));
+                } else if (matcher.group(Type.OPERATOR.name()) != null) {
+                    tokens.add(Token.of(Type.OPERATOR, matcher.group(Type.OPERATOR.name())));
+                }
+            }
+
+            tokens.add(Token.terminator());
+
+            return tokens;
+        }
+    },
+    /**
+     * A lexer that classifies each token in a single pass using a {@link Scanner}
+     */
+    SCANNER {
+        @Override
+        public List<Token> tokenize(CharSequence source) {
+            ArrayList<Token> tokens = new ArrayList<>();
+
+            scan(source, 0, source.length(), tokens);
+
+            tokens.add(Token.terminator());
+
+            return tokens;
+        }
+
+        @Override
+        public List<Token> tokenize(ByteBuffer source) {
+            ArrayList<Token> tokens = new ArrayList<>();
+
+            scan(source, source.position(), source.limit(), tokens);
+
+            tokens.add(Token.terminator());
+
+            return tokens;
+        }
+    },
+    /**
+     * A lexer that scans bytes like {@link #SCANNER}, but finds the ends of whitespace, identifiers and literals a whole vector of bytes at a time with the {@code jdk.incubator.vector} module.
+     * Operators and special characters are still scanned one at a time. Character sources are copied into bytes first, and the lexer falls back to {@link #SCANNER} when
+     * the JVM is not started with {@code --add-modules jdk.incubator.vector} or the classes were not built with the {@code vector} profile
+     */
+    VECTOR {
+        @Override
+        public List<Token> tokenize(CharSequence source) {
+            if (Runs.VECTOR == null)
+                return SCANNER.tokenize(source);
+
+            ArrayList<Token> tokens = new ArrayList<>();
+
+            ByteBuffer bytes = ByteBuffer.wrap(latin1(source));
+            Scanner scanner = Scanner.vectorized(bytes, 0, source.length());
+            Type type;
+            while ((type = scanner.next()) != Type.TERMINATOR) {
+                tokens.add(token(type, source, scanner.tokenStart(), scanner.tokenEnd()));
+            }
+
+            tokens.add(Token.terminator());
+
+            return tokens;
+        }
+
+        @Override
+        public List<Token> tokenize(ByteBuffer source) {
+            ArrayList<Token> tokens = new ArrayList<>();
+
+            Scanner scanner = Scanner.vectorized(source, source.position(), source.limit());
+            Type type;
+            while ((type = scanner.next()) != Type.TERMINATOR) {
+                tokens.add(token(type, source, scanner.tokenStart(), scanner.tokenEnd()));
+            }
+
+            tokens.add(Token.terminator());
+
+            return tokens;
+        }
+    },
+    /**
+     * A lexer that splits large sources at {@code def} keywords and tokenizes the parts concurrently in the common {@link java.util.concurrent.ForkJoinPool}.
+     * The tokens are the same as the tokens of {@link #SCANNER}
+     */
+    PARALLEL {
+        @Override
+        public List<Token> tokenize(CharSequence source) {
+            return ParallelLexer.COMMON.tokenize(source);
+        }
+
+        @Override
+        public List<Token> tokenize(ByteBuffer source) {
+            return ParallelLexer.COMMON.tokenize(source);
+        }
+    };
+
+    /**
+     * The alternation of the patterns of every {@link Type}, with one named group per type
+     */
+    private static final Pattern TOKEN_PATTERNS = compileTokenPatterns();
+
+    private static Pattern compileTokenPatterns() {
+        StringBuilder tokenPatternsBuilder = new StringBuilder();
+        for (Type type : Type.values()) {
+            tokenPatternsBuilder.append(String.format("|(?<%s>%s)", type.name(), type.getPattern()));
+        }
+        return Pattern.compile(tokenPatternsBuilder.substring(1));
+    }
+
+    /**
+     * Scans a range of a source with a {@link Scanner} and adds its tokens, without a terminator, to a list
+     * @param source the source
+     * @param start the index of the first character to scan
+     * @param end the index after the last character to scan
+     * @param tokens the list to add the tokens to
+     */
+    static void scan(CharSequence source, int start, int end, List<Token> tokens) {
+        Scanner scanner = new Scanner(source, start, end);
+        Type type;
+        while ((type = scanner.next()) != Type.TERMINATOR) {
+            tokens.add(token(type, source, scanner.tokenStart(), scanner.tokenEnd()));
+        }
+    }
+
+    /**
+     * Scans a range of bytes with a {@link Scanner} and adds its tokens, without a terminator, to a list
+     * @param source the bytes
+     * @param start the index of the first byte to scan
+     * @param end the index after the last byte to scan
+     * @param tokens the list to add the tokens to
+     */
+    static void scan(ByteBuffer source, int start, int end, List<Token> tokens) {
+        Scanner scanner = new Scanner(source, start, end);
+        Type type;
+        while ((type = scanner.next()) != Type.TERMINATOR) {
+            tokens.add(token(type, source, scanner.tokenStart(), scanner.tokenEnd()));
+        }
+    }
+
+    /**
+     * Copies characters into one byte each. No character outside of ISO 8859-1 can be part of a token, so they are all replaced with a character that is skipped
+     * @param source the characters
+     * @return the bytes, with the same indices as the characters
+     */
+    private static byte[] latin1(CharSequence source) {
+        byte[] bytes = new byte[source.length()];
+        for (int i = 0; i < bytes.length; i++) {
+            char c = source.charAt(i);
+            bytes[i] = c <= 0xFF ? (byte) c : (byte) '?';
+        }
+        return bytes;
+    }
+
+    /**
+     * Creates the token the {@link Scanner} has recognized in the given range of the source.
+     * Keywords, special tokens and operators are shared instances, and the text of identifiers and literals is not validated again
+     * @param type the type of the token
+     * @param source the source
+     * @param start the index of the first character of the token
+     * @param end the index after the last character of the token
+     * @return the token
+     */
+    static Token token(Type type, CharSequence source, int start, int end) {
+        return switch (type) {
+            case IDENTIFIER, LITERAL -> Token.trusted(type, source.subSequence(start, end).toString());
+            default -> Token.fixed(type, source.charAt(start), end - start);
+        };
+    }
+
+    /**
+     * Creates the token the {@link Scanner} has recognized in the given range of bytes.
+     * Text is only copied out of the bytes for identifiers and literals
+     * @param type the type of the token
+     * @param source the bytes
+     * @param start the index of the first byte of the token
+     * @param end the index after the last byte of the token
+     * @return the token
+     */
+    static Token token(Type type, ByteBuffer source, int start, int end) {
+        return switch (type) {
+            case IDENTIFIER, LITERAL -> {
+                byte[] text = new byte[end - start];
+                source.get(start, text);
+                yield Token.trusted(type, new String(text, StandardCharsets.ISO_8859_1));
+            }
+            default -> Token.fixed(type, (char) (source.get(start) & 0xFF), end - start);
+        };
+    }
+
+    /**
+     * Tokenizes a string. This will break up a string into a series of tokens that can be parsed.
+     * <i>Whitespace tokens will not be returned</i>
+     *
+     * @param source The string to tokenize
+     * @return A {@link List} of Tokens that have been generated from the input string, ending with a {@link Type#TERMINATOR}
+     */
+    public abstract List<Token> tokenize(CharSequence source);
+
+    /**
+     * Tokenizes the remaining bytes of a buffer without decoding them into a string. Every byte is treated as one character.
+     * Text is only copied out of the buffer for identifiers and literals. The position of the buffer is not changed
+     *
+     * @param source The bytes to tokenize
+     * @return A {@link List} of Tokens that have been generated from the bytes, ending with a {@link Type#TERMINATOR}
+     */
+    public List<Token> tokenize(ByteBuffer source) {
+        return tokenize(new AsciiSequence(source));
+    }
+
+    /**
+     * Tokenizes a source file by mapping it into memory and scanning its bytes directly
+     *
+     * @param source The path of the file to tokenize
+     * @return A {@link List} of Tokens that have been generated from the file, ending with a {@link Type#TERMINATOR}
+     * @throws IOException if the file cannot be mapped
+     */
+    public List<Token> tokenize(Path source) throws IOException {
+        return tokenize(map(source));
+    }
+
+    /**
+     * Maps a source file into memory
+     *
+     * @param source The path of the file
+     * @return A read only buffer of the bytes of the file
+     * @throws IOException if the file cannot be mapped
+     */
+    static ByteBuffer map(Path source) throws IOException {
+        try (FileChannel channel = FileChannel.open(source, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE)
+                throw new IOException("The file " + source + " is too large to be mapped, with size " + size);
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.moefrumkin.droplet.token;
+
+import java.util.List;
+
+/**
+ * A {@link TokenStream} over a list of tokens that have already been generated
+ */
+class ListTokenStream implements TokenStream {
+
+    private final List<Token> tokens;
+    private int index;
+
+    /**
+     * Creates a stream that starts at the first token of the list
+     * @param tokens the tokens
+     */
+    ListTokenStream(List<Token> tokens) {
+        this.tokens = tokens;
+        index = 0;
+    }
+
+    @Override
+    public Token peek(int offset) {
+        return tokens.get(index + offset);
+    }
+
+    @Override
+    public void advance() {
+        index += 1;
+    }
+
+    @Override
+    public boolean hasNext() {
+        return index < tokens.size();
+    }
+
+    @Override
+    public Token replace(int offset, Token token) {
+        return tokens.set(index + offset, token);
+    }
+}
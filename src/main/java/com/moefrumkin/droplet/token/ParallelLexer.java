@@ -0,0 +1,127 @@
+package com.moefrumkin.droplet.token;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * A lexer that splits a source into parts at {@code def} keywords, tokenizes the parts concurrently on a {@link ForkJoinPool} and joins their tokens in order.
+ * Tokenizing only needs the parts to be split between tokens, so the split points are the first {@code def} after evenly spaced offsets and no sequential pass over the source is needed.
+ * The tokens are the same as the tokens of {@link Lexer#SCANNER}
+ */
+public final class ParallelLexer {
+
+    /**
+     * The smallest part worth tokenizing on its own
+     */
+    private static final int DEFAULT_MINIMUM_PART = 1 << 16;
+    /**
+     * The number of parts per thread of the pool, so that threads that finish early can take more work
+     */
+    private static final int PARTS_PER_THREAD = 4;
+
+    static final ParallelLexer COMMON = new ParallelLexer(ForkJoinPool.commonPool());
+
+    private final ForkJoinPool pool;
+    private final int minimumPart;
+
+    /**
+     * Creates a lexer that tokenizes on the given pool
+     * @param pool the pool
+     */
+    public ParallelLexer(ForkJoinPool pool) {
+        this(pool, DEFAULT_MINIMUM_PART);
+    }
+
+    /**
+     * Creates a lexer that tokenizes on the given pool, and does not split the source into parts smaller than the given size
+     * @param pool the pool
+     * @param minimumPart the smallest number of characters in a part
+     */
+    public ParallelLexer(ForkJoinPool pool, int minimumPart) {
+        this.pool = pool;
+        this.minimumPart = Math.max(minimumPart, 1);
+    }
+
+    /**
+     * Tokenizes a string
+     * @param source the string to tokenize
+     * @return A {@link List} of Tokens that have been generated from the input string, ending with a {@link Type#TERMINATOR}
+     */
+    public List<Token> tokenize(CharSequence source) {
+        int[] splits = split(source);
+        List<ForkJoinTask<List<Token>>> parts = new ArrayList<>(splits.length - 1);
+        for (int i = 0; i + 1 < splits.length; i++) {
+            int start = splits[i];
+            int end = splits[i + 1];
+            parts.add(pool.submit(() -> {
+                List<Token> tokens = new ArrayList<>();
+                Lexer.scan(source, start, end, tokens);
+                return tokens;
+            }));
+        }
+        return join(parts);
+    }
+
+    /**
+     * Tokenizes the remaining bytes of a buffer without decoding them into a string
+     * @param source the bytes to tokenize
+     * @return A {@link List} of Tokens that have been generated from the bytes, ending with a {@link Type#TERMINATOR}
+     */
+    public List<Token> tokenize(ByteBuffer source) {
+        int offset = source.position();
+        int[] splits = split(new AsciiSequence(source));
+        List<ForkJoinTask<List<Token>>> parts = new ArrayList<>(splits.length - 1);
+        for (int i = 0; i + 1 < splits.length; i++) {
+            int start = offset + splits[i];
+            int end = offset + splits[i + 1];
+            parts.add(pool.submit(() -> {
+                List<Token> tokens = new ArrayList<>();
+                Lexer.scan(source, start, end, tokens);
+                return tokens;
+            }));
+        }
+        return join(parts);
+    }
+
+    /**
+     * Chooses where to split a source
+     * @param source the source
+     * @return the start of every part followed by the end of the source
+     */
+    private int[] split(CharSequence source) {
+        int length = source.length();
+        int parts = Math.max(1, Math.min(pool.getParallelism() * PARTS_PER_THREAD, length / minimumPart));
+        int partLength = length / parts;
+
+        int[] splits = new int[parts + 1];
+        int count = 1;
+        for (int i = 1; i < parts; i++) {
+            int split = DefinitionSplitter.nextDefinition(source, Math.max(i * partLength, splits[count - 1] + 1), length);
+            if (split == length)
+                break;
+            splits[count++] = split;
+        }
+        splits[count++] = length;
+
+        return Arrays.copyOf(splits, count);
+    }
+
+    private static List<Token> join(List<ForkJoinTask<List<Token>>> parts) {
+        List<List<Token>> results = new ArrayList<>(parts.size());
+        int size = 1;
+        for (ForkJoinTask<List<Token>> part : parts) {
+            List<Token> tokens = part.join();
+            results.add(tokens);
+            size += tokens.size();
+        }
+
+        List<Token> tokens = new ArrayList<>(size);
+        results.forEach(tokens::addAll);
+        tokens.add(Token.terminator());
+        return tokens;
+    }
+}
@@ -0,0 +1,15 @@
+package com.moefrumkin.droplet.token;
+
+/**
+ * A record class that represents the position of a token in its source
+ * @param offset the index of the first character of the token
+ * @param line the line of the token, starting at 1
+ * @param column the column of the token, starting at 1
+ */
+public record Position(int offset, int line, int column) {
+
+    @Override
+    public String toString() {
+        return "line " + line + ", column " + column;
+    }
+}
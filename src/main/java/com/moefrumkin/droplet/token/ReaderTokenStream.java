@@ -0,0 +1,165 @@
+package com.moefrumkin.droplet.token;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.CharBuffer;
+import java.util.Arrays;
+
+/**
+ * A {@link TokenStream} that tokenizes the characters of a {@link Reader} as the tokens are needed.
+ * Only a small character buffer and the lookahead window are kept in memory, so the memory used does not depend on the size of the input.
+ */
+class ReaderTokenStream implements TokenStream {
+
+    private static final int DEFAULT_BUFFER_SIZE = 8192;
+    /**
+     * The initial size of the lookahead window. The parser looks at most one token ahead of the current token
+     */
+    private static final int DEFAULT_LOOKAHEAD = 4;
+
+    private final Reader reader;
+    private char[] chars;
+    private CharBuffer view;
+    private int position;
+    private int limit;
+    private boolean endOfInput;
+
+    private Token[] window;
+    private int head;
+    private int count;
+    private boolean terminated;
+    private boolean finished;
+
+    /**
+     * Creates a stream with the default buffer size
+     * @param reader the reader
+     */
+    ReaderTokenStream(Reader reader) {
+        this(reader, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Creates a stream with the given initial buffer size. The buffer grows if a single token does not fit in it
+     * @param reader the reader
+     * @param bufferSize the initial number of characters to buffer
+     */
+    ReaderTokenStream(Reader reader, int bufferSize) {
+        this.reader = reader;
+        chars = new char[Math.max(bufferSize, 1)];
+        view = CharBuffer.wrap(chars);
+        position = 0;
+        limit = 0;
+        endOfInput = false;
+
+        window = new Token[DEFAULT_LOOKAHEAD];
+        head = 0;
+        count = 0;
+        terminated = false;
+        finished = false;
+    }
+
+    @Override
+    public Token peek(int offset) {
+        fill(offset);
+        return window[(head + offset) % window.length];
+    }
+
+    @Override
+    public void advance() {
+        Token current = peek(0);
+        window[head] = null;
+        head = (head + 1) % window.length;
+        count -= 1;
+        if (current.matches(Type.TERMINATOR))
+            finished = true;
+    }
+
+    @Override
+    public boolean hasNext() {
+        return !finished;
+    }
+
+    @Override
+    public Token replace(int offset, Token token) {
+        fill(offset);
+        int index = (head + offset) % window.length;
+        Token replaced = window[index];
+        window[index] = token;
+        return replaced;
+    }
+
+    /**
+     * Reads tokens into the lookahead window until it contains the token at the given offset
+     * @param offset the offset from the current token
+     */
+    private void fill(int offset) {
+        while (count <= offset) {
+            if (count == window.length) {
+                Token[] larger = new Token[window.length * 2];
+                for (int i = 0; i < count; i++)
+                    larger[i] = window[(head + i) % window.length];
+                window = larger;
+                head = 0;
+            }
+            window[(head + count) % window.length] = scan();
+            count += 1;
+        }
+    }
+
+    /**
+     * Scans the next token from the buffer, reading more characters whenever a token might continue past the end of the buffer.
+     * Once the input is exhausted every call returns a terminator
+     * @return the token
+     */
+    private Token scan() {
+        if (terminated)
+            return Token.terminator();
+
+        while (true) {
+            Scanner scanner = new Scanner(view, position, limit);
+            Type type = scanner.next();
+
+            if (!endOfInput && type == Type.TERMINATOR) {
+                //everything but the last character has been skipped, and the last character could start a two character operator
+                position = Math.max(position, limit - 1);
+                refill();
+            } else if (!endOfInput && scanner.tokenEnd() == limit) {
+                //the token could continue in the next part of the input
+                position = scanner.tokenStart();
+                refill();
+            } else if (type == Type.TERMINATOR) {
+                terminated = true;
+                return Token.terminator();
+            } else {
+                position = scanner.tokenEnd();
+                return Lexer.token(type, view, scanner.tokenStart(), scanner.tokenEnd());
+            }
+        }
+    }
+
+    /**
+     * Moves the unscanned characters to the front of the buffer and reads more characters after them
+     */
+    private void refill() {
+        if (position > 0) {
+            System.arraycopy(chars, position, chars, 0, limit - position);
+            limit -= position;
+            position = 0;
+        }
+        if (limit == chars.length) {
+            chars = Arrays.copyOf(chars, chars.length * 2);
+            view = CharBuffer.wrap(chars);
+        }
+
+        try {
+            int read = reader.read(chars, limit, chars.length - limit);
+            if (read == -1)
+                endOfInput = true;
+            else
+                limit += read;
+        } catch (IOException e) {
+            throw new UncheckedIOException("An error occurred when trying to read the source", e);
+        }
+    }
+}
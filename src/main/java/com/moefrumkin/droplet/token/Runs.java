@@ -0,0 +1,51 @@
+package com.moefrumkin.droplet.token;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Finds the ends of runs of whitespace, letters and digits in bytes. A {@link Scanner} over bytes can use it instead of looking at one character at a time
+ */
+interface Runs {
+
+    /**
+     * The implementation that uses the {@code jdk.incubator.vector} module, or null if the module is not available at runtime
+     */
+    Runs VECTOR = vector();
+
+    /**
+     * @param bytes the bytes
+     * @param index the index to start at
+     * @param end the index after the last byte to look at
+     * @return the index of the first byte at or after the index that is not whitespace, or the end
+     */
+    int whitespaceEnd(ByteBuffer bytes, int index, int end);
+
+    /**
+     * @param bytes the bytes
+     * @param index the index to start at
+     * @param end the index after the last byte to look at
+     * @return the index of the first byte at or after the index that is not a letter, or the end
+     */
+    int lettersEnd(ByteBuffer bytes, int index, int end);
+
+    /**
+     * @param bytes the bytes
+     * @param index the index to start at
+     * @param end the index after the last byte to look at
+     * @return the index of the first byte at or after the index that is not a digit, or the end
+     */
+    int digitsEnd(ByteBuffer bytes, int index, int end);
+
+    /**
+     * Loads {@link VectorRuns} reflectively, so that nothing refers to the incubator module unless it has been added with {@code --add-modules jdk.incubator.vector}
+     */
+    private static Runs vector() {
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty())
+            return null;
+        try {
+            return (Runs) Class.forName("com.moefrumkin.droplet.token.VectorRuns").getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,217 @@
+package com.moefrumkin.droplet.token;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A hand written scanner that recognizes droplet tokens in a single pass over a {@link CharSequence}, or over the bytes of a {@link ByteBuffer}.
+ * The scanner switches on the current character to decide which {@link Type} of token starts there and never backtracks.
+ * It accepts exactly the same language as {@link Lexer#REGEX}: keywords are recognized as prefixes (so {@code iffy} is {@code if} followed by {@code fy}),
+ * a minus sign immediately followed by a digit starts a literal, and characters that do not start a token are skipped.
+ * <i>Whitespace is skipped and never reported</i>
+ */
+public final class Scanner {
+
+    private final CharSequence source;
+    private final ByteBuffer bytes;
+    private final Runs runs;
+    private final int end;
+    private int position;
+    private int tokenStart;
+    private int tokenEnd;
+
+    /**
+     * Creates a scanner over the whole source
+     * @param source the characters to scan
+     */
+    public Scanner(CharSequence source) {
+        this(source, 0, source.length());
+    }
+
+    /**
+     * Creates a scanner over a range of the source
+     * @param source the characters to scan
+     * @param start the index of the first character to scan
+     * @param end the index after the last character to scan
+     */
+    public Scanner(CharSequence source, int start, int end) {
+        this(source, null, null, start, end);
+    }
+
+    /**
+     * Creates a scanner over a range of bytes, where every byte is one character. Indices are absolute indices into the buffer
+     * @param bytes the bytes to scan
+     * @param start the index of the first byte to scan
+     * @param end the index after the last byte to scan
+     */
+    public Scanner(ByteBuffer bytes, int start, int end) {
+        this(null, bytes, null, start, end);
+    }
+
+    private Scanner(CharSequence source, ByteBuffer bytes, Runs runs, int start, int end) {
+        this.source = source;
+        this.bytes = bytes;
+        this.runs = runs;
+        this.end = end;
+        this.position = start;
+        this.tokenStart = start;
+        this.tokenEnd = start;
+    }
+
+    /**
+     * Creates a scanner over a range of bytes that finds the ends of whitespace, identifiers and literals with {@link Runs#VECTOR}.
+     * If the vector module is not available, the scanner looks at one character at a time like any other scanner
+     * @param bytes the bytes to scan
+     * @param start the index of the first byte to scan
+     * @param end the index after the last byte to scan
+     * @return the scanner
+     */
+    public static Scanner vectorized(ByteBuffer bytes, int start, int end) {
+        return new Scanner(null, bytes, Runs.VECTOR, start, end);
+    }
+
+    /**
+     * Scans the next token. The bounds of the token are available from {@link #tokenStart()} and {@link #tokenEnd()}
+     * @return the {@link Type} of the token, or {@link Type#TERMINATOR} if the end of the range has been reached
+     */
+    public Type next() {
+        while (position < end) {
+            char c = charAt(position);
+            switch (c) {
+                case ' ', '\t', '\f', '\r', '\n' -> position = whitespaceEnd(position + 1);
+                case '{', '}', '(', ')', ';', ',' -> {
+                    return token(Type.SPECIAL, position + 1);
+                }
+                case '+', '*', '<', '>', '~' -> {
+                    return token(Type.OPERATOR, position + 1);
+                }
+                case '=', '!' -> {
+                    return token(Type.OPERATOR, followedBy(position, '=') ? position + 2 : position + 1);
+                }
+                case '|', '&' -> {
+                    if (followedBy(position, c))
+                        return token(Type.OPERATOR, position + 2);
+                    //a single '|' or '&' does not start a token
+                    position++;
+                }
+                case '-' -> {
+                    if (position + 1 < end && isDigit(charAt(position + 1)))
+                        return token(Type.LITERAL, digitsEnd(position + 1));
+                    return token(Type.OPERATOR, position + 1);
+                }
+                default -> {
+                    if (isDigit(c))
+                        return token(Type.LITERAL, digitsEnd(position));
+                    if (isLetter(c)) {
+                        int keywordEnd = keywordEnd(c);
+                        if (keywordEnd != -1)
+                            return token(Type.KEYWORD, keywordEnd);
+                        return token(Type.IDENTIFIER, lettersEnd(position));
+                    }
+                    //skip characters that do not start a token
+                    position++;
+                }
+            }
+        }
+
+        tokenStart = end;
+        tokenEnd = end;
+        return Type.TERMINATOR;
+    }
+
+    /**
+     * @return the index of the first character of the last scanned token
+     */
+    public int tokenStart() {
+        return tokenStart;
+    }
+
+    /**
+     * @return the index after the last character of the last scanned token
+     */
+    public int tokenEnd() {
+        return tokenEnd;
+    }
+
+    /**
+     * @return the index of the next character to be scanned
+     */
+    public int position() {
+        return position;
+    }
+
+    /**
+     * Reads a character directly from the bytes when scanning bytes, so that scanning does not go through the {@link CharSequence} interface
+     */
+    private char charAt(int index) {
+        return bytes != null ? (char) (bytes.get(index) & 0xFF) : source.charAt(index);
+    }
+
+    private Type token(Type type, int tokenEnd) {
+        this.tokenStart = position;
+        this.tokenEnd = tokenEnd;
+        this.position = tokenEnd;
+        return type;
+    }
+
+    private boolean followedBy(int index, char c) {
+        return index + 1 < end && charAt(index + 1) == c;
+    }
+
+    private int keywordEnd(char first) {
+        return switch (first) {
+            case 'r' -> wordEnd("return");
+            case 'w' -> wordEnd("while");
+            case 'i' -> wordEnd("if");
+            case 'l' -> wordEnd("let");
+            case 'd' -> wordEnd("def");
+            default -> -1;
+        };
+    }
+
+    private int wordEnd(String word) {
+        int length = word.length();
+        if (position + length > end)
+            return -1;
+        for (int i = 1; i < length; i++) {
+            if (charAt(position + i) != word.charAt(i))
+                return -1;
+        }
+        return position + length;
+    }
+
+    private int whitespaceEnd(int index) {
+        if (runs != null)
+            return runs.whitespaceEnd(bytes, index, end);
+        while (index < end && isWhitespace(charAt(index)))
+            index++;
+        return index;
+    }
+
+    private int lettersEnd(int index) {
+        if (runs != null)
+            return runs.lettersEnd(bytes, index, end);
+        while (index < end && isLetter(charAt(index)))
+            index++;
+        return index;
+    }
+
+    private int digitsEnd(int index) {
+        if (runs != null)
+            return runs.digitsEnd(bytes, index, end);
+        while (index < end && isDigit(charAt(index)))
+            index++;
+        return index;
+    }
+
+    static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\f' || c == '\r' || c == '\n';
+    }
+
+    static boolean isLetter(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
+
+    static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+}
@@ -1,10 +1,10 @@
 package com.moefrumkin.droplet.token;
 
-import java.util.ArrayList;
 import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
 import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.Map;
 
 /**
  * A record class that represents a lexical token in droplet
@@ -19,32 +19,141 @@ public class Token {
      * @return A {@link List} of Tokens that have been generated from the input string
      */
     public static List<Token> tokenize(String source) {
-        ArrayList<Token> tokens = new ArrayList<>();
+        return tokenize(source, Lexer.SCANNER);
+    }
 
-        StringBuilder tokenPatternsBuilder = new StringBuilder();
-        for (Type type : Type.values()) {
-            tokenPatternsBuilder.append(String.format("|(?<%s>%s)", type.name(), type.getPattern()));
-        }
-        Pattern tokenPatterns = Pattern.compile(tokenPatternsBuilder.substring(1));
-
-        Matcher matcher = tokenPatterns.matcher(source);
-        while (matcher.find()) {
-            if (matcher.group(Type.KEYWORD.name()) != null) {
-                tokens.add(new Token(Type.KEYWORD, matcher.group(Type.KEYWORD.name())));
-            } else if (matcher.group(Type.IDENTIFIER.name()) != null) {
-                tokens.add(new Token(Type.IDENTIFIER, matcher.group(Type.IDENTIFIER.name())));
-            } else if (matcher.group(Type.LITERAL.name()) != null) {
-                tokens.add(new Token(Type.LITERAL, matcher.group(Type.LITERAL.name())));
-            } else if (matcher.group(Type.SPECIAL.name()) != null) {
-                tokens.add(new Token(Type.SPECIAL, matcher.group(Type.SPECIAL.name())));
-            } else if (matcher.group(Type.OPERATOR.name()) != null) {
-                tokens.add(new Token(Type.OPERATOR, matcher.group(Type.OPERATOR.name())));
+    /**
+     * Tokenizes a string with the given lexer.
+     * <i>Whitespace tokens will not be returned</i>
+     *
+     * @param source The string to tokenize
+     * @param lexer The {@link Lexer} to use
+     * @return A {@link List} of Tokens that have been generated from the input string
+     */
+    public static List<Token> tokenize(String source, Lexer lexer) {
+        return lexer.tokenize(source);
+    }
+
+    /**
+     * The spellings of the token types that only have a fixed set of spellings
+     */
+    private static final Map<Type, List<String>> FIXED_SPELLINGS = Map.of(
+            Type.KEYWORD, List.of("return", "while", "if", "let", "def"),
+            Type.SPECIAL, List.of("{", "}", "(", ")", ";", ","),
+            Type.OPERATOR, List.of("==", "!=", "||", "&&", "!", "+", "-", "*", "<", ">", "=", "~"),
+            Type.TERMINATOR, List.of("")
+    );
+
+    /**
+     * The single shared instance of every fixed spelling, by type and spelling
+     */
+    private static final Map<Type, Map<String, Token>> FLYWEIGHTS = new EnumMap<>(Type.class);
+
+    /**
+     * The flyweights of the single character tokens, indexed by their character
+     */
+    private static final Token[] SINGLE_CHARACTER_FLYWEIGHTS = new Token[128];
+
+    static {
+        FIXED_SPELLINGS.forEach((type, spellings) -> {
+            Map<String, Token> flyweights = new HashMap<>();
+            for (String spelling : spellings) {
+                Token token = new Token(type, spelling, false);
+                flyweights.put(spelling, token);
+                if (spelling.length() == 1)
+                    SINGLE_CHARACTER_FLYWEIGHTS[spelling.charAt(0)] = token;
             }
-        }
+            FLYWEIGHTS.put(type, flyweights);
+        });
+    }
+
+    private static final Token TERMINATOR = FLYWEIGHTS.get(Type.TERMINATOR).get("");
+
+    /**
+     * Returns a token with the given type and data. Keywords, special tokens, operators and the terminator are shared instances, so no token is allocated for them.
+     * The data of other tokens is validated without regular expressions
+     *
+     * @param type The {@link Type} of the token
+     * @param data The string of the token, which must follow the regex provided by the given {@link Type}
+     * @return the token
+     */
+    public static Token of(Type type, String data) {
+        Map<String, Token> flyweights = FLYWEIGHTS.get(type);
+        Token token = flyweights == null ? null : flyweights.get(data);
+        if (token == null && (flyweights != null || !isValid(type, data)))
+            throw new IllegalArgumentException("The data does not match the pattern, for type " + type + ", with pattern " + type.getPattern() + " and data " + data);
+        return token == null ? new Token(type, data, false) : token;
+    }
+
+    /**
+     * @return the shared terminator token
+     */
+    public static Token terminator() {
+        return TERMINATOR;
+    }
+
+    /**
+     * Creates a token without validating its data. Only the lexer may use this, since it has already recognized the data as a token of the type
+     *
+     * @param type The {@link Type} of the token
+     * @param data The string of the token
+     * @return the token
+     */
+    static Token trusted(Type type, String data) {
+        return new Token(type, data, false);
+    }
 
-        tokens.add(new Token(Type.TERMINATOR, ""));
+    /**
+     * Returns the shared instance for a keyword, special token or operator that the {@link Scanner} has recognized, without allocating its text.
+     * The scanner only recognizes one spelling of each type for every first character and length
+     *
+     * @param type The {@link Type} of the token
+     * @param first The first character of the token
+     * @param length The length of the token
+     * @return the shared token
+     */
+    static Token fixed(Type type, char first, int length) {
+        if (type == Type.KEYWORD || length > 1)
+            return switch (first) {
+                case 'r' -> FLYWEIGHTS.get(Type.KEYWORD).get("return");
+                case 'w' -> FLYWEIGHTS.get(Type.KEYWORD).get("while");
+                case 'i' -> FLYWEIGHTS.get(Type.KEYWORD).get("if");
+                case 'l' -> FLYWEIGHTS.get(Type.KEYWORD).get("let");
+                case 'd' -> FLYWEIGHTS.get(Type.KEYWORD).get("def");
+                case '=' -> FLYWEIGHTS.get(Type.OPERATOR).get("==");
+                case '!' -> FLYWEIGHTS.get(Type.OPERATOR).get("!=");
+                case '|' -> FLYWEIGHTS.get(Type.OPERATOR).get("||");
+                case '&' -> FLYWEIGHTS.get(Type.OPERATOR).get("&&");
+                default -> throw new IllegalArgumentException("No token of type " + type + " starts with " + first);
+            };
+        return SINGLE_CHARACTER_FLYWEIGHTS[first];
+    }
 
-        return tokens;
+    private static boolean isValid(Type type, String data) {
+        switch (type) {
+            case WHITESPACE -> {
+                for (int i = 0; i < data.length(); i++)
+                    if (!Scanner.isWhitespace(data.charAt(i)))
+                        return false;
+                return !data.isEmpty();
+            }
+            case IDENTIFIER -> {
+                for (int i = 0; i < data.length(); i++)
+                    if (!Scanner.isLetter(data.charAt(i)))
+                        return false;
+                return !data.isEmpty();
+            }
+            case LITERAL -> {
+                int start = data.startsWith("-") ? 1 : 0;
+                for (int i = start; i < data.length(); i++)
+                    if (!Scanner.isDigit(data.charAt(i)))
+                        return false;
+                return data.length() > start;
+            }
+            default -> {
+                return type.matches(data);
+            }
+        }
     }
 
     private final Type type;
@@ -56,11 +165,12 @@ public class Token {
      * @param data The string of the token, which must follow the regex provided by the given {@link Type}
      */
     public Token(Type type, String data) {
-        //enforce data follows regex
-        Pattern pattern = Pattern.compile(type.getPattern());
-        Matcher matcher = pattern.matcher(data);
+        this(type, data, true);
+    }
 
-        if(!matcher.matches())
+    private Token(Type type, String data, boolean validate) {
+        //enforce data follows regex
+        if(validate && !type.matches(data))
             throw new IllegalArgumentException("The data does not match the pattern, for type " + type + ", with pattern " + type.getPattern() + " and data " + data);
 
         this.type = type;
@@ -90,18 +200,19 @@ public class Token {
      * @return {@code true} if and only if this token has the {@link Type} passed in
      */
     public boolean matches(Type type) {
-        return this.type.equals(type);
+        return this.type == type;
     }
 
     /**
-     * Compares the {@link Type} passed in to the type of the token and the data to the data
+     * Compares the {@link Type} passed in to the type of the token and the data to the data.
+     * Shared tokens hold the interned spelling, so comparing one with a string constant is an identity comparison
      *
      * @param type The {@link Type} to compare to
      * @param data The text to compare to
      * @return {@code true} if and only if this token has the {@link Type} and data passed in
      */
     public boolean matches(Type type, String data) {
-        return matches(type) && this.data.equals(data);
+        return this.type == type && (this.data == data || this.data.equals(data));
     }
 
     /**
@@ -127,6 +238,8 @@ public class Token {
 
     @Override
     public boolean equals(Object o) {
+        if (o == this)
+            return true;
         if (o instanceof Token other)
             return matches(other.getType(), other.getData());
         return false;
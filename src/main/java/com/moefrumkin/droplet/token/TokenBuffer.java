@@ -0,0 +1,213 @@
+package com.moefrumkin.droplet.token;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * A compact tokenization of a source. Instead of one object per token, the buffer keeps the type, start offset and end offset of every token in parallel int arrays, which is 12 bytes per token.
+ * The text of a token is only copied out of the source when it is asked for, and lines and columns are only computed for diagnostics.
+ * Like a {@link Lexer}, the buffer does not hold whitespace, and its last token is a {@link Type#TERMINATOR}
+ */
+public final class TokenBuffer {
+
+    private static final Type[] TYPES = Type.values();
+
+    private final CharSequence source;
+    private int[] types;
+    private int[] starts;
+    private int[] ends;
+    private int size;
+    private int[] lineStarts;
+
+    private TokenBuffer(CharSequence source, int capacity) {
+        this.source = source;
+        types = new int[capacity];
+        starts = new int[capacity];
+        ends = new int[capacity];
+        size = 0;
+    }
+
+    /**
+     * Tokenizes a string
+     * @param source the string to tokenize
+     * @return the buffer of tokens
+     */
+    public static TokenBuffer tokenize(CharSequence source) {
+        TokenBuffer buffer = new TokenBuffer(source, estimateCapacity(source.length()));
+        buffer.scan(new Scanner(source), source.length());
+        return buffer;
+    }
+
+    /**
+     * Tokenizes the remaining bytes of a buffer without decoding them into a string. Offsets are relative to the position of the buffer
+     * @param source the bytes to tokenize
+     * @return the buffer of tokens
+     */
+    public static TokenBuffer tokenize(ByteBuffer source) {
+        ByteBuffer bytes = source.slice();
+        TokenBuffer buffer = new TokenBuffer(new AsciiSequence(bytes), estimateCapacity(bytes.remaining()));
+        buffer.scan(new Scanner(bytes, 0, bytes.limit()), bytes.limit());
+        return buffer;
+    }
+
+    /**
+     * Tokenizes a source file by mapping it into memory and scanning its bytes directly
+     * @param source the path of the file
+     * @return the buffer of tokens
+     * @throws IOException if the file cannot be mapped
+     */
+    public static TokenBuffer tokenize(Path source) throws IOException {
+        return tokenize(Lexer.map(source));
+    }
+
+    /**
+     * A guess at the number of tokens in a source of the given length, so that the arrays rarely have to grow
+     */
+    private static int estimateCapacity(int length) {
+        return Math.max(16, length / 4);
+    }
+
+    private void scan(Scanner scanner, int length) {
+        Type type;
+        while ((type = scanner.next()) != Type.TERMINATOR)
+            add(type, scanner.tokenStart(), scanner.tokenEnd());
+        add(Type.TERMINATOR, length, length);
+
+        types = Arrays.copyOf(types, size);
+        starts = Arrays.copyOf(starts, size);
+        ends = Arrays.copyOf(ends, size);
+    }
+
+    private void add(Type type, int start, int end) {
+        if (size == types.length) {
+            int capacity = types.length * 2;
+            types = Arrays.copyOf(types, capacity);
+            starts = Arrays.copyOf(starts, capacity);
+            ends = Arrays.copyOf(ends, capacity);
+        }
+        types[size] = type.ordinal();
+        starts[size] = start;
+        ends[size] = end;
+        size += 1;
+    }
+
+    /**
+     * @return the number of tokens, including the terminator
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the source the tokens were generated from
+     */
+    public CharSequence source() {
+        return source;
+    }
+
+    /**
+     * @param index the index of the token
+     * @return the {@link Type} of the token
+     */
+    public Type type(int index) {
+        return TYPES[types[checkIndex(index)]];
+    }
+
+    /**
+     * @param index the index of the token
+     * @return the offset of the first character of the token in the source
+     */
+    public int start(int index) {
+        return starts[checkIndex(index)];
+    }
+
+    /**
+     * @param index the index of the token
+     * @return the offset after the last character of the token in the source
+     */
+    public int end(int index) {
+        return ends[checkIndex(index)];
+    }
+
+    /**
+     * Copies the text of a token out of the source
+     * @param index the index of the token
+     * @return the text of the token
+     */
+    public String text(int index) {
+        return source.subSequence(start(index), end(index)).toString();
+    }
+
+    /**
+     * Creates the {@link Token} at the given index. Keywords, special tokens and operators are shared instances, so only identifiers and literals are allocated
+     * @param index the index of the token
+     * @return the token
+     */
+    public Token token(int index) {
+        return switch (type(index)) {
+            case TERMINATOR -> Token.terminator();
+            default -> Lexer.token(type(index), source, starts[index], ends[index]);
+        };
+    }
+
+    /**
+     * Computes the line of a token
+     * @param index the index of the token
+     * @return the line, starting at 1
+     */
+    public int line(int index) {
+        int line = Arrays.binarySearch(lineStarts(), start(index));
+        //an exact match is the first character of a line, otherwise the insertion point is after the start of the line
+        return line >= 0 ? line + 1 : -line - 1;
+    }
+
+    /**
+     * Computes the column of a token
+     * @param index the index of the token
+     * @return the column, starting at 1
+     */
+    public int column(int index) {
+        return start(index) - lineStarts()[line(index) - 1] + 1;
+    }
+
+    /**
+     * Computes the position of a token
+     * @param index the index of the token
+     * @return the position
+     */
+    public Position position(int index) {
+        return new Position(start(index), line(index), column(index));
+    }
+
+    /**
+     * Creates a stream over the tokens, which can be passed to a {@link com.moefrumkin.droplet.parser.Parser}
+     * @return the stream, starting at the first token
+     */
+    public TokenStream stream() {
+        return new BufferTokenStream(this);
+    }
+
+    private int[] lineStarts() {
+        if (lineStarts == null) {
+            int[] starts = new int[16];
+            int lines = 1;
+            for (int i = 0; i < source.length(); i++) {
+                if (source.charAt(i) == '\n') {
+                    if (lines == starts.length)
+                        starts = Arrays.copyOf(starts, lines * 2);
+                    starts[lines++] = i + 1;
+                }
+            }
+            lineStarts = Arrays.copyOf(starts, lines);
+        }
+        return lineStarts;
+    }
+
+    private int checkIndex(int index) {
+        if (index < 0 || index >= size)
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for " + size + " tokens");
+        return index;
+    }
+}
@@ -0,0 +1,76 @@
+package com.moefrumkin.droplet.token;
+
+import java.io.Reader;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * A source of tokens that are produced on demand. A stream only has to keep the tokens in its lookahead window in memory.
+ * The last token of a stream is always a {@link Type#TERMINATOR}
+ */
+public interface TokenStream {
+
+    /**
+     * Creates a stream over a list of tokens that have already been generated
+     * @param tokens the tokens, which must end with a {@link Type#TERMINATOR}
+     * @return the stream
+     */
+    static TokenStream of(List<Token> tokens) {
+        return new ListTokenStream(tokens);
+    }
+
+    /**
+     * Creates a stream that tokenizes the characters of a reader as the tokens are needed
+     * @param reader the reader
+     * @return the stream
+     */
+    static TokenStream of(Reader reader) {
+        return new ReaderTokenStream(reader);
+    }
+
+    /**
+     * Creates a stream that tokenizes the UTF-8 encoded bytes of a channel as the tokens are needed
+     * @param channel the channel
+     * @return the stream
+     */
+    static TokenStream of(ReadableByteChannel channel) {
+        return new ReaderTokenStream(Channels.newReader(channel, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Returns the token at the given offset from the current token, reading ahead if necessary
+     * @param offset the offset, where 0 is the current token
+     * @return the {@link Token}
+     */
+    Token peek(int offset);
+
+    /**
+     * Moves the stream to the next token
+     */
+    void advance();
+
+    /**
+     * @return True if and only if there are tokens left including the current token
+     */
+    boolean hasNext();
+
+    /**
+     * Replace a token at a given offset from the current token
+     * @param offset the offset
+     * @param token the new token
+     * @return the token being replaced
+     */
+    Token replace(int offset, Token token);
+
+    /**
+     * Gets the position in the source of the token at the given offset from the current token, for diagnostics
+     * @param offset the offset
+     * @return the position, or empty if the stream does not track positions
+     */
+    default Optional<Position> position(int offset) {
+        return Optional.empty();
+    }
+}
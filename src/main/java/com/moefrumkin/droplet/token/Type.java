@@ -1,5 +1,7 @@
 package com.moefrumkin.droplet.token;
 
+import java.util.regex.Pattern;
+
 /**
  * An enum that represents the types of token in droplet
  */
@@ -34,9 +36,11 @@ public enum Type {
     TERMINATOR("^$");
 
     private final String pattern;
+    private final Pattern compiledPattern;
 
     Type(String pattern) {
         this.pattern = pattern;
+        this.compiledPattern = Pattern.compile(pattern);
     }
 
     /**
@@ -44,4 +48,11 @@ public enum Type {
      * @return the regex as a {@link String}
      */
     public String getPattern() { return pattern; }
+
+    /**
+     * Determines whether a string is a valid token of this type
+     * @param data the string
+     * @return {@code true} if and only if the whole string matches the pattern of this type
+     */
+    public boolean matches(String data) { return compiledPattern.matcher(data).matches(); }
 }
@@ -0,0 +1,74 @@
+package com.moefrumkin.droplet.token;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Finds the ends of runs by classifying a whole vector of bytes at a time, which is 16 to 64 bytes depending on the hardware.
+ * The bytes left over at the end of the range, which do not fill a vector, are classified one at a time.
+ * This class must only be loaded through {@link Runs#VECTOR}
+ */
+final class VectorRuns implements Runs {
+
+    private static final VectorSpecies<Byte> SPECIES = ByteVector.SPECIES_PREFERRED;
+    private static final int LENGTH = SPECIES.length();
+
+    @Override
+    public int whitespaceEnd(ByteBuffer bytes, int index, int end) {
+        for (; index + LENGTH <= end; index += LENGTH) {
+            ByteVector vector = load(bytes, index);
+            VectorMask<Byte> whitespace = vector.eq((byte) ' ')
+                    .or(vector.eq((byte) '\n'))
+                    .or(vector.eq((byte) '\t'))
+                    .or(vector.eq((byte) '\r'))
+                    .or(vector.eq((byte) '\f'));
+            if (!whitespace.allTrue())
+                return index + whitespace.not().firstTrue();
+        }
+        while (index < end && Scanner.isWhitespace(charAt(bytes, index)))
+            index++;
+        return index;
+    }
+
+    @Override
+    public int lettersEnd(ByteBuffer bytes, int index, int end) {
+        for (; index + LENGTH <= end; index += LENGTH) {
+            //setting the 0x20 bit maps upper case letters to lower case, and no other byte into a-z
+            ByteVector lower = load(bytes, index).or((byte) 0x20);
+            VectorMask<Byte> letters = lower.compare(VectorOperators.GE, (byte) 'a')
+                    .and(lower.compare(VectorOperators.LE, (byte) 'z'));
+            if (!letters.allTrue())
+                return index + letters.not().firstTrue();
+        }
+        while (index < end && Scanner.isLetter(charAt(bytes, index)))
+            index++;
+        return index;
+    }
+
+    @Override
+    public int digitsEnd(ByteBuffer bytes, int index, int end) {
+        for (; index + LENGTH <= end; index += LENGTH) {
+            ByteVector vector = load(bytes, index);
+            VectorMask<Byte> digits = vector.compare(VectorOperators.GE, (byte) '0')
+                    .and(vector.compare(VectorOperators.LE, (byte) '9'));
+            if (!digits.allTrue())
+                return index + digits.not().firstTrue();
+        }
+        while (index < end && Scanner.isDigit(charAt(bytes, index)))
+            index++;
+        return index;
+    }
+
+    private static ByteVector load(ByteBuffer bytes, int index) {
+        return ByteVector.fromByteBuffer(SPECIES, bytes, index, ByteOrder.nativeOrder());
+    }
+
+    private static char charAt(ByteBuffer bytes, int index) {
+        return (char) (bytes.get(index) & 0xFF);
+    }
+}
@@ -0,0 +1,49 @@
+package com.moefrumkin.droplet.benchmark;
+
+import java.util.function.Supplier;
+
+/**
+ * A minimal harness for the benchmarks in this package. Each benchmark is a plain {@code main} method, so they are not run by the test suite.
+ * Run one with {@code mvn -B test-compile} and {@code java -cp target/classes:target/test-classes com.moefrumkin.droplet.benchmark.<Name>}
+ */
+public final class Benchmark {
+
+    private static final int WARMUP_ROUNDS = 5;
+    private static final int MEASURED_ROUNDS = 10;
+
+    /**
+     * Prevents the JIT from eliminating benchmarked work
+     */
+    private static volatile Object sink;
+
+    private Benchmark() {}
+
+    /**
+     * Runs the given work repeatedly and returns the mean time of a measured round
+     * @param work the work to measure
+     * @return the mean time of one run in nanoseconds
+     */
+    public static double measure(Supplier<?> work) {
+        for (int i = 0; i < WARMUP_ROUNDS; i++)
+            sink = work.get();
+
+        long start = System.nanoTime();
+        for (int i = 0; i < MEASURED_ROUNDS; i++)
+            sink = work.get();
+        return (System.nanoTime() - start) / (double) MEASURED_ROUNDS;
+    }
+
+    /**
+     * Measures the work and prints its throughput
+     * @param name the name of the measurement
+     * @param units the number of units processed by one run of the work
+     * @param unitName the name of the unit, such as tokens
+     * @param work the work to measure
+     * @return the mean time of one run in nanoseconds
+     */
+    public static double report(String name, long units, String unitName, Supplier<?> work) {
+        double nanos = measure(work);
+        System.out.printf("%-32s %12.3f ms %16.0f %s/s%n", name, nanos / 1e6, units / (nanos / 1e9), unitName);
+        return nanos;
+    }
+}
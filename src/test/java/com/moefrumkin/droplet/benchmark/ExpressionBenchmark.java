@@ -0,0 +1,54 @@
+package com.moefrumkin.droplet.benchmark;
+
+import com.moefrumkin.droplet.parser.Parser;
+import com.moefrumkin.droplet.parser.exception.UnexpectedTokenException;
+import com.moefrumkin.droplet.parser.exception.UnexpectedTokenTypeException;
+import com.moefrumkin.droplet.parser.expression.Expression;
+import com.moefrumkin.droplet.parser.expression.ExpressionParser;
+import com.moefrumkin.droplet.token.Lexer;
+import com.moefrumkin.droplet.token.Token;
+import com.moefrumkin.droplet.token.Type;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compares the throughput of the precedence climbing {@link ExpressionParser} with the shunting-yard algorithm it replaced
+ */
+public final class ExpressionBenchmark {
+
+    private ExpressionBenchmark() {}
+
+    /**
+     * A way of parsing one expression
+     */
+    private interface ExpressionParse {
+        Expression parse(Parser parser) throws UnexpectedTokenTypeException, UnexpectedTokenException;
+    }
+
+    public static void main(String[] args) {
+        int statements = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        List<Token> tokens = Lexer.SCANNER.tokenize(Programs.expressions(statements));
+
+        System.out.printf("%d expressions, %d tokens%n", statements, tokens.size());
+        //the shunting-yard algorithm rewrites tokens, so both parse a fresh copy
+        Benchmark.report("Copy tokens", tokens.size(), "tokens", () -> new ArrayList<>(tokens));
+        Benchmark.report("Shunting-yard", tokens.size(), "tokens", () -> parseAll(new ArrayList<>(tokens), Expression::parseShuntingYard));
+        Benchmark.report("Precedence climbing", tokens.size(), "tokens", () -> parseAll(new ArrayList<>(tokens), ExpressionParser::parse));
+    }
+
+    private static int parseAll(List<Token> tokens, ExpressionParse parse) {
+        Parser parser = new Parser(tokens);
+        int count = 0;
+        try {
+            while (!parser.currentToken().matches(Type.TERMINATOR)) {
+                parse.parse(parser);
+                parser.match(Type.SPECIAL, ";");
+                count++;
+            }
+        } catch (UnexpectedTokenTypeException | UnexpectedTokenException e) {
+            throw new IllegalStateException(e);
+        }
+        return count;
+    }
+}
@@ -0,0 +1,125 @@
+package com.moefrumkin.droplet.benchmark;
+
+import com.moefrumkin.droplet.interpreter.Configuration;
+import com.moefrumkin.droplet.interpreter.basicInterpreter.BasicInterpreter;
+import com.moefrumkin.droplet.interpreter.flatInterpreter.FlatInterpreter;
+import com.moefrumkin.droplet.interpreter.flatInterpreter.FlatProgram;
+import com.moefrumkin.droplet.interpreter.vm.Bytecode;
+import com.moefrumkin.droplet.interpreter.vm.VirtualMachine;
+import com.moefrumkin.droplet.parser.Parser;
+import com.moefrumkin.droplet.parser.SyntaxTree;
+import com.moefrumkin.droplet.parser.cache.AstSize;
+import com.moefrumkin.droplet.parser.exception.UnexpectedTokenException;
+import com.moefrumkin.droplet.parser.exception.UnexpectedTokenTypeException;
+import com.moefrumkin.droplet.parser.expression.BinaryOperationExpression;
+import com.moefrumkin.droplet.token.Lexer;
+
+import java.io.OutputStream;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.IntBinaryOperator;
+
+/**
+ * Compares the interpreters and the virtual machine on a recursive and a looping program, library functions that take a list with native ones, the bytes they allocate per call, and the size of a lowered program with the size of its tree
+ */
+public final class InterpreterBenchmark {
+
+    private static final Map<BinaryOperationExpression.Type, IntBinaryOperator> OPERATIONS = new HashMap<>(Configuration.DEFAULT_BINARY_OPERATIONS);
+
+    private static final MethodHandle MAX;
+
+    static {
+        OPERATIONS.put(BinaryOperationExpression.Type.ASSIGNMENT, (left, right) -> right);
+        try {
+            MAX = MethodHandles.lookup().findStatic(Math.class, "max", MethodType.methodType(int.class, int.class, int.class));
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private InterpreterBenchmark() {}
+
+    public static void main(String[] args) throws UnexpectedTokenTypeException, UnexpectedTokenException {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 22;
+        SyntaxTree fibonacci = parse(Programs.fibonacci(n));
+        SyntaxTree loop = parse(Programs.loop(200_000));
+        FlatProgram flatFibonacci = FlatProgram.lower(fibonacci);
+        FlatProgram flatLoop = FlatProgram.lower(loop);
+        Bytecode compiledFibonacci = Bytecode.compile(fibonacci);
+        Bytecode compiledLoop = Bytecode.compile(loop);
+        long calls = Programs.fibonacciCalls(n);
+
+        System.out.printf("fib(%d): %d calls, loop: 200000 iterations%n", n, calls);
+        Benchmark.report("Basic fib", calls, "calls", () -> { fibonacci.interpret(basic().build()); return null; });
+        Benchmark.report("Flat fib", calls, "calls", () -> { flat().execute(flatFibonacci); return null; });
+        Benchmark.report("Resolved fib", calls, "calls", () -> { fibonacci.interpret(resolved()); return null; });
+        Benchmark.report("Closure fib", calls, "calls", () -> { fibonacci.interpret(closures()); return null; });
+        Benchmark.report("VM fib", calls, "calls", () -> { vm().execute(compiledFibonacci); return null; });
+        Benchmark.report("Basic loop", 200_000, "iterations", () -> { loop.interpret(basic().build()); return null; });
+        Benchmark.report("Flat loop", 200_000, "iterations", () -> { flat().execute(flatLoop); return null; });
+        Benchmark.report("Resolved loop", 200_000, "iterations", () -> { loop.interpret(resolved()); return null; });
+        Benchmark.report("Closure loop", 200_000, "iterations", () -> { loop.interpret(closures()); return null; });
+        Benchmark.report("VM loop", 200_000, "iterations", () -> { vm().execute(compiledLoop); return null; });
+
+        SyntaxTree libraryCalls = parse(Programs.libraryCalls(200_000));
+        Benchmark.report("List library calls", 200_000, "calls", () -> { libraryCalls.interpret(basic().addFunction("max", (interpreter, arguments) -> Math.max(arguments.get(0), arguments.get(1))).build()); return null; });
+        Benchmark.report("Native library calls", 200_000, "calls", () -> { libraryCalls.interpret(basic().addFunction("max", MAX).build()); return null; });
+        Benchmark.report("VM native library calls", 200_000, "calls", () -> { libraryCalls.interpret(vmBuilder().addFunction("max", MAX).build()); return null; });
+
+        System.out.printf("%nAllocation per call of fib(%d)%n", n);
+        allocation("Basic fib", calls, () -> fibonacci.interpret(basic().build()));
+        allocation("Resolved fib", calls, () -> fibonacci.interpret(resolved()));
+        allocation("Closure fib", calls, () -> fibonacci.interpret(closures()));
+        allocation("VM fib", calls, () -> vm().execute(compiledFibonacci));
+
+        SyntaxTree generated = parse(Programs.generated(50_000));
+        System.out.printf("%nGenerated program with 50000 functions%n");
+        System.out.printf("%-32s %12d bytes%n", "Tree", AstSize.estimate(generated));
+        System.out.printf("%-32s %12d bytes%n", "Flat program", FlatProgram.lower(generated).bytes());
+    }
+
+    /**
+     * Prints the bytes the current thread allocates per unit of work, after warming the work up
+     */
+    private static void allocation(String name, long units, Runnable work) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        for (int i = 0; i < 5; i++)
+            work.run();
+        long before = threads.getCurrentThreadAllocatedBytes();
+        work.run();
+        long bytes = threads.getCurrentThreadAllocatedBytes() - before;
+        System.out.printf("%-32s %12.1f bytes/call%n", name, (double) bytes / units);
+    }
+
+    private static SyntaxTree parse(String source) throws UnexpectedTokenTypeException, UnexpectedTokenException {
+        return new Parser(Lexer.SCANNER.tokenize(source)).parse();
+    }
+
+    private static BasicInterpreter.Builder basic() {
+        return new BasicInterpreter.Builder().output(OutputStream.nullOutputStream()).binaryOperations(OPERATIONS);
+    }
+
+    private static BasicInterpreter resolved() {
+        return new BasicInterpreter.Builder().output(OutputStream.nullOutputStream()).binaryOperations(OPERATIONS).resolveVariables(true).build();
+    }
+
+    private static BasicInterpreter closures() {
+        return basic().compileClosures(true).build();
+    }
+
+    private static FlatInterpreter flat() {
+        return new FlatInterpreter.Builder().output(OutputStream.nullOutputStream()).binaryOperations(OPERATIONS).build();
+    }
+
+    private static VirtualMachine.Builder vmBuilder() {
+        return new VirtualMachine.Builder().output(OutputStream.nullOutputStream()).binaryOperations(OPERATIONS);
+    }
+
+    private static VirtualMachine vm() {
+        return vmBuilder().build();
+    }
+}
@@ -0,0 +1,69 @@
+package com.moefrumkin.droplet.benchmark;
+
+import com.moefrumkin.droplet.token.Lexer;
+import com.moefrumkin.droplet.token.Scanner;
+import com.moefrumkin.droplet.token.TokenBuffer;
+import com.moefrumkin.droplet.token.Type;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Compares the throughput of the available lexers on a generated program
+ */
+public final class LexerBenchmark {
+
+    private LexerBenchmark() {}
+
+    public static void main(String[] args) throws IOException {
+        int functions = args.length > 0 ? Integer.parseInt(args[0]) : 20_000;
+        String source = Programs.generated(functions);
+        int tokens = Lexer.SCANNER.tokenize(source).size();
+
+        System.out.printf("%d functions, %d bytes, %d tokens%n", functions, source.length(), tokens);
+        for (Lexer lexer : Lexer.values()) {
+            Benchmark.report(lexer.name(), tokens, "tokens", () -> lexer.tokenize(source));
+        }
+        Benchmark.report("TokenBuffer", tokens, "tokens", () -> TokenBuffer.tokenize(source));
+        ByteBuffer bytes = ByteBuffer.wrap(source.getBytes(StandardCharsets.US_ASCII));
+        Benchmark.report("SCANNER (bytes)", tokens, "tokens", () -> Lexer.SCANNER.tokenize(bytes));
+        Benchmark.report("VECTOR (bytes)", tokens, "tokens", () -> Lexer.VECTOR.tokenize(bytes));
+
+        Path file = Files.createTempFile("droplet", ".dp");
+        try {
+            Files.writeString(file, source);
+            Benchmark.report("SCANNER (read file)", tokens, "tokens", () -> {
+                try {
+                    return Lexer.SCANNER.tokenize(Files.readString(file));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            Benchmark.report("SCANNER (map file)", tokens, "tokens", () -> {
+                try {
+                    return Lexer.SCANNER.tokenize(file);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } finally {
+            Files.delete(file);
+        }
+
+        Benchmark.report("Scanner (classification only)", tokens, "tokens", () -> classify(new Scanner(source)));
+        Benchmark.report("Scanner (bytes, classification only)", tokens, "tokens", () -> classify(new Scanner(bytes, 0, bytes.limit())));
+        //needs a build with -P vector and --add-modules jdk.incubator.vector, or it measures the same scalar scanner
+        Benchmark.report("Scanner (vector, classification only)", tokens, "tokens", () -> classify(Scanner.vectorized(bytes, 0, bytes.limit())));
+    }
+
+    private static int classify(Scanner scanner) {
+        int count = 0;
+        while (scanner.next() != Type.TERMINATOR)
+            count++;
+        return count;
+    }
+}
@@ -0,0 +1,54 @@
+package com.moefrumkin.droplet.benchmark;
+
+import com.moefrumkin.droplet.parser.IterativeParser;
+import com.moefrumkin.droplet.parser.Parser;
+import com.moefrumkin.droplet.parser.exception.UnexpectedTokenException;
+import com.moefrumkin.droplet.parser.exception.UnexpectedTokenTypeException;
+import com.moefrumkin.droplet.parser.statement.Statement;
+import com.moefrumkin.droplet.token.Lexer;
+import com.moefrumkin.droplet.token.Token;
+
+import java.util.List;
+
+/**
+ * Parses pathologically nested statements with the recursive and the {@link IterativeParser}, at growing depths, to show that the iterative parser stays linear and never overflows the stack
+ */
+public final class NestingBenchmark {
+
+    private NestingBenchmark() {}
+
+    /**
+     * A way of parsing a statement
+     */
+    private interface StatementParse {
+        Statement parse(Parser parser) throws UnexpectedTokenTypeException, UnexpectedTokenException;
+    }
+
+    public static void main(String[] args) {
+        for (int depth : new int[]{1_000, 10_000, 100_000, 1_000_000}) {
+            System.out.printf("%nDepth %d%n", depth);
+            measure("Parentheses", Lexer.SCANNER.tokenize("a = " + "(".repeat(depth) + "a" + ")".repeat(depth) + ";"));
+            measure("Calls", Lexer.SCANNER.tokenize("f(".repeat(depth) + ")".repeat(depth) + ";"));
+            measure("Blocks", Lexer.SCANNER.tokenize("{ if (a) ".repeat(depth) + ";" + " }".repeat(depth)));
+        }
+    }
+
+    private static void measure(String name, List<Token> tokens) {
+        report(name + ", recursive", tokens, Statement::parse);
+        report(name + ", iterative", tokens, IterativeParser::statement);
+    }
+
+    private static void report(String name, List<Token> tokens, StatementParse parse) {
+        try {
+            Benchmark.report(name, tokens.size(), "tokens", () -> {
+                try {
+                    return parse.parse(new Parser(tokens));
+                } catch (UnexpectedTokenTypeException | UnexpectedTokenException e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+        } catch (StackOverflowError e) {
+            System.out.printf("%-32s %s%n", name, "stack overflow");
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.moefrumkin.droplet.benchmark;
+
+import com.moefrumkin.droplet.interpreter.basicInterpreter.BasicInterpreter;
+import com.moefrumkin.droplet.parser.ParallelParser;
+import com.moefrumkin.droplet.parser.Parser;
+import com.moefrumkin.droplet.parser.SyntaxTree;
+import com.moefrumkin.droplet.parser.binary.ProgramCache;
+import com.moefrumkin.droplet.parser.cache.AstSize;
+import com.moefrumkin.droplet.parser.cache.HashConsing;
+import com.moefrumkin.droplet.parser.exception.UnexpectedTokenException;
+import com.moefrumkin.droplet.parser.exception.UnexpectedTokenTypeException;
+import com.moefrumkin.droplet.parser.function.FunctionList;
+import com.moefrumkin.droplet.parser.function.Reachability;
+import com.moefrumkin.droplet.token.Lexer;
+import com.moefrumkin.droplet.token.Token;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
+
+/**
+ * Compares sequential parsing with parallel, iterative and lazy parsing of function bodies, with sharing equal nodes, and with decoding a compiled program, on a generated program
+ */
+public final class ParserBenchmark {
+
+    private ParserBenchmark() {}
+
+    public static void main(String[] args) throws IOException, UnexpectedTokenTypeException, UnexpectedTokenException {
+        int functions = args.length > 0 ? Integer.parseInt(args[0]) : 50_000;
+        String source = Programs.generated(functions);
+        List<Token> tokens = Lexer.SCANNER.tokenize(source);
+        ParallelParser parallel = new ParallelParser(ForkJoinPool.commonPool());
+
+        System.out.printf("%d functions, %d tokens, parallelism %d%n", functions, tokens.size(), ForkJoinPool.commonPool().getParallelism());
+        Benchmark.report("Sequential", tokens.size(), "tokens", () -> {
+            try {
+                return new Parser(tokens).parse();
+            } catch (UnexpectedTokenTypeException | UnexpectedTokenException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        Benchmark.report("Parallel", tokens.size(), "tokens", () -> {
+            try {
+                return parallel.parse(tokens);
+            } catch (UnexpectedTokenTypeException | UnexpectedTokenException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        Benchmark.report("Iterative", tokens.size(), "tokens", () -> {
+            try {
+                return new Parser(tokens).parseIteratively();
+            } catch (UnexpectedTokenTypeException | UnexpectedTokenException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        Benchmark.report("Lazy", tokens.size(), "tokens", () -> {
+            try {
+                return new Parser(tokens).parseLazily();
+            } catch (UnexpectedTokenTypeException | UnexpectedTokenException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        //main only calls the first function, so only two bodies are parsed
+        Benchmark.report("Lazy and run", tokens.size(), "tokens", () -> {
+            try {
+                SyntaxTree program = new Parser(tokens).parseLazily();
+                program.interpret(new BasicInterpreter.Builder().output(OutputStream.nullOutputStream()).build());
+                return program;
+            } catch (UnexpectedTokenTypeException | UnexpectedTokenException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        Benchmark.report("Lazy and prune", tokens.size(), "tokens", () -> {
+            try {
+                return Reachability.of((FunctionList) new Parser(tokens).parseLazily()).prune();
+            } catch (UnexpectedTokenTypeException | UnexpectedTokenException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+
+        Benchmark.report("Tokenize and parse", tokens.size(), "tokens", () -> {
+            try {
+                return new Parser(Lexer.SCANNER.tokenize(source)).parse();
+            } catch (UnexpectedTokenTypeException | UnexpectedTokenException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+
+        SyntaxTree tree = new Parser(tokens).parse();
+        SyntaxTree shared = new HashConsing().share(tree);
+        System.out.printf("tree is %d bytes, shared tree is %d bytes, %d bytes saved%n", AstSize.estimate(tree), AstSize.estimate(shared), HashConsing.bytesSaved(tree, shared));
+        Benchmark.report("Hash-consing", tokens.size(), "tokens", () -> new HashConsing().share(tree));
+
+        Path directory = Files.createTempDirectory("droplet");
+        try {
+            ProgramCache cache = new ProgramCache(directory);
+            cache.compile(source);
+            System.out.printf("compiled program is %d bytes, source is %d bytes%n", Files.size(cache.path(source)), source.length());
+            Benchmark.report("Cache hit", tokens.size(), "tokens", () -> {
+                try {
+                    return cache.compile(source);
+                } catch (UnexpectedTokenTypeException | UnexpectedTokenException e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+            Benchmark.report("Cache hit, every body decoded", tokens.size(), "tokens", () -> {
+                try {
+                    FunctionList program = cache.compile(source);
+                    program.functions().forEach(function -> function.body().hashCode());
+                    return program;
+                } catch (UnexpectedTokenTypeException | UnexpectedTokenException e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+        } finally {
+            try (Stream<Path> paths = Files.walk(directory)) {
+                paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            }
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.moefrumkin.droplet.benchmark;
+
+/**
+ * Generators for the droplet programs used by the benchmarks
+ */
+public final class Programs {
+
+    private Programs() {}
+
+    /**
+     * Generates a program in the style of machine generated sources: a main function followed by many small functions that call each other
+     * @param functions the number of functions besides main
+     * @return the source of the program
+     */
+    public static String generated(int functions) {
+        StringBuilder builder = new StringBuilder();
+        builder.append("def main() {\n    print(").append(name(0)).append("(1, 2));\n}\n\n");
+        for (int i = 0; i < functions; i++) {
+            builder.append("def ").append(name(i)).append("(alpha, beta) {\n")
+                    .append("    let gamma = alpha * 3 + beta - ").append(i).append(";\n")
+                    .append("    let delta = (gamma - alpha) * (beta + 7);\n")
+                    .append("    if (gamma > 100) {\n")
+                    .append("        return ").append(name((i + 1) % functions)).append("(gamma - 1, beta);\n")
+                    .append("    }\n")
+                    .append("    while (delta < 0) {\n")
+                    .append("        print(delta == alpha, -beta);\n")
+                    .append("    }\n")
+                    .append("    return gamma * delta;\n")
+                    .append("}\n\n");
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Names a generated function. Identifiers can only contain letters, so the index is written in base 26
+     * @param index the index of the function
+     * @return the name of the function
+     */
+    public static String name(int index) {
+        StringBuilder name = new StringBuilder("f");
+        do {
+            name.append((char) ('a' + index % 26));
+            index /= 26;
+        } while (index > 0);
+        return name.toString();
+    }
+
+    /**
+     * Generates a list of expression statements that mix every precedence level, unary minus, calls and parentheses
+     * @param statements the number of statements
+     * @return the source of the statements
+     */
+    public static String expressions(int statements) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < statements; i++) {
+            builder.append("alpha * ").append(i).append(" + beta - gamma * - delta < f(alpha, (beta + ").append(i)
+                    .append(") * 2) == (epsilon - 1) * - zeta;\n");
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Generates a program that prints the nth Fibonacci number by naive recursion
+     * @param n the index of the number
+     * @return the source of the program
+     */
+    public static String fibonacci(int n) {
+        return """
+                def main() {
+                    print(fib(%d));
+                }
+
+                def fib(n) {
+                    if (n < 2)
+                        return n;
+                    return fib(n - 1) + fib(n - 2);
+                }
+                """.formatted(n);
+    }
+
+    /**
+     * Counts the calls of {@code fib} made by {@link #fibonacci(int)}
+     * @param n the index of the number
+     * @return the number of calls
+     */
+    public static long fibonacciCalls(int n) {
+        long previous = 1;
+        long calls = 1;
+        for (int i = 2; i <= n; i++) {
+            long next = calls + previous + 1;
+            previous = calls;
+            calls = next;
+        }
+        return calls;
+    }
+
+    /**
+     * Generates a program with a single loop that sums numbers. Assignment has no default operation, so it needs an interpreter with one
+     * @param iterations the number of iterations
+     * @return the source of the program
+     */
+    public static String loop(int iterations) {
+        return """
+                def main() {
+                    let i = 0;
+                    let sum = 0;
+                    while (i < %d) {
+                        sum = sum + i * 2 - 1;
+                        i = i + 1;
+                    }
+                    print(sum);
+                }
+                """.formatted(iterations);
+    }
+
+    /**
+     * Generates a program that calls a library function {@code max} of two arguments in a loop
+     * @param iterations the number of iterations of the loop
+     * @return the source of the program
+     */
+    public static String libraryCalls(int iterations) {
+        return """
+                def main() {
+                    let i = 0;
+                    let sum = 0;
+                    while (i < %d) {
+                        sum = sum + max(i, 100);
+                        i = i + 1;
+                    }
+                    print(sum);
+                }
+                """.formatted(iterations);
+    }
+}
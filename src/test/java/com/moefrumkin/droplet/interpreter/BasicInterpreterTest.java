@@ -1,16 +1,27 @@
 package com.moefrumkin.droplet.interpreter;
 
 import com.moefrumkin.droplet.interpreter.basicInterpreter.BasicInterpreter;
+import com.moefrumkin.droplet.interpreter.basicInterpreter.exceptions.InterpreterRuntimeException;
+import com.moefrumkin.droplet.interpreter.basicInterpreter.stackframe.StackFrameException;
+import com.moefrumkin.droplet.interpreter.flatInterpreter.FlatInterpreter;
+import com.moefrumkin.droplet.interpreter.vm.VirtualMachine;
 import com.moefrumkin.droplet.parser.Parser;
 import com.moefrumkin.droplet.parser.SyntaxTree;
+import com.moefrumkin.droplet.parser.expression.FunctionCallExpression;
+import com.moefrumkin.droplet.parser.expression.LiteralExpression;
 import com.moefrumkin.droplet.parser.exception.UnexpectedTokenException;
 import com.moefrumkin.droplet.parser.exception.UnexpectedTokenTypeException;
 import com.moefrumkin.droplet.token.Token;
+import com.moefrumkin.droplet.token.Type;
 import org.junit.jupiter.api.Test;
 import static org.junit.jupiter.api.Assertions.*;
 
 import java.io.ByteArrayOutputStream;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.util.Arrays;
+import java.util.List;
 
 
 public class BasicInterpreterTest {
@@ -41,4 +52,89 @@ public class BasicInterpreterTest {
         tree.interpret(interpreter);
         assertArrayEquals(new byte[]{'0', '1', '0', '1', '1', '2', '0'}, outputStream.toByteArray());
     }
+
+    @Test
+    public void testLinking() throws UnexpectedTokenTypeException, UnexpectedTokenException {
+        //the arguments of every call of main are counted before main runs
+        SyntaxTree tree = new Parser(Token.tokenize("def main() { print(1); if (0) double(1, 2); } def double(n) { return 2 * n; }")).parse();
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        InterpreterRuntimeException exception = assertThrows(InterpreterRuntimeException.class, () -> tree.interpret(new BasicInterpreter.Builder().output(outputStream).build()));
+        assertTrue(exception.getMessage().startsWith("Expected 1 parameters, Given 2"));
+        assertEquals(0, outputStream.size());
+
+        //a call to a function that is not defined only fails when it is reached
+        SyntaxTree undefined = new Parser(Token.tokenize("def main() { print(1); if (0) missing(); print(2); }")).parse();
+        undefined.interpret(new BasicInterpreter.Builder().output(outputStream).build());
+        assertEquals("12", outputStream.toString());
+        SyntaxTree reached = new Parser(Token.tokenize("def main() { missing(); }")).parse();
+        assertThrows(StackFrameException.class, () -> reached.interpret(new BasicInterpreter.Builder().output(outputStream).build()));
+    }
+
+    @Test
+    public void testLinkingOutsideAProgram() throws UnexpectedTokenTypeException, UnexpectedTokenException {
+        //a call evaluated on its own is linked for that call, and a program run afterwards on the same interpreter links its calls again
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        BasicInterpreter interpreter = new BasicInterpreter.Builder().output(outputStream).build();
+        new FunctionCallExpression(Token.of(Type.IDENTIFIER, "print"), List.of(LiteralExpression.from(7))).evaluate(interpreter);
+        new Parser(Token.tokenize(program)).parse().interpret(interpreter);
+        assertEquals("70101120", outputStream.toString());
+    }
+
+    @Test
+    public void testLinkingInEveryEngine() throws UnexpectedTokenTypeException, UnexpectedTokenException {
+        //every engine counts the arguments of the calls of a function before the function first runs, even where the call is never reached
+        SyntaxTree tree = new Parser(Token.tokenize("def f(a) { print(a); } def main() { print(1); if (0) { f(1, 2); } }")).parse();
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        List<Interpreter> interpreters = List.of(
+                new BasicInterpreter.Builder().output(outputStream).build(),
+                new BasicInterpreter.Builder().output(outputStream).resolveVariables(true).build(),
+                new BasicInterpreter.Builder().output(outputStream).compileClosures(true).build(),
+                new FlatInterpreter.Builder().output(outputStream).build(),
+                new VirtualMachine.Builder().output(outputStream).build()
+        );
+        for (Interpreter interpreter : interpreters) {
+            RuntimeException exception = assertThrows(RuntimeException.class, () -> tree.interpret(interpreter));
+            assertTrue(exception.getMessage().startsWith("Expected 1 parameters, Given 2"), exception.getMessage());
+        }
+        assertEquals(0, outputStream.size());
+    }
+
+    private static int sum(int a, int b, int c, int d) {
+        return a + b + c + d;
+    }
+
+    private static int answer() {
+        return 42;
+    }
+
+    @Test
+    public void testNativeFunctions() throws ReflectiveOperationException, UnexpectedTokenTypeException, UnexpectedTokenException {
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        MethodHandle sum = lookup.findStatic(BasicInterpreterTest.class, "sum", MethodType.methodType(int.class, int.class, int.class, int.class, int.class));
+        MethodHandle answer = lookup.findStatic(BasicInterpreterTest.class, "answer", MethodType.methodType(int.class));
+        SyntaxTree tree = new Parser(Token.tokenize("def main() { print(max(3, abs(-7)), floorMod(-1, 3), sum(1, 2, 3, 4), answer()); }")).parse();
+
+        for (boolean resolveVariables : new boolean[]{false, true}) {
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            tree.interpret(new BasicInterpreter.Builder()
+                    .output(outputStream)
+                    .addFunction("max", Math.class.getMethod("max", int.class, int.class))
+                    .addFunction("abs", Math.class.getMethod("abs", int.class))
+                    .addFunction("floorMod", lookup.findStatic(Math.class, "floorMod", MethodType.methodType(int.class, int.class, int.class)))
+                    .addFunction("sum", sum)
+                    .addFunction("answer", answer)
+                    .resolveVariables(resolveVariables)
+                    .build());
+            assertEquals("721042", outputStream.toString());
+        }
+
+        SyntaxTree wrongArity = new Parser(Token.tokenize("def main() { print(max(1)); }")).parse();
+        assertThrows(InterpreterRuntimeException.class, () -> wrongArity.interpret(new BasicInterpreter.Builder().addFunction("max", Math.class.getMethod("max", int.class, int.class)).build()));
+        assertThrows(IllegalArgumentException.class, () -> new BasicInterpreter.Builder().addFunction("max", Math.class.getMethod("max", long.class, long.class)));
+        assertThrows(IllegalArgumentException.class, () -> new BasicInterpreter.Builder().addFunction("length", String.class.getMethod("length")));
+
+        //the list based path still reaches a native function
+        BasicInterpreter interpreter = new BasicInterpreter.Builder().addFunction("sum", sum).build();
+        assertEquals(10, interpreter.getLibraryFunction("sum").orElseThrow().applyAsInt(List.of(1, 2, 3, 4)));
+    }
 }
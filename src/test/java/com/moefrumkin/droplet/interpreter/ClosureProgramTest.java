@@ -0,0 +1,104 @@
+package com.moefrumkin.droplet.interpreter;
+
+import com.moefrumkin.droplet.interpreter.basicInterpreter.BasicInterpreter;
+import com.moefrumkin.droplet.interpreter.basicInterpreter.exceptions.InterpreterRuntimeException;
+import com.moefrumkin.droplet.interpreter.basicInterpreter.resolver.ClosureProgram;
+import com.moefrumkin.droplet.interpreter.basicInterpreter.resolver.Resolver;
+import com.moefrumkin.droplet.interpreter.basicInterpreter.resolver.ResolverException;
+import com.moefrumkin.droplet.parser.Parser;
+import com.moefrumkin.droplet.parser.SyntaxTree;
+import com.moefrumkin.droplet.parser.exception.UnexpectedTokenException;
+import com.moefrumkin.droplet.parser.exception.UnexpectedTokenTypeException;
+import com.moefrumkin.droplet.parser.expression.BinaryOperationExpression;
+import com.moefrumkin.droplet.parser.expression.UnaryOperationExpression;
+import com.moefrumkin.droplet.parser.function.FunctionList;
+import com.moefrumkin.droplet.token.Token;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.IntBinaryOperator;
+import java.util.function.IntUnaryOperator;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ClosureProgramTest {
+
+    private final ResolverTest resolverTest = new ResolverTest();
+
+    private FunctionList parse(String source) throws UnexpectedTokenTypeException, UnexpectedTokenException {
+        return (FunctionList) new Parser(Token.tokenize(source)).parse();
+    }
+
+    private String run(SyntaxTree tree, BasicInterpreter.Builder builder) {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        tree.interpret(builder.output(output).build());
+        return output.toString();
+    }
+
+    private BasicInterpreter.Builder builder() {
+        return new BasicInterpreter.Builder().binaryOperations(FlatInterpreterTest.OPERATIONS);
+    }
+
+    @Test
+    public void testSameOutput() throws UnexpectedTokenTypeException, UnexpectedTokenException {
+        FunctionList tree = parse(resolverTest.program);
+        assertEquals(run(tree, builder().resolveVariables(true)), run(tree, builder().compileClosures(true)));
+        assertEquals(run(tree, builder()), run(tree, builder().compileClosures(true)));
+    }
+
+    @Test
+    public void testCustomOperators() throws UnexpectedTokenTypeException, UnexpectedTokenException {
+        Map<BinaryOperationExpression.Type, IntBinaryOperator> binary = new HashMap<>(FlatInterpreterTest.OPERATIONS);
+        binary.put(BinaryOperationExpression.Type.ADDITION, (left, right) -> left * 10 + right);
+        binary.put(BinaryOperationExpression.Type.LESS, (left, right) -> left > right ? 1 : 0);
+        Map<UnaryOperationExpression.Type, IntUnaryOperator> unary = new HashMap<>(Configuration.DEFAULT_UNARY_OPERATIONS);
+        unary.put(UnaryOperationExpression.Type.NEGATION, operand -> operand + 100);
+
+        FunctionList tree = parse("def main() { let i = 5; while (i < 1) { print(i + 2, -i); i = i - 1; } if (2) print(0); }");
+        BasicInterpreter.Builder resolved = builder().binaryOperations(binary).unaryOperations(unary).truthiness(value -> value == 1).resolveVariables(true);
+        BasicInterpreter.Builder compiled = builder().binaryOperations(binary).unaryOperations(unary).truthiness(value -> value == 1).compileClosures(true);
+        assertEquals("52105421043210322102", run(tree, resolved));
+        assertEquals(run(tree, resolved), run(tree, compiled));
+    }
+
+    @Test
+    public void testCompileOnce() throws UnexpectedTokenTypeException, UnexpectedTokenException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        BasicInterpreter interpreter = builder().output(output).build();
+        ClosureProgram program = ClosureProgram.compile(interpreter, Resolver.resolve(parse("def main() print(fib(10)); def fib(n) { if (n < 2) return n; return fib(n - 1) + fib(n - 2); }")));
+        program.run("main");
+        program.run("main");
+        assertEquals("5555", output.toString());
+    }
+
+    private static int digits(int hundreds, int tens, int ones) {
+        return hundreds * 100 + tens * 10 + ones;
+    }
+
+    @Test
+    public void testNativeFunctions() throws ReflectiveOperationException, UnexpectedTokenTypeException, UnexpectedTokenException {
+        MethodHandle digits = MethodHandles.lookup().findStatic(ClosureProgramTest.class, "digits", MethodType.methodType(int.class, int.class, int.class, int.class));
+        //the arguments of a native function are evaluated in order
+        FunctionList tree = parse("def main() { print(digits(1, 2, 3), digits(print(4), print(5), print(6))); }");
+        assertEquals(run(tree, builder().addFunction("digits", digits)), run(tree, builder().addFunction("digits", digits).compileClosures(true)));
+        assertEquals("4561230", run(tree, builder().addFunction("digits", digits).compileClosures(true)));
+    }
+
+    @Test
+    public void testErrors() throws UnexpectedTokenTypeException, UnexpectedTokenException {
+        assertThrows(ResolverException.class, () -> run(parse("def main() print(x);"), builder().compileClosures(true)));
+        //calls to functions that are not defined only fail when they are reached, while calls with the wrong number of arguments fail before their function runs
+        assertEquals("1", run(parse("def main() { print(1); if (0) g(); } def f() {}"), builder().compileClosures(true)));
+        assertThrows(InterpreterRuntimeException.class, () -> run(parse("def main() { print(1); if (0) f(1); } def f() {}"), builder().compileClosures(true)));
+        assertThrows(InterpreterRuntimeException.class, () -> run(parse("def main() f(1); def f() {}"), builder().compileClosures(true)));
+        assertThrows(InterpreterRuntimeException.class, () -> run(parse("def main() g();"), builder().compileClosures(true)));
+        RuntimeException exception = assertThrows(RuntimeException.class, () -> run(parse("def main() { let a; (a) = 1; }"), builder().compileClosures(true)));
+        assertEquals("Left hand of an assignment must be an identifier", exception.getMessage());
+        assertThrows(NumberFormatException.class, () -> run(parse("def main() print(99999999999);"), builder().compileClosures(true)));
+    }
+}
@@ -0,0 +1,140 @@
+package com.moefrumkin.droplet.interpreter;
+
+import com.moefrumkin.droplet.interpreter.basicInterpreter.BasicInterpreter;
+import com.moefrumkin.droplet.interpreter.flatInterpreter.FlatInterpreter;
+import com.moefrumkin.droplet.interpreter.flatInterpreter.FlatInterpreterException;
+import com.moefrumkin.droplet.interpreter.flatInterpreter.FlatProgram;
+import com.moefrumkin.droplet.parser.Parser;
+import com.moefrumkin.droplet.parser.SyntaxTree;
+import com.moefrumkin.droplet.parser.cache.AstSize;
+import com.moefrumkin.droplet.parser.exception.UnexpectedTokenException;
+import com.moefrumkin.droplet.parser.exception.UnexpectedTokenTypeException;
+import com.moefrumkin.droplet.parser.expression.BinaryOperationExpression;
+import com.moefrumkin.droplet.token.Token;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.IntBinaryOperator;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FlatInterpreterTest {
+
+    static final Map<BinaryOperationExpression.Type, IntBinaryOperator> OPERATIONS = new HashMap<>(Configuration.DEFAULT_BINARY_OPERATIONS);
+
+    static {
+        OPERATIONS.put(BinaryOperationExpression.Type.ASSIGNMENT, (left, right) -> right);
+    }
+
+    String program = """
+                def main() {
+                    print(0);
+                    print(double(5));
+                    print(factorial(0));
+                    print(factorial(5));
+                    let i = 0;
+                    while (i < 3) {
+                        println(i);
+                        i = i + 1;
+                    }
+                    let x = 7;
+                    println(scoped());
+                    if (x > 6) {
+                        let x = 8;
+                        println(x);
+                    }
+                    println(!x, -x, (1 + 2) * 3, 1 || 0, 1 && 0, x != 7);
+                }
+
+                def double(n) {
+                    return 2 * n;
+                }
+
+                def factorial(n) {
+                    if(n == 0)
+                        return 1;
+                    return n * factorial(n - 1);
+                }
+
+                def scoped() {
+                    return x;
+                }
+            """;
+
+    String basic(SyntaxTree tree) {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        tree.interpret(new BasicInterpreter.Builder().output(output).binaryOperations(OPERATIONS).build());
+        return output.toString();
+    }
+
+    String flat(SyntaxTree tree) {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        tree.interpret(new FlatInterpreter.Builder().output(output).binaryOperations(OPERATIONS).build());
+        return output.toString();
+    }
+
+    @Test
+    public void testSameOutput() throws UnexpectedTokenTypeException, UnexpectedTokenException {
+        SyntaxTree tree = new Parser(Token.tokenize(program)).parse();
+        assertEquals(basic(tree), flat(tree));
+        assertEquals("01011200\n1\n2\n7\n8\n1\n-7\n9\n1\n0\n0\n", flat(tree));
+    }
+
+    @Test
+    public void testLoweredProgram() throws UnexpectedTokenTypeException, UnexpectedTokenException {
+        FlatProgram lowered = FlatProgram.lower(new Parser(Token.tokenize(program)).parse());
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        FlatInterpreter interpreter = new FlatInterpreter.Builder().output(output).binaryOperations(OPERATIONS).build();
+        interpreter.execute(lowered);
+        assertEquals("01011200\n1\n2\n7\n8\n1\n-7\n9\n1\n0\n0\n", output.toString());
+    }
+
+    @Test
+    public void testSmallerThanTree() throws UnexpectedTokenTypeException, UnexpectedTokenException {
+        SyntaxTree tree = new Parser(Token.tokenize(program)).parse();
+        assertTrue(FlatProgram.lower(tree).bytes() < AstSize.estimate(tree) / 2);
+    }
+
+    private static int sum(int a, int b, int c, int d) {
+        return a + b + c + d;
+    }
+
+    @Test
+    public void testNativeFunctions() throws ReflectiveOperationException, UnexpectedTokenTypeException, UnexpectedTokenException {
+        MethodHandle sum = MethodHandles.lookup().findStatic(FlatInterpreterTest.class, "sum", MethodType.methodType(int.class, int.class, int.class, int.class, int.class));
+        SyntaxTree tree = new Parser(Token.tokenize("def main() { print(max(3, abs(-7)), sum(1, 2, 3, 4)); }")).parse();
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        tree.interpret(new FlatInterpreter.Builder()
+                .output(output)
+                .addFunction("max", Math.class.getMethod("max", int.class, int.class))
+                .addFunction("abs", Math.class.getMethod("abs", int.class))
+                .addFunction("sum", sum)
+                .build());
+        assertEquals("710", output.toString());
+
+        //the number of arguments of a call to a native function is checked before the function it is in runs
+        SyntaxTree wrongArity = new Parser(Token.tokenize("def main() { print(1); if (0) max(1); }")).parse();
+        assertThrows(FlatInterpreterException.class, () -> wrongArity.interpret(new FlatInterpreter.Builder().output(output).addFunction("max", Math.class.getMethod("max", int.class, int.class)).build()));
+        assertEquals("710", output.toString());
+
+        //a native function replaces a default library function with the same name
+        ByteArrayOutputStream replaced = new ByteArrayOutputStream();
+        new Parser(Token.tokenize("def main() { println(-2); }")).parse().interpret(new FlatInterpreter.Builder().output(replaced).addFunction("println", Math.class.getMethod("abs", int.class)).build());
+        assertEquals(0, replaced.size());
+    }
+
+    @Test
+    public void testErrors() throws UnexpectedTokenTypeException, UnexpectedTokenException {
+        assertThrows(FlatInterpreterException.class, () -> flat(new Parser(Token.tokenize("def main() { return y; }")).parse()));
+        assertThrows(FlatInterpreterException.class, () -> flat(new Parser(Token.tokenize("def main() { let y = 1; let y = 2; }")).parse()));
+        assertThrows(FlatInterpreterException.class, () -> flat(new Parser(Token.tokenize("def main() { f(1); } def f() {}")).parse()));
+        assertThrows(FlatInterpreterException.class, () -> flat(new Parser(Token.tokenize("def main() { g(); }")).parse()));
+        assertThrows(FlatInterpreterException.class, () -> flat(new Parser(Token.tokenize("def main() {} def main() {}")).parse()));
+        assertThrows(NumberFormatException.class, () -> flat(new Parser(Token.tokenize("def main() { return 99999999999; }")).parse()));
+    }
+}
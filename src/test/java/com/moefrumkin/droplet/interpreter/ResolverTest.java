@@ -0,0 +1,145 @@
+package com.moefrumkin.droplet.interpreter;
+
+import com.moefrumkin.droplet.interpreter.basicInterpreter.BasicInterpreter;
+import com.moefrumkin.droplet.interpreter.basicInterpreter.exceptions.InterpreterRuntimeException;
+import com.moefrumkin.droplet.interpreter.basicInterpreter.resolver.*;
+import com.moefrumkin.droplet.interpreter.basicInterpreter.stackframe.StackFrameException;
+import com.moefrumkin.droplet.parser.Parser;
+import com.moefrumkin.droplet.parser.SyntaxTree;
+import com.moefrumkin.droplet.parser.exception.UnexpectedTokenException;
+import com.moefrumkin.droplet.parser.exception.UnexpectedTokenTypeException;
+import com.moefrumkin.droplet.parser.function.FunctionList;
+import com.moefrumkin.droplet.token.Token;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ResolverTest {
+
+    String program = """
+                def main() {
+                    print(0);
+                    print(double(5));
+                    print(factorial(0));
+                    print(factorial(5));
+                    let i = 0;
+                    while (i < 3) {
+                        println(i);
+                        i = i + 1;
+                    }
+                    let x = 7;
+                    if (x > 6) {
+                        let x = 8;
+                        if (x) x = x + 1;
+                        println(x);
+                    }
+                    println(!x, -x, (1 + 2) * 3, 1 || 0, 1 && 0, x != 7, x = 3, x);
+                    println(early());
+                }
+
+                def double(n) {
+                    return 2 * n;
+                }
+
+                def factorial(n) {
+                    if(n == 0)
+                        return 1;
+                    return n * factorial(n - 1);
+                }
+
+                def early() {
+                    let i = 0;
+                    while (i < 5) {
+                        i = i + 1;
+                        if (i == 2) return i;
+                    }
+                    return 9;
+                }
+            """;
+
+    FunctionList parse(String source) throws UnexpectedTokenTypeException, UnexpectedTokenException {
+        return (FunctionList) new Parser(Token.tokenize(source)).parse();
+    }
+
+    String run(SyntaxTree tree, boolean resolveVariables) {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        tree.interpret(new BasicInterpreter.Builder().output(output).binaryOperations(FlatInterpreterTest.OPERATIONS).resolveVariables(resolveVariables).build());
+        return output.toString();
+    }
+
+    @Test
+    public void testSameOutput() throws UnexpectedTokenTypeException, UnexpectedTokenException {
+        FunctionList tree = parse(program);
+        assertEquals(run(tree, false), run(tree, true));
+        SyntaxTree single = parse("def solo() { let i = 2; if (i) println(i * 3); }").functions().get(0);
+        assertEquals("6\n", run(single, true));
+        assertEquals(run(single, false), run(single, true));
+    }
+
+    @Test
+    public void testAddresses() throws UnexpectedTokenTypeException, UnexpectedTokenException {
+        ResolvedFunction function = Resolver.resolve(parse("def f(a) { let b = a; if (b) { let a = b; a = 1; } return a; }")).function("f");
+        assertEquals(3, function.variables());
+        assertEquals(1, function.parameters());
+        assertEquals(List.of(
+                new VariableReference("a", true, new LexicalAddress(0, 0)),
+                new VariableReference("a", false, new LexicalAddress(0, 0)),
+                new VariableReference("b", true, new LexicalAddress(0, 1)),
+                new VariableReference("b", false, new LexicalAddress(0, 1)),
+                new VariableReference("b", false, new LexicalAddress(1, 1)),
+                new VariableReference("a", true, new LexicalAddress(0, 0)),
+                new VariableReference("a", false, new LexicalAddress(0, 0)),
+                new VariableReference("a", false, new LexicalAddress(0, 0))
+        ), function.references());
+    }
+
+    @Test
+    public void testErrorsBeforeRunning() throws UnexpectedTokenTypeException, UnexpectedTokenException {
+        FunctionList tree = parse("""
+                def main() { print(1); print(y); let a; let a; }
+                def f(n, n) { if (n) { let z; } return z; }
+                def f() {}
+                def scoped() { return x; }
+                """);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        ResolverException exception = assertThrows(ResolverException.class,
+                () -> tree.interpret(new BasicInterpreter.Builder().output(output).resolveVariables(true).build()));
+        assertEquals(0, output.size());
+        assertEquals(List.of(
+                "In main, the variable y is not declared",
+                "In main, the variable a is already declared in its scope",
+                "In f, the variable n is already declared in its scope",
+                "In f, the variable z is not declared",
+                "The function f is already defined",
+                "In scoped, the variable x is not declared"
+        ), exception.errors());
+    }
+
+    @Test
+    public void testLexicalScoping() throws UnexpectedTokenTypeException, UnexpectedTokenException {
+        //the arguments are evaluated in the scope of the caller, not in the frame of the callee as the parameters are bound
+        FunctionList tree = parse("def main() { let n = 5; print(second(n - 1, n)); } def second(n, m) return m;");
+        assertEquals("4", run(tree, false));
+        assertEquals("5", run(tree, true));
+    }
+
+    @Test
+    public void testDeclarationInLoop() throws UnexpectedTokenTypeException, UnexpectedTokenException {
+        //a declaration is resolved once, so running it again in a loop sets its slot rather than failing as it does in a dynamic frame
+        FunctionList tree = parse("def main() { let i = 0; while (i < 2) { let x = i + 1; i = x; } print(i); }");
+        assertThrows(StackFrameException.class, () -> run(tree, false));
+        assertEquals("2", run(tree, true));
+    }
+
+    @Test
+    public void testRuntimeErrors() throws UnexpectedTokenTypeException, UnexpectedTokenException {
+        assertThrows(InterpreterRuntimeException.class, () -> run(parse("def main() f(1); def f() {}"), true));
+        assertThrows(InterpreterRuntimeException.class, () -> run(parse("def main() g();"), true));
+        RuntimeException exception = assertThrows(RuntimeException.class, () -> run(parse("def main() { let a; (a) = 1; }"), true));
+        assertEquals("Left hand of an assignment must be an identifier", exception.getMessage());
+        assertThrows(NumberFormatException.class, () -> run(parse("def main() print(99999999999);"), true));
+    }
+}
@@ -3,6 +3,7 @@ package com.moefrumkin.droplet.interpreter;
 import com.moefrumkin.droplet.interpreter.basicInterpreter.stackframe.FunctionStackFrame;
 import com.moefrumkin.droplet.interpreter.basicInterpreter.stackframe.GlobalStackFrame;
 import com.moefrumkin.droplet.interpreter.basicInterpreter.stackframe.SimpleStackFrame;
+import com.moefrumkin.droplet.interpreter.basicInterpreter.stackframe.SlotStack;
 import com.moefrumkin.droplet.interpreter.basicInterpreter.stackframe.StackFrame;
 import com.moefrumkin.droplet.parser.Parser;
 import com.moefrumkin.droplet.parser.exception.UnexpectedTokenException;
@@ -94,4 +95,37 @@ public class StackFrameTest {
         assertTrue(ifFrame.getToReturn());
     }
 
+    @Test
+    public void testSlotStack() {
+        SlotStack stack = new SlotStack();
+
+        int outer = stack.beginCall(7);
+        stack.push(1);
+        stack.push(2);
+        stack.enterFunction(outer, 3);
+        assertEquals(1, stack.get(0));
+        assertEquals(2, stack.get(1));
+        assertEquals(0, stack.get(2));
+        assertEquals(7, stack.getReturnValue());
+        assertFalse(stack.getToReturn());
+
+        //a nested call, with enough frames to grow the array
+        for (int i = 0; i < 1000; i++) {
+            int frame = stack.beginCall(0);
+            stack.push(stack.get(0) + 1);
+            stack.enterFunction(frame, 1);
+        }
+        assertEquals(1001, stack.get(0));
+        for (int i = 0; i < 1000; i++) {
+            stack.returnFunction(i);
+            assertTrue(stack.getToReturn());
+            assertEquals(i, stack.exitFunction());
+        }
+
+        assertEquals(1, stack.get(0));
+        assertFalse(stack.getToReturn());
+        stack.returnFunction(42);
+        assertEquals(42, stack.exitFunction());
+        assertEquals(3, stack.size());
+    }
 }
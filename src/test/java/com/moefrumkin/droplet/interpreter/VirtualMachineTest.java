@@ -0,0 +1,190 @@
+package com.moefrumkin.droplet.interpreter;
+
+import com.moefrumkin.droplet.interpreter.basicInterpreter.BasicInterpreter;
+import com.moefrumkin.droplet.interpreter.vm.Bytecode;
+import com.moefrumkin.droplet.interpreter.vm.VirtualMachine;
+import com.moefrumkin.droplet.interpreter.vm.VirtualMachineException;
+import com.moefrumkin.droplet.parser.Parser;
+import com.moefrumkin.droplet.parser.SyntaxTree;
+import com.moefrumkin.droplet.parser.exception.UnexpectedTokenException;
+import com.moefrumkin.droplet.parser.exception.UnexpectedTokenTypeException;
+import com.moefrumkin.droplet.parser.expression.BinaryOperationExpression;
+import com.moefrumkin.droplet.parser.expression.FunctionCallExpression;
+import com.moefrumkin.droplet.token.Token;
+import com.moefrumkin.droplet.token.Type;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntBinaryOperator;
+import java.util.function.IntPredicate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class VirtualMachineTest {
+
+    String program = new FlatInterpreterTest().program;
+
+    String basic(SyntaxTree tree) {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        tree.interpret(new BasicInterpreter.Builder().output(output).binaryOperations(FlatInterpreterTest.OPERATIONS).build());
+        return output.toString();
+    }
+
+    String vm(SyntaxTree tree) {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        tree.interpret(new VirtualMachine.Builder().output(output).binaryOperations(FlatInterpreterTest.OPERATIONS).build());
+        return output.toString();
+    }
+
+    SyntaxTree parse(String source) throws UnexpectedTokenTypeException, UnexpectedTokenException {
+        return new Parser(Token.tokenize(source)).parse();
+    }
+
+    @Test
+    public void testSameOutput() throws UnexpectedTokenTypeException, UnexpectedTokenException {
+        SyntaxTree tree = parse(program);
+        assertEquals(basic(tree), vm(tree));
+        assertEquals("01011200\n1\n2\n7\n8\n1\n-7\n9\n1\n0\n0\n", vm(tree));
+    }
+
+    @Test
+    public void testCompiledProgram() throws UnexpectedTokenTypeException, UnexpectedTokenException {
+        Bytecode bytecode = Bytecode.compile(parse(program));
+        for (int i = 0; i < 2; i++) {
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            new VirtualMachine.Builder().output(output).binaryOperations(FlatInterpreterTest.OPERATIONS).build().execute(bytecode);
+            assertEquals("01011200\n1\n2\n7\n8\n1\n-7\n9\n1\n0\n0\n", output.toString());
+        }
+    }
+
+    @Test
+    public void testCustomSettings() throws UnexpectedTokenTypeException, UnexpectedTokenException {
+        Map<BinaryOperationExpression.Type, IntBinaryOperator> operations = new HashMap<>(FlatInterpreterTest.OPERATIONS);
+        operations.put(BinaryOperationExpression.Type.ADDITION, (left, right) -> left + right + 1);
+        operations.put(BinaryOperationExpression.Type.LESS, (left, right) -> left < right ? 7 : -7);
+        IntPredicate positive = i -> i > 0;
+
+        SyntaxTree tree = parse("""
+                def main() {
+                    let i = 0;
+                    while (i < 5) {
+                        print(i, !i, i + 1 < 4);
+                        i = i + 1;
+                    }
+                    if (-1)
+                        print(1);
+                }
+                """);
+        ByteArrayOutputStream basic = new ByteArrayOutputStream();
+        tree.interpret(new BasicInterpreter.Builder().output(basic).binaryOperations(operations).truthiness(positive).build());
+        ByteArrayOutputStream vm = new ByteArrayOutputStream();
+        tree.interpret(new VirtualMachine.Builder().output(vm).binaryOperations(operations).truthiness(positive).build());
+        assertEquals(basic.toString(), vm.toString());
+        assertEquals("00721-741-7", vm.toString());
+    }
+
+    @Test
+    public void testDeepRecursion() throws UnexpectedTokenTypeException, UnexpectedTokenException {
+        assertEquals("100000", vm(parse("""
+                def main() {
+                    print(down(100000));
+                }
+
+                def down(n) {
+                    if (n == 0)
+                        return 0;
+                    return down(n - 1) + 1;
+                }
+                """)));
+    }
+
+    @Test
+    public void testReturns() throws UnexpectedTokenTypeException, UnexpectedTokenException {
+        //a return in a conditional leaves its scope, and a return in a loop lets the loop go on like it does in the tree
+        SyntaxTree tree = parse("""
+                def main() {
+                    let x = 1;
+                    print(f(3), x, g(2), x);
+                }
+
+                def f(n) {
+                    if (n > 0) {
+                        let x = n;
+                        return x + 10;
+                    }
+                    return 0;
+                }
+
+                def g(n) {
+                    let i = 0;
+                    while (i < 3) {
+                        i = i + 1;
+                        if (i == n)
+                            return i;
+                    }
+                    return 9;
+                }
+                """);
+        assertEquals(basic(tree), vm(tree));
+        assertEquals("13121", vm(tree));
+    }
+
+    @Test
+    public void testStepLimit() throws UnexpectedTokenTypeException, UnexpectedTokenException {
+        VirtualMachine machine = new VirtualMachine.Builder().stepLimit(1000).build();
+        assertThrows(VirtualMachineException.class, () -> parse("def main() { while (1) {} }").interpret(machine));
+        assertEquals(1001, machine.getStepCount());
+
+        //calls are steps too
+        VirtualMachine recursive = new VirtualMachine.Builder().stepLimit(1000).build();
+        assertThrows(VirtualMachineException.class, () -> parse("def main() { f(); } def f() { f(); }").interpret(recursive));
+        assertEquals(1001, recursive.getStepCount());
+    }
+
+    private static int sum(int a, int b, int c, int d) {
+        return a + b + c + d;
+    }
+
+    @Test
+    public void testNativeFunctions() throws ReflectiveOperationException, UnexpectedTokenTypeException, UnexpectedTokenException {
+        MethodHandle sum = MethodHandles.lookup().findStatic(VirtualMachineTest.class, "sum", MethodType.methodType(int.class, int.class, int.class, int.class, int.class));
+        SyntaxTree tree = parse("def main() { let i = 0; while (i < 3) { print(max(i, abs(-1)), sum(i, 2, 3, 4)); i = i + 1; } }");
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        tree.interpret(new VirtualMachine.Builder()
+                .output(output)
+                .binaryOperations(FlatInterpreterTest.OPERATIONS)
+                .addFunction("max", Math.class.getMethod("max", int.class, int.class))
+                .addFunction("abs", Math.class.getMethod("abs", int.class))
+                .addFunction("sum", sum)
+                .build());
+        assertEquals("19110211", output.toString());
+
+        //the number of arguments of a call to a native function is checked before the function it is in runs
+        VirtualMachine machine = new VirtualMachine.Builder().output(output).addFunction("max", Math.class.getMethod("max", int.class, int.class)).build();
+        assertThrows(VirtualMachineException.class, () -> parse("def main() { print(1); if (0) max(1); }").interpret(machine));
+        assertEquals("19110211", output.toString());
+    }
+
+    @Test
+    public void testErrors() throws UnexpectedTokenTypeException, UnexpectedTokenException {
+        assertThrows(VirtualMachineException.class, () -> vm(parse("def main() { return y; }")));
+        assertThrows(VirtualMachineException.class, () -> vm(parse("def main() { let y = 1; let y = 2; }")));
+        assertThrows(VirtualMachineException.class, () -> vm(parse("def main() { f(1); } def f() {}")));
+        assertThrows(VirtualMachineException.class, () -> vm(parse("def main() { g(); }")));
+        assertThrows(VirtualMachineException.class, () -> vm(parse("def main() {} def main() {}")));
+        assertThrows(NumberFormatException.class, () -> vm(parse("def main() { return 99999999999; }")));
+
+        //calls are checked before the function that makes them runs
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        VirtualMachine machine = new VirtualMachine.Builder().output(output).build();
+        assertThrows(VirtualMachineException.class, () -> parse("def main() { print(1); f(1); } def f() {}").interpret(machine));
+        assertEquals("", output.toString());
+        assertEquals(0, machine.interpret(new FunctionCallExpression(Token.of(Type.IDENTIFIER, "f"), List.of())));
+    }
+}
@@ -0,0 +1,108 @@
+package com.moefrumkin.droplet.parser;
+
+import com.moefrumkin.droplet.parser.exception.UnexpectedTokenException;
+import com.moefrumkin.droplet.parser.exception.UnexpectedTokenTypeException;
+import com.moefrumkin.droplet.parser.expression.EnclosedExpression;
+import com.moefrumkin.droplet.parser.expression.Expression;
+import com.moefrumkin.droplet.parser.expression.ExpressionParser;
+import com.moefrumkin.droplet.parser.expression.FunctionCallExpression;
+import com.moefrumkin.droplet.parser.statement.CompoundStatement;
+import com.moefrumkin.droplet.parser.statement.ConditionalStatement;
+import com.moefrumkin.droplet.parser.statement.Statement;
+import com.moefrumkin.droplet.token.Token;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IterativeParserTest {
+
+    private final String program = """
+            def main() {
+                let i;
+                let j = -5 * (i + 3);
+                while (i < 10) {
+                    i = i + 1;
+                    if (!(i == j) && i != 4 || 0) print(i);
+                    ;
+                    {}
+                    { { return j; } }
+                }
+                return factorial(j, i);
+            }
+
+            def factorial(n, unused) {
+                if(n == 0)
+                    return 1;
+                return n * factorial(n -1, unused);
+            }
+
+            def single() return a = b = c + -d * f() - g(h(1), (2), -(3)) < 4 == 5;
+            """;
+
+    private final List<String> expressions = List.of(
+            "a", "-1", "a -1", "a - -1", "!a", "--a", "-a * b", "a = b = c", "a + b = c", "a = b + c", "a || b && c == d < e + f * g",
+            "a * b + c < d == e && f || g", "(a + b) * c", "-(a)", "f()", "f(a, b + c, (d))", "f(a,)", "f(g(h(i)))", "!f(a) * -(b - c)");
+
+    private final List<String> invalid = List.of("", "+", "(a", "f(a", "f(a b)", "a +", "a * (b + )", "f(,)");
+
+    @Test
+    public void testSameProgram() throws UnexpectedTokenTypeException, UnexpectedTokenException {
+        assertEquals(new Parser(Token.tokenize(program)).parse(), new Parser(Token.tokenize(program)).parseIteratively());
+    }
+
+    @Test
+    public void testSameExpressions() throws UnexpectedTokenTypeException, UnexpectedTokenException {
+        for (String expression : expressions) {
+            Parser recursive = new Parser(Token.tokenize(expression));
+            Parser iterative = new Parser(Token.tokenize(expression));
+            assertEquals(ExpressionParser.parse(recursive), ExpressionParser.parseIteratively(iterative), expression);
+            assertEquals(recursive.currentToken(), iterative.currentToken(), expression);
+        }
+    }
+
+    @Test
+    public void testSameErrors() {
+        for (String expression : invalid) {
+            Exception recursive = assertThrows(Exception.class, () -> ExpressionParser.parse(new Parser(Token.tokenize(expression))), expression);
+            Exception iterative = assertThrows(Exception.class, () -> ExpressionParser.parseIteratively(new Parser(Token.tokenize(expression))), expression);
+            assertEquals(recursive.getClass(), iterative.getClass(), expression);
+            assertEquals(recursive.getMessage(), iterative.getMessage(), expression);
+        }
+        for (String program : List.of("def main() { { }", "def main() { if (a) }", "def main() { while a }", "def main() { let 1; }", "def main() { return a }")) {
+            Exception recursive = assertThrows(Exception.class, () -> new Parser(Token.tokenize(program)).parse(), program);
+            Exception iterative = assertThrows(Exception.class, () -> new Parser(Token.tokenize(program)).parseIteratively(), program);
+            assertEquals(recursive.getMessage(), iterative.getMessage(), program);
+        }
+    }
+
+    @Test
+    public void testDeepNesting() throws UnexpectedTokenTypeException, UnexpectedTokenException {
+        int depth = 200_000;
+
+        Expression expression = ExpressionParser.parseIteratively(new Parser(Token.tokenize("(".repeat(depth) + "a" + ")".repeat(depth))));
+        int parentheses = 0;
+        while (expression instanceof EnclosedExpression enclosed) {
+            expression = enclosed.expression();
+            parentheses++;
+        }
+        assertEquals(depth, parentheses);
+
+        expression = ExpressionParser.parseIteratively(new Parser(Token.tokenize("f(".repeat(depth) + ")".repeat(depth))));
+        int calls = 1;
+        while (!((FunctionCallExpression) expression).arguments().isEmpty()) {
+            expression = ((FunctionCallExpression) expression).arguments().get(0);
+            calls++;
+        }
+        assertEquals(depth, calls);
+
+        Statement statement = IterativeParser.statement(new Parser(Token.tokenize("{ if (a) ".repeat(depth) + ";" + " }".repeat(depth))));
+        int blocks = 0;
+        while (statement instanceof CompoundStatement compound) {
+            statement = ((ConditionalStatement) compound.statements().get(0)).consequence();
+            blocks++;
+        }
+        assertEquals(depth, blocks);
+    }
+}
@@ -10,12 +10,15 @@ import com.moefrumkin.droplet.parser.statement.DeclarationStatement;
 import com.moefrumkin.droplet.parser.statement.ExpressionStatement;
 import com.moefrumkin.droplet.parser.statement.Statement;
 import com.moefrumkin.droplet.token.Token;
+import com.moefrumkin.droplet.token.TokenStream;
 import com.moefrumkin.droplet.token.Type;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.io.StringReader;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
 public class ParserTest {
     static final String program = """
@@ -68,4 +71,37 @@ public class ParserTest {
         assertEquals(parsedProgram, syntaxTree);
         assertFalse(parser.tokensLeft());
     }
+
+    @Test
+    public void testStreamParsing() throws UnexpectedTokenTypeException, UnexpectedTokenException {
+        Parser streamParser = new Parser(TokenStream.of(new StringReader(program)));
+        assertEquals(parsedProgram, streamParser.parse());
+        assertFalse(streamParser.tokensLeft());
+    }
+
+    @Test
+    public void testParallelParsing() throws UnexpectedTokenTypeException, UnexpectedTokenException {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            ParallelParser parallelParser = new ParallelParser(pool, 1);
+            String functions = program + "def f(a, b) { while (a) { if (b) { a = a - 1; } } return a; }" + program;
+            List<Token> tokens = Token.tokenize(functions);
+
+            assertEquals(new Parser(tokens).parse(), parallelParser.parse(tokens));
+            assertEquals(new FunctionList(List.of()), parallelParser.parse(Token.tokenize("")));
+
+            for (String invalid : List.of(
+                    program + "def f() return def; def g() {}",
+                    program + "def f() { } } def g() {}",
+                    program + "def f() { def g() {}",
+                    "x" + program)) {
+                Exception sequential = assertThrows(Exception.class, () -> new Parser(Token.tokenize(invalid)).parse());
+                Exception parallel = assertThrows(Exception.class, () -> parallelParser.parse(Token.tokenize(invalid)));
+                assertEquals(sequential.getClass(), parallel.getClass());
+                assertEquals(sequential.getMessage(), parallel.getMessage());
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
 }
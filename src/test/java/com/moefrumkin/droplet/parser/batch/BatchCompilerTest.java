@@ -0,0 +1,101 @@
+package com.moefrumkin.droplet.parser.batch;
+
+import com.moefrumkin.droplet.parser.Parser;
+import com.moefrumkin.droplet.parser.exception.UnexpectedTokenException;
+import com.moefrumkin.droplet.parser.exception.UnexpectedTokenTypeException;
+import com.moefrumkin.droplet.parser.function.FunctionList;
+import com.moefrumkin.droplet.token.Token;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BatchCompilerTest {
+
+    @TempDir
+    Path directory;
+
+    private Path write(String name, String source) throws IOException {
+        return Files.writeString(directory.resolve(name), source);
+    }
+
+    private FunctionList parse(String source) throws UnexpectedTokenTypeException, UnexpectedTokenException {
+        return (FunctionList) new Parser(Token.tokenize(source)).parse();
+    }
+
+    @Test
+    public void testErrorsPerScript() throws IOException, InterruptedException, UnexpectedTokenTypeException, UnexpectedTokenException {
+        List<Path> scripts = List.of(
+                write("valid.dp", "def main() print(twice(2)); def twice(n) return 2 * n;"),
+                write("syntax.dp", "def main() { print(1) }"),
+                directory.resolve("missing.dp"),
+                write("undefined.dp", "def main() { thrice(1); twice(); } def twice(n) return n;"));
+
+        BatchReport report = new BatchCompiler.Builder().parallelism(2).build().compile(scripts);
+        List<ScriptResult> results = report.results();
+        assertEquals(4, results.size());
+        for (int i = 0; i < scripts.size(); i++)
+            assertEquals(scripts.get(i), results.get(i).script());
+
+        assertTrue(results.get(0).succeeded());
+        assertEquals(parse("def main() print(twice(2)); def twice(n) return 2 * n;"), results.get(0).program());
+        assertTrue(results.get(1).errors().get(0).startsWith("parse: "));
+        assertNull(results.get(1).program());
+        assertTrue(results.get(2).errors().get(0).startsWith("read: "));
+        assertEquals(List.of("verify: In main, the function thrice is not defined", "verify: In main, twice expected 1 parameters, Given 0"), results.get(3).errors());
+        assertEquals(3, report.failures().size());
+
+        List<StageStatistics> stages = report.stages();
+        assertEquals(List.of("read", "lex", "parse", "verify"), stages.stream().map(StageStatistics::stage).toList());
+        assertEquals(List.of(4L, 3L, 3L, 2L), stages.stream().map(StageStatistics::scripts).toList());
+        assertEquals(List.of(1L, 0L, 1L, 1L), stages.stream().map(StageStatistics::failures).toList());
+    }
+
+    @Test
+    public void testBackpressure() throws IOException, InterruptedException {
+        List<Path> scripts = new ArrayList<>();
+        for (int i = 0; i < 200; i++)
+            scripts.add(write("script" + i + ".dp", "def main() { let i = " + i + "; print(i); }"));
+
+        BatchReport report = new BatchCompiler.Builder().readers(3).lexers(1).parsers(2).verifiers(1).queueCapacity(1).build().compile(scripts);
+        assertTrue(report.failures().isEmpty());
+        assertEquals(200, report.results().size());
+        assertEquals(200, report.stages().get(3).scripts());
+        assertTrue(report.stages().get(2).throughput() > 0);
+    }
+
+    @Test
+    public void testErrorInStage() throws IOException, InterruptedException {
+        List<Path> scripts = new ArrayList<>();
+        for (int i = 0; i < 20; i++)
+            scripts.add(write("script" + i + ".dp", "def main() print(" + i + ");"));
+
+        //an error that is not an exception fails the script without stopping the batch
+        Verifier failing = new Verifier() {
+            @Override
+            public List<String> verify(FunctionList program) {
+                throw new AssertionError("broken verifier");
+            }
+        };
+        BatchReport report = new BatchCompiler.Builder().parallelism(2).queueCapacity(1).verifier(failing).build().compile(scripts);
+        assertEquals(20, report.failures().size());
+        assertEquals(List.of("verify: broken verifier"), report.results().get(0).errors());
+    }
+
+    @Test
+    public void testVerifier() throws UnexpectedTokenTypeException, UnexpectedTokenException {
+        Verifier verifier = new Verifier();
+        assertEquals(List.of(), verifier.verify(parse("def main() { println(f(1), 2); } def f(a) return a;")));
+        assertEquals(List.of("The function f is already defined"), verifier.verify(parse("def main() {} def f() {} def f(a) {}")));
+        assertEquals(List.of("The program has no main function"), verifier.verify(parse("def f() {}")));
+        assertEquals(List.of("The main function must not have parameters"), verifier.verify(parse("def main(a) {}")));
+        assertEquals(List.of("In main, the function print is not defined"), new Verifier(Set.of()).verify(parse("def main() print(1);")));
+    }
+}
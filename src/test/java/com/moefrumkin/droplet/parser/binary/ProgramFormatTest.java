@@ -0,0 +1,116 @@
+package com.moefrumkin.droplet.parser.binary;
+
+import com.moefrumkin.droplet.parser.Parser;
+import com.moefrumkin.droplet.parser.exception.UnexpectedTokenException;
+import com.moefrumkin.droplet.parser.exception.UnexpectedTokenTypeException;
+import com.moefrumkin.droplet.parser.function.Function;
+import com.moefrumkin.droplet.parser.function.FunctionList;
+import com.moefrumkin.droplet.token.Token;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ProgramFormatTest {
+    private final String program = """
+            def main() {
+                let i;
+                let j = -5 * (i + 3);
+                while (i < 10) {
+                    i = i + 1;
+                    if (!(i == j) && i != 4 || 0) print(i);
+                    ;
+                }
+                return factorial(j, i);
+            }
+
+            def factorial(n, unused) {
+                if(n == 0)
+                    return 1;
+                return n * factorial(n - 1, unused);
+            }
+            """;
+
+    private FunctionList parse(String source) throws UnexpectedTokenTypeException, UnexpectedTokenException {
+        return (FunctionList) new Parser(Token.tokenize(source)).parse();
+    }
+
+    private void assertSameProgram(FunctionList expected, FunctionList actual) {
+        assertEquals(expected.functions().size(), actual.functions().size());
+        for (int i = 0; i < expected.functions().size(); i++) {
+            Function function = actual.functions().get(i);
+            LazyStatement body = (LazyStatement) function.body();
+            assertFalse(body.isDecoded());
+            assertEquals(expected.functions().get(i).name(), function.name());
+            assertEquals(expected.functions().get(i).parameters(), function.parameters());
+            assertEquals(expected.functions().get(i).body(), body.statement());
+            //a lazy statement is only equal to other lazy statements, whichever side it is on
+            assertNotEquals(body.statement(), body);
+            assertNotEquals(body, body.statement());
+        }
+    }
+
+    @Test
+    public void roundTrip() throws UnexpectedTokenTypeException, UnexpectedTokenException, IOException {
+        FunctionList parsed = parse(program);
+        byte[] bytes = ProgramFormat.encode(parsed);
+
+        assertSameProgram(parsed, ProgramFormat.decode(ByteBuffer.wrap(bytes)));
+        assertSameProgram(parse(""), ProgramFormat.decode(ByteBuffer.wrap(ProgramFormat.encode(parse("")))));
+        //a decoded program encodes to the same bytes
+        assertArrayEquals(bytes, ProgramFormat.encode(ProgramFormat.decode(ByteBuffer.wrap(bytes))));
+        //and two decodings of a program are equal to each other
+        assertEquals(ProgramFormat.decode(ByteBuffer.wrap(bytes)), ProgramFormat.decode(ByteBuffer.wrap(bytes)));
+
+        //a corrupt token type, or a corrupt body that would only be decoded later, is rejected when the program is decoded
+        byte[] corruptType = bytes.clone();
+        corruptType[17] = 100;
+        assertThrows(IOException.class, () -> ProgramFormat.decode(ByteBuffer.wrap(corruptType)));
+        byte[] corruptBody = bytes.clone();
+        corruptBody[corruptBody.length - 2] ^= 0x40;
+        assertThrows(IOException.class, () -> ProgramFormat.decode(ByteBuffer.wrap(corruptBody)));
+
+        bytes[4] = 9;
+        assertThrows(IOException.class, () -> ProgramFormat.decode(ByteBuffer.wrap(bytes)));
+        assertThrows(IOException.class, () -> ProgramFormat.decode(ByteBuffer.wrap(new byte[]{'D', 'R'})));
+    }
+
+    @Test
+    public void cache() throws UnexpectedTokenTypeException, UnexpectedTokenException, IOException {
+        Path directory = Files.createTempDirectory("droplet");
+        try {
+            ProgramCache cache = new ProgramCache(directory.resolve("cache"));
+            FunctionList parsed = parse(program);
+
+            assertEquals(parsed, cache.compile(program));
+            assertEquals(1, cache.misses());
+            assertTrue(Files.isRegularFile(cache.path(program)));
+
+            assertSameProgram(parsed, cache.compile(program));
+            assertEquals(1, cache.hits());
+
+            //a corrupt file is replaced
+            Files.write(cache.path(program), new byte[]{1, 2, 3});
+            assertEquals(parsed, cache.compile(program));
+            assertEquals(2, cache.misses());
+            assertSameProgram(parsed, new ProgramCache(directory.resolve("cache")).compile(program));
+
+            //so is a file of the right length with a corrupt body
+            byte[] bytes = Files.readAllBytes(cache.path(program));
+            bytes[bytes.length - 2] ^= 0x40;
+            Files.write(cache.path(program), bytes);
+            assertEquals(parsed, cache.compile(program));
+            assertEquals(3, cache.misses());
+        } finally {
+            try (Stream<Path> paths = Files.walk(directory)) {
+                paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            }
+        }
+    }
+}
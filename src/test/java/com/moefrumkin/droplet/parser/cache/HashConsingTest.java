@@ -0,0 +1,74 @@
+package com.moefrumkin.droplet.parser.cache;
+
+import com.moefrumkin.droplet.interpreter.basicInterpreter.BasicInterpreter;
+import com.moefrumkin.droplet.parser.Parser;
+import com.moefrumkin.droplet.parser.exception.UnexpectedTokenException;
+import com.moefrumkin.droplet.parser.exception.UnexpectedTokenTypeException;
+import com.moefrumkin.droplet.parser.expression.Expression;
+import com.moefrumkin.droplet.parser.expression.FunctionCallExpression;
+import com.moefrumkin.droplet.parser.function.FunctionList;
+import com.moefrumkin.droplet.parser.statement.CompoundStatement;
+import com.moefrumkin.droplet.parser.statement.ExpressionStatement;
+import com.moefrumkin.droplet.parser.statement.Statement;
+import com.moefrumkin.droplet.token.Token;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HashConsingTest {
+
+    private final String program = """
+            def main() {
+                print(twice(3) + 1, (2 * 3) + 1);
+                print(twice(3) + 1);
+                print(2 * 3);
+            }
+
+            def twice(n) {
+                return 2 * n;
+            }
+            """;
+
+    private FunctionList parse(String source) throws UnexpectedTokenTypeException, UnexpectedTokenException {
+        return (FunctionList) new Parser(Token.tokenize(source)).parse();
+    }
+
+    private String run(FunctionList program) {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        program.interpret(new BasicInterpreter.Builder().output(output).build());
+        return output.toString();
+    }
+
+    private Expression firstArgument(Statement statement) {
+        return ((FunctionCallExpression) ((ExpressionStatement) statement).expression()).arguments().get(0);
+    }
+
+    @Test
+    public void testEqualTree() throws UnexpectedTokenTypeException, UnexpectedTokenException {
+        FunctionList original = parse(program);
+        FunctionList shared = new HashConsing().share(original);
+        assertEquals(original, shared);
+        assertEquals(run(original), run(shared));
+    }
+
+    @Test
+    public void testSharedNodes() throws UnexpectedTokenTypeException, UnexpectedTokenException {
+        HashConsing sharing = new HashConsing();
+        FunctionList original = parse(program);
+        FunctionList shared = sharing.share(original);
+
+        CompoundStatement main = (CompoundStatement) shared.functions().get(0).body();
+        Expression first = firstArgument(main.statements().get(0));
+        Expression second = firstArgument(main.statements().get(1));
+        assertSame(first, second);
+        assertTrue(sharing.shared() > 0);
+        assertTrue(HashConsing.bytesSaved(original, shared) > 0);
+
+        //a second program shares the nodes of the first
+        FunctionList again = sharing.share(parse(program));
+        assertSame(shared.functions().get(1).body(), again.functions().get(1).body());
+        assertEquals(0, HashConsing.bytesSaved(shared, shared));
+    }
+}
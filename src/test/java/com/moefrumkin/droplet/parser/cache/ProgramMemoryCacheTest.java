@@ -0,0 +1,84 @@
+package com.moefrumkin.droplet.parser.cache;
+
+import com.moefrumkin.droplet.interpreter.basicInterpreter.BasicInterpreter;
+import com.moefrumkin.droplet.parser.exception.UnexpectedTokenException;
+import com.moefrumkin.droplet.parser.exception.UnexpectedTokenTypeException;
+import com.moefrumkin.droplet.parser.function.FunctionList;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ProgramMemoryCacheTest {
+
+    private String program(int n) {
+        return "def main() { print(factorial(" + n + ")); } def factorial(n) { if (n == 0) return 1; return n * factorial(n - 1); }";
+    }
+
+    @Test
+    public void leastRecentlyUsed() throws UnexpectedTokenTypeException, UnexpectedTokenException {
+        ProgramMemoryCache cache = new ProgramMemoryCache(2, Long.MAX_VALUE);
+
+        FunctionList first = cache.compile(program(1));
+        assertSame(first, cache.compile(program(1)));
+        cache.compile(program(2));
+        //using the first program makes the second one the least recently used
+        cache.compile(program(1));
+        cache.compile(program(3));
+
+        assertEquals(new CacheStatistics(2, 3, 1, 2, cache.statistics().bytes()), cache.statistics());
+        assertSame(first, cache.compile(program(1)));
+        assertNotSame(cache.compile(program(2)), cache.compile(program(3)));
+        //the second program was evicted, and adding it back evicted the third
+        assertEquals(3 / 8.0, cache.statistics().hitRate());
+    }
+
+    @Test
+    public void boundedBySize() throws UnexpectedTokenTypeException, UnexpectedTokenException {
+        long size = AstSize.estimate(new ProgramMemoryCache(1, Long.MAX_VALUE).compile(program(1)));
+        assertTrue(size > 0);
+
+        ProgramMemoryCache cache = new ProgramMemoryCache(100, size * 2);
+        cache.compile(program(1));
+        cache.compile(program(2));
+        cache.compile(program(3));
+        assertEquals(2, cache.statistics().entries());
+        assertEquals(1, cache.statistics().evictions());
+        assertEquals(size * 2, cache.statistics().bytes());
+
+        ProgramMemoryCache tiny = new ProgramMemoryCache(100, size - 1);
+        tiny.compile(program(1));
+        assertEquals(0, tiny.statistics().entries());
+    }
+
+    @Test
+    public void sharedBetweenInterpreters() throws InterruptedException, ExecutionException {
+        ProgramMemoryCache cache = new ProgramMemoryCache(16, Long.MAX_VALUE);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<String>> outputs = new ArrayList<>();
+            for (int i = 0; i < 64; i++) {
+                int n = i % 8;
+                outputs.add(executor.submit(() -> {
+                    ByteArrayOutputStream output = new ByteArrayOutputStream();
+                    cache.compile(program(n)).interpret(new BasicInterpreter.Builder().output(output).build());
+                    return output.toString();
+                }));
+            }
+            int[] factorials = {1, 1, 2, 6, 24, 120, 720, 5040};
+            for (int i = 0; i < outputs.size(); i++)
+                assertEquals(String.valueOf(factorials[i % 8]), outputs.get(i).get());
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(64, cache.statistics().hits() + cache.statistics().misses());
+        assertEquals(8, cache.statistics().entries());
+    }
+}
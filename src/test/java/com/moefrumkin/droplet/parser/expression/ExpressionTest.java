@@ -10,6 +10,7 @@ import org.junit.jupiter.api.Test;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
 public class ExpressionTest {
 
@@ -90,4 +91,44 @@ public class ExpressionTest {
 
         assertEquals(expression, Expression.parse(new Parser(Token.tokenize(nestedExpression))));
     }
+
+    @Test
+    public void testAssociativity() throws UnexpectedTokenTypeException, UnexpectedTokenException {
+        final Expression a = new IdentifierExpression(new Token(Type.IDENTIFIER, "a"));
+        final Expression b = new IdentifierExpression(new Token(Type.IDENTIFIER, "b"));
+        final Expression c = new IdentifierExpression(new Token(Type.IDENTIFIER, "c"));
+
+        final Expression difference = new BinaryOperationExpression(BinaryOperationExpression.Type.SUBTRACTION,
+                new BinaryOperationExpression(BinaryOperationExpression.Type.SUBTRACTION, a, b), c);
+        final Expression assignment = new BinaryOperationExpression(BinaryOperationExpression.Type.ASSIGNMENT,
+                a, new BinaryOperationExpression(BinaryOperationExpression.Type.ASSIGNMENT, b, c));
+        final Expression logic = new BinaryOperationExpression(BinaryOperationExpression.Type.OR,
+                new UnaryOperationExpression(UnaryOperationExpression.Type.BOOLEAN_NEGATION, a),
+                new BinaryOperationExpression(BinaryOperationExpression.Type.AND, b, c));
+
+        assertEquals(difference, Expression.parse(new Parser(Token.tokenize("a - b - c;"))));
+        assertEquals(difference, Expression.parse(new Parser(Token.tokenize("a -b-c;"))));
+        assertEquals(assignment, Expression.parse(new Parser(Token.tokenize("a = b = c;"))));
+        assertEquals(logic, Expression.parse(new Parser(Token.tokenize("!a || b && c;"))));
+    }
+
+    @Test
+    public void testTokensUnchanged() throws UnexpectedTokenTypeException, UnexpectedTokenException {
+        final List<Token> tokens = Token.tokenize("-a * -b - -1;");
+        final List<Token> copy = List.copyOf(tokens);
+        final Parser parser = new Parser(tokens);
+
+        final Expression a = new IdentifierExpression(new Token(Type.IDENTIFIER, "a"));
+        final Expression b = new IdentifierExpression(new Token(Type.IDENTIFIER, "b"));
+        final Expression expression = new BinaryOperationExpression(BinaryOperationExpression.Type.SUBTRACTION,
+                new BinaryOperationExpression(BinaryOperationExpression.Type.MULTIPLICATION,
+                        new UnaryOperationExpression(UnaryOperationExpression.Type.NEGATION, a),
+                        new UnaryOperationExpression(UnaryOperationExpression.Type.NEGATION, b)),
+                LiteralExpression.from(-1));
+
+        assertEquals(expression, Expression.parse(parser));
+        assertEquals(copy, tokens);
+        assertEquals(new Token(Type.SPECIAL, ";"), parser.currentToken());
+        assertThrows(UnexpectedTokenTypeException.class, () -> Expression.parse(new Parser(Token.tokenize("a * ;"))));
+    }
 }
@@ -0,0 +1,121 @@
+package com.moefrumkin.droplet.parser.function;
+
+import com.moefrumkin.droplet.interpreter.basicInterpreter.BasicInterpreter;
+import com.moefrumkin.droplet.parser.Parser;
+import com.moefrumkin.droplet.parser.exception.LazyParseException;
+import com.moefrumkin.droplet.parser.exception.UnexpectedTokenException;
+import com.moefrumkin.droplet.parser.exception.UnexpectedTokenTypeException;
+import com.moefrumkin.droplet.token.Token;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LazyParsingTest {
+    private final String program = """
+            def main() {
+                print(double(factorial(3)));
+            }
+
+            def double(n) {
+                if (n > 100) {
+                    return 0;
+                }
+                return 2 * n;
+            }
+
+            def factorial(n) {
+                if(n == 0)
+                    return 1;
+                return n * factorial(n - 1);
+            }
+
+            def unused(n) {
+                return helper(n) + n;
+            }
+
+            def helper(n) return n;
+
+            def broken() {
+                let = 5;
+            }
+            """;
+
+    private FunctionList lazy(String source) throws UnexpectedTokenTypeException, UnexpectedTokenException {
+        return (FunctionList) new Parser(Token.tokenize(source)).parseLazily();
+    }
+
+    private boolean parsed(Function function) {
+        return !(function.body() instanceof LazyBody body) || body.isParsed();
+    }
+
+    @Test
+    public void testSameProgram() throws UnexpectedTokenTypeException, UnexpectedTokenException {
+        String valid = program.substring(0, program.indexOf("def broken"));
+        FunctionList lazy = lazy(valid);
+        FunctionList parsed = (FunctionList) new Parser(Token.tokenize(valid)).parse();
+        assertEquals(parsed.functions().size(), lazy.functions().size());
+        for (int i = 0; i < parsed.functions().size(); i++) {
+            Function function = lazy.functions().get(i);
+            assertEquals(parsed.functions().get(i).name(), function.name());
+            assertEquals(parsed.functions().get(i).parameters(), function.parameters());
+            //a lazy body is only equal to other lazy bodies, so it is compared with a parsed one through its statement
+            if (function.body() instanceof LazyBody body) {
+                assertEquals(parsed.functions().get(i).body(), body.statement());
+                assertNotEquals(body.statement(), body);
+                assertNotEquals(body, body.statement());
+            } else {
+                assertEquals(parsed.functions().get(i).body(), function.body());
+            }
+        }
+        assertEquals(lazy, lazy(valid));
+    }
+
+    @Test
+    public void testBodiesParsedWhenCalled() throws UnexpectedTokenTypeException, UnexpectedTokenException {
+        FunctionList functions = lazy(program);
+        assertFalse(parsed(functions.functions().get(0)));
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        functions.interpret(new BasicInterpreter.Builder().output(output).build());
+        assertEquals("12", output.toString());
+
+        assertTrue(parsed(functions.functions().get(0)));
+        assertTrue(parsed(functions.functions().get(1)));
+        assertTrue(parsed(functions.functions().get(2)));
+        assertFalse(parsed(functions.functions().get(3)));
+        assertFalse(parsed(functions.functions().get(5)));
+    }
+
+    @Test
+    public void testBrokenBody() throws UnexpectedTokenTypeException, UnexpectedTokenException {
+        FunctionList functions = lazy(program.replace("print(double(factorial(3)));", "broken();"));
+        assertThrows(LazyParseException.class, () -> functions.interpret(new BasicInterpreter.Builder().build()));
+        assertThrows(UnexpectedTokenException.class, () -> lazy("def main() { if (1) { return 2; }"));
+
+        //lazy bodies are hashed and compared by their tokens, without parsing them
+        FunctionList copy = lazy(program);
+        Function broken = functions.functions().get(5);
+        assertEquals(Set.of(broken), Set.of(copy.functions().get(5)));
+        assertNotEquals(broken.body(), copy.functions().get(3).body());
+        assertFalse(parsed(broken));
+    }
+
+    @Test
+    public void testReachability() throws UnexpectedTokenTypeException, UnexpectedTokenException {
+        FunctionList functions = lazy(program);
+        Reachability reachability = Reachability.of(functions);
+
+        assertEquals(Set.of("main", "double", "factorial"), reachability.reachable());
+        assertEquals(List.of("unused", "helper", "broken"), reachability.unreachable().stream().map(function -> function.name().getData()).toList());
+        assertEquals(functions.functions().subList(0, 3), reachability.prune().functions());
+        //finding calls does not parse any bodies
+        assertTrue(functions.functions().stream().filter(function -> function.body() instanceof LazyBody).noneMatch(this::parsed));
+
+        assertEquals(Reachability.of((FunctionList) new Parser(Token.tokenize(program.substring(0, program.indexOf("def broken")))).parse()).reachable(), reachability.reachable());
+        assertTrue(Reachability.of(lazy("def helper() {}")).reachable().isEmpty());
+    }
+}
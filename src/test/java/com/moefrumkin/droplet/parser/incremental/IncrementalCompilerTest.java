@@ -0,0 +1,71 @@
+package com.moefrumkin.droplet.parser.incremental;
+
+import com.moefrumkin.droplet.parser.Parser;
+import com.moefrumkin.droplet.parser.exception.UnexpectedTokenException;
+import com.moefrumkin.droplet.parser.exception.UnexpectedTokenTypeException;
+import com.moefrumkin.droplet.parser.function.FunctionList;
+import com.moefrumkin.droplet.token.Token;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IncrementalCompilerTest {
+    private final String program = """
+            def main() {
+                print(double(5));
+            }
+
+            def double(n) {
+                return 2 * n;
+            }
+
+            def triple(n) {
+                return 3 * n;
+            }
+            """;
+
+    private FunctionList parse(String source) throws UnexpectedTokenTypeException, UnexpectedTokenException {
+        return (FunctionList) new Parser(Token.tokenize(source)).parse();
+    }
+
+    @Test
+    public void editOneFunction() throws UnexpectedTokenTypeException, UnexpectedTokenException {
+        IncrementalCompiler compiler = new IncrementalCompiler(program);
+        FunctionList before = compiler.functions();
+        assertEquals(parse(program), before);
+        assertEquals(3, compiler.reparsed());
+
+        int offset = program.indexOf("2 * n");
+        compiler.edit(offset, 1, "4");
+
+        FunctionList after = compiler.functions();
+        assertEquals(parse(compiler.source()), after);
+        assertEquals(4, compiler.reparsed());
+        assertSame(before.functions().get(0), after.functions().get(0));
+        assertNotEquals(before.functions().get(1), after.functions().get(1));
+        assertSame(before.functions().get(2), after.functions().get(2));
+    }
+
+    @Test
+    public void editBoundaries() throws UnexpectedTokenTypeException, UnexpectedTokenException {
+        IncrementalCompiler compiler = new IncrementalCompiler(program);
+
+        //add a function between two others
+        compiler.edit(program.indexOf("def triple"), 0, "def zero() return 0;\n");
+        assertEquals(parse(compiler.source()), compiler.functions());
+        assertEquals(4, compiler.functions().functions().size());
+
+        //break a boundary, then fix it
+        int boundary = compiler.source().indexOf("def zero");
+        compiler.edit(boundary, 0, "x");
+        assertThrows(UnexpectedTokenException.class, compiler::functions);
+        compiler.edit(boundary, 1, "");
+        assertEquals(parse(compiler.source()), compiler.functions());
+
+        //remove everything after main
+        int end = compiler.source().indexOf("def double");
+        compiler.edit(end, compiler.source().length() - end, "");
+        assertEquals(parse(compiler.source()), compiler.functions());
+        assertEquals(1, compiler.functions().functions().size());
+    }
+}
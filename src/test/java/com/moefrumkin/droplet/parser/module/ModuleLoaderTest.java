@@ -0,0 +1,112 @@
+package com.moefrumkin.droplet.parser.module;
+
+import com.moefrumkin.droplet.interpreter.basicInterpreter.BasicInterpreter;
+import com.moefrumkin.droplet.parser.exception.DuplicateFunctionException;
+import com.moefrumkin.droplet.parser.exception.UnexpectedTokenException;
+import com.moefrumkin.droplet.parser.exception.UnexpectedTokenTypeException;
+import com.moefrumkin.droplet.parser.function.FunctionList;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ModuleLoaderTest {
+
+    @TempDir
+    Path directory;
+
+    private final String script = """
+            import math;
+            import util;
+
+            def main() {
+                print(square(3), twice(4));
+            }
+            """;
+
+    private void write(String name, String source) throws IOException {
+        Files.writeString(directory.resolve(name + ModuleLoader.EXTENSION), source);
+    }
+
+    private String run(FunctionList program) {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        program.interpret(new BasicInterpreter.Builder().output(output).build());
+        return output.toString();
+    }
+
+    private ModuleLoader modules() throws IOException {
+        write("math", """
+                import util;
+                def square(n) return n * n;
+                """);
+        write("util", "def twice(n) return n + n;");
+        return new ModuleLoader(List.of(directory));
+    }
+
+    @Test
+    public void testLink() throws IOException, UnexpectedTokenTypeException, UnexpectedTokenException, DuplicateFunctionException {
+        ModuleLoader modules = modules();
+        FunctionList program = modules.link(script);
+        assertEquals("98", run(program));
+        assertEquals(List.of("main", "square", "twice"), program.functions().stream().map(function -> function.name().getData()).toList());
+        assertEquals(List.of("util"), modules.load("math").imports());
+    }
+
+    @Test
+    public void testCompiledOnce() throws IOException, UnexpectedTokenTypeException, UnexpectedTokenException, DuplicateFunctionException {
+        ModuleLoader modules = modules();
+        modules.link(script);
+        assertEquals(2, modules.misses());
+
+        modules.link(script);
+        modules.link("import util; def main() print(twice(1));");
+        assertEquals(2, modules.misses());
+        assertEquals(3, modules.hits());
+
+        //modules with the same source but different names are kept side by side
+        String source = "def same() return 1;";
+        Module first = modules.compile("first", source);
+        Module second = modules.compile("second", source);
+        assertSame(first, modules.compile("first", source));
+        assertSame(second, modules.compile("second", source));
+        assertEquals(4, modules.misses());
+    }
+
+    @Test
+    public void testEditRebuildsModule() throws IOException, UnexpectedTokenTypeException, UnexpectedTokenException, DuplicateFunctionException {
+        ModuleLoader modules = modules();
+        modules.link(script);
+
+        write("util", "def twice(n) return 2 * n + 1;");
+        FunctionList program = modules.link(script);
+        assertEquals("99", run(program));
+        assertEquals(3, modules.misses());
+        assertEquals(1, modules.hits());
+    }
+
+    @Test
+    public void testErrors() throws IOException {
+        ModuleLoader modules = modules();
+        assertThrows(NoSuchFileException.class, () -> modules.link("import missing; def main() {}"));
+        assertThrows(UnexpectedTokenTypeException.class, () -> modules.link("import 1; def main() {}"));
+
+        write("other", "def twice(n) return n;");
+        DuplicateFunctionException duplicate = assertThrows(DuplicateFunctionException.class, () -> modules.link("import util; import other; def main() {}"));
+        assertEquals("The function twice is defined by util and other", duplicate.getMessage());
+        assertThrows(DuplicateFunctionException.class, () -> modules.link("import util; def twice(n) return n; def main() {}"));
+    }
+
+    @Test
+    public void testCycle() throws IOException, UnexpectedTokenTypeException, UnexpectedTokenException, DuplicateFunctionException {
+        ModuleLoader modules = modules();
+        write("util", "import math; def twice(n) return n + n;");
+        assertEquals("98", run(modules.link(script)));
+    }
+}
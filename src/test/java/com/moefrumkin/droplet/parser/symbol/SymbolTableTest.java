@@ -0,0 +1,105 @@
+package com.moefrumkin.droplet.parser.symbol;
+
+import com.moefrumkin.droplet.parser.Parser;
+import com.moefrumkin.droplet.parser.binary.ProgramFormat;
+import com.moefrumkin.droplet.parser.exception.UnexpectedTokenException;
+import com.moefrumkin.droplet.parser.exception.UnexpectedTokenTypeException;
+import com.moefrumkin.droplet.parser.expression.BinaryOperationExpression;
+import com.moefrumkin.droplet.parser.expression.FunctionCallExpression;
+import com.moefrumkin.droplet.parser.expression.IdentifierExpression;
+import com.moefrumkin.droplet.parser.function.Function;
+import com.moefrumkin.droplet.parser.function.FunctionList;
+import com.moefrumkin.droplet.parser.function.LazyBody;
+import com.moefrumkin.droplet.parser.statement.CompoundStatement;
+import com.moefrumkin.droplet.parser.statement.DeclarationStatement;
+import com.moefrumkin.droplet.parser.statement.ExpressionStatement;
+import com.moefrumkin.droplet.parser.statement.ReturnStatement;
+import com.moefrumkin.droplet.token.Token;
+import com.moefrumkin.droplet.token.Type;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SymbolTableTest {
+
+    private final String program = """
+            def main() {
+                let n = 3;
+                return twice(n);
+            }
+
+            def twice(n) {
+                return n + n;
+            }
+            """;
+
+    @Test
+    public void testDenseIds() {
+        SymbolTable symbols = new SymbolTable();
+        Symbol a = symbols.intern("a");
+        Symbol b = symbols.intern(Token.of(Type.IDENTIFIER, "b"));
+        assertEquals(0, a.id());
+        assertEquals(1, b.id());
+        assertSame(a, symbols.intern("a"));
+        assertSame(b, symbols.intern(b));
+        assertEquals(2, symbols.size());
+        assertEquals("b", symbols.name(1));
+        assertNull(symbols.lookup("c"));
+        assertEquals(Token.of(Type.IDENTIFIER, "a"), a);
+        assertThrows(IllegalArgumentException.class, () -> symbols.intern(Token.of(Type.LITERAL, "1")));
+
+        //a symbol of another table is given an id in this one
+        Symbol other = new SymbolTable().intern("b");
+        assertSame(b, symbols.intern(other));
+    }
+
+    @Test
+    public void testParserFillsTable() throws UnexpectedTokenTypeException, UnexpectedTokenException {
+        Parser parser = new Parser(Token.tokenize(program));
+        FunctionList parsed = (FunctionList) parser.parse();
+        SymbolTable symbols = parser.symbols();
+        assertEquals(3, symbols.size());
+
+        Function main = parsed.functions().get(0);
+        Function twice = parsed.functions().get(1);
+        DeclarationStatement declaration = (DeclarationStatement) ((CompoundStatement) main.body()).statements().get(0);
+        FunctionCallExpression call = (FunctionCallExpression) ((ReturnStatement) ((CompoundStatement) main.body()).statements().get(1)).expression();
+        BinaryOperationExpression sum = (BinaryOperationExpression) ((ReturnStatement) ((CompoundStatement) twice.body()).statements().get(0)).expression();
+
+        assertEquals(symbols.lookup("main").id(), main.symbol());
+        assertEquals(twice.symbol(), call.symbol());
+        assertEquals(declaration.symbol(), SymbolTable.id(twice.parameters().get(0)));
+        assertEquals(declaration.symbol(), ((IdentifierExpression) call.arguments().get(0)).symbol());
+        assertSame(((IdentifierExpression) sum.left()).identifier(), ((IdentifierExpression) sum.right()).identifier());
+
+        //trees with ids are equal to trees without
+        assertEquals(new IdentifierExpression(Token.of(Type.IDENTIFIER, "n")), sum.left());
+        assertEquals(SymbolTable.UNRESOLVED, new IdentifierExpression(Token.of(Type.IDENTIFIER, "n")).symbol());
+    }
+
+    @Test
+    public void testLazyBodiesShareTable() throws UnexpectedTokenTypeException, UnexpectedTokenException {
+        Parser parser = new Parser(Token.tokenize(program));
+        FunctionList parsed = (FunctionList) parser.parseLazily();
+        assertEquals(3, parser.symbols().size());
+
+        Function main = parsed.functions().get(0);
+        ExpressionStatement statement = new ExpressionStatement(((ReturnStatement) ((CompoundStatement) ((LazyBody) main.body()).statement()).statements().get(1)).expression());
+        assertEquals(parsed.functions().get(1).symbol(), ((FunctionCallExpression) statement.expression()).symbol());
+        assertEquals(3, parser.symbols().size());
+    }
+
+    @Test
+    public void testDecodedProgramHasIds() throws UnexpectedTokenTypeException, UnexpectedTokenException, IOException {
+        FunctionList parsed = (FunctionList) new Parser(Token.tokenize(program)).parse();
+        FunctionList decoded = ProgramFormat.decode(ByteBuffer.wrap(ProgramFormat.encode(parsed)));
+        List<Function> functions = decoded.functions();
+        assertNotEquals(SymbolTable.UNRESOLVED, functions.get(0).symbol());
+        assertNotEquals(functions.get(0).symbol(), functions.get(1).symbol());
+        assertNotEquals(SymbolTable.UNRESOLVED, SymbolTable.id(functions.get(1).parameters().get(0)));
+    }
+}
@@ -0,0 +1,101 @@
+package com.moefrumkin.droplet.token;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LexerTest {
+    private final String program = """
+                def main() {
+                    let i = 5;
+                    let j = -i;
+                    print(i + j == 0);
+                }
+
+                def factorial(n) {
+                    if(n == 0)
+                        return 1;
+                    return n * factorial(n - 1);
+                }
+            """;
+
+    private final String unusual = "iffy letter-5 a^b | && || != ! === ~x 12ab\tdefine\f\r\nreturned whilst";
+
+    @Test
+    public void scannerMatchesRegex() {
+        assertEquals(Lexer.REGEX.tokenize(program), Lexer.SCANNER.tokenize(program));
+        assertEquals(Lexer.REGEX.tokenize(unusual), Lexer.SCANNER.tokenize(unusual));
+        assertEquals(Lexer.REGEX.tokenize(""), Lexer.SCANNER.tokenize(""));
+    }
+
+    @Test
+    public void parallel() {
+        String tricky = program + "ifdef undef}def x-def 5def|def ==def" + program;
+        ParallelLexer lexer = new ParallelLexer(new ForkJoinPool(4), 1);
+
+        assertEquals(Lexer.SCANNER.tokenize(program), lexer.tokenize(program));
+        assertEquals(Lexer.SCANNER.tokenize(tricky), lexer.tokenize(tricky));
+        assertEquals(Lexer.SCANNER.tokenize(""), lexer.tokenize(""));
+        assertEquals(Lexer.SCANNER.tokenize(tricky), lexer.tokenize(ByteBuffer.wrap(tricky.getBytes(StandardCharsets.US_ASCII))));
+        assertEquals(Lexer.SCANNER.tokenize(program), Lexer.PARALLEL.tokenize(program));
+    }
+
+    @Test
+    public void definitions() {
+        assertArrayEquals(new int[]{0, 16}, DefinitionSplitter.topLevelDefinitions("def f() { def } def", 0, 19));
+        assertEquals(12, DefinitionSplitter.nextDefinition("undef ifdef def", 0, 15));
+    }
+
+    @Test
+    public void bytes() throws IOException {
+        List<Token> expected = Lexer.SCANNER.tokenize(program);
+        assertEquals(expected, Lexer.SCANNER.tokenize(ByteBuffer.wrap(program.getBytes(StandardCharsets.US_ASCII))));
+        assertEquals(expected, Lexer.REGEX.tokenize(ByteBuffer.wrap(program.getBytes(StandardCharsets.US_ASCII))));
+
+        Path file = Files.createTempFile("droplet", ".dp");
+        try {
+            Files.writeString(file, program);
+            assertEquals(expected, Lexer.SCANNER.tokenize(file));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void vector() {
+        //the vector runs are only compiled and added by the vector profile, and the lexer falls back to the scalar scanner without them
+        if (Boolean.getBoolean("droplet.vector"))
+            assertNotNull(Runs.VECTOR);
+
+        //runs longer than any vector, and runs that end exactly at the end of the source
+        String runs = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz "
+                + " \t\n\r\f".repeat(20) + "1234567890".repeat(10) + "`{@[" + "x".repeat(64) + "\u00e9\u4e16" + "9".repeat(64);
+        for (String source : List.of(program, unusual, runs, "", "a", " ")) {
+            List<Token> expected = Lexer.SCANNER.tokenize(source);
+            assertEquals(expected, Lexer.VECTOR.tokenize(source));
+            assertEquals(expected, Lexer.VECTOR.tokenize(ByteBuffer.wrap(source.getBytes(StandardCharsets.ISO_8859_1))));
+        }
+    }
+
+    @Test
+    public void scannerTokens() {
+        assertEquals(List.of(
+                new Token(Type.KEYWORD, "if"),
+                new Token(Type.IDENTIFIER, "fy"),
+                new Token(Type.IDENTIFIER, "a"),
+                new Token(Type.LITERAL, "-5"),
+                new Token(Type.OPERATOR, "=="),
+                new Token(Type.OPERATOR, "="),
+                new Token(Type.SPECIAL, ";"),
+                new Token(Type.TERMINATOR, "")
+        ), Lexer.SCANNER.tokenize("iffy a-5 ===;"));
+    }
+}
@@ -0,0 +1,61 @@
+package com.moefrumkin.droplet.token;
+
+import com.moefrumkin.droplet.parser.Parser;
+import com.moefrumkin.droplet.parser.exception.UnexpectedTokenException;
+import com.moefrumkin.droplet.parser.exception.UnexpectedTokenTypeException;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TokenBufferTest {
+    private final String program = """
+            def main() {
+                let i = 5;
+                print(i + -3);
+            }
+            """;
+
+    private List<Token> tokens(TokenBuffer buffer) {
+        List<Token> tokens = new ArrayList<>();
+        for (int i = 0; i < buffer.size(); i++)
+            tokens.add(buffer.token(i));
+        return tokens;
+    }
+
+    @Test
+    public void matchesLexer() {
+        assertEquals(Token.tokenize(program), tokens(TokenBuffer.tokenize(program)));
+        assertEquals(Token.tokenize(program), tokens(TokenBuffer.tokenize(ByteBuffer.wrap(program.getBytes(StandardCharsets.US_ASCII)))));
+    }
+
+    @Test
+    public void positions() {
+        TokenBuffer buffer = TokenBuffer.tokenize(program);
+
+        //let
+        assertEquals(Type.KEYWORD, buffer.type(5));
+        assertEquals("let", buffer.text(5));
+        assertEquals(new Position(17, 2, 5), buffer.position(5));
+        //-3
+        assertEquals("-3", buffer.text(14));
+        assertEquals(3, buffer.line(14));
+        assertEquals(15, buffer.column(14));
+        //terminator
+        assertEquals(Type.TERMINATOR, buffer.type(buffer.size() - 1));
+        assertEquals(program.length(), buffer.start(buffer.size() - 1));
+    }
+
+    @Test
+    public void parse() throws UnexpectedTokenTypeException, UnexpectedTokenException {
+        assertEquals(new Parser(Token.tokenize(program)).parse(), new Parser(TokenBuffer.tokenize(program).stream()).parse());
+
+        UnexpectedTokenException exception = assertThrows(UnexpectedTokenException.class,
+                () -> new Parser(TokenBuffer.tokenize("def main() {\n  let i = 5\n}").stream()).parse());
+        assertEquals(new Position(25, 3, 1), exception.getPosition().orElseThrow());
+    }
+}
@@ -0,0 +1,59 @@
+package com.moefrumkin.droplet.token;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.StringReader;
+import java.nio.channels.Channels;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TokenStreamTest {
+    private final String program = """
+                def main() {
+                    let i = 5;
+                    let j = -i;
+                    print(i + j == 0 || i != 3 && !j);
+                }
+
+                def factorial(n) {
+                    if(n == 0)
+                        return 1;
+                    return n * factorial(n - 1);
+                }
+            """;
+
+    private List<Token> drain(TokenStream stream) {
+        List<Token> tokens = new ArrayList<>();
+        while (stream.hasNext()) {
+            tokens.add(stream.peek(0));
+            stream.advance();
+        }
+        return tokens;
+    }
+
+    @Test
+    public void readerMatchesLexer() {
+        List<Token> expected = Token.tokenize(program);
+
+        assertEquals(expected, drain(TokenStream.of(new StringReader(program))));
+        assertEquals(expected, drain(TokenStream.of(Channels.newChannel(new ByteArrayInputStream(program.getBytes())))));
+        //force a refill in the middle of every token
+        for (int bufferSize = 1; bufferSize < 8; bufferSize++)
+            assertEquals(expected, drain(new ReaderTokenStream(new StringReader(program), bufferSize)));
+    }
+
+    @Test
+    public void lookahead() {
+        TokenStream stream = new ReaderTokenStream(new StringReader("let n = 5;"), 2);
+
+        assertEquals(new Token(Type.LITERAL, "5"), stream.peek(3));
+        assertEquals(new Token(Type.KEYWORD, "let"), stream.peek(0));
+        assertEquals(new Token(Type.IDENTIFIER, "n"), stream.replace(1, new Token(Type.IDENTIFIER, "m")));
+        stream.advance();
+        assertEquals(new Token(Type.IDENTIFIER, "m"), stream.peek(0));
+        assertEquals(new Token(Type.TERMINATOR, ""), stream.peek(8));
+    }
+}
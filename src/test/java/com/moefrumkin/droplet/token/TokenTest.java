@@ -31,6 +31,20 @@ public class TokenTest {
         assertThrows(IllegalArgumentException.class, () -> new Token(Type.KEYWORD, "throw"));
     }
 
+    @Test
+    public void flyweights() {
+        assertSame(Token.of(Type.KEYWORD, "let"), tokenized.get(0));
+        assertSame(Token.of(Type.OPERATOR, "="), tokenized.get(2));
+        assertSame(Token.terminator(), tokenized.get(5));
+        assertEquals(let, Token.of(Type.KEYWORD, "let"));
+        assertNotSame(Token.of(Type.IDENTIFIER, "n"), Token.of(Type.IDENTIFIER, "n"));
+
+        assertThrows(IllegalArgumentException.class, () -> Token.of(Type.IDENTIFIER, "ha ha"));
+        assertThrows(IllegalArgumentException.class, () -> Token.of(Type.LITERAL, "-"));
+        assertThrows(IllegalArgumentException.class, () -> Token.of(Type.OPERATOR, "^"));
+        assertThrows(IllegalArgumentException.class, () -> Token.of(Type.KEYWORD, "throw"));
+    }
+
     @Test
     public void equality() {
         assertEquals(alsoBlank, blank);